@@ -0,0 +1,87 @@
+package capstone.bench;
+
+import capstone.data.Highscore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of loading and storing a highscore file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HighscoreBenchmark
+{
+    @Setup(Level.Trial) public void setUp() throws IOException
+    {
+        _directory = Files.createTempDirectory("benchmark").toFile();
+
+        _highscore = new Highscore("Benchmark");
+
+        Random random = new Random(SEED);
+
+        for (int i = 0; i < ENTRIES; ++i)
+        {
+            _highscore.putIds(
+                    random.nextDouble() * 1000,
+                    Collections.singletonList("player" + i)
+            );
+        }
+
+        _highscore.store(_directory);
+
+        _file = new File(_directory, _highscore.fileName());
+    }
+
+    @TearDown(Level.Trial) public void tearDown()
+    {
+        _file.delete();
+
+        _directory.delete();
+    }
+
+    @Benchmark public Highscore loadHighscore() throws IOException
+    {
+        return new Highscore(_file);
+    }
+
+    @Benchmark public Highscore storeHighscore() throws IOException
+    {
+        _highscore.store(_directory);
+
+        return _highscore;
+    }
+
+    /**
+     * The number of entries of the highscore.
+     */
+    private static final int ENTRIES = 100;
+
+    private static final long SEED = 42;
+
+    private File _directory;
+
+    private File _file;
+
+    private Highscore _highscore;
+}
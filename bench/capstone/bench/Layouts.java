@@ -0,0 +1,147 @@
+package capstone.bench;
+
+import capstone.data.Profile;
+import capstone.data.Representation;
+import capstone.data.Theme;
+import capstone.element.Element;
+import capstone.game.Level;
+import capstone.utility.KeyMap;
+import capstone.utility.LevelBuilder;
+import capstone.utility.LevelFile;
+import capstone.utility.Page;
+import capstone.utility.PageGrid;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the layouts shipped in resources/layouts for the benchmarks,
+ * always for the same terminal, theme and player, so that the results
+ * of different commits can be compared.
+ */
+final class Layouts
+{
+    /**
+     * The size of the terminal of all benchmarks.
+     */
+    static final TerminalSize TERMINAL = new TerminalSize(80, 24);
+
+    /**
+     *
+     * Reads a shipped layout.
+     *
+     * @param name The name of the layout, without extension.
+     *
+     * @return The LevelFile.
+     *
+     * @throws IOException for I/O badness.
+     */
+    static LevelFile read(String name) throws IOException
+    {
+        return LevelFile.read(file(name));
+    }
+
+    /**
+     * @param name The name of the layout, without extension.
+     *
+     * @return The file of the shipped layout.
+     */
+    static File file(String name)
+    {
+        return new File("resources/layouts", name + ".layout");
+    }
+
+    /**
+     *
+     * Builds a level from a shipped layout, as the game does.
+     *
+     * @param name The name of the layout, without extension.
+     *
+     * @return The LevelBuilder.
+     *
+     * @throws IOException for I/O badness.
+     */
+    static LevelBuilder build(String name) throws IOException
+    {
+        return new LevelBuilder(
+                Level.Difficulty.EASY,
+                name,
+                read(name),
+                theme(),
+                profiles(),
+                TERMINAL
+        );
+    }
+
+    /**
+     *
+     * Collects all elements of a grid.
+     *
+     * @param grid The grid.
+     *
+     * @return The elements.
+     */
+    static List<Element> elements(PageGrid grid)
+    {
+        List<Element> elements = new ArrayList<>();
+
+        for (Page page : grid.pages())
+        {
+            for (Element element : page) elements.add(element);
+        }
+
+        return elements;
+    }
+
+    /**
+     * @return A theme that needs no theme file.
+     */
+    static Theme theme()
+    {
+        Theme theme = new Theme("Benchmark");
+
+        for (Element.Kind kind : Element.Kind.kinds())
+        {
+            theme.representation(kind, _representation(kind.toString().charAt(0)));
+        }
+
+        return theme;
+    }
+
+    /**
+     * @return The profile of the one player.
+     */
+    static List<Profile> profiles()
+    {
+        return new ArrayList<>(Collections.singletonList(profile()));
+    }
+
+    /**
+     * @return A profile that needs no profile file.
+     */
+    static Profile profile()
+    {
+        return new Profile(
+                "benchmark",
+                "Benchmark",
+                KeyMap.Arrows(),
+                _representation('@')
+        );
+    }
+
+    private static Representation _representation(char character)
+    {
+        return new Representation(
+                character,
+                Terminal.Color.DEFAULT,
+                Terminal.Color.DEFAULT
+        );
+    }
+
+    private Layouts() { }
+}
@@ -0,0 +1,85 @@
+package capstone.bench;
+
+import capstone.game.Level;
+import capstone.utility.LevelBuilder;
+import capstone.utility.LevelFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of deserializing levels from shipped layouts,
+ * from a file as well as from properties, and of serializing
+ * them to properties or a LevelFile.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelBuilderBenchmark
+{
+    @Param({"tiny", "medium", "big_sparse", "big_dense"})
+    public String layout;
+
+    @Setup public void setUp() throws IOException
+    {
+        _properties = new Properties();
+
+        try (InputStream stream = new FileInputStream(Layouts.file(layout)))
+        {
+            _properties.load(stream);
+        }
+
+        _builder = Layouts.build(layout);
+    }
+
+    /**
+     * Reads and deserializes the layout file, as the game does.
+     */
+    @Benchmark public LevelBuilder deserializeFile() throws IOException
+    {
+        return Layouts.build(layout);
+    }
+
+    @Benchmark public LevelBuilder deserializeProperties()
+    {
+        return new LevelBuilder(
+                Level.Difficulty.EASY,
+                layout,
+                _properties,
+                Layouts.theme(),
+                Layouts.profiles(),
+                Layouts.TERMINAL
+        );
+    }
+
+    @Benchmark public Properties serialize()
+    {
+        return _builder.serialize();
+    }
+
+    @Benchmark public LevelFile levelFile()
+    {
+        return _builder.levelFile();
+    }
+
+    private Properties _properties;
+
+    private LevelBuilder _builder;
+}
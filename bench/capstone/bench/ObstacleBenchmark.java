@@ -0,0 +1,108 @@
+package capstone.bench;
+
+import capstone.data.Theme;
+import capstone.element.DynamicObstacle;
+import capstone.element.Element;
+import capstone.utility.ObstacleUpdater;
+import capstone.utility.PageGrid;
+import capstone.utility.Point;
+import capstone.utility.Region;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of moving the dynamic obstacles of a shipped layout, in steps
+ * per second: step() is a single step of one obstacle (of each in turn),
+ * update() one step of all obstacles of the level, as in a tick of the game.
+ * Run with -prof gc to see how much each allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObstacleBenchmark
+{
+    @Param({"big_dynamic_hell", "big_sparse"})
+    public String layout;
+
+    /**
+     * How many obstacles to add to those of the layout, at random free points.
+     */
+    @Param({"0", "1000"})
+    public int extra;
+
+    @Setup public void setUp() throws IOException
+    {
+        _grid = Layouts.build(layout).grid();
+
+        _random = new Random(SEED);
+
+        Theme theme = Layouts.theme();
+
+        for (int i = 0; i < extra; ++i)
+        {
+            _grid.generate(Element.Kind.DYNAMIC_OBSTACLE, theme, _random);
+        }
+
+        _obstacles = _grid.dynamicObstacles().toArray(new DynamicObstacle[0]);
+
+        _region = _grid.region();
+
+        _taken = _grid.positions();
+
+        _updater = new ObstacleUpdater(_grid);
+    }
+
+    /**
+     * Proposes the next point of every obstacle in turn, without moving it.
+     */
+    @Benchmark public Point step()
+    {
+        _next = (_next + 1) % _obstacles.length;
+
+        return _obstacles[_next].peekPoint(_region, _taken, _random);
+    }
+
+    /**
+     * Moves all obstacles of the level, i.e. as
+     * many steps as there are obstacles.
+     */
+    @Benchmark public PageGrid update()
+    {
+        _updater.update();
+
+        return _grid;
+    }
+
+    private static final long SEED = 42;
+
+    private PageGrid _grid;
+
+    private DynamicObstacle[] _obstacles;
+
+    private Region _region;
+
+    private Set<Point> _taken;
+
+    private ObstacleUpdater _updater;
+
+    private Random _random;
+
+    private int _next;
+}
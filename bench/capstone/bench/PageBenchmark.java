@@ -0,0 +1,92 @@
+package capstone.bench;
+
+import capstone.data.Theme;
+import capstone.element.Element;
+import capstone.element.Wall;
+import capstone.utility.Page;
+import capstone.utility.PageGrid;
+import capstone.utility.Point;
+import capstone.utility.Region;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of looking up, adding and removing
+ * elements on the first page of a shipped layout.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageBenchmark
+{
+    @Param({"medium", "big_dense"})
+    public String layout;
+
+    @Setup public void setUp() throws IOException
+    {
+        PageGrid grid = Layouts.build(layout).grid();
+
+        _page = grid.fetch(0, 0);
+
+        _region = _page.region();
+
+        Point free = _page.freePoint(grid.region());
+
+        Theme theme = Layouts.theme();
+
+        _wall = new Wall(free, theme.representation(Element.Kind.WALL));
+
+        _x = _region.southWest().x();
+
+        _y = _region.northEast().y();
+    }
+
+    /**
+     * Looks up every cell of the page in turn, empty or not.
+     */
+    @Benchmark public Element at()
+    {
+        if (++_x > _region.northEast().x())
+        {
+            _x = _region.southWest().x();
+
+            if (++_y > _region.southWest().y()) _y = _region.northEast().y();
+        }
+
+        return _page.at(_x, _y);
+    }
+
+    @Benchmark public Page addAndRemove()
+    {
+        _page.add(_wall);
+
+        _page.remove(_wall);
+
+        return _page;
+    }
+
+    private Page _page;
+
+    private Region _region;
+
+    private Element _wall;
+
+    private int _x;
+
+    private int _y;
+}
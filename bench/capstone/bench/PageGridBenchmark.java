@@ -0,0 +1,129 @@
+package capstone.bench;
+
+import capstone.element.Element;
+import capstone.element.Player;
+import capstone.utility.Dimensions;
+import capstone.utility.LevelSize;
+import capstone.utility.Page;
+import capstone.utility.PageGrid;
+import capstone.utility.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the PageGrid: constructing it from each shipped layout,
+ * switching pages by fetching them and by following a player, and
+ * finding free points.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageGridBenchmark
+{
+    @Param({
+            "tiny",
+            "medium",
+            "medium2",
+            "big_sparse",
+            "big_dense",
+            "dynamic_hell",
+            "big_dynamic_hell"
+    })
+    public String layout;
+
+    @Setup public void setUp() throws IOException
+    {
+        _grid = Layouts.build(layout).grid();
+
+        _levelSize = _grid.levelSize();
+
+        _elements = Layouts.elements(_grid);
+
+        Dimensions dimensions = _grid.dimensions();
+
+        _columns = dimensions.width();
+
+        _numberOfPages = _columns * dimensions.height();
+
+        _player = new Player(Point.of(0, 0), Layouts.profile());
+
+        _random = new Random(SEED);
+    }
+
+    @Benchmark public PageGrid construct()
+    {
+        return new PageGrid(_levelSize, Layouts.TERMINAL, _elements);
+    }
+
+    /**
+     * Fetches every page in turn, i.e. a page switch per call.
+     */
+    @Benchmark public Page fetch()
+    {
+        _next = (_next + 1) % _numberOfPages;
+
+        return _grid.fetch(_next % _columns, _next / _columns);
+    }
+
+    /**
+     * Follows a player walking diagonally through the level,
+     * which switches pages every so often.
+     */
+    @Benchmark public Page follow()
+    {
+        Point point = _player.point();
+
+        int x = (point.x() + 1) % _levelSize.getColumns();
+
+        int y = (point.y() + 1) % _levelSize.getRows();
+
+        _player.point(Point.of(x, y));
+
+        return _grid.follow(_player);
+    }
+
+    @Benchmark public PageGrid.Location findFreePoint()
+    {
+        return _grid.findFreePoint();
+    }
+
+    @Benchmark public PageGrid.Location randomFreePoint()
+    {
+        return _grid.randomFreePoint(_random);
+    }
+
+    private static final long SEED = 42;
+
+    private PageGrid _grid;
+
+    private LevelSize _levelSize;
+
+    private List<Element> _elements;
+
+    private int _columns;
+
+    private int _numberOfPages;
+
+    private int _next;
+
+    private Player _player;
+
+    private Random _random;
+}
@@ -1,5 +1,6 @@
 import capstone.game.Game;
 
+import java.io.File;
 import java.io.IOException;
 
 public class Main
@@ -8,6 +9,12 @@ public class Main
     {
         Game game = new Game();
 
+        // Main --record <directory>
+        if (args.length == 2 && args[0].equals("--record"))
+        {
+            game.record(new File(args[1]));
+        }
+
         game.play(); // <3
     }
 }
\ No newline at end of file
@@ -75,14 +75,15 @@ public abstract class Data implements Serializable
         // Makes a file at directory/filename()
         File file = new File(directory, fileName());
 
-        OutputStream output = new BufferedOutputStream(new FileOutputStream(file));
-
         Properties serialization = serialize();
 
-        serialization.store(
-                output,
-                String.format("%1$s", this.getClass().getName())
-        );
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file)))
+        {
+            serialization.store(
+                    output,
+                    String.format("%1$s", this.getClass().getName())
+            );
+        }
     }
 
     /**
@@ -7,6 +7,7 @@ import capstone.utility.Region;
 
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Abstract class for all dynamic-obstacles, i.e. all obstacles that move.
@@ -17,29 +18,91 @@ import java.util.Set;
  */
 public abstract class DynamicObstacle extends Element
 {
+    /**
+     * The ways a dynamic-obstacle can move.
+     */
+    public enum Behavior
+    {
+        /**
+         * Walks the labyrinth on its own (an IntelligentObstacle).
+         */
+        WANDER,
+
+        /**
+         * Chases the nearest player (a HunterObstacle).
+         */
+        HUNT,
+
+        /**
+         * Follows the flow-field shared by all obstacles
+         * towards the players (a FlowObstacle).
+         */
+        FLOW,
+
+        /**
+         * Follows a fixed pattern of steps (a PatternObstacle),
+         * by default PatternObstacle.DEFAULT.
+         */
+        PATTERN;
+
+        /**
+         *
+         * Factory-function to get a Behavior given its code.
+         *
+         * @param code The code (ordinal) of the enum.
+         *
+         * @return The Behavior associated with that code.
+         */
+        public static Behavior fromCode(int code)
+        {
+            switch (code)
+            {
+                case 0: return WANDER;
+                case 1: return HUNT;
+                case 2: return FLOW;
+                case 3: return PATTERN;
+            }
+
+            throw new AssertionError();
+        }
+
+        /**
+         * @return The code (ordinal) of the Behavior, with
+         *         which layouts ask for it (see ObstacleSpec).
+         */
+        public int code()
+        {
+            return ordinal();
+        }
+    }
+
     /**
      *
-     * Factory-method to create a random dynamic-obstacle concrete-object.
+     * Factory-method to create a dynamic-obstacle with a certain behavior.
      *
-     * All dynamic-obstacle types except IntelligentObstacle
-     * are deprecated so basically don't use this method.
+     * @param behavior The behavior of the dynamic-obstacle.
      *
      * @param point The point to construct the dynamic-obstacle at.
      *
      * @param representation The representation to construct
      *                       the dynamic-obstacle with.
      *
-     * @return An instance of one of the subclasses of DynamicObstacle.
-     *         Which subclass it is is random.
+     * @return An instance of the subclass of DynamicObstacle
+     *         implementing the behavior.
      */
-    @Deprecated public static DynamicObstacle
-    Random(Point point, Representation representation)
+    public static DynamicObstacle Create(Behavior behavior,
+                                         Point point,
+                                         Representation representation)
     {
-        switch (_random.nextInt(3))
+        assert(behavior != null);
+
+        switch (behavior)
         {
-            case 0: return new PatternObstacle   (point, representation);
-            case 1: return new RandomizedObstacle(point, representation);
-            case 2: return new IntelligentObstacle(point, representation);
+            case WANDER:  return new IntelligentObstacle(point, representation);
+            case HUNT:    return new HunterObstacle(point, representation);
+            case FLOW:    return new FlowObstacle(point, representation);
+            case PATTERN: return new PatternObstacle(point, representation,
+                                                     PatternObstacle.DEFAULT);
         }
 
         throw new AssertionError();
@@ -58,8 +121,147 @@ public abstract class DynamicObstacle extends Element
     public DynamicObstacle(Point point, Representation representation)
     {
         super(Kind.DYNAMIC_OBSTACLE, point, representation);
+
+        _period = 1;
+    }
+
+    /**
+     * @return The behavior the dynamic-obstacle implements.
+     */
+    public abstract Behavior behavior();
+
+    /**
+     *
+     * Describes the dynamic-obstacle: its behavior, the parameters of the
+     * behavior and the state of its motion, such that the obstacle created
+     * from the description moves exactly as this one would from now on.
+     *
+     * Subclasses with parameters add them to the spec.
+     *
+     * @return The ObstacleSpec of the dynamic-obstacle.
+     */
+    public ObstacleSpec spec()
+    {
+        ObstacleSpec spec = new ObstacleSpec(behavior());
+
+        spec.period(_period);
+
+        spec.rest(_rest);
+
+        spec.state(state());
+
+        return spec;
+    }
+
+    /**
+     * @return The number of ticks per step of the dynamic-obstacle,
+     *         i.e. 1 if it moves on every tick, 2 if it moves on every
+     *         other tick and so on.
+     */
+    public int period()
+    {
+        return _period;
+    }
+
+    /**
+     *
+     * Sets the number of ticks per step of the dynamic-obstacle.
+     * The higher, the slower and cheaper the dynamic-obstacle.
+     *
+     * @param period The number of ticks per step. Must be positive.
+     */
+    public void period(int period)
+    {
+        assert(period > 0);
+
+        _period = period;
+
+        _rest = Math.min(_rest, period - 1);
+    }
+
+    /**
+     * @return The number of ticks the dynamic-obstacle still
+     *         rests before its next step (see period()).
+     */
+    public int rest()
+    {
+        return _rest;
+    }
+
+    /**
+     *
+     * Sets the number of ticks the dynamic-obstacle still rests before
+     * its next step, e.g. to resume it where a session left off.
+     *
+     * @param rest The number of ticks, less than the period.
+     */
+    public void rest(int rest)
+    {
+        assert(rest >= 0);
+        assert(rest < _period);
+
+        _rest = rest;
+    }
+
+    /**
+     *
+     * Returns the state of the motion that is not given by the parameters
+     * of the behavior, e.g. the position in a pattern, as a number that is
+     * 0 for a new dynamic-obstacle.
+     *
+     * Subclasses whose motion has such state override both state() methods.
+     *
+     * @return The state of the motion.
+     */
+    public int state()
+    {
+        return 0;
+    }
+
+    /**
+     *
+     * Restores the state of the motion, as returned by state().
+     *
+     * @param state The state of the motion.
+     */
+    public void state(int state)
+    {
+        assert(state == 0);
+    }
+
+    /**
+     * @return The position of the dynamic-obstacle in the
+     *         grid's index of dynamic-obstacles.
+     */
+    public int index()
+    {
+        return _index;
+    }
+
+    /**
+     *
+     * Sets the position of the dynamic-obstacle in the grid's index of
+     * dynamic-obstacles, which lets the grid remove it without searching
+     * the index.
+     *
+     * @param index The new position.
+     */
+    public void index(int index)
+    {
+        assert(index >= 0);
+
+        _index = index;
     }
 
+    /**
+     *
+     * Tells the dynamic-obstacle where the players are, right before it
+     * is updated. Dynamic-obstacles that do not chase players ignore it.
+     *
+     * @param quarry The points of the living players.
+     */
+    public void sense(Quarry quarry) { }
+
     /**
      *
      * Updates the point in a safe way.
@@ -72,6 +274,8 @@ public abstract class DynamicObstacle extends Element
      *
      * What that update means depends on the concrete class. The
      * dynamic-obstacle could move randomly, according to some pattern etc.
+     * Any randomness comes from the calling thread's generator, which is
+     * not seeded, so the game itself always passes its own source.
      *
      * @param region The region the point of the dynamic-obstacle
      *               must be in after updating.
@@ -83,7 +287,29 @@ public abstract class DynamicObstacle extends Element
      */
     public Point update(Region region, Set<Point> taken)
     {
-        return _point = peekPoint(region, taken);
+        return update(region, taken, ThreadLocalRandom.current());
+    }
+
+    /**
+     *
+     * Updates the point in a safe way, drawing any randomness
+     * of the motion from the given source.
+     *
+     * @param region The region the point of the dynamic-obstacle
+     *               must be in after updating.
+     *
+     * @param taken The set of points the point of the dynamic-obstacle
+     *              must not be on after updating.
+     *
+     * @param random The source of randomness for the motion.
+     *
+     * @return A valid point fitting both constraints.
+     *
+     * @see DynamicObstacle#update(Region, Set)
+     */
+    public Point update(Region region, Set<Point> taken, Random random)
+    {
+        return _point = peekPoint(region, taken, random);
     }
 
     /**
@@ -101,6 +327,41 @@ public abstract class DynamicObstacle extends Element
      */
     public Delta peekDelta(Region region, Set<Point> taken)
     {
+        return peekDelta(region, taken, ThreadLocalRandom.current());
+    }
+
+    /**
+     *
+     * Returns the next safe Delta, drawing any randomness
+     * of the motion from the given source.
+     *
+     * While the dynamic-obstacle rests between two steps (see
+     * period()), the delta is Delta.Stay() and no randomness is drawn.
+     *
+     * @param region The region the point of the dynamic-obstacle
+     *               must be in after the delta would be applied.
+     *
+     * @param taken The set of points the point of the dynamic-obstacle
+     *              must not be on after the delta would be applied.
+     *
+     * @param random The source of randomness for the motion.
+     *
+     * @return A valid delta fitting both constraints.
+     */
+    public Delta peekDelta(Region region, Set<Point> taken, Random random)
+    {
+        assert(random != null);
+
+        // Slower dynamic-obstacles rest for some ticks between their steps
+        if (_rest > 0)
+        {
+            --_rest;
+
+            return Delta.Stay();
+        }
+
+        _rest = _period - 1;
+
         // Check if there can even be a valid delta!
         if (taken.size() == region.area())
         {
@@ -110,7 +371,7 @@ public abstract class DynamicObstacle extends Element
             return Delta.Stay();
         }
 
-        return _next(region, taken);
+        return _next(region, taken, random);
     }
 
     /**
@@ -126,7 +387,29 @@ public abstract class DynamicObstacle extends Element
      */
     public Point peekPoint(Region region, Set<Point> taken)
     {
-        return new Point(_point).move(peekDelta(region, taken));
+        return peekPoint(region, taken, ThreadLocalRandom.current());
+    }
+
+    /**
+     *
+     * Returns the next safe point, drawing any randomness
+     * of the motion from the given source.
+     *
+     * Note that, like peekDelta(), this advances the state of the
+     * motion (e.g. the direction or position in a pattern), so
+     * the point returned is the one the obstacle should move to.
+     *
+     * @param region The region the point returned must be in.
+     *
+     * @param taken The set of points the point returned must not be on.
+     *
+     * @param random The source of randomness for the motion.
+     *
+     * @return A valid point fitting both constraints.
+     */
+    public Point peekPoint(Region region, Set<Point> taken, Random random)
+    {
+        return _point.plus(peekDelta(region, taken, random));
     }
 
     /**
@@ -140,9 +423,15 @@ public abstract class DynamicObstacle extends Element
      * @param taken The set of points the point of the dynamic-obstacle
      *              must not be on after the delta would be applied.
      *
+     * @param random The source of randomness for the motion. Obstacles
+     *               must not use any other, so that updates are
+     *               reproducible and can run on several threads.
+     *
      * @return A valid delta fitting both constraints.
      */
-    protected abstract Delta _next(Region region, Set<Point> taken);
+    protected abstract Delta _next(Region region,
+                                   Set<Point> taken,
+                                   Random random);
 
     /**
      *
@@ -163,10 +452,47 @@ public abstract class DynamicObstacle extends Element
     {
         if (_point.wouldGoOutside(delta, region)) return false;
 
-        Point next = new Point(_point).move(delta);
+        return ! taken.contains(_point.plus(delta));
+    }
+
+    /**
+     *
+     * Picks the first direction of MOTION, starting at the
+     * given one, in which the dynamic-obstacle can move.
+     *
+     * @param region The region the dynamic-obstacle must stay in.
+     *
+     * @param taken The points the dynamic-obstacle must not move to.
+     *
+     * @param rotation Which direction of MOTION to try first.
+     *
+     * @return The direction, or STAY if the dynamic-obstacle is stuck.
+     */
+    protected Direction _wander(Region region, Set<Point> taken, int rotation)
+    {
+        for (int i = 0; i < MOTION.length; ++i)
+        {
+            Direction direction = MOTION[(i + rotation) % MOTION.length];
+
+            if (_valid(direction.delta(), region, taken)) return direction;
+        }
 
-        return ! taken.contains(next);
+        return Direction.STAY;
     }
 
-    private static Random _random = new Random();
+    /**
+     * The directions a dynamic-obstacle can move in.
+     */
+    protected static final Direction[] MOTION = {
+            Direction.UP,
+            Direction.DOWN,
+            Direction.LEFT,
+            Direction.RIGHT
+    };
+
+    private int _period;
+
+    private int _rest;
+
+    private int _index;
 }
@@ -160,6 +160,29 @@ public abstract class Element
      * @return A newly constructed Element.
      */
     public static Element Create(Kind kind, Point point, Theme theme)
+    {
+        return Create(kind, point, theme, DynamicObstacle.Behavior.WANDER);
+    }
+
+    /**
+     *
+     * Factory-function for Elements, with the behavior of dynamic-obstacles.
+     *
+     * @param kind The Kind of the Element to create. Must not be PLAYER.
+     *
+     * @param point The Point the Element should be constructed at.
+     *
+     * @param theme The Theme containing the Representation for the new Element.
+     *
+     * @param behavior How the Element moves if it is a dynamic-obstacle,
+     *                 ignored for all other kinds.
+     *
+     * @return A newly constructed Element.
+     */
+    public static Element Create(Kind kind,
+                                 Point point,
+                                 Theme theme,
+                                 DynamicObstacle.Behavior behavior)
     {
         assert(kind != null);
         assert(point != null);
@@ -186,7 +209,7 @@ public abstract class Element
                 return new StaticObstacle(point, representation);
 
             case DYNAMIC_OBSTACLE:
-                return new IntelligentObstacle(point, representation);
+                return DynamicObstacle.Create(behavior, point, representation);
 
             case MYSTERY_BOX:
                 return new MysteryBox(point, representation);
@@ -324,6 +347,30 @@ public abstract class Element
         _representation = representation;
     }
 
+    /**
+     * @return The position of the Element in the list of
+     *         elements of its kind of the chunk holding it.
+     */
+    public int slot()
+    {
+        return _slot;
+    }
+
+    /**
+     *
+     * Sets the position of the Element in the list of elements of its
+     * kind of the chunk holding it, which lets the chunk remove it
+     * without searching the list (see Chunk.release()).
+     *
+     * @param slot The new position.
+     */
+    public void slot(int slot)
+    {
+        assert(slot >= 0);
+
+        _slot = slot;
+    }
+
     /**
      *
      * Checks equality between the Element and an object.
@@ -383,4 +430,6 @@ public abstract class Element
     protected Point _point;
 
     protected Representation _representation;
+
+    private int _slot;
 }
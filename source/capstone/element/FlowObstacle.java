@@ -0,0 +1,143 @@
+package capstone.element;
+
+import capstone.data.Representation;
+import capstone.utility.Delta;
+import capstone.utility.FlowField;
+import capstone.utility.Point;
+import capstone.utility.Region;
+
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A DynamicObstacle that chases the players by following the FlowField
+ * the World keeps towards them: on every step, it moves to the neighbouring
+ * cell closest to a player. Unlike a HunterObstacle, it does not search its
+ * own way, so a step costs the same few lookups however many of them there
+ * are. Where the field does not reach, i.e. too far from any player, it
+ * wanders in a random direction instead.
+ */
+public class FlowObstacle extends DynamicObstacle
+{
+    /**
+     *
+     * Constructs a FlowObstacle at the given Point,
+     * with the given Representation.
+     *
+     * @param point The Point at which to construct the obstacle.
+     *
+     * @param representation The Representation for the obstacle.
+     */
+    public FlowObstacle(Point point, Representation representation)
+    {
+        super(point, representation);
+
+        _quarry = new Quarry();
+    }
+
+    /**
+     * @return FLOW.
+     */
+    @Override public Behavior behavior()
+    {
+        return Behavior.FLOW;
+    }
+
+    /**
+     *
+     * Remembers the quarry, whose flow-field to follow on the next step.
+     *
+     * @param quarry The points of the living players.
+     */
+    @Override public void sense(Quarry quarry)
+    {
+        assert(quarry != null);
+
+        _quarry = quarry;
+    }
+
+    /**
+     *
+     * Returns the next valid Delta for the obstacle: towards the
+     * nearest player if the flow-field reaches it, else a random one.
+     *
+     * If all steps towards the players are taken (e.g. by other
+     * obstacles in a corridor), the obstacle waits for them to clear.
+     *
+     * @param region The region the point of the dynamic-obstacle
+     *               must be in after the Delta would be applied.
+     *
+     * @param taken  The set of points the point of the dynamic-obstacle
+     *               must not be on after the Delta would be applied.
+     *
+     * @param random The source of randomness for breaking ties.
+     *
+     * @return The next valid Delta.
+     */
+    @Override protected Delta _next(Region region,
+                                    Set<Point> taken,
+                                    Random random)
+    {
+        // Break ties between equally short ways differently every time
+        int rotation = random.nextInt(MOTION.length);
+
+        FlowField field = _quarry.field();
+
+        if (field == null || field.distance(_point) == FlowField.UNREACHED)
+        {
+            return _wander(region, taken, rotation).delta();
+        }
+
+        return _follow(field, region, taken, rotation).delta();
+    }
+
+    /**
+     *
+     * Picks the free neighbouring cell with the smallest distance.
+     *
+     * @param field The flow-field towards the players.
+     *
+     * @param region The region the obstacle must stay in.
+     *
+     * @param taken The points the obstacle must not move to.
+     *
+     * @param rotation Which direction of motion to try first.
+     *
+     * @return The direction of the cell, or STAY if no free
+     *         neighbouring cell is closer to a player.
+     */
+    private Direction _follow(FlowField field,
+                              Region region,
+                              Set<Point> taken,
+                              int rotation)
+    {
+        int best = field.distance(_point);
+
+        Direction choice = Direction.STAY;
+
+        for (int i = 0; i < MOTION.length; ++i)
+        {
+            Direction direction = MOTION[(i + rotation) % MOTION.length];
+
+            int x = _point.x() + direction.delta().x();
+
+            int y = _point.y() + direction.delta().y();
+
+            if (! region.contains(x, y)) continue;
+
+            int distance = field.distance(x, y);
+
+            if (distance >= best) continue;
+
+            if (taken.contains(Point.of(x, y))) continue;
+
+            best = distance;
+
+            choice = direction;
+        }
+
+        return choice;
+    }
+
+    private Quarry _quarry;
+}
@@ -0,0 +1,324 @@
+package capstone.element;
+
+import capstone.data.Representation;
+import capstone.utility.Delta;
+import capstone.utility.Point;
+import capstone.utility.Region;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A DynamicObstacle that hunts the nearest living player. On every step,
+ * it searches breadth-first for the shortest way around the elements of
+ * the level to any player within its search radius and takes the first
+ * step of that way. If no player is within the radius, or none can be
+ * reached inside it, the hunter wanders in a random direction instead.
+ *
+ * The search only ever looks at the square window of cells within the
+ * radius around the hunter, so a step costs at most (2 * radius + 1)^2
+ * cells, no matter how big the level is. The open and closed sets of the
+ * search are primitive arrays of that size, which each thread allocates
+ * once and re-uses for all hunters: a cell is marked as visited by writing
+ * the number of the current search into it, so the arrays never have to
+ * be cleared.
+ */
+public class HunterObstacle extends DynamicObstacle
+{
+    /**
+     * The search radius of hunters constructed without one.
+     */
+    public static final int RADIUS = 12;
+
+    /**
+     *
+     * Constructs a HunterObstacle at the given Point, with the given
+     * Representation and the default search radius.
+     *
+     * @param point The Point at which to construct the obstacle.
+     *
+     * @param representation The Representation for the obstacle.
+     */
+    public HunterObstacle(Point point, Representation representation)
+    {
+        this(point, representation, RADIUS);
+    }
+
+    /**
+     *
+     * Constructs a HunterObstacle at the given Point, with
+     * the given Representation and search radius.
+     *
+     * @param point The Point at which to construct the obstacle.
+     *
+     * @param representation The Representation for the obstacle.
+     *
+     * @param radius How far (in cells along either axis) the
+     *               hunter looks for players. Must be positive.
+     */
+    public HunterObstacle(Point point, Representation representation, int radius)
+    {
+        super(point, representation);
+
+        assert(radius > 0);
+
+        _radius = radius;
+
+        _quarry = new Quarry();
+    }
+
+    /**
+     *
+     * Remembers where the players are, to hunt them on the next step.
+     *
+     * @param quarry The points of the living players.
+     */
+    @Override public void sense(Quarry quarry)
+    {
+        assert(quarry != null);
+
+        _quarry = quarry;
+    }
+
+    /**
+     * @return How far (in cells along either axis) the hunter looks for players.
+     */
+    public int radius()
+    {
+        return _radius;
+    }
+
+    /**
+     * @return HUNT.
+     */
+    @Override public Behavior behavior()
+    {
+        return Behavior.HUNT;
+    }
+
+    /**
+     * @return The ObstacleSpec of the hunter, with its search radius.
+     */
+    @Override public ObstacleSpec spec()
+    {
+        ObstacleSpec spec = super.spec();
+
+        spec.radius(_radius);
+
+        return spec;
+    }
+
+    /**
+     *
+     * Returns the next valid Delta for the obstacle: the first step on the
+     * shortest way to the nearest player, if any, else a random step.
+     *
+     * @param region The region the point of the dynamic-obstacle
+     *               must be in after the Delta would be applied.
+     *
+     * @param taken  The set of points the point of the dynamic-obstacle
+     *               must not be on after the Delta would be applied.
+     *
+     * @param random The source of randomness for breaking ties.
+     *
+     * @return The next valid Delta.
+     */
+    @Override protected Delta _next(Region region,
+                                    Set<Point> taken,
+                                    Random random)
+    {
+        // Break ties between equally short ways differently every time
+        int rotation = random.nextInt(MOTION.length);
+
+        Direction direction = _hunt(region, taken, rotation);
+
+        if (direction == null) direction = _wander(region, taken, rotation);
+
+        return direction.delta();
+    }
+
+    /**
+     *
+     * Searches breadth-first for the nearest player within the window of
+     * the search radius around the hunter.
+     *
+     * @param region The region the hunter must stay in.
+     *
+     * @param taken The points the hunter must not move to.
+     *
+     * @param rotation Which direction of motion to try first.
+     *
+     * @return The direction of the first step towards the nearest player,
+     *         STAY if the hunter is next to a player it cannot step onto,
+     *         or null if no player can be reached within the window.
+     */
+    private Direction _hunt(Region region, Set<Point> taken, int rotation)
+    {
+        if (_quarry.size() == 0) return null;
+
+        int size = 2 * _radius + 1;
+
+        int left = _point.x() - _radius;
+
+        int top = _point.y() - _radius;
+
+        // The part of the window inside the region
+        int minX = Math.max(left, region.southWest().x());
+        int maxX = Math.min(left + size - 1, region.northEast().x());
+        int minY = Math.max(top, region.northEast().y());
+        int maxY = Math.min(top + size - 1, region.southWest().y());
+
+        Search search = SEARCH.get();
+
+        int stamp = search.begin(size * size);
+
+        int targets = 0;
+
+        for (int i = 0; i < _quarry.size(); ++i)
+        {
+            int x = _quarry.x(i);
+
+            int y = _quarry.y(i);
+
+            if (x < minX || x > maxX || y < minY || y > maxY) continue;
+
+            search.target[(y - top) * size + (x - left)] = stamp;
+
+            ++targets;
+        }
+
+        if (targets == 0) return null;
+
+        int start = _radius * size + _radius;
+
+        search.visited[start] = stamp;
+
+        search.queue[0] = start;
+
+        for (int head = 0, tail = 1; head < tail; ++head)
+        {
+            int cell = search.queue[head];
+
+            int x = left + cell % size;
+
+            int y = top + cell / size;
+
+            for (int i = 0; i < MOTION.length; ++i)
+            {
+                int step = (i + rotation) % MOTION.length;
+
+                Delta delta = MOTION[step].delta();
+
+                int nextX = x + delta.x();
+
+                int nextY = y + delta.y();
+
+                if (nextX < minX || nextX > maxX || nextY < minY || nextY > maxY)
+                {
+                    continue;
+                }
+
+                int next = (nextY - top) * size + (nextX - left);
+
+                if (search.visited[next] == stamp) continue;
+
+                search.visited[next] = stamp;
+
+                // All further steps go the way of the first one
+                if (cell != start) step = search.first[cell];
+
+                boolean free = ! taken.contains(Point.of(nextX, nextY));
+
+                if (search.target[next] == stamp)
+                {
+                    // E.g. a player standing on an entrance
+                    if (cell == start && ! free) return Direction.STAY;
+
+                    return MOTION[step];
+                }
+
+                if (! free) continue;
+
+                search.first[next] = (byte) step;
+
+                search.queue[tail++] = next;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * The open and closed sets of a search, re-used for all
+     * searches on a thread and grown to the largest window.
+     */
+    private static class Search
+    {
+        /**
+         *
+         * Begins a new search.
+         *
+         * @param cells The number of cells of the window.
+         *
+         * @return The number of the search, which marks the cells
+         *         visited and the targets of this search.
+         */
+        public int begin(int cells)
+        {
+            if (queue.length < cells)
+            {
+                queue = new int[cells];
+
+                visited = new int[cells];
+
+                target = new int[cells];
+
+                first = new byte[cells];
+
+                _stamp = 0;
+            }
+
+            // Stamps from before the overflow could be mistaken for new ones
+            if (++_stamp == 0)
+            {
+                Arrays.fill(visited, 0);
+
+                Arrays.fill(target, 0);
+
+                _stamp = 1;
+            }
+
+            return _stamp;
+        }
+
+        /**
+         * The open set, as the cells in the order they were found.
+         */
+        public int[] queue = new int[0];
+
+        /**
+         * The closed set: the number of the last search that visited a cell.
+         */
+        public int[] visited = new int[0];
+
+        /**
+         * The number of the last search for which a player was in a cell.
+         */
+        public int[] target = new int[0];
+
+        /**
+         * The direction (index into MOTION) of the first step to a cell.
+         */
+        public byte[] first = new byte[0];
+
+        private int _stamp;
+    }
+
+    private static final ThreadLocal<Search> SEARCH =
+            ThreadLocal.withInitial(Search::new);
+
+    private final int _radius;
+
+    private Quarry _quarry;
+}
@@ -5,15 +5,13 @@ import capstone.utility.Delta;
 import capstone.utility.Point;
 import capstone.utility.Region;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
 /**
- * The best DynamicObstacle concrete class and the only one in active use.
+ * The DynamicObstacle of all levels that do not ask for another behavior.
  * It is a non-deterministic DynamicObstacle that walks the labyrinth in an
  * intelligent manner with a certain behavior and randomization to it. It does
  * not, however, have any finite pattern as does the Pattern Obstacle.
@@ -42,6 +40,37 @@ public class IntelligentObstacle extends DynamicObstacle
         _back = Direction.STAY;
     }
 
+    /**
+     * @return WANDER.
+     */
+    @Override public Behavior behavior()
+    {
+        return Behavior.WANDER;
+    }
+
+    /**
+     * @return The direction the obstacle came from, which it only goes back
+     *         to if it must: 0 for none (a new obstacle), else 1 + the
+     *         ordinal of the direction.
+     */
+    @Override public int state()
+    {
+        return _back == Direction.STAY ? 0 : _back.ordinal() + 1;
+    }
+
+    /**
+     *
+     * Restores the direction the obstacle came from.
+     *
+     * @param state The direction, as returned by state().
+     */
+    @Override public void state(int state)
+    {
+        assert(state >= 0 && state <= Direction.values().length);
+
+        _back = state == 0 ? Direction.STAY : Direction.values()[state - 1];
+    }
+
     /**
      *
      * Returns the next valid Delta for the obstacle.
@@ -52,12 +81,16 @@ public class IntelligentObstacle extends DynamicObstacle
      * @param taken  The set of points the point of the dynamic-obstacle
      *               must not be on after the Delta would be applied.
      *
+     * @param random The source of randomness for the choice of direction.
+     *
      * @return The next valid Delta.
      */
-    @Override protected Delta _next(Region region, Set<Point> taken)
+    @Override protected Delta _next(Region region,
+                                    Set<Point> taken,
+                                    Random random)
     {
         // First try all directions other than that of _back
-        for (Direction direction : _adjacent(_back))
+        for (Direction direction : _adjacent(_back, random))
         {
             if (_valid(direction.delta(), region, taken))
             {
@@ -96,7 +129,7 @@ public class IntelligentObstacle extends DynamicObstacle
 
     /**
      *
-     * Returns an adjacent collection of Directions for the next movement
+     * Returns an adjacent array of Directions for the next movement
      * of the IntelligentObstacle. Adjacent Directions are defined as all
      * Directions of motion (not STAY) except the Direction itself.
      *
@@ -105,28 +138,34 @@ public class IntelligentObstacle extends DynamicObstacle
      * is always called with the backward direction of the previous move, so
      * this means the forward direction is given precedence with a certain
      * probability. Precedence means the forward direction will be put first
-     * in the collection of Directions to try, with the other Directions
+     * in the array of Directions to try, with the other Directions
      * random-shuffled.
      *
+     * The arrays for all orders are computed once (see ORDERS), so this
+     * only draws the random numbers that pick one. It draws them exactly
+     * as shuffling a list of the directions and then deciding on the
+     * precedence would, so obstacles move the same way as they always did.
+     *
      * @param direction The Direction to collect the adjacent Directions for.
      *
-     * @return A Collection of Directions.
+     * @param random The source of randomness for the order.
+     *
+     * @return An array of Directions, which must not be modified.
      */
-    private Collection<Direction> _adjacent(Direction direction)
+    private Direction[] _adjacent(Direction direction, Random random)
     {
-        // Because we'll be inserting at the front
-        List<Direction> adjacent = new LinkedList<>();
+        Direction[][] orders = ORDERS[direction.ordinal()];
 
-        // Collect all directions except this one
-        for (Direction other : Direction.motion())
-        {
-            if (other != direction) adjacent.add(other);
-        }
+        int size = Direction.motion().size();
+
+        if (direction != Direction.STAY) --size;
 
-        // Randomize them
-        Collections.shuffle(adjacent);
+        // The swaps of a Fisher-Yates shuffle, as Collections.shuffle does them
+        int index = 0;
 
-        if (direction == Direction.STAY) return adjacent;
+        for (int i = size; i > 1; --i) index = index * i + random.nextInt(i);
+
+        if (direction == Direction.STAY) return orders[index];
 
         // Then give the opposite direction precedence. Because
         // we store _back, giving the opposite directon precedence
@@ -137,22 +176,113 @@ public class IntelligentObstacle extends DynamicObstacle
         // of the square in certain cases. To prevent that, we
         // randomize everything. There is thus a 25% probability
         // that it will not move in the same direction first.
-        if (_randomize(75)) adjacent.add(0, direction.opposite());
+        if (_randomize(75, random)) return orders[2 * index];
 
-        else adjacent.add(direction.opposite());
+        return orders[2 * index + 1];
+    }
+
+    /**
+     *
+     * Computes the orders in which to try the directions, after the _back
+     * direction given by the first index, for every outcome of the random
+     * numbers drawn in _adjacent() given by the second.
+     *
+     * @return The orders.
+     */
+    private static Direction[][][] _orders()
+    {
+        Direction[][][] orders = new Direction[Direction.values().length][][];
+
+        for (Direction back : Direction.values())
+        {
+            List<Direction> adjacent = new ArrayList<>();
 
-        return adjacent;
+            // Collect all directions except this one
+            for (Direction other : Direction.motion())
+            {
+                if (other != back) adjacent.add(other);
+            }
+
+            int size = adjacent.size();
+
+            int outcomes = 1;
+
+            for (int i = size; i > 1; --i) outcomes *= i;
+
+            int precedences = back == Direction.STAY ? 1 : 2;
+
+            Direction[][] ordersOfBack = new Direction[outcomes * precedences][];
+
+            for (int index = 0; index < outcomes; ++index)
+            {
+                Direction[] shuffled = adjacent.toArray(new Direction[size]);
+
+                // Undo the mixed-radix index into the numbers drawn
+                int rest = index;
+
+                int[] draws = new int[size + 1];
+
+                for (int i = 2; i <= size; ++i)
+                {
+                    draws[i] = rest % i;
+
+                    rest /= i;
+                }
+
+                for (int i = size; i > 1; --i)
+                {
+                    Direction swapped = shuffled[i - 1];
+
+                    shuffled[i - 1] = shuffled[draws[i]];
+
+                    shuffled[draws[i]] = swapped;
+                }
+
+                if (back == Direction.STAY)
+                {
+                    ordersOfBack[index] = shuffled;
+
+                    continue;
+                }
+
+                Direction forward = back.opposite();
+
+                Direction[] first = new Direction[size + 1];
+
+                Direction[] last = new Direction[size + 1];
+
+                first[0] = forward;
+
+                System.arraycopy(shuffled, 0, first, 1, size);
+
+                System.arraycopy(shuffled, 0, last, 0, size);
+
+                last[size] = forward;
+
+                ordersOfBack[2 * index] = first;
+
+                ordersOfBack[2 * index + 1] = last;
+            }
+
+            orders[back.ordinal()] = ordersOfBack;
+        }
+
+        return orders;
     }
 
-    private boolean _randomize(int probability)
+    private boolean _randomize(int probability, Random random)
     {
         assert(probability <= 100);
         assert(probability >= 0);
 
-        return _random.nextInt(100) < probability;
+        return random.nextInt(100) < probability;
     }
 
-    private static Random _random  = new Random();
+    /**
+     * The orders in which to try the directions, by
+     * _back direction and outcome of the random numbers.
+     */
+    private static final Direction[][][] ORDERS = _orders();
 
     private Direction _back;
 }
@@ -7,6 +7,7 @@ import com.googlecode.lanterna.gui.GUIScreen;
 import com.googlecode.lanterna.gui.dialog.MessageBox;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A MysteryBox is a kind of element, that, when collided with, reveals an
@@ -40,11 +41,13 @@ public class MysteryBox extends Element
          *
          * Factory function to yield a random Event.
          *
+         * @param random The source of randomness to pick the Event with.
+         *
          * @return A random Events.
          */
-        public static Event Random()
+        public static Event Random(Random random)
         {
-            switch(_random.nextInt(11))
+            switch(random.nextInt(11))
             {
                 case 0: return EMPTY;
                 case 1: return HEAL;
@@ -83,8 +86,6 @@ public class MysteryBox extends Element
             _message = message;
         }
 
-        private static final Random _random = new Random();
-
         private final String _message;
     }
 
@@ -115,6 +116,22 @@ public class MysteryBox extends Element
         super(Kind.MYSTERY_BOX, point, representation);
     }
 
+    /**
+     *
+     * Shows a MessageBox on the given screen with the message of the
+     * given Event, and gives the MessageBox the title "Mystery Event".
+     *
+     * @param gui The GUIScreen to display the MessageBox on.
+     *
+     * @param event The Event whose message to display.
+     */
+    public static void showEvent(GUIScreen gui, Event event)
+    {
+        assert(event != null);
+
+        MessageBox.showMessageBox(gui, "Mystery Event", event.message());
+    }
+
     /**
      *
      * Reveals the MysteryBox's event and displays its message
@@ -131,19 +148,37 @@ public class MysteryBox extends Element
     public Event reveal(GUIScreen gui, Region relativeTo)
     {
         assert(gui != null);
-        assert(_revealed == false);
-
-        _revealed = true;
 
-        _event = Event.Random();
+        reveal(ThreadLocalRandom.current());
 
-        _showMessageBox(gui);
+        showEvent(gui, _event);
 
         super.unrender(gui.getScreen(), relativeTo);
 
         return _event;
     }
 
+    /**
+     *
+     * Reveals the MysteryBox's event without displaying anything,
+     * so that it is up to the caller to show it (or not).
+     *
+     * @param random The source of randomness to pick the Event with.
+     *
+     * @return The Event contained by the MysteryBox.
+     */
+    public Event reveal(Random random)
+    {
+        assert(random != null);
+        assert(_revealed == false);
+
+        _revealed = true;
+
+        _event = Event.Random(random);
+
+        return _event;
+    }
+
     /**
      *
      * The MessageBox must be revealed first before you can acces its event.
@@ -165,21 +200,6 @@ public class MysteryBox extends Element
         return _revealed;
     }
 
-    /**
-     *
-     * Shows the MysteryBox's message on the GUIScreen in a MessageBox.
-     *
-     * @param gui The GUIScreen to display the MysteryBox's message on.
-     */
-    private void _showMessageBox(GUIScreen gui)
-    {
-        MessageBox.showMessageBox(
-                gui,
-                "Mystery Event",
-                _event.message()
-        );
-    }
-
     private boolean _revealed;
 
     private Event _event;
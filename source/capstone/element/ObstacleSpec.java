@@ -0,0 +1,470 @@
+package capstone.element;
+
+import capstone.data.Representation;
+import capstone.utility.Pattern;
+import capstone.utility.Point;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An ObstacleSpec describes a dynamic obstacle of a layout or session
+ * apart from its point: its behavior, the parameters of the behavior
+ * (the pattern of a PatternObstacle, the search radius of a HunterObstacle
+ * and the period, i.e. the number of ticks per step, of any obstacle) and
+ * the state of its motion (the ticks it still rests, the direction an
+ * IntelligentObstacle came from or the position of a PatternObstacle in
+ * its pattern). An obstacle created from the spec of another moves exactly
+ * as the other one would.
+ *
+ * As text (see LevelFile), a spec is the code of the behavior followed by
+ * any parameters that differ from their defaults, e.g. "3|pattern=2r2l" or
+ * "1|radius=20|period=2|rest=1". Parameters that do not apply to the
+ * behavior are ignored.
+ */
+public class ObstacleSpec
+{
+    /**
+     *
+     * Parses a spec from its text form (see toString()).
+     *
+     * @param string The spec as text.
+     *
+     * @return The ObstacleSpec.
+     *
+     * @throws IllegalArgumentException for a malformed spec.
+     */
+    public static ObstacleSpec of(String string)
+    {
+        assert(string != null);
+
+        String[] fields = string.trim().split("\\|");
+
+        try
+        {
+            int code = Integer.parseInt(fields[0].trim());
+
+            Map<String, String> parameters = new HashMap<>();
+
+            for (int i = 1; i < fields.length; ++i)
+            {
+                int equals = fields[i].indexOf('=');
+
+                if (equals == -1)
+                {
+                    throw new IllegalArgumentException("Malformed parameter");
+                }
+
+                String key = fields[i].substring(0, equals).trim();
+
+                if (! PARAMETERS.contains(key))
+                {
+                    throw new IllegalArgumentException("Unknown parameter: " + key);
+                }
+
+                parameters.put(key, fields[i].substring(equals + 1).trim());
+            }
+
+            String pattern = parameters.get("pattern");
+
+            return of(
+                    code,
+                    pattern == null ? PatternObstacle.DEFAULT : new Pattern(pattern),
+                    _parameter(parameters, "radius", HunterObstacle.RADIUS),
+                    _parameter(parameters, "period", 1),
+                    _parameter(parameters, "rest", 0),
+                    _parameter(parameters, "state", 0)
+            );
+        }
+
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Malformed obstacle spec", e);
+        }
+    }
+
+    /**
+     *
+     * Constructs a spec from all of its values, as read from a layout or
+     * session, checking that they describe an obstacle that can move. The
+     * setters only assert their arguments, as they are meant for values
+     * of running obstacles, which are valid by construction.
+     *
+     * @param code The code of the behavior (see Behavior.code()).
+     *
+     * @param pattern The pattern a PatternObstacle follows.
+     *
+     * @param radius The search radius of a HunterObstacle.
+     *
+     * @param period The number of ticks per step.
+     *
+     * @param rest The number of ticks the obstacle still rests.
+     *
+     * @param state The state of the motion (see DynamicObstacle.state()).
+     *
+     * @return The ObstacleSpec.
+     *
+     * @throws IllegalArgumentException for values out of range.
+     */
+    public static ObstacleSpec of(int code,
+                                  Pattern pattern,
+                                  int radius,
+                                  int period,
+                                  int rest,
+                                  int state)
+    {
+        assert(pattern != null);
+
+        if (code < 0 || code >= DynamicObstacle.Behavior.values().length)
+        {
+            throw new IllegalArgumentException("Unknown behavior: " + code);
+        }
+
+        if (radius <= 0)
+        {
+            throw new IllegalArgumentException("Radius not positive: " + radius);
+        }
+
+        if (period <= 0)
+        {
+            throw new IllegalArgumentException("Period not positive: " + period);
+        }
+
+        if (rest < 0 || rest >= period)
+        {
+            throw new IllegalArgumentException("Rest out of range: " + rest);
+        }
+
+        DynamicObstacle.Behavior behavior = DynamicObstacle.Behavior.fromCode(code);
+
+        if (state < 0 || state > _maximumState(behavior, pattern))
+        {
+            throw new IllegalArgumentException("State out of range: " + state);
+        }
+
+        ObstacleSpec spec = new ObstacleSpec(behavior);
+
+        spec._pattern = pattern;
+
+        spec._radius = radius;
+
+        spec._period = period;
+
+        spec._rest = rest;
+
+        spec._state = state;
+
+        return spec;
+    }
+
+    /**
+     *
+     * Constructs the spec of a new obstacle with the given behavior
+     * and the default parameters.
+     *
+     * @param behavior The behavior of the obstacle.
+     */
+    public ObstacleSpec(DynamicObstacle.Behavior behavior)
+    {
+        assert(behavior != null);
+
+        _behavior = behavior;
+
+        _pattern = PatternObstacle.DEFAULT;
+
+        _radius = HunterObstacle.RADIUS;
+
+        _period = 1;
+    }
+
+    /**
+     *
+     * Constructs the spec of a new PatternObstacle following the pattern.
+     *
+     * @param pattern The pattern to follow.
+     */
+    public ObstacleSpec(Pattern pattern)
+    {
+        this(DynamicObstacle.Behavior.PATTERN);
+
+        pattern(pattern);
+    }
+
+    /**
+     *
+     * Creates the dynamic obstacle described by the spec.
+     *
+     * @param point The point of the obstacle.
+     *
+     * @param representation The representation of the obstacle.
+     *
+     * @return The dynamic obstacle.
+     */
+    public DynamicObstacle create(Point point, Representation representation)
+    {
+        DynamicObstacle obstacle;
+
+        switch (_behavior)
+        {
+            case HUNT:
+                obstacle = new HunterObstacle(point, representation, _radius);
+                break;
+
+            case PATTERN:
+                obstacle = new PatternObstacle(point, representation, _pattern);
+                break;
+
+            default:
+                obstacle = DynamicObstacle.Create(_behavior, point, representation);
+        }
+
+        obstacle.period(_period);
+
+        obstacle.rest(_rest);
+
+        obstacle.state(_state);
+
+        return obstacle;
+    }
+
+    /**
+     * @return The behavior of the obstacle.
+     */
+    public DynamicObstacle.Behavior behavior()
+    {
+        return _behavior;
+    }
+
+    /**
+     * @return The pattern a PatternObstacle follows.
+     */
+    public Pattern pattern()
+    {
+        return _pattern;
+    }
+
+    /**
+     * @param pattern The pattern a PatternObstacle follows.
+     */
+    public void pattern(Pattern pattern)
+    {
+        assert(pattern != null);
+
+        _pattern = pattern;
+    }
+
+    /**
+     * @return The search radius of a HunterObstacle.
+     */
+    public int radius()
+    {
+        return _radius;
+    }
+
+    /**
+     * @param radius The search radius of a HunterObstacle. Must be positive.
+     */
+    public void radius(int radius)
+    {
+        assert(radius > 0);
+
+        _radius = radius;
+    }
+
+    /**
+     * @return The number of ticks per step of the obstacle.
+     */
+    public int period()
+    {
+        return _period;
+    }
+
+    /**
+     * @param period The number of ticks per step. Must be positive.
+     */
+    public void period(int period)
+    {
+        assert(period > 0);
+
+        _period = period;
+    }
+
+    /**
+     * @return The number of ticks the obstacle still rests before its next step.
+     */
+    public int rest()
+    {
+        return _rest;
+    }
+
+    /**
+     * @param rest The number of ticks the obstacle still
+     *             rests before its next step, less than the period.
+     */
+    public void rest(int rest)
+    {
+        assert(rest >= 0);
+
+        _rest = rest;
+    }
+
+    /**
+     * @return The state of the motion (see DynamicObstacle.state()).
+     */
+    public int state()
+    {
+        return _state;
+    }
+
+    /**
+     * @param state The state of the motion (see DynamicObstacle.state()).
+     */
+    public void state(int state)
+    {
+        assert(state >= 0);
+
+        _state = state;
+    }
+
+    /**
+     * @return True if the spec describes a new IntelligentObstacle that
+     *         moves on every tick, i.e. the obstacle of a cell holding a
+     *         dynamic obstacle without a spec, else false.
+     */
+    public boolean isDefault()
+    {
+        return _behavior == DynamicObstacle.Behavior.WANDER &&
+               _period == 1 &&
+               _rest == 0 &&
+               _state == 0;
+    }
+
+    /**
+     *
+     * Returns the spec as text, from which an equal spec can be parsed.
+     * Only parameters that apply to the behavior and differ from their
+     * defaults are included.
+     *
+     * @return The spec as text.
+     */
+    @Override public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(_behavior.code());
+
+        if (_behavior == DynamicObstacle.Behavior.PATTERN &&
+            ! _pattern.equals(PatternObstacle.DEFAULT))
+        {
+            builder.append("|pattern=").append(_pattern);
+        }
+
+        if (_behavior == DynamicObstacle.Behavior.HUNT &&
+            _radius != HunterObstacle.RADIUS)
+        {
+            builder.append("|radius=").append(_radius);
+        }
+
+        if (_period != 1) builder.append("|period=").append(_period);
+
+        if (_rest != 0) builder.append("|rest=").append(_rest);
+
+        if (_state != 0) builder.append("|state=").append(_state);
+
+        return builder.toString();
+    }
+
+    /**
+     *
+     * Specs are equal if they describe obstacles that move the
+     * same way, i.e. parameters that do not apply are ignored.
+     *
+     * @param object The object to compare with.
+     *
+     * @return True if the object is an equal ObstacleSpec, else false.
+     */
+    @Override public boolean equals(Object object)
+    {
+        if (object == this) return true;
+
+        if (! (object instanceof ObstacleSpec)) return false;
+
+        return toString().equals(object.toString());
+    }
+
+    /**
+     * @return A hash of the text form of the spec.
+     */
+    @Override public int hashCode()
+    {
+        return toString().hashCode();
+    }
+
+    /**
+     *
+     * Reads a numeric parameter of a spec in text form.
+     *
+     * @param parameters The parameters of the spec, by name.
+     *
+     * @param key The name of the parameter.
+     *
+     * @param fallback The default of the parameter.
+     *
+     * @return The value of the parameter, or the default if it is not given.
+     *
+     * @throws NumberFormatException if the value is not a number.
+     */
+    private static int _parameter(Map<String, String> parameters,
+                                  String key,
+                                  int fallback)
+    {
+        String value = parameters.get(key);
+
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+
+    /**
+     * @param behavior A behavior.
+     *
+     * @param pattern The pattern a PatternObstacle follows.
+     *
+     * @return The greatest state of the motion of an obstacle
+     *         with that behavior (see DynamicObstacle.state()).
+     */
+    private static int _maximumState(DynamicObstacle.Behavior behavior,
+                                     Pattern pattern)
+    {
+        switch (behavior)
+        {
+            case WANDER:  return Direction.values().length;
+            case PATTERN: return pattern.length() - 1;
+            default:      return 0;
+        }
+    }
+
+    /**
+     * The names of the parameters a spec can have in text form.
+     */
+    private static final Set<String> PARAMETERS = new HashSet<>(Arrays.asList(
+            "pattern",
+            "radius",
+            "period",
+            "rest",
+            "state"
+    ));
+
+    private final DynamicObstacle.Behavior _behavior;
+
+    private Pattern _pattern;
+
+    private int _radius;
+
+    private int _period;
+
+    private int _rest;
+
+    private int _state;
+}
@@ -8,29 +8,80 @@ import capstone.utility.Region;
 
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * A dynamic obstacle following a finite-pattern similar
- * to a finite-state-machine. Not really so good, especially in
- * dense levels it's so common that a pattern obstacle will have
- * such a pattern that it's just awkwardly stuck. So deprecated
- * in favor of the IntelligentObstacle.
+ * A dynamic obstacle following a finite-pattern similar to a
+ * finite-state-machine, e.g. pacing back and forth in a corridor. Steps
+ * of the pattern that are blocked are skipped, and if all of them are,
+ * the obstacle stays where it is for a turn.
+ *
+ * The patterns themselves are immutable and shared; each obstacle follows
+ * its pattern with a cursor of its own, so pattern obstacles move the same
+ * way no matter in which order (or on which thread) they are updated.
+ * Layouts can give an obstacle any pattern (see LevelFile), otherwise
+ * one of the patterns of the pool is used.
  */
-@Deprecated public class PatternObstacle extends DynamicObstacle
+public class PatternObstacle extends DynamicObstacle
 {
+    /**
+     * The pattern of pattern obstacles constructed without one
+     * or a source of randomness to pick one with.
+     */
+    public static final Pattern DEFAULT = new Pattern("l2rl");
+
     /**
      *
-     * Constructs a PatternObstacle with a point and a representation.
+     * Constructs a PatternObstacle with a point and a representation,
+     * following a random pattern of the pool.
      *
      * @param point The point of the pattern obstacle.
      *
      * @param representation The representation of the obstacle.
      */
     public PatternObstacle(Point point, Representation representation)
+    {
+        this(point, representation, ThreadLocalRandom.current());
+    }
+
+    /**
+     *
+     * Constructs a PatternObstacle with a point and a representation,
+     * drawing its pattern from the pool with the given source of randomness.
+     *
+     * @param point The point of the pattern obstacle.
+     *
+     * @param representation The representation of the obstacle.
+     *
+     * @param random The source of randomness to pick the pattern with.
+     */
+    public PatternObstacle(Point point,
+                           Representation representation,
+                           Random random)
+    {
+        this(point, representation, _randomPattern(random));
+    }
+
+    /**
+     *
+     * Constructs a PatternObstacle with a point and a
+     * representation, following the given pattern.
+     *
+     * @param point The point of the pattern obstacle.
+     *
+     * @param representation The representation of the obstacle.
+     *
+     * @param pattern The pattern to follow, from its start.
+     */
+    public PatternObstacle(Point point,
+                           Representation representation,
+                           Pattern pattern)
     {
         super(point, representation);
 
-        _pattern = _randomPattern();
+        assert(pattern != null);
+
+        _cursor = pattern.cursor();
     }
 
     /**
@@ -38,7 +89,54 @@ import java.util.Set;
      */
     public Pattern pattern()
     {
-        return _pattern;
+        return _cursor.pattern();
+    }
+
+    /**
+     * @return The position of the obstacle in its pattern.
+     */
+    public Pattern.Cursor cursor()
+    {
+        return _cursor;
+    }
+
+    /**
+     * @return PATTERN.
+     */
+    @Override public Behavior behavior()
+    {
+        return Behavior.PATTERN;
+    }
+
+    /**
+     * @return The ObstacleSpec of the obstacle, with its pattern.
+     */
+    @Override public ObstacleSpec spec()
+    {
+        ObstacleSpec spec = super.spec();
+
+        spec.pattern(_cursor.pattern());
+
+        return spec;
+    }
+
+    /**
+     * @return The index of the next step of the pattern.
+     */
+    @Override public int state()
+    {
+        return _cursor.index();
+    }
+
+    /**
+     *
+     * Moves the obstacle to a step of its pattern.
+     *
+     * @param state The index of the next step, as returned by state().
+     */
+    @Override public void state(int state)
+    {
+        _cursor.jumpTo(state);
     }
 
     /**
@@ -46,11 +144,26 @@ import java.util.Set;
      */
     public void changePattern()
     {
-        Pattern old = _pattern;
+        changePattern(ThreadLocalRandom.current());
+    }
+
+    /**
+     *
+     * Changes the current pattern of the obstacle to another random one.
+     *
+     * @param random The source of randomness to pick the pattern with.
+     */
+    public void changePattern(Random random)
+    {
+        Pattern old = _cursor.pattern();
+
+        Pattern pattern;
 
-        do _pattern = _randomPattern();
+        do pattern = _randomPattern(random);
 
-        while (_pattern == old); // Ah, damn randomness.
+        while (pattern.equals(old)); // Ah, damn randomness.
+
+        _cursor = pattern.cursor();
     }
 
     /**
@@ -64,43 +177,37 @@ import java.util.Set;
      *
      * @param taken The set of taken points.
      *
+     * @param random Unused, patterns are deterministic.
+     *
      * @return The safe Delta by which the point of the PatternObstacle
      *         can definitely be moved.
      */
-    @Override protected Delta _next(Region region, Set<Point> taken)
+    @Override protected Delta _next(Region region,
+                                    Set<Point> taken,
+                                    Random random)
     {
         // Ensure we only do one loop through the pattern
-        for (int i = 0; i < _pattern.length(); )
+        for (int i = 0; i < _cursor.pattern().length(); ++i)
         {
-            // Check if the next delta would be valid
-            if (_valid(_pattern.peek(), region, taken)) break;
+            Delta next = _cursor.peek();
 
-            else _pattern.skip();
+            _cursor.skip();
 
-            // If we've done a loop, just stay for this turn
-            if (++i >= _pattern.length()) return Delta.Stay();
+            if (_valid(next, region, taken)) return next;
         }
 
-        // Extract, then skip
-        Delta next = _pattern.peek();
-
-        _pattern.skip();
-
-        return next;
+        // If we've done a loop, just stay for this turn
+        return Delta.Stay();
     }
 
     /**
+     * @param random The source of randomness to pick the pattern with.
+     *
      * @return A random pattern from the pattern pool.
      */
-    private Pattern _randomPattern()
+    private static Pattern _randomPattern(Random random)
     {
-        int randomIndex = _random.nextInt(_patternPool.length);
-
-        Pattern pattern = _patternPool[randomIndex];
-
-        assert(pattern != null);
-
-        return pattern;
+        return _patternPool[random.nextInt(_patternPool.length)];
     }
 
     /**
@@ -110,8 +217,8 @@ import java.util.Set;
      * constructed with, because life is too short to write `new Delta(+1, -1)`
      * every god damn time.
      */
-    private static Pattern[] _patternPool = {
-            new Pattern("l2rl"), // left, 2x right, left
+    private static final Pattern[] _patternPool = {
+            DEFAULT, // left, 2x right, left
             new Pattern("2r2l"),
             new Pattern("3r3l"),
             new Pattern("4r4l"),
@@ -122,8 +229,5 @@ import java.util.Set;
             new Pattern("(+1,-1)(+1,+1)(+1,-1)(+1,+1)(-1,-1)(-1,+1)(-1,-1)(-1,+1)") // ^^
     };
 
-    private static Random _random = new Random();
-
-    private Pattern _pattern;
-
+    private Pattern.Cursor _cursor;
 }
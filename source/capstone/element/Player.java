@@ -146,8 +146,7 @@ public class Player extends Element
 
         _previousPoint = _point;
 
-        // Modifications always on a new point.
-        _point = new Point(_point).move(dx, dy);
+        _point = _point.plus(dx, dy);
 
         return this;
     }
@@ -0,0 +1,123 @@
+package capstone.element;
+
+import capstone.utility.FlowField;
+import capstone.utility.Point;
+
+import java.util.Collection;
+
+/**
+ * The Quarry holds the points of the living players, which obstacles that
+ * chase players (see HunterObstacle) are told about before they move. The
+ * World refreshes it once per tick, so that obstacles neither need to know
+ * the players themselves nor walk a collection of them on every step.
+ *
+ * The points are kept in primitive arrays that only grow, so refreshing
+ * the quarry allocates nothing once the number of players is known.
+ * The quarry may also carry a FlowField towards the players, which
+ * obstacles that follow it (see FlowObstacle) share.
+ */
+public class Quarry
+{
+    /**
+     * Constructs an empty Quarry, i.e. with no players to chase.
+     */
+    public Quarry()
+    {
+        _x = new int[0];
+
+        _y = new int[0];
+    }
+
+    /**
+     *
+     * Replaces the points of the quarry by those of the living players.
+     *
+     * @param players The players; dead ones are skipped.
+     */
+    public void update(Collection<Player> players)
+    {
+        assert(players != null);
+
+        if (_x.length < players.size())
+        {
+            _x = new int[players.size()];
+
+            _y = new int[players.size()];
+        }
+
+        _size = 0;
+
+        for (Player player : players)
+        {
+            if (player.isDead()) continue;
+
+            Point point = player.point();
+
+            _x[_size] = point.x();
+
+            _y[_size] = point.y();
+
+            ++_size;
+        }
+    }
+
+    /**
+     * @return The number of players to chase.
+     */
+    public int size()
+    {
+        return _size;
+    }
+
+    /**
+     * @param index The index of a player, less than size().
+     *
+     * @return The x-coordinate of the player.
+     */
+    public int x(int index)
+    {
+        assert(index >= 0 && index < _size);
+
+        return _x[index];
+    }
+
+    /**
+     * @param index The index of a player, less than size().
+     *
+     * @return The y-coordinate of the player.
+     */
+    public int y(int index)
+    {
+        assert(index >= 0 && index < _size);
+
+        return _y[index];
+    }
+
+    /**
+     *
+     * Sets the flow-field towards the players, which whoever
+     * refreshes the quarry must keep up to date with it.
+     *
+     * @param field The flow-field, or null if there is none.
+     */
+    public void field(FlowField field)
+    {
+        _field = field;
+    }
+
+    /**
+     * @return The flow-field towards the players, or null if there is none.
+     */
+    public FlowField field()
+    {
+        return _field;
+    }
+
+    private int[] _x;
+
+    private int[] _y;
+
+    private int _size;
+
+    private FlowField _field;
+}
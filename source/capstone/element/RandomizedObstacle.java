@@ -33,6 +33,14 @@ import java.util.Set;
         super(point, representation);
     }
 
+    /**
+     * @return WANDER, because no level can ask for a RandomizedObstacle.
+     */
+    @Override public Behavior behavior()
+    {
+        return Behavior.WANDER;
+    }
+
     /**
      *
      * Generates random points until one is valid. Then returns
@@ -44,13 +52,17 @@ import java.util.Set;
      * @param taken  The set of points the point of the dynamic-obstacle
      *               must not be on after the delta would be applied.
      *
+     * @param random The source of randomness for the points.
+     *
      * @return The next valid Delta.
      */
-    @Override protected Delta _next(Region region, Set<Point> taken)
+    @Override protected Delta _next(Region region,
+                                    Set<Point> taken,
+                                    Random random)
     {
         Point point;
 
-        do point = _generate(region);
+        do point = _generate(region, random);
 
         while (taken.contains(point));
 
@@ -63,15 +75,17 @@ import java.util.Set;
      *
      * @param region The region within which the Point should be.
      *
+     * @param random The source of randomness.
+     *
      * @return The generated point.
      */
-    private static Point  _generate(Region region)
+    private static Point  _generate(Region region, Random random)
     {
-        int x = _random(region.southWest().x(), region.northEast().x());
+        int x = _random(region.southWest().x(), region.northEast().x(), random);
 
-        int y = _random(region.northEast().y(), region.southWest().y());
+        int y = _random(region.northEast().y(), region.southWest().y(), random);
 
-        return new Point(x, y);
+        return Point.of(x, y);
     }
 
     /**
@@ -82,13 +96,13 @@ import java.util.Set;
      *
      * @param last The upper bound.
      *
+     * @param random The source of randomness.
+     *
      * @return The generated value.
      */
-    private static int _random(int first, int last)
+    private static int _random(int first, int last, Random random)
     {
         // + 1 because a region is inclusive
-        return _generator.nextInt(1 + last - first) + first;
+        return random.nextInt(1 + last - first) + first;
     }
-
-    private static Random _generator = new Random();
 }
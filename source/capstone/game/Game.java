@@ -12,6 +12,7 @@ import capstone.ui.LevelWindow;
 import capstone.ui.MenuWindow;
 import capstone.ui.ProfileWindow;
 import capstone.ui.WelcomeWindow;
+import capstone.utility.LevelBuilder;
 import capstone.utility.StopWatch;
 import com.googlecode.lanterna.TerminalFacade;
 import com.googlecode.lanterna.gui.GUIScreen;
@@ -22,12 +23,18 @@ import com.googlecode.lanterna.terminal.Terminal;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
@@ -74,6 +81,19 @@ public class Game
         this.gui(new GUIScreen(_screen, "Labyrinth"));
 
         _profiles = new ArrayList<>();
+
+        // One thread, so that sessions are written in order
+        _saver = Executors.newSingleThreadExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "session-saver");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        // Don't lose a session still being written on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(this::_finishSaving));
     }
 
 
@@ -127,35 +147,57 @@ public class Game
     }
 
     /**
-     * Main event-loop. Basically accumulates key-presses and maps the to
-     * the respective players (if possible) and once a frame has timed-out
-     * sends those key-presses to the game for processing.
+     * Main event-loop. Sleeps until the deadline of the next frame, then
+     * drains the key-presses the InputReader accumulated in the meantime,
+     * maps them to the respective players (if possible) and sends those
+     * key-presses to the game for processing. The thread is parked between
+     * frames, so CPU use scales with the frame-rate, not with wall time.
      */
     public void loop()
     {
         Map<String, Direction> directions = new HashMap<>();
 
-        // For frame time-outs.
-        _timer = new StopWatch(_framePeriod, true);
+        List<Key> keys = new ArrayList<>();
+
+        // Keys are read on their own thread until a menu opens.
+        _input = new InputReader(_screen, Game::_opensMenu);
+        _input.start();
 
         // Time the whole game for storing the high-score.
         _watch = new StopWatch(true);
 
+        long deadline = System.nanoTime();
+
         while (! _level.isDone())
         {
+            deadline += _framePeriod;
+
+            _sleepUntil(deadline);
+
             // Get key-presses.
-            _handleInput(directions);
+            _input.drainTo(keys);
 
-            if (_timer.timedOut())
-            {
-                _level.update(directions);
+            for (Key key : keys) _handleInput(key, directions);
 
-                _timer.reset();
+            keys.clear();
 
-                directions.clear();
-            }
+            _record();
+
+            _level.update(directions);
+
+            directions.clear();
+
+            // Don't try to catch up on the frames missed
+            // while a menu was open or a frame took too long.
+            long now = System.nanoTime();
+
+            if (now - deadline > _framePeriod) deadline = now;
         }
 
+        _input.stop();
+
+        _stopRecording();
+
         _endGame();
     }
 
@@ -181,13 +223,53 @@ public class Game
 
     /**
      *
-     * Saves the level at its current state.
+     * Saves the level at its current state. Only a snapshot of the level
+     * is taken right away; the session is written on a background thread,
+     * so the game can go on while it is being saved. The progress is shown
+     * in the status bar of the level.
      *
-     * @throws IOException in case of file I/O badness.
+     * @return A future completing with the session file once it is
+     *         written, or exceptionally with an UncheckedIOException.
      */
-    public void save() throws IOException
+    public CompletableFuture<File> save()
     {
-        _level.store();
+        Level level = _level;
+
+        LevelBuilder.Snapshot snapshot = level.snapshot();
+
+        level.notice("Saving...");
+
+        CompletableFuture<File> future = CompletableFuture.supplyAsync(() ->
+        {
+            try
+            {
+                return snapshot.write();
+            }
+
+            catch (IOException e) { throw new UncheckedIOException(e); }
+
+        }, _saver);
+
+        future.whenComplete((file, error) ->
+            level.notice(error == null ? "Saved" : "Save failed!", _noticeTicks())
+        );
+
+        return future;
+    }
+
+    /**
+     *
+     * Records every level played from now on into a replay file in a
+     * directory, named after the level and the time it started. See
+     * Replay for how to play them back.
+     *
+     * @param directory The directory to store the replays in.
+     */
+    public void record(File directory)
+    {
+        assert(directory != null);
+
+        _replays = directory;
     }
 
     /**
@@ -245,11 +327,10 @@ public class Game
      */
     public void frameRate(double frameRate)
     {
-        // Convert from frequency to period
-        _framePeriod = (long) (1000 / frameRate);
+        assert(frameRate > 0);
 
-        // Reset the timer for the main loop.
-        if (_timer != null) _timer.timeout(_framePeriod);
+        // Convert from frequency to period (in nanoseconds)
+        _framePeriod = (long) (TimeUnit.SECONDS.toNanos(1) / frameRate);
     }
 
     /**
@@ -257,7 +338,7 @@ public class Game
      */
     public double frameRate()
     {
-        return (1.0 / _framePeriod) * 1000;
+        return TimeUnit.SECONDS.toNanos(1) / (double) _framePeriod;
     }
 
     /**
@@ -283,6 +364,90 @@ public class Game
         loop();
     }
 
+    /**
+     * Starts recording the current level if it is not being recorded yet,
+     * e.g. because it was just started or loaded from the menu.
+     */
+    private void _record()
+    {
+        if (_replays == null) return;
+
+        World world = _level.world();
+
+        if (_recorder != null && _recorder.world() == world) return;
+
+        _stopRecording();
+
+        String name = String.format(
+                "%1$s-%2$d.%3$s",
+                world.name(),
+                System.currentTimeMillis(),
+                Replay.EXTENSION
+        );
+
+        try
+        {
+            _replays.mkdirs();
+
+            _recorder = new Replay.Recorder(
+                    new File(_replays, name),
+                    world,
+                    _screen.getTerminalSize()
+            );
+        }
+
+        catch (IOException e)
+        {
+            // Don't try again every frame
+            _replays = null;
+
+            _level.notice("Recording failed!", _noticeTicks());
+        }
+    }
+
+    /**
+     * Stops recording the level, if it is being recorded.
+     */
+    private void _stopRecording()
+    {
+        if (_recorder == null) return;
+
+        try
+        {
+            _recorder.close();
+        }
+
+        catch (IOException e) { _level.notice("Recording failed!", _noticeTicks()); }
+
+        _recorder = null;
+    }
+
+    /**
+     * @return The number of frames a notice is shown for.
+     */
+    private int _noticeTicks()
+    {
+        return (int) Math.ceil(NOTICE_DURATION * frameRate());
+    }
+
+    /**
+     * Waits for the sessions still being saved to be written.
+     */
+    private void _finishSaving()
+    {
+        _saver.shutdown();
+
+        try
+        {
+            _saver.awaitTermination(SAVE_TIMEOUT, TimeUnit.SECONDS);
+        }
+
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * @return A new Screen (between Terminal and GUIScreen) for the game.
      */
@@ -413,6 +578,37 @@ public class Game
         return highscore;
     }
 
+    /**
+     *
+     * Parks the current thread until the given deadline has passed.
+     *
+     * @param deadline The deadline, as per System.nanoTime().
+     */
+    private static void _sleepUntil(long deadline)
+    {
+        long remaining;
+
+        // parkNanos may return early (spuriously), so check again
+        while ((remaining = deadline - System.nanoTime()) > 0)
+        {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     *
+     * Whether a key opens a menu, which reads input itself.
+     *
+     * @param key The key to check.
+     *
+     * @return True for the escape and backspace keys.
+     */
+    private static boolean _opensMenu(Key key)
+    {
+        return key.getKind() == Key.Kind.Escape ||
+               key.getKind() == Key.Kind.Backspace;
+    }
+
     /**
      *
      * Manages keypress input.
@@ -420,25 +616,27 @@ public class Game
      * The escape key opens the menu, the backspace key is a shortcut to the
      * legend. Other keys may be user keys or simply noise.
      *
+     * @param key The key that was pressed.
+     *
      * @param directions The Map from ids to directions to add a potential
      *                   player key-press too.
      */
-    private void _handleInput(Map<String, Direction> directions)
+    private void _handleInput(Key key, Map<String, Direction> directions)
     {
-        Key key = _screen.readInput();
-
-        if (key == null) return;
-
         // Show full menu
         if (key.getKind() == Key.Kind.Escape)
         {
             new MenuWindow(this).show();
+
+            _input.resume();
         }
 
         // Show only the legend
         else if (key.getKind() == Key.Kind.Backspace)
         {
             new MenuWindow(this).showLegend();
+
+            _input.resume();
         }
 
         // See if it maps to a profile
@@ -470,6 +668,16 @@ public class Game
         directions.put(profile.id(), direction);
     }
 
+    /**
+     * How long to wait for sessions still being saved on exit, in seconds.
+     */
+    private static final long SAVE_TIMEOUT = 30;
+
+    /**
+     * How long to show notices such as "Saved" in the status bar, in seconds.
+     */
+    private static final double NOTICE_DURATION = 2;
+
     private Level _level;
 
     private GUIScreen _gui;
@@ -480,9 +688,15 @@ public class Game
 
     private StopWatch _watch;
 
-    private StopWatch _timer;
+    private InputReader _input;
 
     private Screen _screen;
 
     private Map<InputKey, Profile> _keyMap;
+
+    private File _replays;
+
+    private Replay.Recorder _recorder;
+
+    private final ExecutorService _saver;
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package capstone.game;
+
+import com.googlecode.lanterna.input.Key;
+import com.googlecode.lanterna.screen.Screen;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Reads key-presses from a Screen on its own (daemon) thread and queues
+ * them up, so that the game loop can sleep until its next frame and then
+ * drain whatever was pressed in the meantime.
+ *
+ * Lanterna's readInput() does not block, so the reader parks for a short
+ * poll period whenever there is no input. That is a handful of wake-ups
+ * per frame instead of a core spinning for the whole session.
+ *
+ * Some keys hand control of the terminal to somebody else, e.g. the
+ * escape key opens the menu, which reads the terminal itself. The
+ * reader pauses right after queuing such a key and only reads again
+ * once it is resumed, so that it never steals the menu's input.
+ */
+public class InputReader
+{
+    /**
+     *
+     * Constructs a new InputReader. It does not read until started.
+     *
+     * @param screen The Screen to read input from.
+     *
+     * @param pausesOn The keys after which the reader pauses itself.
+     */
+    public InputReader(Screen screen, Predicate<Key> pausesOn)
+    {
+        assert(screen != null);
+        assert(pausesOn != null);
+
+        _screen = screen;
+
+        _pausesOn = pausesOn;
+
+        _queue = new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * Starts reading input on a new daemon thread.
+     */
+    public void start()
+    {
+        assert(_thread == null);
+
+        _running = true;
+
+        _thread = new Thread(this::_read, "input-reader");
+
+        _thread.setDaemon(true);
+
+        _thread.start();
+    }
+
+    /**
+     * Stops reading input and waits for the thread to finish.
+     */
+    public void stop()
+    {
+        if (_thread == null) return;
+
+        _running = false;
+
+        LockSupport.unpark(_thread);
+
+        try
+        {
+            _thread.join();
+        }
+
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        _thread = null;
+    }
+
+    /**
+     * Resumes reading input after the reader paused itself.
+     */
+    public void resume()
+    {
+        _paused = false;
+
+        if (_thread != null) LockSupport.unpark(_thread);
+    }
+
+    /**
+     * @return True if the reader is currently paused.
+     */
+    public boolean isPaused()
+    {
+        return _paused;
+    }
+
+    /**
+     *
+     * Moves all the keys read so far into the given collection.
+     *
+     * @param keys The collection to add the keys to, in order.
+     *
+     * @return The number of keys drained.
+     */
+    public int drainTo(Collection<Key> keys)
+    {
+        return _queue.drainTo(keys);
+    }
+
+    /**
+     * The loop of the reader thread.
+     */
+    private void _read()
+    {
+        while (_running)
+        {
+            if (_paused)
+            {
+                LockSupport.park(this);
+
+                continue;
+            }
+
+            Key key = _screen.readInput();
+
+            if (key == null)
+            {
+                LockSupport.parkNanos(this, POLL_PERIOD);
+
+                continue;
+            }
+
+            // Pause before queuing, so that the consumer can
+            // never see the key while we're still reading.
+            if (_pausesOn.test(key)) _paused = true;
+
+            _queue.add(key);
+        }
+    }
+
+    /**
+     * How long to park when there is no input, in nanoseconds.
+     */
+    private static final long POLL_PERIOD = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final Screen _screen;
+
+    private final Predicate<Key> _pausesOn;
+
+    private final BlockingQueue<Key> _queue;
+
+    private Thread _thread;
+
+    private volatile boolean _running;
+
+    private volatile boolean _paused;
+}
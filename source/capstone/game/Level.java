@@ -6,7 +6,9 @@ import capstone.element.Direction;
 import capstone.element.Element;
 import capstone.element.MysteryBox;
 import capstone.element.Player;
+import capstone.ui.FrameBuffer;
 import capstone.ui.StatusBar;
+import capstone.utility.Camera;
 import capstone.utility.Delta;
 import capstone.utility.LevelBuilder;
 import capstone.utility.LevelSize;
@@ -16,19 +18,18 @@ import capstone.utility.Point;
 import capstone.utility.Region;
 import com.googlecode.lanterna.gui.GUIScreen;
 import com.googlecode.lanterna.screen.Screen;
-import com.googlecode.lanterna.screen.ScreenWriter;
+import com.googlecode.lanterna.screen.ScreenCharacterStyle;
 import com.googlecode.lanterna.terminal.TerminalSize;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 /**
- * The Level class is the main coordinating-unit of all game-logic.
- * It manages player movements, rendering elements and all game-events.
+ * The Level class renders a World onto a GUIScreen. The World does all
+ * of the game-logic (player movements, collisions and game-events), the
+ * Level listens to what the World changes and draws it onto the screen.
  */
 public class Level
 {
@@ -60,6 +61,16 @@ public class Level
         private int _delay;
     }
 
+    /**
+     * How the level is shown on the screen.
+     *
+     * PAGES shows one page of the grid at a time and flips to the next
+     * page when the followed player crosses its border. CAMERA shows a
+     * window that slides along with the player and only draws the cells
+     * that come into view.
+     */
+    public enum View { PAGES, CAMERA }
+
     /**
      *
      * Constructs a Level.
@@ -71,33 +82,23 @@ public class Level
      */
     public Level(LevelBuilder builder)
     {
-        _theme = builder.theme();
-
-        _name = builder.name();
-
-        _levelSize = builder.levelSize();
-
-        _totalKeys = builder.totalKeys();
-
-        _hidden = builder.hidden();
+        _world = new World(builder);
 
         _gui = builder.gui();
 
         _screen = _gui.getScreen();
 
-        _IDMap = builder.IDMap();
-
-        _players = builder.players();
+        _buffer = new FrameBuffer(_screen);
 
-        _grid = builder.grid();
+        _statusBar = new StatusBar(this);
 
-        _page = builder.page();
+        _view = View.CAMERA;
 
-        _difficulty = builder.difficulty();
+        _camera = new Camera(_world.size(), 1, 1);
 
-        _statusBar = new StatusBar(this);
+        _world.listen(new Renderer());
 
-        _deadPlayers = new ArrayList<>();
+        _resetCamera();
 
         redraw();
     }
@@ -107,51 +108,67 @@ public class Level
      * The most important method in the class, which is called on every
      * frame to do everything there is to do. It first checks if the
      * screen size has changed to determine if the screen has to be
-     * redrawn and the PageGrid updated. It then updates the page
-     * which moves the dynamic obstacles further if the frameCount
-     * equals the difficulty (see description of Difficulty enum).
-     * Then, it moves the players and evaluates their new positions
-     * to check for collisions and determine what those collisions mean.
+     * redrawn and the PageGrid updated. It then ticks the World, which
+     * moves the dynamic obstacles and the players and evaluates their
+     * new positions, while the Level renders whatever changed into the
+     * FrameBuffer. Only the cells that changed are written to the Screen.
      *
      * @param directions The map from IDs to Directions, as passed by
      *                   the Game class.
      */
     public void update(Map<String, Direction> directions)
     {
+        _expireNotice();
+
         // Resize pending?
         _checkResize();
 
-        // Move dynamic obstacles
-        _updatePage();
+        Page old = _world.currentPage();
 
-        Page old = _page;
+        _world.tick(directions);
 
-        // First move the players that are in the map
-        _movePlayers(directions);
+        // Message boxes were shown on top of the level
+        if (_needsRedraw)
+        {
+            _needsRedraw = false;
 
-        // Then evaluate the positions of all players
-        // Also those that didn't move.
-        _evaluatePlayers(directions);
+            redraw();
+
+            return;
+        }
 
         // See if we followed a player to another page
         // and have to re-render the page onto the screen.
-        if (_page != old)
+        if (_view == View.PAGES)
         {
-            _screen.clear();
-            _page.render(_screen);
+            if (_world.currentPage() != old) _renderView();
         }
 
+        else _follow();
+
+        _renderPlayers();
+
         _statusBar.draw();
 
+        _buffer.flush();
+
         _screen.refresh();
     }
 
+    /**
+     * @return The World simulated by the level.
+     */
+    public World world()
+    {
+        return _world;
+    }
+
     /**
      * @return The name of the level.
      */
     public String name()
     {
-        return _name;
+        return _world.name();
     }
 
     /**
@@ -159,7 +176,7 @@ public class Level
      */
     public boolean isDone()
     {
-        return hasWon() || hasLost();
+        return _world.isDone();
     }
 
     /**
@@ -168,7 +185,7 @@ public class Level
      */
     public boolean hasWon()
     {
-        return _won;
+        return _world.hasWon();
     }
 
     /**
@@ -176,7 +193,7 @@ public class Level
      */
     public boolean hasLost()
     {
-        return _players.isEmpty() && _hidden.isEmpty();
+        return _world.hasLost();
     }
 
     /**
@@ -188,17 +205,17 @@ public class Level
      */
     public void redraw()
     {
-        _clear(_screen);
+        // Whatever was shown on top of the level is still on the screen
+        _buffer.invalidate();
 
-        _page.render(_screen);
+        _renderView();
 
-        for (Player player : _players)
-        {
-            player.render(_screen, _page.region());
-        }
+        _renderPlayers();
 
         _statusBar.draw();
 
+        _buffer.flush();
+
         _screen.refresh();
     }
 
@@ -207,7 +224,7 @@ public class Level
      */
     public Theme theme()
     {
-        return _theme;
+        return _world.theme();
     }
 
     /**
@@ -218,21 +235,11 @@ public class Level
      */
     public void theme(Theme theme)
     {
-        assert(theme != null);
-
-        _theme = theme;
-
-        for (Page page : _grid.pages())
-        {
-            for (Element element : page)
-            {
-                element.representation(_theme.representation(element.kind()));
-            }
-        }
+        _world.theme(theme);
 
         // assuming that this method is called from the
         // menu, because it will do a redraw after. Else
-        // we'd have to call _page.render(_screen); here,
+        // we'd have to call _renderView() here,
         // but it's realistically never gonna happen.
     }
 
@@ -241,11 +248,7 @@ public class Level
      */
     public List<Player> players()
     {
-        List<Player> players = new ArrayList<>(_players);
-
-        players.addAll(_deadPlayers);
-
-        return players;
+        return _world.players();
     }
 
     /**
@@ -253,7 +256,7 @@ public class Level
      */
     public List<Profile> hidden()
     {
-        return Collections.unmodifiableList(_hidden);
+        return _world.hidden();
     }
 
     /**
@@ -278,7 +281,7 @@ public class Level
      */
     public int keysCollected()
     {
-        return _keysCollected;
+        return _world.keysCollected();
     }
 
     /**
@@ -286,7 +289,7 @@ public class Level
      */
     public int totalKeys()
     {
-        return _totalKeys;
+        return _world.totalKeys();
     }
 
     /**
@@ -294,7 +297,7 @@ public class Level
      */
     public PageGrid grid()
     {
-        return _grid;
+        return _world.grid();
     }
 
     /**
@@ -303,7 +306,7 @@ public class Level
      */
     public Page currentPage()
     {
-        return _page;
+        return _world.currentPage();
     }
 
     /**
@@ -328,9 +331,57 @@ public class Level
 
         _screen = _gui.getScreen();
 
+        _buffer = new FrameBuffer(_screen);
+
+        _resetCamera();
+
+        redraw();
+    }
+
+    /**
+     * @return How the level is shown on the screen.
+     */
+    public View view()
+    {
+        return _view;
+    }
+
+    /**
+     *
+     * Sets how the level is shown on the screen and redraws it.
+     *
+     * @param view The new view.
+     */
+    public void view(View view)
+    {
+        assert(view != null);
+
+        _view = view;
+
+        _resetCamera();
+
         redraw();
     }
 
+    /**
+     * @return The region of the level shown on the screen, i.e.
+     *         that of the camera or that of the current page.
+     */
+    public Region viewRegion()
+    {
+        if (_view == View.CAMERA) return _camera.region();
+
+        return _world.currentPage().region();
+    }
+
+    /**
+     * @return The FrameBuffer through which the level is drawn.
+     */
+    public FrameBuffer buffer()
+    {
+        return _buffer;
+    }
+
     /**
      * @return The Screen underlying the GUIScreen.
      */
@@ -344,7 +395,7 @@ public class Level
      */
     public LevelSize size()
     {
-        return _levelSize;
+        return _world.size();
     }
 
     /**
@@ -352,11 +403,7 @@ public class Level
      */
     public Region region()
     {
-        // Regions are inclusive, sizes not
-        return new Region(
-                _levelSize.getColumns() - 1,
-                _levelSize.getRows()    - 1
-        );
+        return _world.region();
     }
 
     /**
@@ -364,7 +411,7 @@ public class Level
      */
     public Difficulty difficulty()
     {
-        return _difficulty;
+        return _world.difficulty();
     }
 
     /**
@@ -375,9 +422,7 @@ public class Level
      */
     public void difficulty(Difficulty difficulty)
     {
-        assert(difficulty != null);
-
-        _difficulty = difficulty;
+        _world.difficulty(difficulty);
     }
 
     /**
@@ -388,432 +433,285 @@ public class Level
      */
     public void store() throws  IOException
     {
-        new LevelBuilder(this).store();
+        snapshot().write();
     }
 
     /**
-     * Handles calling _page.update() when the _frameCount is
-     * equal to the delay associated with the difficulty.
      *
-     * @see Difficulty
+     * Takes a snapshot of the level, which can be stored as
+     * a session in resources/sessions on another thread.
+     *
+     * The world is reseeded first (see World.reseed()), so
+     * that the session can hold where its randomness is.
+     *
+     * @return The snapshot.
      */
-    private void _updatePage()
+    public LevelBuilder.Snapshot snapshot()
     {
-        if (_frameCount++ >= _difficulty.delay())
-        {
-            _page.update(_screen);
+        _world.reseed();
 
-            _frameCount = 0;
-        }
+        return new LevelBuilder(this).snapshot(new File("resources/sessions"));
+    }
+
+    /**
+     * @return A short notice to show in the status bar, or null if none.
+     */
+    public synchronized String notice()
+    {
+        return _notice;
     }
 
     /**
      *
-     * Moves each player that performed a move in the current frame.
+     * Sets a short notice to show in the status bar until it is
+     * replaced, e.g. that the level is being saved. May be called
+     * from any thread.
      *
-     * @param directions The map from ids to directions.
+     * @param notice The notice, or null for none.
      */
-    private void _movePlayers(Map<String, Direction> directions)
+    public synchronized void notice(String notice)
     {
-        for (String id : directions.keySet())
-        {
-            // This is what the _IDMap is for
-            Player player = _IDMap.get(id);
-
-            // Happens when hidden players press a key
-            if (player == null) continue;
+        _notice = notice;
 
-            // refactored
-            _move(player, directions.get(id));
-        }
+        _noticeTicks = -1;
     }
 
     /**
      *
-     * Moves a player into the specified direction if the player
-     * does not go negative. If the player stood on an element,
-     * e.g. an entrance, that element is re-rendered. If that
-     * element the player stood on was an entrance and there
-     * are still hidden players, one of them can be unhidden.
+     * Sets a short notice to show in the status bar for a number of
+     * updates, after which it is cleared, e.g. that the level was
+     * saved. May be called from any thread.
      *
-     * @param player The player to move.
+     * @param notice The notice.
      *
-     * @param direction The direction to move the player in.
+     * @param ticks The number of updates to show it for. Must be positive.
      */
-    private void _move(Player player, Direction direction)
+    public synchronized void notice(String notice, int ticks)
     {
-        player.unrender(_screen, _page.region());
+        assert(notice != null);
+        assert(ticks > 0);
 
-        // See if the player stood on something, e.g. entrance
-        Element element = _page.at(player.point());
+        _notice = notice;
 
-        if (element != null)
-        {
-            if (element.kind() == Element.Kind.ENTRANCE && ! _hidden.isEmpty())
-            {
-                _unhidePlayer(element.point());
-            }
+        _noticeTicks = ticks;
+    }
 
-            else element.render(_screen, _page.region());
-        }
+    /**
+     * Counts down the updates a notice is still shown for, and
+     * clears it on the first update after they are over.
+     */
+    private synchronized void _expireNotice()
+    {
+        if (_noticeTicks == 0) notice(null);
 
-        Delta delta = new Delta(direction);
+        else if (_noticeTicks > 0) --_noticeTicks;
+    }
 
-        // Only move if it wouldn't invalidate constraints
-        if (! player.wouldGoOutside(delta, region()))
+    /**
+     * Renders the players that are alive and on the current page.
+     */
+    private void _renderPlayers()
+    {
+        Region region = viewRegion();
+
+        for (Player player : _world.alivePlayers())
         {
-            _page = _grid.follow(player.move(delta));
+            if (region.contains(player.point())) _renderPlayer(player, region);
         }
     }
 
     /**
-     *
-     * Promotes a profile from the _hidden profiles into an actual
-     * player, by creating a new player at the given point (should
-     * be an entrance) with the first profile retrieved from the
-     * _hidden collection. That profile is random.
-     *
-     * @param point The point at which to unhide one of the profiles.
+     * Renders what the view shows into the buffer, from scratch.
      */
-    private void _unhidePlayer(Point point)
+    private void _renderView()
     {
-        assert(! _hidden.isEmpty());
+        _buffer.clear();
 
-        // Get the first profile we can
-        Iterator<Profile> iterator = _hidden.iterator();
+        if (_view == View.CAMERA)
+        {
+            int left = _camera.left();
 
-        Player player = new Player(point, iterator.next());
+            int top = _camera.top();
 
-        _IDMap.put(player.id(), player);
+            _world.grid().query(_camera.region(), element -> _buffer.put(
+                    element.point().x() - left,
+                    element.point().y() - top,
+                    element.representation()
+            ));
 
-        _players.add(player);
+            return;
+        }
 
-        // Remove the profile from the hidden profiles
-        iterator.remove();
+        Page page = _world.currentPage();
+
+        Region region = page.region();
+
+        for (Element element : page)
+        {
+            _buffer.put(
+                    element.point().x() - region.southWest().x(),
+                    element.point().y() - region.northEast().y(),
+                    element.representation()
+            );
+        }
     }
 
     /**
-     *
-     * Evaluates the positions of all players. This means checking
-     * if they need to go back in case of a collision or checking
-     * if they're dead.
-     *
-     * @param directions The map from ids to moved directions.
+     * Moves the camera along with the followed player. If it moved by a
+     * bit, the buffer is scrolled and only the cells that came into view
+     * are rendered, else (e.g. after a jump) everything is re-rendered.
      */
-    private void _evaluatePlayers(Map<String, Direction> directions)
+    private void _follow()
     {
-        // First check their movements to see if they went back
-        for (int i = 0; i < _players.size(); )
+        if (_followed == null || _followed.isDead())
         {
-            Player player = _players.get(i);
+            List<Player> alive = _world.alivePlayers();
 
-            _evaluate(player);
+            if (alive.isEmpty()) return;
 
-            if (player.isAlive()) ++i;
+            _followed = alive.get(0);
         }
 
-        // Then check if the players collided or moved past each other
-        for (Player player : _players)
+        Delta delta = _camera.follow(_followed.point());
+
+        int columns = delta.x();
+
+        int rows = delta.y();
+
+        if (columns == 0 && rows == 0) return;
+
+        if (Math.abs(columns) >= _camera.columns() / 2 ||
+            Math.abs(rows) >= _camera.rows() / 2)
         {
-            if (_page.isInside(player))
-            {
-                _checkPlayerCollision(player, directions);
+            _renderView();
 
-                player.render(_screen, _page.region());
-            }
+            return;
         }
-    }
 
-    /**
-     *
-     * Evaluates a player's position with respect to the other game elements
-     * in the level. It is looked if the player's point collides with any
-     * other element in the screen and if so, a certain action is performed.
-     * What that action is depends on the element, e.g. just going backwards
-     * when bumping into walls, or revealing a mystery-event when opening
-     * a mystery-box, for example. When, after evaluation, a player is seen
-     * to have moved onto another page, the grid's current page is updated.
-     *
-     * @param player The player to evaluate.
-     */
-    private void _evaluate(Player player)
-    {
-        assert(player != null);
+        _buffer.scroll(columns, rows, _camera.rows());
 
-        Element element = _page.at(player.point());
+        int right = _camera.left() + _camera.columns() - 1;
 
-        if (element == null) return;
+        int bottom = _camera.top() + _camera.rows() - 1;
 
-        switch (element.kind())
+        // The columns and rows that came into view
+        for (int i = 0; i < Math.abs(columns); ++i)
         {
-            case WALL:
-                player.goBack();
-                break;
-
-            // Because this happens at the start we first have
-            // to check if the player even can go back
-            case ENTRANCE:
-                if (player.canGoBack()) player.goBack();
-                break;
-
-            case EXIT:
-            {
-                if (_keysCollected == _totalKeys) _won = true;
-
-                else player.goBack();
-
-                break;
-            }
-
-            case KEY:
-            {
-                element.unrender(_screen, _page.region());
-                _page.remove(element);
-
-                ++_keysCollected;
-
-                break;
-            }
-
-            case STATIC_OBSTACLE:
-            case DYNAMIC_OBSTACLE:
-            {
-                player.injure();
-                if (! player.isDead()) player.goBack();
-                break;
-            }
-
-            case MYSTERY_BOX:
-                _handleMysteryBox((MysteryBox) element, player);
-                break;
+            _renderColumn(columns > 0 ? right - i : _camera.left() + i);
         }
 
-        // Could also happen due to the mystery box, that's why
-        // it's down here and not with the obstacles
-        if (player.isDead()) _kill(player);
-
-        // If the player moved out of the page, the index of the
-        // grid is updated. The screen is not re-rendered, this
-        // operation just modifies a few numbers (the index) in
-        // the grid, so it's very cheap and we can do it for all
-        // players. The last page to be followed one will be
-        // rendered then.
-        _page = _grid.follow(player);
+        for (int i = 0; i < Math.abs(rows); ++i)
+        {
+            _renderRow(rows > 0 ? bottom - i : _camera.top() + i);
+        }
     }
 
     /**
      *
-     * This one was tasty. Checks if players have collided or moved past
-     * each other, i.e. moved over each other. Prevents such an action if
-     * necessary.
-     *
-     * @param player The player to check collision for.
+     * Renders a column of the camera.
      *
-     * @param directions The map from ids to directions of the last frame.
+     * @param x The x-coordinate of the column in the level.
      */
-    private void _checkPlayerCollision(Player player,
-                                       Map<String, Direction> directions)
+    private void _renderColumn(int x)
     {
-        for (Player other : _players)
+        for (int y = _camera.top(); y < _camera.top() + _camera.rows(); ++y)
         {
-            if (other == player) continue;
-
-            // If one moved onto the other, either because one player
-            // stood still and the other moved onto him, or because
-            // they both moved onto the same point at the same time.
-            if (other.point().equals(player.point()))
-            {
-                // Only one of them may have moved.
-                if (directions.containsKey(player.id())) player.goBack();
-
-                else other.goBack();
-
-                break;
-            }
-
-            // If both moved, and they moved past each other such that
-            // the point of the player is the previous point of other
-            // and the point of other is the previous point of the player,
-            // then undo both movements. Because both moved we can be sure
-            // that neither previousPoint will be null.
-            else if (directions.containsKey(player.id())          &&
-                     directions.containsKey(other.id())           &&
-                     player.point().equals(other.previousPoint()) &&
-                     other.point().equals(player.previousPoint()))
-            {
-                player.goBack();
-                other.goBack();
-
-                break;
-            }
+            _renderCell(x, y);
         }
     }
 
     /**
      *
-     * Handles all the events of the MysteryBox. Can't refactor that into
-     * the MysteryBox class, as it performs too many internal modifications
-     * on the level that shouldn't be accessible from the outside to another
-     * class. Maybe in C++ we would declare the MysteryBox a friend class.
-     *
-     * @param mysteryBox The mystery-box instance to reveal.
+     * Renders a row of the camera.
      *
-     * @param player The player who interacted with the mystery-box.
+     * @param y The y-coordinate of the row in the level.
      */
-    private void _handleMysteryBox(MysteryBox mysteryBox, Player player)
+    private void _renderRow(int y)
     {
-        // Needs the gui to show a message box and unrender
-        // Needs the region to unrender
-        mysteryBox.reveal(_gui, _page.region());
-
-        _grid.remove(mysteryBox);
-
-        switch (mysteryBox.event())
+        for (int x = _camera.left(); x < _camera.left() + _camera.columns(); ++x)
         {
-            case EMPTY:
-                break;
-
-            case HEAL:
-            {
-                if (! player.hasFullHealth()) player.heal();
-
-                else MysteryBox.showMessage(
-                        _gui,
-                        "But you already have full health!"
-                );
-
-                break;
-            }
-
-            case INJURE:
-                player.injure();
-                break;
-
-            case NEW_KEY:
-                if (_generate(Element.Kind.KEY)) ++_totalKeys;
-                break;
-
-            case NEW_STATIC_OBSTACLE:
-                _generate(Element.Kind.STATIC_OBSTACLE);
-                break;
-
-            case NEW_DYNAMIC_OBSTACLE:
-                _generate(Element.Kind.DYNAMIC_OBSTACLE);
-                break;
-
-            case NEW_MYSTERY_BOX:
-                _generate(Element.Kind.MYSTERY_BOX);
-                break;
-
-            case NEW_WALL:
-                _generate(Element.Kind.WALL);
-                break;
-
-            case REMOVE_DYNAMIC_OBSTACLE:
-                _remove(Element.Kind.DYNAMIC_OBSTACLE);
-                break;
-
-            case REMOVE_STATIC_OBSTACLE:
-                _remove(Element.Kind.STATIC_OBSTACLE);
-                break;
-
-            case LOSE_KEY:
-            {
-                if (_keysCollected > 0)
-                {
-                    _generate(Element.Kind.KEY);
-
-                    --_keysCollected;
-                }
-
-                else MysteryBox.showMessage(
-                        _gui,
-                        "But you have not collected any yet!"
-                );
-            }
+            _renderCell(x, y);
         }
-
-        // After the message boxes...
-        redraw();
     }
 
     /**
-     *
-     * Handles generation of a new element due to a MysteryBox.
-     * Takes care of the case when the generated element is on
-     * the position of the player, in which case the player is
-     * asked to go back. Also handles the situation when the
-     * level is too full to generate a new element.
-     *
-     * @param kind The kind of element to generate.
-     *
-     * @return true if the element could be generated,
-     *         false if the level was too full.
+     * Sizes the camera to the page size and centers it on the first player.
      */
-    private boolean _generate(Element.Kind kind)
+    private void _resetCamera()
     {
-        Element element;
+        TerminalSize size = pageSize();
 
-        if((element = _grid.generate(kind, _theme)) != null)
-        {
-            for (Player player : _players)
-            {
-                if (element.point().equals(player.point()))
-                {
-                    // Edge cases, edge cases, edge cases. Gotta love them.
-                    if (player.canGoBack()) player.goBack();
-
-                    else break; // too full
-                }
-            }
-
-            return true;
-        }
+        _camera.resize(_world.size(), size.getColumns(), size.getRows());
+
+        List<Player> alive = _world.alivePlayers();
 
-        MysteryBox.showMessage(_gui, "But there is no space left!");
+        _followed = alive.isEmpty() ? null : alive.get(0);
 
-        return false;
+        if (_followed != null) _camera.center(_followed.point());
     }
 
     /**
      *
-     * Attempts to remove an element of a certain kind from the grid.
+     * Renders a player into the buffer. Players blink.
      *
-     * @param kind The kind of element to attempt to remove.
+     * @param player The player to render.
      *
-     * @return true if the removal was possible, else false.
+     * @param region The region of the current page.
      */
-    private boolean _remove(Element.Kind kind)
+    private void _renderPlayer(Player player, Region region)
     {
-        if(_grid.remove(kind) != null) return true;
-
-        else
-        {
-            MysteryBox.showMessage(_gui, "But there are none!");
+        _buffer.put(
+                player.point().x() - region.southWest().x(),
+                player.point().y() - region.northEast().y(),
+                player.representation(),
+                ScreenCharacterStyle.Blinking
+        );
+    }
 
-            return false;
-        }
+    /**
+     *
+     * Re-renders a single cell of the view, i.e. the
+     * element at that point if there is one and else nothing,
+     * plus any player standing on that point.
+     *
+     * @param point The point of the cell to re-render.
+     */
+    private void _renderCell(Point point)
+    {
+        _renderCell(point.x(), point.y());
     }
 
     /**
      *
-     * Performs all the necessary operations to kill a player, e.g.
-     * moving the player from the list of alive players to that of
-     * dead players.
+     * Re-renders a single cell of the view, without
+     * having to construct a Point for it.
+     *
+     * @param x The x-coordinate of the cell to re-render.
      *
-     * @param player The player to kill.
+     * @param y The y-coordinate of the cell to re-render.
      */
-    private void _kill(Player player)
+    private void _renderCell(int x, int y)
     {
-        assert(_players.contains(player));
-        assert(_IDMap.containsKey(player.id()));
-        assert(player.isDead());
+        Region region = viewRegion();
 
-        _players.remove(player);
+        if (! region.contains(x, y)) return;
 
-        _deadPlayers.add(player);
+        int column = x - region.southWest().x();
 
-        _IDMap.remove(player.id());
+        int row = y - region.northEast().y();
+
+        Element element = _world.grid().at(x, y);
+
+        if (element != null) _buffer.put(column, row, element.representation());
+
+        else _buffer.blank(column, row);
+
+        for (Player player : _world.alivePlayers())
+        {
+            Point point = player.point();
+
+            if (point.x() == x && point.y() == y) _renderPlayer(player, region);
+        }
     }
 
     /**
@@ -825,64 +723,94 @@ public class Level
 
         _screen.refresh();
 
-        // Necessary because there is some weird bug in lanterna
-        // that causes unoccupied space on the screen to be displayed
-        // with green Xs instead of just the default background.
-        _clear(_screen);
+        // Resizing invalidates every cell, so they are all written
+        // on the next flush. This is also necessary because there is
+        // some weird bug in lanterna that causes unoccupied space on
+        // the screen to be displayed with green Xs instead of just
+        // the default background.
+        _buffer.resize(_screen.getTerminalSize());
+
+        _world.resize(pageSize());
 
-        _grid.resize(pageSize());
+        TerminalSize size = pageSize();
 
-        _page = _grid.fetchPageOf(_players.get(0));
+        _camera.resize(_world.size(), size.getColumns(), size.getRows());
 
-        _page.render(_screen);
+        if (_followed != null) _camera.center(_followed.point());
+
+        _renderView();
     }
 
     /**
-     *
-     * Fixes the bug in lanterna that causes unoccupied space
-     * on the screen to be displayed with green Xs instead
-     * of just the default background.
-     *
-     * @param screen The screen to clear.
+     * Renders the changes of the World onto the screen as they happen.
      */
-    private void _clear(Screen screen)
+    private class Renderer implements World.Listener
     {
-        ScreenWriter writer = new ScreenWriter(screen);
+        @Override public void moved(Element element, Point from)
+        {
+            // The camera follows whoever moved last
+            if (element.kind() == Element.Kind.PLAYER) _followed = (Player) element;
 
-        writer.fillScreen(' ');
-    }
+            _renderCell(from);
 
-    private Theme _theme;
+            _renderCell(element.point());
+        }
 
-    private String _name;
+        @Override public void added(Element element)
+        {
+            _renderCell(element.point());
+        }
 
-    private LevelSize _levelSize;
+        @Override public void removed(Element element)
+        {
+            _renderCell(element.point());
+        }
 
-    private int _keysCollected;
+        @Override public void revealed(MysteryBox mysteryBox, Player player)
+        {
+            MysteryBox.showEvent(_gui, mysteryBox.event());
 
-    private int _totalKeys;
+            _needsRedraw = true;
+        }
 
-    private List<Profile> _hidden;
+        @Override public void message(String message)
+        {
+            MysteryBox.showMessage(_gui, message);
 
-    private GUIScreen _gui;
+            _needsRedraw = true;
+        }
 
-    private Screen _screen;
+        @Override public void killed(Player player)
+        {
+            _renderCell(player.point());
+        }
+    }
 
-    private Map<String, Player> _IDMap;
+    private final World _world;
 
-    private List<Player> _players;
+    private GUIScreen _gui;
+
+    private Screen _screen;
 
-    private List<Player> _deadPlayers;
+    private FrameBuffer _buffer;
 
-    private PageGrid _grid;
+    private View _view;
 
-    private Page _page;
+    private final Camera _camera;
 
-    private boolean _won;
+    /**
+     * The player the camera follows.
+     */
+    private Player _followed;
 
     private StatusBar _statusBar;
 
-    private Difficulty _difficulty;
+    private boolean _needsRedraw;
+
+    private String _notice;
 
-    private int _frameCount;
-}
\ No newline at end of file
+    /**
+     * The updates the notice is still shown for, or -1 if until replaced.
+     */
+    private int _noticeTicks = -1;
+}
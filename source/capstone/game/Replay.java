@@ -0,0 +1,702 @@
+package capstone.game;
+
+import capstone.data.Profile;
+import capstone.data.Representation;
+import capstone.data.Theme;
+import capstone.element.Direction;
+import capstone.element.DynamicObstacle;
+import capstone.element.Element;
+import capstone.element.Player;
+import capstone.utility.KeyMap;
+import capstone.utility.LevelBuilder;
+import capstone.utility.LevelFile;
+import capstone.utility.Point;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Replay is the recording of a game: the level as it was when the game
+ * started (including its seed) and the directions of the players in every
+ * tick. Since all randomness of a level comes from its seed, feeding the
+ * same directions into a World built from the same level plays the game
+ * out exactly the same way, so a replay reproduces a bug that happened
+ * while playing, or serves as a benchmark of a real game.
+ *
+ * Saving a game reseeds its world (see World.reseed()), which is recorded
+ * along with the changes of the difficulty and of the size of the pages.
+ *
+ * A game is recorded by a Recorder, which listens to the World and appends
+ * to the replay file as the game goes on. Replaying runs the World alone,
+ * i.e. the simulation of the Level without any terminal, as fast as it
+ * goes. At the end of the recording, the Recorder stores a fingerprint of
+ * the final state of the World, against which the replay is checked.
+ *
+ * The format is (all numbers big-endian, varints as for LevelFile):
+ *
+ * int    magic ("CRPL")
+ * byte   version
+ * int    columns of the terminal
+ * int    rows of the terminal
+ * level  the level at the start, as a binary LevelFile
+ * until the end of the file, records of a byte tag and:
+ *        IDLE:       varint number of ticks without input
+ *        INPUT:      varint number of players, for each: varint index
+ *                    of the player in the level, byte direction; one tick
+ *        DIFFICULTY: byte difficulty (ordinal)
+ *        RESIZE:     varint columns, varint rows of a page
+ *        SEED:       long seed the world was reseeded with (since version 2)
+ *        END:        varint number of ticks, long fingerprint
+ *
+ * Ticks without input, which are most of them, only cost a few bytes per
+ * run of them. A recording cut off (e.g. by a crash) replays up to where
+ * it was cut off, just without the check at the end.
+ *
+ * To replay a file (n times): Replay [file] [n]
+ */
+public class Replay
+{
+    /**
+     * The extension of replay files.
+     */
+    public static final String EXTENSION = "replay";
+
+    /**
+     * Records a game into a replay file.
+     */
+    public static class Recorder implements World.Listener, Closeable
+    {
+        /**
+         *
+         * Constructs a Recorder and writes the header of the replay.
+         *
+         * The world must not have been ticked yet, since the state
+         * of its random number generators is not part of the level.
+         *
+         * @param file The file to record into.
+         *
+         * @param world The world to record.
+         *
+         * @param terminalSize The size of the terminal the world is shown on.
+         *
+         * @throws IOException for I/O badness.
+         */
+        public Recorder(File file,
+                        World world,
+                        TerminalSize terminalSize) throws IOException
+        {
+            assert(file != null);
+            assert(world != null);
+            assert(terminalSize != null);
+            assert(world.ticks() == 0);
+
+            LevelFile level = new LevelBuilder(world).levelFile();
+
+            _indices = new HashMap<>();
+
+            for (String id : level.players().keySet())
+            {
+                _indices.put(id, _indices.size());
+            }
+
+            _output = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file))
+            );
+
+            _output.writeInt(MAGIC);
+            _output.writeByte(VERSION);
+
+            _output.writeInt(terminalSize.getColumns());
+            _output.writeInt(terminalSize.getRows());
+
+            level.write(_output);
+
+            _output.flush();
+
+            _world = world;
+
+            _world.listen(this);
+        }
+
+        @Override public void ticking(Map<String, Direction> directions)
+        {
+            if (directions.isEmpty())
+            {
+                ++_idle;
+
+                return;
+            }
+
+            _record(() ->
+            {
+                _output.writeByte(INPUT);
+
+                LevelFile.writeVarint(_output, directions.size());
+
+                for (Map.Entry<String, Direction> entry : directions.entrySet())
+                {
+                    Integer index = _indices.get(entry.getKey());
+
+                    // Players of other levels are ignored by the world
+                    LevelFile.writeVarint(_output, index == null ? _indices.size() : index);
+
+                    _output.writeByte(entry.getValue().ordinal());
+                }
+            });
+        }
+
+        @Override public void resized(TerminalSize pageSize)
+        {
+            _record(() ->
+            {
+                _output.writeByte(RESIZE);
+
+                LevelFile.writeVarint(_output, pageSize.getColumns());
+                LevelFile.writeVarint(_output, pageSize.getRows());
+            });
+        }
+
+        @Override public void difficultyChanged(Level.Difficulty difficulty)
+        {
+            _record(() ->
+            {
+                _output.writeByte(DIFFICULTY);
+
+                _output.writeByte(difficulty.ordinal());
+            });
+        }
+
+        @Override public void reseeded(long seed)
+        {
+            _record(() ->
+            {
+                _output.writeByte(SEED);
+
+                _output.writeLong(seed);
+            });
+        }
+
+        /**
+         *
+         * Stops recording and writes the end of the replay,
+         * with the fingerprint of the world as it is now.
+         *
+         * @throws IOException for I/O badness during the recording.
+         */
+        @Override public void close() throws IOException
+        {
+            _world.ignore(this);
+
+            _record(() ->
+            {
+                _output.writeByte(END);
+
+                LevelFile.writeVarint(_output, (int) _world.ticks());
+
+                _output.writeLong(fingerprint(_world));
+            });
+
+            _output.close();
+
+            if (_error != null) throw _error;
+        }
+
+        /**
+         * @return The world being recorded.
+         */
+        public World world()
+        {
+            return _world;
+        }
+
+        /**
+         * Writes a record to the replay.
+         */
+        private interface Record
+        {
+            void write() throws IOException;
+        }
+
+        /**
+         *
+         * Writes the pending run of idle ticks and then a record. Writing
+         * stops at the first error, which is thrown by close(), since the
+         * world cannot handle errors of its listeners.
+         *
+         * @param record The record to write.
+         */
+        private void _record(Record record)
+        {
+            if (_error != null) return;
+
+            try
+            {
+                if (_idle > 0)
+                {
+                    _output.writeByte(IDLE);
+
+                    LevelFile.writeVarint(_output, _idle);
+
+                    _idle = 0;
+                }
+
+                record.write();
+
+                // Keep what was recorded so far if the game crashes
+                _output.flush();
+            }
+
+            catch (IOException e) { _error = e; }
+        }
+
+        private final World _world;
+
+        private final Map<String, Integer> _indices;
+
+        private final DataOutputStream _output;
+
+        private int _idle;
+
+        private IOException _error;
+    }
+
+    /**
+     *
+     * Replays a file as fast as possible and reports
+     * the number of ticks per second.
+     *
+     * @param args The replay file and, optionally, how often to play it.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1 || args.length > 2)
+        {
+            System.err.println("Usage: Replay <file> [<times>]");
+
+            System.exit(1);
+        }
+
+        Replay replay = read(new File(args[0]));
+
+        int times = args.length == 2 ? Integer.parseInt(args[1]) : 1;
+
+        for (int i = 0; i < times; ++i)
+        {
+            World world = replay.world();
+
+            long start = System.nanoTime();
+
+            long ticks = replay.play(world);
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf(
+                    "%d ticks in %.3f s (%.0f ticks/s)%n",
+                    ticks,
+                    seconds,
+                    ticks / seconds
+            );
+
+            if (! replay.isComplete())
+            {
+                System.out.println("The recording was cut off.");
+            }
+
+            else if (! replay.matches(world))
+            {
+                System.out.println("The replay diverged from the recording!");
+
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     *
+     * Reads a replay from a file.
+     *
+     * @param file The file to read.
+     *
+     * @return The Replay.
+     *
+     * @throws IOException for I/O badness or a corrupt file.
+     */
+    public static Replay read(File file) throws IOException
+    {
+        assert(file != null);
+
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    0,
+                    channel.size()
+            );
+
+            return new Replay(buffer);
+        }
+    }
+
+    /**
+     *
+     * Computes a fingerprint of the state of a world: where its players
+     * and dynamic obstacles are, which players are dead, how many keys
+     * were collected and how many elements there are.
+     *
+     * @param world The world.
+     *
+     * @return The fingerprint.
+     */
+    public static long fingerprint(World world)
+    {
+        assert(world != null);
+
+        long fingerprint = world.keysCollected();
+
+        fingerprint = fingerprint * 31 + world.grid().numberOfElements();
+
+        for (Player player : world.players())
+        {
+            fingerprint = fingerprint * 31 + player.id().hashCode();
+
+            fingerprint = fingerprint * 31 + _mix(player.point());
+
+            fingerprint = fingerprint * 31 + (player.isDead() ? 1 : 0);
+        }
+
+        // The order of the obstacles does not matter
+        long obstacles = 0;
+
+        for (DynamicObstacle obstacle : world.grid().dynamicObstacles())
+        {
+            obstacles += _mix(obstacle.point());
+        }
+
+        return fingerprint * 31 + obstacles;
+    }
+
+    /**
+     *
+     * Builds a fresh world from the level at the start of the recording.
+     * The players get placeholder profiles and the elements a placeholder
+     * theme, since neither changes how the game plays.
+     *
+     * @return The World.
+     */
+    public World world()
+    {
+        Theme theme = new Theme(_level.theme() == null ? "Replay" : _level.theme());
+
+        for (Element.Kind kind : Element.Kind.kinds())
+        {
+            theme.representation(kind, _representation(kind.toString().charAt(0)));
+        }
+
+        List<Profile> profiles = new ArrayList<>();
+
+        for (String id : _ids)
+        {
+            profiles.add(new Profile(id, id, KeyMap.Arrows(), _representation('@')));
+        }
+
+        return new World(new LevelBuilder(_level, theme, profiles, _terminalSize));
+    }
+
+    /**
+     *
+     * Plays the recorded ticks on a world, until they
+     * run out or the game is done, as in the original.
+     *
+     * @param world A world built by world().
+     *
+     * @return The number of ticks played.
+     */
+    public long play(World world)
+    {
+        assert(world != null);
+
+        long start = world.ticks();
+
+        for (int tick = 0; tick < _ticks.size() && ! world.isDone(); ++tick)
+        {
+            Level.Difficulty difficulty = _difficulties.get(tick);
+
+            if (difficulty != null) world.difficulty(difficulty);
+
+            TerminalSize pageSize = _resizes.get(tick);
+
+            if (pageSize != null) world.resize(pageSize);
+
+            Long seed = _seeds.get(tick);
+
+            if (seed != null) world.reseed(seed);
+
+            world.tick(_ticks.get(tick));
+        }
+
+        return world.ticks() - start;
+    }
+
+    /**
+     *
+     * Tests if a world that played the replay ended up where the recording
+     * did. Can only be true if the recording is complete.
+     *
+     * @param world The world that played the replay.
+     *
+     * @return True if the world matches the end of the recording.
+     */
+    public boolean matches(World world)
+    {
+        return _complete &&
+               world.ticks() == _numberOfTicks &&
+               fingerprint(world) == _fingerprint;
+    }
+
+    /**
+     * @return The directions of the players in every tick recorded.
+     */
+    public List<Map<String, Direction>> ticks()
+    {
+        return Collections.unmodifiableList(_ticks);
+    }
+
+    /**
+     * @return The level at the start of the recording.
+     */
+    public LevelFile level()
+    {
+        return _level;
+    }
+
+    /**
+     * @return True if the recording has its end, else false.
+     */
+    public boolean isComplete()
+    {
+        return _complete;
+    }
+
+    /**
+     *
+     * Decodes a replay.
+     *
+     * @param buffer The buffer holding the replay.
+     *
+     * @throws IOException for a corrupt replay.
+     */
+    private Replay(ByteBuffer buffer) throws IOException
+    {
+        try
+        {
+            if (buffer.getInt() != MAGIC)
+            {
+                throw new IOException("Not a replay file");
+            }
+
+            byte version = buffer.get();
+
+            if (version < 1 || version > VERSION)
+            {
+                throw new IOException("Unsupported replay version");
+            }
+
+            _terminalSize = new TerminalSize(buffer.getInt(), buffer.getInt());
+
+            _level = LevelFile.decode(buffer);
+        }
+
+        catch (BufferUnderflowException e)
+        {
+            throw new IOException("Corrupt replay file", e);
+        }
+
+        _ids = new ArrayList<>(_level.players().keySet());
+
+        _ticks = new ArrayList<>();
+
+        _difficulties = new HashMap<>();
+
+        _resizes = new HashMap<>();
+
+        _seeds = new HashMap<>();
+
+        _decodeRecords(buffer);
+    }
+
+    /**
+     *
+     * Decodes the records of a replay, up to its end or to
+     * where it was cut off.
+     *
+     * @param buffer The buffer, right after the level.
+     *
+     * @throws IOException for a corrupt record.
+     */
+    private void _decodeRecords(ByteBuffer buffer) throws IOException
+    {
+        Map<String, Direction> idle = Collections.emptyMap();
+
+        Direction[] directions = Direction.values();
+
+        try
+        {
+            while (buffer.hasRemaining() && ! _complete)
+            {
+                byte tag = buffer.get();
+
+                switch (tag)
+                {
+                    case IDLE:
+                        for (int n = LevelFile.readVarint(buffer); n > 0; --n)
+                        {
+                            _ticks.add(idle);
+                        }
+
+                        break;
+
+                    case INPUT:
+                        Map<String, Direction> tick = new HashMap<>();
+
+                        for (int n = LevelFile.readVarint(buffer); n > 0; --n)
+                        {
+                            int index = LevelFile.readVarint(buffer);
+
+                            Direction direction = directions[buffer.get()];
+
+                            if (index < _ids.size()) tick.put(_ids.get(index), direction);
+                        }
+
+                        _ticks.add(tick);
+
+                        break;
+
+                    case DIFFICULTY:
+                        _difficulties.put(
+                                _ticks.size(),
+                                Level.Difficulty.values()[buffer.get()]
+                        );
+
+                        break;
+
+                    case RESIZE:
+                        _resizes.put(
+                                _ticks.size(),
+                                new TerminalSize(
+                                        LevelFile.readVarint(buffer),
+                                        LevelFile.readVarint(buffer)
+                                )
+                        );
+
+                        break;
+
+                    case SEED:
+                        _seeds.put(_ticks.size(), buffer.getLong());
+
+                        break;
+
+                    case END:
+                        _numberOfTicks = LevelFile.readVarint(buffer);
+
+                        _fingerprint = buffer.getLong();
+
+                        _complete = true;
+
+                        break;
+
+                    default:
+                        throw new IOException("Corrupt replay file");
+                }
+            }
+        }
+
+        // Cut off in the middle of a record
+        catch (BufferUnderflowException e) { _complete = false; }
+
+        catch (ArrayIndexOutOfBoundsException e)
+        {
+            throw new IOException("Corrupt replay file", e);
+        }
+    }
+
+    private static Representation _representation(char character)
+    {
+        return new Representation(
+                character,
+                Terminal.Color.DEFAULT,
+                Terminal.Color.DEFAULT
+        );
+    }
+
+    /**
+     * Spreads the coordinates of a point over a long (the SplitMix64 finalizer).
+     */
+    private static long _mix(Point point)
+    {
+        long z = ((long) point.x() << 32) ^ (point.y() & 0xFFFFFFFFL);
+
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * "CRPL"
+     */
+    private static final int MAGIC = 0x4352504C;
+
+    private static final byte VERSION = 2;
+
+    private static final byte IDLE = 0;
+
+    private static final byte INPUT = 1;
+
+    private static final byte DIFFICULTY = 2;
+
+    private static final byte RESIZE = 3;
+
+    private static final byte END = 4;
+
+    private static final byte SEED = 5;
+
+    private final TerminalSize _terminalSize;
+
+    private final LevelFile _level;
+
+    private final List<String> _ids;
+
+    private final List<Map<String, Direction>> _ticks;
+
+    private final Map<Integer, Level.Difficulty> _difficulties;
+
+    private final Map<Integer, TerminalSize> _resizes;
+
+    private final Map<Integer, Long> _seeds;
+
+    private int _numberOfTicks;
+
+    private long _fingerprint;
+
+    private boolean _complete;
+}
@@ -0,0 +1,1156 @@
+package capstone.game;
+
+import capstone.data.Profile;
+import capstone.data.Theme;
+import capstone.element.Direction;
+import capstone.element.DynamicObstacle;
+import capstone.element.Element;
+import capstone.element.MysteryBox;
+import capstone.element.Player;
+import capstone.element.Quarry;
+import capstone.utility.Delta;
+import capstone.utility.FlowField;
+import capstone.utility.LevelBuilder;
+import capstone.utility.LevelSize;
+import capstone.utility.ObstacleUpdater;
+import capstone.utility.Page;
+import capstone.utility.PageGrid;
+import capstone.utility.Point;
+import capstone.utility.Region;
+import com.googlecode.lanterna.terminal.TerminalSize;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The World is the simulation core of a Level. It advances all the
+ * game-logic (player movements, obstacles, collisions and mystery-events)
+ * one tick at a time, without ever touching a Screen or GUIScreen.
+ *
+ * Anything that wants to know about what happened during a tick, e.g. the
+ * Level to render it, registers a World.Listener and is told about every
+ * change as it happens. That way the world can be ticked thousands of times
+ * per second in tests, soak runs or replays with no terminal attached.
+ */
+public class World
+{
+    /**
+     * Receives the changes the World makes while it is being ticked.
+     *
+     * All methods do nothing by default, so that listeners only
+     * need to override the events they are interested in.
+     */
+    public interface Listener
+    {
+        /**
+         *
+         * Called when an element (a player or dynamic obstacle) moved.
+         *
+         * @param element The element that moved, already at its new point.
+         *
+         * @param from The point the element moved away from.
+         */
+        default void moved(Element element, Point from) { }
+
+        /**
+         *
+         * Called when an element was added to the world, e.g. generated
+         * by a mystery-box or a hidden player that was unhidden.
+         *
+         * @param element The element that was added.
+         */
+        default void added(Element element) { }
+
+        /**
+         *
+         * Called when an element was removed from the world,
+         * e.g. a key that was collected.
+         *
+         * @param element The element that was removed.
+         */
+        default void removed(Element element) { }
+
+        /**
+         *
+         * Called when a player revealed a mystery-box. The event is
+         * handled by the world right after this method returns.
+         *
+         * @param mysteryBox The mystery-box that was revealed.
+         *
+         * @param player The player that revealed the mystery-box.
+         */
+        default void revealed(MysteryBox mysteryBox, Player player) { }
+
+        /**
+         *
+         * Called when the world has something to say about
+         * a mystery-event, e.g. that there are no keys to lose.
+         *
+         * @param message The message.
+         */
+        default void message(String message) { }
+
+        /**
+         *
+         * Called when a player died.
+         *
+         * @param player The player that died.
+         */
+        default void killed(Player player) { }
+
+        /**
+         *
+         * Called at the start of a tick, before anything moved.
+         *
+         * @param directions The directions of the players that
+         *                   move in this tick, keyed by their IDs.
+         */
+        default void ticking(Map<String, Direction> directions) { }
+
+        /**
+         *
+         * Called when the pages of the world were resized.
+         *
+         * @param pageSize The new size of a page.
+         */
+        default void resized(TerminalSize pageSize) { }
+
+        /**
+         *
+         * Called when the difficulty of the world was changed.
+         *
+         * @param difficulty The new difficulty.
+         */
+        default void difficultyChanged(Level.Difficulty difficulty) { }
+
+        /**
+         *
+         * Called when the sources of randomness of the world were seeded anew.
+         *
+         * @param seed The new seed.
+         */
+        default void reseeded(long seed) { }
+    }
+
+    /**
+     *
+     * Constructs a World from a LevelBuilder.
+     *
+     * The LevelBuilder need not have a GUIScreen.
+     *
+     * @param builder The LevelBuilder containing all the data for the world.
+     */
+    public World(LevelBuilder builder)
+    {
+        assert(builder != null);
+
+        _theme = builder.theme();
+
+        _name = builder.name();
+
+        _levelSize = builder.levelSize();
+
+        _totalKeys = builder.totalKeys();
+
+        _hidden = builder.hidden();
+
+        _IDMap = builder.IDMap();
+
+        _players = builder.players();
+
+        _grid = builder.grid();
+
+        _quarry = new Quarry();
+
+        for (DynamicObstacle obstacle : _grid.dynamicObstacles())
+        {
+            _countFlow(obstacle, +1);
+        }
+
+        _updater = new ObstacleUpdater(_grid, _quarry);
+
+        _from = new Point[0];
+
+        _page = builder.page();
+
+        _difficulty = builder.difficulty();
+
+        _layout = builder.layout();
+
+        _checksum = builder.checksum();
+
+        _changes = new HashSet<>(builder.changes());
+
+        _deadPlayers = new ArrayList<>();
+
+        _listeners = new ArrayList<>();
+
+        _seed = builder.seed();
+
+        _random = new Random(_seed);
+
+        _frameCount = builder.frame();
+    }
+
+    /**
+     *
+     * Advances the world by one tick. It first moves the dynamic obstacles
+     * of all pages further if the frameCount equals
+     * the difficulty (see description of Level.Difficulty). Then, it moves
+     * the players and evaluates their new positions to check for collisions
+     * and determine what those collisions mean.
+     *
+     * @param directions The map from IDs to Directions of the players
+     *                   that moved in this tick.
+     */
+    public void tick(Map<String, Direction> directions)
+    {
+        assert(directions != null);
+
+        for (Listener listener : _listeners) listener.ticking(directions);
+
+        // Move dynamic obstacles
+        _updateObstacles();
+
+        // First move the players that are in the map
+        _movePlayers(directions);
+
+        // Then evaluate the positions of all players
+        // Also those that didn't move.
+        _evaluatePlayers(directions);
+
+        ++_ticks;
+    }
+
+    /**
+     *
+     * Registers a listener to be notified of changes to the world.
+     *
+     * @param listener The listener to add.
+     */
+    public void listen(Listener listener)
+    {
+        assert(listener != null);
+
+        _listeners.add(listener);
+    }
+
+    /**
+     *
+     * Unregisters a listener.
+     *
+     * @param listener The listener to remove.
+     */
+    public void ignore(Listener listener)
+    {
+        _listeners.remove(listener);
+    }
+
+    /**
+     *
+     * Resizes the grid to a new page size and
+     * fetches the page of the first player again.
+     *
+     * @param pageSize The new size of a page.
+     */
+    public void resize(TerminalSize pageSize)
+    {
+        assert(pageSize != null);
+
+        _grid.resize(pageSize);
+
+        _page = _grid.fetchPageOf(_players.get(0));
+
+        for (Listener listener : _listeners) listener.resized(pageSize);
+    }
+
+    /**
+     * @return The number of ticks the world has been advanced by.
+     */
+    public long ticks()
+    {
+        return _ticks;
+    }
+
+    /**
+     * @return The name of the level.
+     */
+    public String name()
+    {
+        return _name;
+    }
+
+    /**
+     * @return True if the game has been won or lost.
+     */
+    public boolean isDone()
+    {
+        return hasWon() || hasLost();
+    }
+
+    /**
+     * @return True if the player(s) collected all
+     *         keys and exited one of the doors.
+     */
+    public boolean hasWon()
+    {
+        return _won;
+    }
+
+    /**
+     * @return True if all players are dead.
+     */
+    public boolean hasLost()
+    {
+        return _players.isEmpty() && _hidden.isEmpty();
+    }
+
+    /**
+     * @return The theme of the level.
+     */
+    public Theme theme()
+    {
+        return _theme;
+    }
+
+    /**
+     *
+     * Sets the theme of the level and updates the
+     * representations of all elements accordingly.
+     *
+     * @param theme The new theme.
+     */
+    public void theme(Theme theme)
+    {
+        assert(theme != null);
+
+        _theme = theme;
+
+        for (Page page : _grid.pages())
+        {
+            for (Element element : page)
+            {
+                element.representation(_theme.representation(element.kind()));
+            }
+        }
+    }
+
+    /**
+     * @return A list of active and dead players.
+     */
+    public List<Player> players()
+    {
+        List<Player> players = new ArrayList<>(_players);
+
+        players.addAll(_deadPlayers);
+
+        return players;
+    }
+
+    /**
+     * @return The players that are still alive.
+     */
+    public List<Player> alivePlayers()
+    {
+        return Collections.unmodifiableList(_players);
+    }
+
+    /**
+     * @return A list of the players still hidden in the level.
+     */
+    public List<Profile> hidden()
+    {
+        return Collections.unmodifiableList(_hidden);
+    }
+
+    /**
+     * @return The number of keys collected by the player(s) so far.
+     */
+    public int keysCollected()
+    {
+        return _keysCollected;
+    }
+
+    /**
+     * @return The total number of keys in the level (collected and not).
+     */
+    public int totalKeys()
+    {
+        return _totalKeys;
+    }
+
+    /**
+     * @return The grid used in the level.
+     */
+    public PageGrid grid()
+    {
+        return _grid;
+    }
+
+    /**
+     * @return The current page, i.e. the one followed last.
+     */
+    public Page currentPage()
+    {
+        return _page;
+    }
+
+    /**
+     * @return The size of the entire level.
+     */
+    public LevelSize size()
+    {
+        return _levelSize;
+    }
+
+    /**
+     * @return The region of the level.
+     */
+    public Region region()
+    {
+        // Regions are inclusive, sizes not
+        return new Region(
+                _levelSize.getColumns() - 1,
+                _levelSize.getRows()    - 1
+        );
+    }
+
+    /**
+     * @return The difficulty setting.
+     */
+    public Level.Difficulty difficulty()
+    {
+        return _difficulty;
+    }
+
+    /**
+     *
+     * Sets the difficulty of the world.
+     *
+     * @param difficulty The new difficulty.
+     */
+    public void difficulty(Level.Difficulty difficulty)
+    {
+        assert(difficulty != null);
+
+        _difficulty = difficulty;
+
+        for (Listener listener : _listeners) listener.difficultyChanged(difficulty);
+    }
+
+    /**
+     * @return The path of the layout file the world is based on,
+     *         or null if it was not loaded from a layout file.
+     */
+    public String layout()
+    {
+        return _layout;
+    }
+
+    /**
+     * @return The seed all randomness of the world comes from,
+     *         since it was constructed or last reseeded.
+     */
+    public long seed()
+    {
+        return _seed;
+    }
+
+    /**
+     *
+     * Draws a new seed from the sources of randomness of the world and
+     * seeds them anew from it. Sessions cannot hold where the streams of
+     * random numbers are, only a seed, so the world is reseeded whenever
+     * it is saved: a world loaded from the session then goes on exactly
+     * like the one that was saved.
+     *
+     * @return The new seed.
+     */
+    public long reseed()
+    {
+        long seed = _random.nextLong();
+
+        reseed(seed);
+
+        return seed;
+    }
+
+    /**
+     *
+     * Seeds the sources of randomness of the world anew, i.e. its own
+     * and those of the chunks of its grid, e.g. to replay a reseed().
+     * The grid is put into the order it has when it is loaded (see
+     * PageGrid.order()), on which the random moves depend as well.
+     *
+     * @param seed The new seed.
+     */
+    public void reseed(long seed)
+    {
+        _grid.order();
+
+        _seed = seed;
+
+        _random = new Random(seed);
+
+        _grid.chunks().seed(seed);
+
+        for (Listener listener : _listeners) listener.reseeded(seed);
+    }
+
+    /**
+     * @return The number of ticks since the dynamic
+     *         obstacles last moved (see Level.Difficulty).
+     */
+    public int frame()
+    {
+        return _frameCount;
+    }
+
+    /**
+     * @return The CRC32 of the layout file the world is based on.
+     */
+    public long checksum()
+    {
+        return _checksum;
+    }
+
+    /**
+     * @return The points of all cells whose element changed since
+     *         the layout was loaded, i.e. what a session delta needs.
+     */
+    public Set<Point> changes()
+    {
+        return Collections.unmodifiableSet(_changes);
+    }
+
+    /**
+     * Moves the dynamic obstacles of all pages when the _frameCount
+     * is equal to the delay associated with the difficulty. Obstacles
+     * move within the whole level, so they can cross into other pages.
+     * Levels with many obstacles update their pages in parallel, which
+     * moves the obstacles exactly as a sequential update would.
+     *
+     * @see Level.Difficulty
+     * @see ObstacleUpdater
+     */
+    private void _updateObstacles()
+    {
+        if (_frameCount++ < _difficulty.delay()) return;
+
+        Collection<DynamicObstacle> obstacles = _grid.dynamicObstacles();
+
+        if (_from.length < obstacles.size())
+        {
+            _from = new Point[obstacles.size()];
+        }
+
+        int index = 0;
+
+        for (DynamicObstacle obstacle : obstacles) _from[index++] = obstacle.point();
+
+        // Where the hunters go
+        _quarry.update(_players);
+
+        if (_flow != null) _flow.update(_quarry);
+
+        if (obstacles.size() < PARALLEL_THRESHOLD) _updater.update();
+
+        else _updater.update(ForkJoinPool.commonPool());
+
+        // The index keeps its order as long as no obstacle is added or removed
+        index = 0;
+
+        for (DynamicObstacle obstacle : obstacles)
+        {
+            Point from = _from[index++];
+
+            if (! obstacle.point().equals(from)) _moved(obstacle, from);
+        }
+
+        _frameCount = 0;
+    }
+
+    /**
+     *
+     * Moves each player that performed a move in the current tick.
+     *
+     * @param directions The map from ids to directions.
+     */
+    private void _movePlayers(Map<String, Direction> directions)
+    {
+        for (Map.Entry<String, Direction> entry : directions.entrySet())
+        {
+            // This is what the _IDMap is for
+            Player player = _IDMap.get(entry.getKey());
+
+            // Happens when hidden players press a key
+            if (player == null) continue;
+
+            _move(player, entry.getValue());
+        }
+    }
+
+    /**
+     *
+     * Moves a player into the specified direction if the player does
+     * not go outside the level. If the player stood on an entrance and
+     * there are still hidden players, one of them is unhidden.
+     *
+     * @param player The player to move.
+     *
+     * @param direction The direction to move the player in.
+     */
+    private void _move(Player player, Direction direction)
+    {
+        Point from = player.point();
+
+        // See if the player stood on something, e.g. entrance
+        Element element = _page.at(from);
+
+        if (element != null &&
+            element.kind() == Element.Kind.ENTRANCE &&
+            ! _hidden.isEmpty())
+        {
+            _unhidePlayer(element.point());
+        }
+
+        Delta delta = direction.delta();
+
+        // Only move if it wouldn't invalidate constraints
+        if (! player.wouldGoOutside(delta, region()))
+        {
+            _page = _grid.follow(player.move(delta));
+
+            _moved(player, from);
+        }
+    }
+
+    /**
+     *
+     * Moves a player back to its previous point.
+     *
+     * @param player The player to move back.
+     */
+    private void _goBack(Player player)
+    {
+        Point from = player.point();
+
+        player.goBack();
+
+        _moved(player, from);
+    }
+
+    /**
+     *
+     * Promotes a profile from the _hidden profiles into an actual
+     * player, by creating a new player at the given point (should
+     * be an entrance) with the first profile retrieved from the
+     * _hidden collection. That profile is random.
+     *
+     * @param point The point at which to unhide one of the profiles.
+     */
+    private void _unhidePlayer(Point point)
+    {
+        assert(! _hidden.isEmpty());
+
+        // Get the first profile we can
+        Iterator<Profile> iterator = _hidden.iterator();
+
+        Player player = new Player(point, iterator.next());
+
+        _IDMap.put(player.id(), player);
+
+        _players.add(player);
+
+        // Remove the profile from the hidden profiles
+        iterator.remove();
+
+        _added(player);
+    }
+
+    /**
+     *
+     * Evaluates the positions of all players. This means checking
+     * if they need to go back in case of a collision or checking
+     * if they're dead.
+     *
+     * @param directions The map from ids to moved directions.
+     */
+    private void _evaluatePlayers(Map<String, Direction> directions)
+    {
+        // First check their movements to see if they went back
+        for (int i = 0; i < _players.size(); )
+        {
+            Player player = _players.get(i);
+
+            _evaluate(player);
+
+            if (player.isAlive()) ++i;
+        }
+
+        // Then check if the players collided or moved past each other
+        for (Player player : _players)
+        {
+            if (_page.isInside(player))
+            {
+                _checkPlayerCollision(player, directions);
+            }
+        }
+    }
+
+    /**
+     *
+     * Evaluates a player's position with respect to the other game elements
+     * in the level. It is looked if the player's point collides with any
+     * other element in the screen and if so, a certain action is performed.
+     * What that action is depends on the element, e.g. just going backwards
+     * when bumping into walls, or revealing a mystery-event when opening
+     * a mystery-box, for example. When, after evaluation, a player is seen
+     * to have moved onto another page, the grid's current page is updated.
+     *
+     * @param player The player to evaluate.
+     */
+    private void _evaluate(Player player)
+    {
+        assert(player != null);
+
+        Element element = _page.at(player.point());
+
+        if (element == null) return;
+
+        switch (element.kind())
+        {
+            case WALL:
+                _goBack(player);
+                break;
+
+            // Because this happens at the start we first have
+            // to check if the player even can go back
+            case ENTRANCE:
+                if (player.canGoBack()) _goBack(player);
+                break;
+
+            case EXIT:
+            {
+                if (_keysCollected == _totalKeys) _won = true;
+
+                else _goBack(player);
+
+                break;
+            }
+
+            case KEY:
+            {
+                _grid.remove(element);
+
+                ++_keysCollected;
+
+                _removed(element);
+
+                break;
+            }
+
+            case STATIC_OBSTACLE:
+            case DYNAMIC_OBSTACLE:
+            {
+                player.injure();
+                if (! player.isDead()) _goBack(player);
+                break;
+            }
+
+            case MYSTERY_BOX:
+                _handleMysteryBox((MysteryBox) element, player);
+                break;
+        }
+
+        // Could also happen due to the mystery box, that's why
+        // it's down here and not with the obstacles
+        if (player.isDead()) _kill(player);
+
+        // If the player moved out of the page, the index of the
+        // grid is updated. This operation just modifies a few
+        // numbers (the index) in the grid, so it's very cheap
+        // and we can do it for all players.
+        _page = _grid.follow(player);
+    }
+
+    /**
+     *
+     * This one was tasty. Checks if players have collided or moved past
+     * each other, i.e. moved over each other. Prevents such an action if
+     * necessary.
+     *
+     * @param player The player to check collision for.
+     *
+     * @param directions The map from ids to directions of the last tick.
+     */
+    private void _checkPlayerCollision(Player player,
+                                       Map<String, Direction> directions)
+    {
+        for (Player other : _players)
+        {
+            if (other == player) continue;
+
+            // If one moved onto the other, either because one player
+            // stood still and the other moved onto him, or because
+            // they both moved onto the same point at the same time.
+            if (other.point().equals(player.point()))
+            {
+                // Only one of them may have moved.
+                if (directions.containsKey(player.id())) _goBack(player);
+
+                else _goBack(other);
+
+                break;
+            }
+
+            // If both moved, and they moved past each other such that
+            // the point of the player is the previous point of other
+            // and the point of other is the previous point of the player,
+            // then undo both movements. Because both moved we can be sure
+            // that neither previousPoint will be null.
+            else if (directions.containsKey(player.id())          &&
+                     directions.containsKey(other.id())           &&
+                     player.point().equals(other.previousPoint()) &&
+                     other.point().equals(player.previousPoint()))
+            {
+                _goBack(player);
+                _goBack(other);
+
+                break;
+            }
+        }
+    }
+
+    /**
+     *
+     * Handles all the events of the MysteryBox. Can't refactor that into
+     * the MysteryBox class, as it performs too many internal modifications
+     * on the world that shouldn't be accessible from the outside to another
+     * class. Maybe in C++ we would declare the MysteryBox a friend class.
+     *
+     * @param mysteryBox The mystery-box instance to reveal.
+     *
+     * @param player The player who interacted with the mystery-box.
+     */
+    private void _handleMysteryBox(MysteryBox mysteryBox, Player player)
+    {
+        mysteryBox.reveal(_random);
+
+        _grid.remove(mysteryBox);
+
+        _removed(mysteryBox);
+
+        for (Listener listener : _listeners)
+        {
+            listener.revealed(mysteryBox, player);
+        }
+
+        switch (mysteryBox.event())
+        {
+            case EMPTY:
+                break;
+
+            case HEAL:
+            {
+                if (! player.hasFullHealth()) player.heal();
+
+                else _message("But you already have full health!");
+
+                break;
+            }
+
+            case INJURE:
+                player.injure();
+                break;
+
+            case NEW_KEY:
+                if (_generate(Element.Kind.KEY)) ++_totalKeys;
+                break;
+
+            case NEW_STATIC_OBSTACLE:
+                _generate(Element.Kind.STATIC_OBSTACLE);
+                break;
+
+            case NEW_DYNAMIC_OBSTACLE:
+                _generate(Element.Kind.DYNAMIC_OBSTACLE);
+                break;
+
+            case NEW_MYSTERY_BOX:
+                _generate(Element.Kind.MYSTERY_BOX);
+                break;
+
+            case NEW_WALL:
+                _generate(Element.Kind.WALL);
+                break;
+
+            case REMOVE_DYNAMIC_OBSTACLE:
+                _remove(Element.Kind.DYNAMIC_OBSTACLE);
+                break;
+
+            case REMOVE_STATIC_OBSTACLE:
+                _remove(Element.Kind.STATIC_OBSTACLE);
+                break;
+
+            case LOSE_KEY:
+            {
+                if (_keysCollected > 0)
+                {
+                    _generate(Element.Kind.KEY);
+
+                    --_keysCollected;
+                }
+
+                else _message("But you have not collected any yet!");
+            }
+        }
+    }
+
+    /**
+     *
+     * Handles generation of a new element due to a MysteryBox,
+     * at a random free point of the level.
+     * Takes care of the case when the generated element is on
+     * the position of the player, in which case the player is
+     * asked to go back. Also handles the situation when the
+     * level is too full to generate a new element.
+     *
+     * @param kind The kind of element to generate.
+     *
+     * @return true if the element could be generated,
+     *         false if the level was too full.
+     */
+    private boolean _generate(Element.Kind kind)
+    {
+        Element element;
+
+        if((element = _grid.generate(kind, _theme, _random)) != null)
+        {
+            _added(element);
+
+            for (Player player : _players)
+            {
+                if (element.point().equals(player.point()))
+                {
+                    // Edge cases, edge cases, edge cases. Gotta love them.
+                    if (player.canGoBack()) _goBack(player);
+
+                    else break; // too full
+                }
+            }
+
+            return true;
+        }
+
+        _message("But there is no space left!");
+
+        return false;
+    }
+
+    /**
+     *
+     * Attempts to remove an element of a certain kind from the grid.
+     *
+     * @param kind The kind of element to attempt to remove.
+     *
+     * @return true if the removal was possible, else false.
+     */
+    private boolean _remove(Element.Kind kind)
+    {
+        Element element = _grid.remove(kind);
+
+        if (element != null)
+        {
+            _removed(element);
+
+            return true;
+        }
+
+        else
+        {
+            _message("But there are none!");
+
+            return false;
+        }
+    }
+
+    /**
+     *
+     * Performs all the necessary operations to kill a player, e.g.
+     * moving the player from the list of alive players to that of
+     * dead players.
+     *
+     * @param player The player to kill.
+     */
+    private void _kill(Player player)
+    {
+        assert(_players.contains(player));
+        assert(_IDMap.containsKey(player.id()));
+        assert(player.isDead());
+
+        _players.remove(player);
+
+        _deadPlayers.add(player);
+
+        _IDMap.remove(player.id());
+
+        for (Listener listener : _listeners) listener.killed(player);
+    }
+
+    private void _moved(Element element, Point from)
+    {
+        // Players are not part of the grid
+        if (element.kind() != Element.Kind.PLAYER)
+        {
+            _changes.add(from);
+
+            _changes.add(element.point());
+        }
+
+        for (Listener listener : _listeners) listener.moved(element, from);
+    }
+
+    private void _added(Element element)
+    {
+        if (element.kind() != Element.Kind.PLAYER) _changes.add(element.point());
+
+        if (_blocksFlow(element)) _flow.blocked(element.point());
+
+        _countFlow(element, +1);
+
+        for (Listener listener : _listeners) listener.added(element);
+    }
+
+    private void _removed(Element element)
+    {
+        _changes.add(element.point());
+
+        if (_blocksFlow(element)) _flow.opened(element.point());
+
+        _countFlow(element, -1);
+
+        for (Listener listener : _listeners) listener.removed(element);
+    }
+
+    private boolean _blocksFlow(Element element)
+    {
+        // Players are not part of the grid and dynamic obstacles move aside
+        return _flow != null &&
+               element.kind() != Element.Kind.PLAYER &&
+               element.kind() != Element.Kind.DYNAMIC_OBSTACLE;
+    }
+
+    /**
+     *
+     * Counts the obstacles following the flow-field, which only exists
+     * while there are any, so levels without them neither hold the field
+     * nor search it on every update.
+     *
+     * @param element An element that was added to or removed from the grid.
+     *
+     * @param change +1 if it was added, -1 if it was removed.
+     */
+    private void _countFlow(Element element, int change)
+    {
+        if (! (element instanceof DynamicObstacle)) return;
+
+        if (((DynamicObstacle) element).behavior() != DynamicObstacle.Behavior.FLOW)
+        {
+            return;
+        }
+
+        _flowObstacles += change;
+
+        if (_flowObstacles == 0) _flow = null;
+
+        else if (_flow == null) _flow = new FlowField(_grid);
+
+        _quarry.field(_flow);
+    }
+
+    private void _message(String message)
+    {
+        for (Listener listener : _listeners) listener.message(message);
+    }
+
+    /**
+     * The number of dynamic obstacles from which on
+     * they are worth updating on several threads.
+     */
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private Theme _theme;
+
+    private String _name;
+
+    private LevelSize _levelSize;
+
+    private int _keysCollected;
+
+    private int _totalKeys;
+
+    private List<Profile> _hidden;
+
+    private Map<String, Player> _IDMap;
+
+    private List<Player> _players;
+
+    private List<Player> _deadPlayers;
+
+    private PageGrid _grid;
+
+    private Page _page;
+
+    private final ObstacleUpdater _updater;
+
+    private final Quarry _quarry;
+
+    /**
+     * The way to the players for obstacles following it,
+     * or null if there are no such obstacles.
+     */
+    private FlowField _flow;
+
+    /**
+     * The number of obstacles following the flow-field.
+     */
+    private int _flowObstacles;
+
+    /**
+     * The points of the dynamic obstacles before an update.
+     */
+    private Point[] _from;
+
+    private boolean _won;
+
+    private Level.Difficulty _difficulty;
+
+    private int _frameCount;
+
+    private String _layout;
+
+    private long _checksum;
+
+    private final Set<Point> _changes;
+
+    private long _ticks;
+
+    private final List<Listener> _listeners;
+
+    private long _seed;
+
+    /**
+     * The source of randomness of the world itself (the chunks of
+     * the grid have their own, derived from the same seed), e.g.
+     * for mystery boxes and where they generate elements.
+     */
+    private Random _random;
+}
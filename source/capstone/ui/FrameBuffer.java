@@ -0,0 +1,450 @@
+package capstone.ui;
+
+import capstone.data.Representation;
+import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.screen.ScreenCharacterStyle;
+import com.googlecode.lanterna.screen.ScreenWriter;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+
+import java.util.Arrays;
+
+/**
+ * A FrameBuffer sits between the Level and the Screen and keeps track of
+ * which cells of the terminal changed since the last frame, so that only
+ * those are written to the Screen.
+ *
+ * Drawing into the buffer only records what each cell should show. The
+ * buffer also remembers what it last wrote into every cell, and marks a
+ * cell dirty when the two differ. On flush(), the dirty cells are written
+ * through a single ScreenWriter, so a frame in which one player moved
+ * writes two cells, instead of allocating a writer for every element of
+ * the page or clearing and re-rendering the whole screen.
+ *
+ * Cells whose content is unknown, e.g. after a menu was shown on top of
+ * the level or after a resize, are invalidated and written on the next
+ * flush no matter what.
+ */
+public class FrameBuffer
+{
+    /**
+     *
+     * Constructs a FrameBuffer for the size of the Screen.
+     *
+     * @param screen The Screen to write to.
+     */
+    public FrameBuffer(Screen screen)
+    {
+        assert(screen != null);
+
+        _writer = new ScreenWriter(screen);
+
+        resize(screen.getTerminalSize());
+    }
+
+    /**
+     *
+     * Resizes the buffer. All cells are blank and invalidated.
+     *
+     * @param size The new size of the terminal.
+     */
+    public void resize(TerminalSize size)
+    {
+        assert(size != null);
+
+        _columns = size.getColumns();
+
+        _rows = size.getRows();
+
+        int cells = _columns * _rows;
+
+        _characters = new char[cells];
+        _foregrounds = new Terminal.Color[cells];
+        _backgrounds = new Terminal.Color[cells];
+        _styles = new ScreenCharacterStyle[cells][];
+
+        _written = new char[cells];
+        _writtenForegrounds = new Terminal.Color[cells];
+        _writtenBackgrounds = new Terminal.Color[cells];
+        _writtenStyles = new ScreenCharacterStyle[cells][];
+
+        _marked = new boolean[cells];
+
+        _dirty = new int[cells];
+
+        _numberOfDirty = 0;
+
+        clear();
+
+        invalidate();
+    }
+
+    /**
+     * Marks all cells as unknown, so that they are
+     * all written on the next flush, changed or not.
+     */
+    public void invalidate()
+    {
+        Arrays.fill(_written, UNKNOWN);
+
+        for (int cell = 0; cell < _written.length; ++cell) _mark(cell);
+    }
+
+    /**
+     * Blanks all cells, e.g. before drawing a new page.
+     * Only those that were not blank before become dirty.
+     */
+    public void clear()
+    {
+        for (int cell = 0; cell < _characters.length; ++cell)
+        {
+            _set(cell, ' ', Terminal.Color.DEFAULT, Terminal.Color.DEFAULT, NO_STYLES);
+        }
+    }
+
+    /**
+     *
+     * Scrolls the content of the top rows of the buffer, e.g. when the
+     * camera moved, so that only the cells that came into view have to
+     * be drawn again. Those are left blank.
+     *
+     * Note that the Screen has no way to scroll, so every cell whose
+     * content changed by scrolling is still written on the next flush.
+     * What scrolling saves is drawing all of those cells again.
+     *
+     * @param columns By how many columns the view moved (to the right),
+     *                i.e. the content moves that many columns to the left.
+     *
+     * @param rows By how many rows the view moved (down), i.e. the
+     *             content moves that many rows up.
+     *
+     * @param height The number of rows from the top to scroll.
+     */
+    public void scroll(int columns, int rows, int height)
+    {
+        assert(height <= _rows);
+
+        // Go against the direction of the content so
+        // that rows are not overwritten before they are read
+        int first = rows >= 0 ? 0 : height - 1;
+
+        int step = rows >= 0 ? 1 : -1;
+
+        int start = Math.max(0, -columns);
+
+        int length = _columns - Math.abs(columns);
+
+        for (int row = first; row >= 0 && row < height; row += step)
+        {
+            int source = row + rows;
+
+            int cell = row * _columns;
+
+            if (source < 0 || source >= height || length <= 0)
+            {
+                _blank(cell, _columns);
+
+                continue;
+            }
+
+            int from = source * _columns + start + columns;
+
+            System.arraycopy(_characters, from, _characters, cell + start, length);
+            System.arraycopy(_foregrounds, from, _foregrounds, cell + start, length);
+            System.arraycopy(_backgrounds, from, _backgrounds, cell + start, length);
+            System.arraycopy(_styles, from, _styles, cell + start, length);
+
+            // The columns that came into view
+            if (columns > 0) _blank(cell + length, columns);
+
+            else _blank(cell, -columns);
+        }
+
+        for (int cell = 0; cell < height * _columns; ++cell)
+        {
+            if (_changed(cell)) _mark(cell);
+        }
+    }
+
+    /**
+     *
+     * Sets a cell to show a representation.
+     *
+     * Cells outside the buffer are ignored.
+     *
+     * @param column The column of the cell.
+     *
+     * @param row The row of the cell.
+     *
+     * @param representation The representation to show.
+     *
+     * @param styles The styles to show it with.
+     */
+    public void put(int column,
+                    int row,
+                    Representation representation,
+                    ScreenCharacterStyle... styles)
+    {
+        put(
+                column,
+                row,
+                representation.character(),
+                representation.foreground(),
+                representation.background(),
+                styles
+        );
+    }
+
+    /**
+     *
+     * Sets a cell to show a character.
+     *
+     * Cells outside the buffer are ignored.
+     *
+     * @param column The column of the cell.
+     *
+     * @param row The row of the cell.
+     *
+     * @param character The character to show.
+     *
+     * @param foreground The foreground color.
+     *
+     * @param background The background color.
+     *
+     * @param styles The styles to show the character with.
+     */
+    public void put(int column,
+                    int row,
+                    char character,
+                    Terminal.Color foreground,
+                    Terminal.Color background,
+                    ScreenCharacterStyle... styles)
+    {
+        if (! _isInside(column, row)) return;
+
+        if (styles.length == 0) styles = NO_STYLES;
+
+        _set(row * _columns + column, character, foreground, background, styles);
+    }
+
+    /**
+     *
+     * Sets a blank cell.
+     *
+     * @param column The column of the cell.
+     *
+     * @param row The row of the cell.
+     */
+    public void blank(int column, int row)
+    {
+        put(column, row, ' ', Terminal.Color.DEFAULT, Terminal.Color.DEFAULT);
+    }
+
+    /**
+     *
+     * Sets cells along a row to show a string.
+     *
+     * Characters outside the buffer are ignored.
+     *
+     * @param column The column of the first character.
+     *
+     * @param row The row of the string.
+     *
+     * @param text The string to show.
+     *
+     * @param foreground The foreground color.
+     *
+     * @param background The background color.
+     */
+    public void text(int column,
+                     int row,
+                     String text,
+                     Terminal.Color foreground,
+                     Terminal.Color background)
+    {
+        for (int i = 0; i < text.length(); ++i)
+        {
+            put(column + i, row, text.charAt(i), foreground, background);
+        }
+    }
+
+    /**
+     *
+     * Writes the dirty cells to the Screen. The
+     * Screen still has to be refreshed after.
+     *
+     * @return The number of cells written.
+     */
+    public int flush()
+    {
+        int written = 0;
+
+        for (int i = 0; i < _numberOfDirty; ++i)
+        {
+            int cell = _dirty[i];
+
+            _marked[cell] = false;
+
+            // Might have been changed back in the meantime
+            if (! _changed(cell)) continue;
+
+            _writer.setForegroundColor(_foregrounds[cell]);
+            _writer.setBackgroundColor(_backgrounds[cell]);
+
+            _writer.drawString(
+                    cell % _columns,
+                    cell / _columns,
+                    String.valueOf(_characters[cell]),
+                    _styles[cell]
+            );
+
+            _written[cell] = _characters[cell];
+            _writtenForegrounds[cell] = _foregrounds[cell];
+            _writtenBackgrounds[cell] = _backgrounds[cell];
+            _writtenStyles[cell] = _styles[cell];
+
+            ++written;
+        }
+
+        _numberOfDirty = 0;
+
+        return written;
+    }
+
+    /**
+     * @return The number of cells that may have to be written on the next flush.
+     */
+    public int numberOfDirty()
+    {
+        return _numberOfDirty;
+    }
+
+    /**
+     * @return The number of columns of the buffer.
+     */
+    public int columns()
+    {
+        return _columns;
+    }
+
+    /**
+     * @return The number of rows of the buffer.
+     */
+    public int rows()
+    {
+        return _rows;
+    }
+
+    /**
+     *
+     * Sets the content of a cell and marks it dirty if
+     * it differs from what was last written to it.
+     *
+     * @param cell The index of the cell.
+     *
+     * @param character The character.
+     *
+     * @param foreground The foreground color.
+     *
+     * @param background The background color.
+     *
+     * @param styles The styles.
+     */
+    private void _set(int cell,
+                      char character,
+                      Terminal.Color foreground,
+                      Terminal.Color background,
+                      ScreenCharacterStyle[] styles)
+    {
+        _characters[cell] = character;
+        _foregrounds[cell] = foreground;
+        _backgrounds[cell] = background;
+        _styles[cell] = styles;
+
+        if (_changed(cell)) _mark(cell);
+    }
+
+    /**
+     *
+     * Blanks cells without marking them.
+     *
+     * @param cell The index of the first cell.
+     *
+     * @param length The number of cells.
+     */
+    private void _blank(int cell, int length)
+    {
+        Arrays.fill(_characters, cell, cell + length, ' ');
+        Arrays.fill(_foregrounds, cell, cell + length, Terminal.Color.DEFAULT);
+        Arrays.fill(_backgrounds, cell, cell + length, Terminal.Color.DEFAULT);
+        Arrays.fill(_styles, cell, cell + length, NO_STYLES);
+    }
+
+    /**
+     * @param cell The index of a cell.
+     *
+     * @return True if the cell differs from what was last written to it.
+     */
+    private boolean _changed(int cell)
+    {
+        return _characters[cell] != _written[cell] ||
+               _foregrounds[cell] != _writtenForegrounds[cell] ||
+               _backgrounds[cell] != _writtenBackgrounds[cell] ||
+               ! Arrays.equals(_styles[cell], _writtenStyles[cell]);
+    }
+
+    /**
+     *
+     * Marks a cell as dirty, unless it already is.
+     *
+     * @param cell The index of the cell.
+     */
+    private void _mark(int cell)
+    {
+        if (_marked[cell]) return;
+
+        _marked[cell] = true;
+
+        _dirty[_numberOfDirty++] = cell;
+    }
+
+    private boolean _isInside(int column, int row)
+    {
+        return column >= 0 && column < _columns && row >= 0 && row < _rows;
+    }
+
+    /**
+     * Written to cells whose content on the Screen is unknown.
+     */
+    private static final char UNKNOWN = '\0';
+
+    private static final ScreenCharacterStyle[] NO_STYLES = {};
+
+    private final ScreenWriter _writer;
+
+    private int _columns;
+
+    private int _rows;
+
+    private char[] _characters;
+
+    private Terminal.Color[] _foregrounds;
+
+    private Terminal.Color[] _backgrounds;
+
+    private ScreenCharacterStyle[][] _styles;
+
+    private char[] _written;
+
+    private Terminal.Color[] _writtenForegrounds;
+
+    private Terminal.Color[] _writtenBackgrounds;
+
+    private ScreenCharacterStyle[][] _writtenStyles;
+
+    private boolean[] _marked;
+
+    private int[] _dirty;
+
+    private int _numberOfDirty;
+}
@@ -8,11 +8,10 @@ import com.googlecode.lanterna.gui.Component;
 import com.googlecode.lanterna.gui.GUIScreen;
 import com.googlecode.lanterna.gui.component.Button;
 import com.googlecode.lanterna.gui.component.Panel;
-import com.googlecode.lanterna.gui.dialog.MessageBox;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 /**
  * The window to display the in-game menu. Contains actions to
@@ -20,13 +19,15 @@ import java.util.List;
  * 1. Continue the game.
  * 2. Show the legend.
  * 3. Change the theme of the level.
- * 4. Show the highscore-window.
- * 5. Load a new game.
- * 6. Save the game.
- * 7. Saving and exiting the game.
- * 8. Saving and going back to the welcome window (the "start").
- * 9. Going back to the start without saving.
- * 10. Exiting the whole game (std::exit).
+ * 4. Switch between following the player with the camera
+ *    and showing the level page by page.
+ * 5. Show the highscore-window.
+ * 6. Load a new game.
+ * 7. Save the game.
+ * 8. Saving and exiting the game.
+ * 9. Saving and going back to the welcome window (the "start").
+ * 10. Going back to the start without saving.
+ * 11. Exiting the whole game (std::exit).
  *
  */
 public class MenuWindow extends Widget
@@ -52,6 +53,8 @@ public class MenuWindow extends Widget
 
         add(new Button("Change Theme", this::_changeTheme));
 
+        add(new Button("Switch View", this::_switchView));
+
         add(new Button("Load Game", this::_loadGame));
 
         add(new Button("Save", this::_saveLevel));
@@ -148,26 +151,15 @@ public class MenuWindow extends Widget
     /**
      * Performs the operation for the "Save Level" button.
      *
-     * Saves the level and returns to the menu. Also shows a small
-     * MessageBox to indicate successful saving.
+     * Starts saving the level and goes right back to the game, which
+     * keeps running while the session is written in the background.
+     * The status bar of the level shows when saving is done.
      */
     private void _saveLevel()
     {
-        try
-        {
-            _game.save();
+        _game.save();
 
-            MessageBox.showMessageBox(
-                    _game.gui(),
-                    "",
-                    "\nSaved!"
-            );
-        }
-
-        catch (IOException e)
-        {
-            Widget.showIOErrorBox(_game.gui());
-        }
+        super.close();
     }
 
     /**
@@ -198,6 +190,23 @@ public class MenuWindow extends Widget
         if (theme != null) _game.level().theme(theme);
     }
 
+    /**
+     * Performs the operation for the "Switch View" button.
+     *
+     * Switches between the camera following the player and
+     * the pages of the level, and goes back to the game.
+     */
+    private void _switchView()
+    {
+        super.close();
+
+        Level level = _game.level();
+
+        if (level.view() == Level.View.CAMERA) level.view(Level.View.PAGES);
+
+        else level.view(Level.View.CAMERA);
+    }
+
     /**
      * Performs the operation for the "Load Game" button.
      *
@@ -237,11 +246,12 @@ public class MenuWindow extends Widget
     /**
      * Performs the operation for the "Save And Back To Start" button.
      *
-     * Combines the "Save" and "Back To Start" buttons.
+     * Combines the "Save" and "Back To Start" buttons. The session
+     * is written in the background while the start screen is shown.
      */
     private void _saveAndBackToStart()
     {
-        _saveLevel();
+        _game.save();
 
         _backToStart();
     }
@@ -249,11 +259,22 @@ public class MenuWindow extends Widget
     /**
      * Performs the operation for the "Exit" button.
      *
-     * Combines the "Save" and "Exit" buttons.
+     * Combines the "Save" and "Exit" buttons, but waits
+     * for the session to be written before exiting.
      */
     private void _saveAndExit()
     {
-        _saveLevel();
+        try
+        {
+            _game.save().join();
+        }
+
+        catch (CompletionException e)
+        {
+            Widget.showIOErrorBox(_game.gui());
+
+            return;
+        }
 
         System.exit(0);
     }
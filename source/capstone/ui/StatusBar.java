@@ -4,7 +4,6 @@ import capstone.data.Profile;
 import capstone.element.Player;
 import capstone.game.Level;
 import capstone.utility.Dimensions;
-import com.googlecode.lanterna.screen.ScreenWriter;
 import com.googlecode.lanterna.terminal.Terminal;
 
 /**
@@ -56,7 +55,8 @@ public class StatusBar
     }
 
     /**
-     * Draws the StatusBar on the level's Screen.
+     * Draws the StatusBar into the level's FrameBuffer. Fields that
+     * did not change since the last frame are not written again.
      */
     public void draw()
     {
@@ -64,7 +64,7 @@ public class StatusBar
         // ensures there is enough space for the StatusBar.
         int row = _level.pageSize().getRows();
 
-        _writer = new ScreenWriter(_level.screen());
+        _buffer = _level.buffer();
 
         // Meta-information about the level
         _drawGameStatus(row++);
@@ -105,29 +105,43 @@ public class StatusBar
      */
     private void _drawGameStatus(int row)
     {
-        _writer.setBackgroundColor(Terminal.Color.RED);
-
         String left = String.format(
                 "  Keys: %1$d/%2$d",
                 _level.keysCollected(),
                 _level.totalKeys()
         );
 
-        String right = String.format(
-                "Page: %1$s/%2$s",
-                _level.grid().currentIndex(),
-                _gridDimensions()
-        );
+        String notice = _level.notice();
+
+        if (notice != null) left += "  " + notice;
+
+        String right = "";
+
+        // The camera is not bound to pages
+        if (_level.view() == Level.View.PAGES)
+        {
+            right = String.format(
+                    "Page: %1$s/%2$s",
+                    _level.grid().currentIndex(),
+                    _gridDimensions()
+            );
+        }
 
         int padding = _level.pageSize().getColumns();
 
         StringBuilder builder = new StringBuilder();
 
         builder.append(left); // left adjusted
-        builder.append(_empty(padding - left.length() - right.length()));
+        builder.append(_empty(Math.max(0, padding - left.length() - right.length())));
         builder.append(right); // right adjusted
 
-        _writer.drawString(0, row, builder.toString());
+        _buffer.text(
+                0,
+                row,
+                builder.toString(),
+                Terminal.Color.DEFAULT,
+                Terminal.Color.RED
+        );
     }
 
     /**
@@ -147,7 +161,7 @@ public class StatusBar
 
         int width = _level.pageSize().getColumns() - 2;
 
-        _writer.drawString(2, row, player.toString(width));
+        _text(2, row, player.toString(width));
     }
 
     /**
@@ -168,7 +182,7 @@ public class StatusBar
 
         String status = String.format("%1$s: HIDDEN", profile.id());
 
-        _writer.drawString(2, row, status);
+        _text(2, row, status);
     }
 
     /**
@@ -194,15 +208,28 @@ public class StatusBar
      */
     private void _drawProfile(Profile profile, int row)
     {
-        _writer.setBackgroundColor(profile.representation().background());
-        _writer.setForegroundColor(profile.representation().foreground());
-
-        Character character = profile.representation().character();
-
-        _writer.drawString(0, row, character.toString());
+        _buffer.put(0, row, profile.representation());
+    }
 
-        _writer.setBackgroundColor(Terminal.Color.DEFAULT);
-        _writer.setForegroundColor(Terminal.Color.DEFAULT);
+    /**
+     *
+     * Draws text in the default colors.
+     *
+     * @param column The column at which to start drawing.
+     *
+     * @param row The row at which to draw.
+     *
+     * @param text The text to draw.
+     */
+    private void _text(int column, int row, String text)
+    {
+        _buffer.text(
+                column,
+                row,
+                text,
+                Terminal.Color.DEFAULT,
+                Terminal.Color.DEFAULT
+        );
     }
 
     /**
@@ -220,5 +247,5 @@ public class StatusBar
 
     private Level _level;
 
-    private ScreenWriter _writer;
+    private FrameBuffer _buffer;
 }
@@ -0,0 +1,251 @@
+package capstone.utility;
+
+/**
+ * A Camera is a window onto the level the size of the terminal, which
+ * slides along with the player it follows instead of flipping from one
+ * page of the PageGrid to the next.
+ *
+ * The camera has a dead zone in its center: as long as the followed point
+ * stays inside it, the camera does not move at all, and when the point
+ * leaves it, the camera moves just far enough to bring the point back to
+ * its edge. A player walking along thus moves the camera by one column or
+ * row at a time, while a player moving back and forth around the center
+ * does not move it at all. The camera never shows more than necessary
+ * outside the level, i.e. it stops at the edges of the level.
+ */
+public class Camera
+{
+    /**
+     *
+     * Constructs a Camera in the top-left corner of the level.
+     *
+     * @param level The size of the level.
+     *
+     * @param columns The number of columns the camera shows.
+     *
+     * @param rows The number of rows the camera shows.
+     */
+    public Camera(LevelSize level, int columns, int rows)
+    {
+        resize(level, columns, rows);
+    }
+
+    /**
+     *
+     * Changes the size of the level or of the camera. The
+     * camera stays where it is, as far as that is possible.
+     *
+     * @param level The size of the level.
+     *
+     * @param columns The number of columns the camera shows.
+     *
+     * @param rows The number of rows the camera shows.
+     */
+    public void resize(LevelSize level, int columns, int rows)
+    {
+        assert(level != null);
+        assert(columns > 0);
+        assert(rows > 0);
+
+        _levelColumns = level.getColumns();
+
+        _levelRows = level.getRows();
+
+        _columns = columns;
+
+        _rows = rows;
+
+        // The dead zone is the central half of the camera
+        _marginX = columns / 4;
+
+        _marginY = rows / 4;
+
+        _move(_left, _top);
+    }
+
+    /**
+     *
+     * Centers the camera on a point, as far as the edges of the level
+     * allow, e.g. when it starts following a player or after a jump.
+     *
+     * @param point The point to center on.
+     *
+     * @return The delta by which the camera moved.
+     */
+    public Delta center(Point point)
+    {
+        assert(point != null);
+
+        return _move(point.x() - _columns / 2, point.y() - _rows / 2);
+    }
+
+    /**
+     *
+     * Follows a point, i.e. moves the camera as little as
+     * possible to bring the point back into the dead zone.
+     *
+     * @param point The point to follow.
+     *
+     * @return The delta by which the camera moved.
+     */
+    public Delta follow(Point point)
+    {
+        assert(point != null);
+
+        int left = _left;
+
+        int top = _top;
+
+        if (point.x() < _left + _marginX) left = point.x() - _marginX;
+
+        else if (point.x() > _right() - _marginX) left = point.x() + _marginX - _columns + 1;
+
+        if (point.y() < _top + _marginY) top = point.y() - _marginY;
+
+        else if (point.y() > _bottom() - _marginY) top = point.y() + _marginY - _rows + 1;
+
+        return _move(left, top);
+    }
+
+    /**
+     *
+     * Tests if a point is shown by the camera.
+     *
+     * @param point The point to test.
+     *
+     * @return True if the point is shown by the camera, else false.
+     */
+    public boolean isInside(Point point)
+    {
+        return isInside(point.x(), point.y());
+    }
+
+    /**
+     *
+     * Tests if a position is shown by the camera.
+     *
+     * @param x The x-coordinate of the position.
+     *
+     * @param y The y-coordinate of the position.
+     *
+     * @return True if the position is shown by the camera, else false.
+     */
+    public boolean isInside(int x, int y)
+    {
+        return x >= _left && x <= _right() && y >= _top && y <= _bottom();
+    }
+
+    /**
+     * @return The region of the level shown by the camera.
+     */
+    public Region region()
+    {
+        return _region;
+    }
+
+    /**
+     * @return The x-coordinate of the leftmost column shown.
+     */
+    public int left()
+    {
+        return _left;
+    }
+
+    /**
+     * @return The y-coordinate of the topmost row shown.
+     */
+    public int top()
+    {
+        return _top;
+    }
+
+    /**
+     * @return The number of columns the camera shows.
+     */
+    public int columns()
+    {
+        return _columns;
+    }
+
+    /**
+     * @return The number of rows the camera shows.
+     */
+    public int rows()
+    {
+        return _rows;
+    }
+
+    /**
+     *
+     * Moves the camera, kept within the level.
+     *
+     * @param left The desired leftmost column.
+     *
+     * @param top The desired topmost row.
+     *
+     * @return The delta by which the camera moved.
+     */
+    private Delta _move(int left, int top)
+    {
+        left = _clamp(left, _levelColumns - _columns);
+
+        top = _clamp(top, _levelRows - _rows);
+
+        Delta delta = new Delta(left - _left, top - _top);
+
+        _left = left;
+
+        _top = top;
+
+        _region = new Region(_left, _bottom(), _right(), _top);
+
+        return delta;
+    }
+
+    /**
+     *
+     * Clamps a coordinate of the camera to the level.
+     *
+     * @param value The coordinate.
+     *
+     * @param maximum The largest coordinate at which the camera
+     *                still does not extend beyond the level.
+     *
+     * @return The clamped coordinate.
+     */
+    private static int _clamp(int value, int maximum)
+    {
+        // Levels smaller than the camera are shown from the top-left
+        if (maximum <= 0) return 0;
+
+        return Math.max(0, Math.min(value, maximum));
+    }
+
+    private int _right()
+    {
+        return _left + _columns - 1;
+    }
+
+    private int _bottom()
+    {
+        return _top + _rows - 1;
+    }
+
+    private int _levelColumns;
+
+    private int _levelRows;
+
+    private int _columns;
+
+    private int _rows;
+
+    private int _marginX;
+
+    private int _marginY;
+
+    private int _left;
+
+    private int _top;
+
+    private Region _region;
+}
@@ -0,0 +1,788 @@
+package capstone.utility;
+
+import capstone.element.Element;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * A Chunk stores the elements of a fixed region of the level. It is what
+ * a Page used to be on the inside: a flat array of cells with one slot for
+ * every point of the region, indexed by the point's row-major offset from
+ * the north-western corner of the region, plus a list of the elements of
+ * each kind.
+ *
+ * Chunks do not depend on the size of the terminal. Pages are only windows
+ * onto the chunks of a ChunkGrid, so the pages can be laid out anew for a
+ * different terminal without touching a single element.
+ *
+ * The chunk also keeps a bitmap with one bit for every cell, set when the
+ * cell is occupied, and a mask of the cells that are inside the level. The
+ * n-th free cell is then found a word of 64 cells at a time by counting
+ * the bits, instead of testing every cell of the chunk.
+ *
+ * Moving an element within the chunk takes three steps, so that neither
+ * the cell nor the lists have to be searched more than necessary: vacate()
+ * frees the element's cell before it moves, and then either occupy() puts
+ * it into its new cell if it stayed in the chunk, or release() removes it
+ * from the lists if it left.
+ */
+public class Chunk
+{
+    /**
+     *
+     * Constructs an empty chunk for a region.
+     *
+     * @param region The region of the level the chunk stores.
+     *
+     * @param grid The grid the chunk belongs to, which is told
+     *             whenever an element is added or removed.
+     */
+    public Chunk(Region region, ChunkGrid grid)
+    {
+        assert(region != null);
+        assert(grid != null);
+
+        _region = region;
+
+        _grid = grid;
+
+        _left = region.southWest().x();
+        _top = region.northEast().y();
+
+        _width = region.width();
+        _height = region.height();
+
+        _cells = new Element[region.area()];
+
+        _occupied = new long[_words(region.area())];
+
+        _inside = new long[_occupied.length];
+
+        limit(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+        _random = new Random(seedOf(grid.seed(), region));
+
+        _setupLists();
+    }
+
+    /**
+     *
+     * Derives the seed of the source of randomness of a chunk from the
+     * seed of the level and the region of the chunk, so that the same
+     * level moves the same way every time it is played with that seed,
+     * while every chunk has a stream of its own.
+     *
+     * @param seed The seed of the level.
+     *
+     * @param region The region of the chunk.
+     *
+     * @return The seed.
+     */
+    public static long seedOf(long seed, Region region)
+    {
+        long x = region.southWest().x();
+
+        long y = region.northEast().y();
+
+        return _mix(seed + _mix((x << 32) ^ y));
+    }
+
+    /**
+     *
+     * Gives the chunk's source of randomness a new seed.
+     *
+     * @param seed The seed of the level.
+     */
+    public void seed(long seed)
+    {
+        _random.setSeed(seedOf(seed, _region));
+    }
+
+    /**
+     *
+     * Adds an element to the chunk.
+     *
+     * @param element The element to add, whose point must be
+     *                inside the chunk and not yet occupied.
+     */
+    public void add(Element element)
+    {
+        assert(element != null);
+        assert(at(element.point().x(), element.point().y()) == null);
+
+        int index = _indexOf(element.point().x(), element.point().y());
+
+        _cells[index] = element;
+
+        _set(index);
+
+        ++_size;
+
+        _append(element);
+
+        _grid.changed(this, element.kind(), +1);
+    }
+
+    /**
+     *
+     * Adds a batch of elements to the chunk at once, with each list of
+     * elements grown to its final size up front. Unlike add(), this does
+     * not tell the grid, which has to count the elements anew after.
+     *
+     * @param elements The array holding the elements, whose
+     *                 points must be inside the chunk and free.
+     *
+     * @param from The index of the first element of the batch.
+     *
+     * @param to One past the index of the last element of the batch.
+     *
+     * @param counts The number of elements of each kind in the batch.
+     */
+    public void load(Element[] elements, int from, int to, int[] counts)
+    {
+        for (int kind = 0; kind < _lists.length; ++kind)
+        {
+            _lists[kind].ensureCapacity(_lists[kind].size() + counts[kind]);
+        }
+
+        for (int i = from; i < to; ++i)
+        {
+            Element element = elements[i];
+
+            int index = _indexOf(element.point().x(), element.point().y());
+
+            assert(_cells[index] == null);
+
+            _cells[index] = element;
+
+            _set(index);
+
+            _append(element);
+        }
+
+        _size += to - from;
+    }
+
+    /**
+     *
+     * Removes an element from the chunk.
+     *
+     * @param element The element to remove, which must be in the chunk.
+     */
+    public void remove(Element element)
+    {
+        vacate(element);
+
+        release(element);
+    }
+
+    /**
+     *
+     * Frees the cell of an element that is about to move. Must be followed
+     * by occupy() once it moved within the chunk, or by release() if not.
+     *
+     * @param element The element, which must be in the chunk.
+     */
+    public void vacate(Element element)
+    {
+        assert(element != null);
+
+        int index = _indexOf(element.point().x(), element.point().y());
+
+        assert(_cells[index] == element);
+
+        _cells[index] = null;
+
+        _occupied[index >> 6] &= ~(1L << index);
+
+        --_size;
+    }
+
+    /**
+     *
+     * Puts a vacated element into the cell of its new point.
+     *
+     * @param element The element, whose new point must
+     *                be inside the chunk and free.
+     */
+    public void occupy(Element element)
+    {
+        assert(element != null);
+
+        int index = _indexOf(element.point().x(), element.point().y());
+
+        assert(_cells[index] == null);
+
+        _cells[index] = element;
+
+        _set(index);
+
+        ++_size;
+    }
+
+    /**
+     *
+     * Removes a vacated element from the lists of the chunk. The last
+     * element of its list takes over its slot, so this takes constant
+     * time but does not keep the order of the list.
+     *
+     * @param element The element.
+     */
+    public void release(Element element)
+    {
+        assert(element != null);
+
+        ArrayList<Element> list = _listOf(element.kind());
+
+        int slot = element.slot();
+
+        assert(list.get(slot) == element);
+
+        Element last = list.remove(list.size() - 1);
+
+        if (last != element)
+        {
+            list.set(slot, last);
+
+            last.slot(slot);
+        }
+
+        _grid.changed(this, element.kind(), -1);
+    }
+
+    /**
+     *
+     * Puts the lists of elements into the row-major order of their cells.
+     * Adding, moving and removing elements reorders the lists, and since
+     * the obstacles of a chunk draw from its random source one after the
+     * other, the order decides how they move. It is not part of a session,
+     * so a level is put into this order when it is loaded and saved.
+     */
+    public void order()
+    {
+        for (ArrayList<Element> list : _lists) list.clear();
+
+        for (int word = 0; word < _occupied.length; ++word)
+        {
+            for (long bits = _occupied[word]; bits != 0; bits &= bits - 1)
+            {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+
+                _append(_cells[index]);
+            }
+        }
+    }
+
+    /**
+     *
+     * Removes all elements of the chunk inside a rectangle.
+     *
+     * @param left The leftmost column of the rectangle.
+     *
+     * @param top The topmost row of the rectangle.
+     *
+     * @param right The rightmost column of the rectangle.
+     *
+     * @param bottom The bottommost row of the rectangle.
+     */
+    public void clear(int left, int top, int right, int bottom)
+    {
+        if (_covers(left, top, right, bottom))
+        {
+            Arrays.fill(_cells, null);
+
+            Arrays.fill(_occupied, 0);
+
+            _size = 0;
+
+            for (Element.Kind kind : Element.Kind.kinds())
+            {
+                _grid.changed(this, kind, -_listOf(kind).size());
+
+                _listOf(kind).clear();
+            }
+
+            return;
+        }
+
+        left = Math.max(left, _left);
+        top = Math.max(top, _top);
+
+        right = Math.min(right, _left + _width - 1);
+        bottom = Math.min(bottom, _top + _height - 1);
+
+        for (int y = top; y <= bottom; ++y)
+        {
+            for (int x = left; x <= right; ++x)
+            {
+                Element element = _cells[_indexOf(x, y)];
+
+                if (element != null) remove(element);
+            }
+        }
+    }
+
+    /**
+     *
+     * Returns the element at a position in the chunk, if any.
+     *
+     * @param x The x-coordinate of the position.
+     *
+     * @param y The y-coordinate of the position.
+     *
+     * @return The element at the position, or null if there is
+     *         none or the position is outside the chunk.
+     */
+    public Element at(int x, int y)
+    {
+        if (! isInside(x, y)) return null;
+
+        return _cells[_indexOf(x, y)];
+    }
+
+    /**
+     *
+     * Visits the elements of the chunk inside a rectangle, in no particular
+     * order. Depending on which is smaller, either the cells of the part of
+     * the rectangle that overlaps the chunk are scanned, or the elements of
+     * the chunk (of the kind, if given) are tested against it.
+     *
+     * @param left The leftmost column of the rectangle.
+     *
+     * @param top The topmost row of the rectangle.
+     *
+     * @param right The rightmost column of the rectangle.
+     *
+     * @param bottom The bottommost row of the rectangle.
+     *
+     * @param kind The kind of elements to visit, or null for all.
+     *
+     * @param visitor The visitor to call for each element.
+     */
+    public void query(int left,
+                      int top,
+                      int right,
+                      int bottom,
+                      Element.Kind kind,
+                      Consumer<Element> visitor)
+    {
+        int area = _area(left, top, right, bottom);
+
+        if (area == 0) return;
+
+        if (area <= _candidates(kind))
+        {
+            left = Math.max(left, _left);
+            top = Math.max(top, _top);
+
+            right = Math.min(right, _left + _width - 1);
+            bottom = Math.min(bottom, _top + _height - 1);
+
+            for (int y = top; y <= bottom; ++y)
+            {
+                for (int x = left; x <= right; ++x)
+                {
+                    Element element = _cells[_indexOf(x, y)];
+
+                    if (element == null) continue;
+
+                    if (kind == null || element.kind() == kind) visitor.accept(element);
+                }
+            }
+        }
+
+        else for (List<Element> list : _lists)
+        {
+            if (kind != null && list != _listOf(kind)) continue;
+
+            for (Element element : list)
+            {
+                int x = element.point().x();
+
+                int y = element.point().y();
+
+                if (x >= left && x <= right && y >= top && y <= bottom)
+                {
+                    visitor.accept(element);
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * Counts the elements of the chunk inside a rectangle,
+     * the same way query() visits them.
+     *
+     * @param left The leftmost column of the rectangle.
+     *
+     * @param top The topmost row of the rectangle.
+     *
+     * @param right The rightmost column of the rectangle.
+     *
+     * @param bottom The bottommost row of the rectangle.
+     *
+     * @param kind The kind of elements to count, or null for all.
+     *
+     * @return The number of elements inside the rectangle.
+     */
+    public int count(int left, int top, int right, int bottom, Element.Kind kind)
+    {
+        if (_covers(left, top, right, bottom)) return _candidates(kind);
+
+        int[] count = {0};
+
+        query(left, top, right, bottom, kind, element -> ++count[0]);
+
+        return count[0];
+    }
+
+    /**
+     *
+     * Sets the bounds of the level, so that cells of
+     * the chunk outside of it never count as free.
+     *
+     * @param columns The number of columns of the level.
+     *
+     * @param rows The number of rows of the level.
+     */
+    public void limit(int columns, int rows)
+    {
+        int right = Math.min(_left + _width, columns);
+
+        int bottom = Math.min(_top + _height, rows);
+
+        // The usual case of a chunk entirely inside the level
+        if (right == _left + _width && bottom == _top + _height)
+        {
+            Arrays.fill(_inside, -1L);
+
+            int rest = _cells.length & 63;
+
+            if (rest > 0) _inside[_inside.length - 1] = (1L << rest) - 1;
+
+            return;
+        }
+
+        Arrays.fill(_inside, 0);
+
+        for (int y = _top; y < bottom; ++y)
+        {
+            for (int x = _left; x < right; ++x)
+            {
+                int index = _indexOf(x, y);
+
+                _inside[index >> 6] |= 1L << index;
+            }
+        }
+    }
+
+    /**
+     * @return The number of free cells of the chunk inside the level.
+     */
+    public int free()
+    {
+        int free = 0;
+
+        for (int word = 0; word < _occupied.length; ++word)
+        {
+            free += Long.bitCount(_inside[word] & ~_occupied[word]);
+        }
+
+        return free;
+    }
+
+    /**
+     *
+     * Finds the n-th free cell of the chunk inside the level, in
+     * row-major order, by counting the free cells word by word.
+     *
+     * @param n The (zero-based) free cell.
+     *
+     * @return The point of the free cell, or null if there
+     *         are not that many free cells in the chunk.
+     */
+    public Point freePoint(int n)
+    {
+        assert(n >= 0);
+
+        for (int word = 0; word < _occupied.length; ++word)
+        {
+            long free = _inside[word] & ~_occupied[word];
+
+            int count = Long.bitCount(free);
+
+            if (n >= count)
+            {
+                n -= count;
+
+                continue;
+            }
+
+            // Drop the lower n free cells of the word
+            for (; n > 0; --n) free &= free - 1;
+
+            int index = (word << 6) + Long.numberOfTrailingZeros(free);
+
+            return Point.of(_left + index % _width, _top + index / _width);
+        }
+
+        return null;
+    }
+
+    /**
+     *
+     * Tests whether a position is inside the chunk.
+     *
+     * @param x The x-coordinate to test.
+     *
+     * @param y The y-coordinate to test.
+     *
+     * @return True if the position is inside the chunk, else false.
+     */
+    public boolean isInside(int x, int y)
+    {
+        return x >= _left && x < _left + _width &&
+               y >= _top  && y < _top  + _height;
+    }
+
+    /**
+     * @param kind The kind of elements to return.
+     *
+     * @return The elements of the kind in the chunk.
+     */
+    public List<Element> elements(Element.Kind kind)
+    {
+        return _views[_slotOf(kind)];
+    }
+
+    /**
+     * @return The region of the level the chunk stores.
+     */
+    public Region region()
+    {
+        return _region;
+    }
+
+    /**
+     * @return The chunk's own source of randomness for moving its dynamic
+     *         obstacles, so that chunks can be updated on different
+     *         threads and still move the same way every time.
+     */
+    public Random random()
+    {
+        return _random;
+    }
+
+    /**
+     * @return The number of elements in the chunk.
+     */
+    public int size()
+    {
+        return _size;
+    }
+
+    /**
+     * @param kind The kind of elements, or null for all.
+     *
+     * @return The number of elements of the kind in the chunk.
+     */
+    private int _candidates(Element.Kind kind)
+    {
+        return kind == null ? _size : _listOf(kind).size();
+    }
+
+    /**
+     * @return The area of the part of a rectangle that overlaps the chunk.
+     */
+    private int _area(int left, int top, int right, int bottom)
+    {
+        int width = Math.min(right, _left + _width - 1) - Math.max(left, _left) + 1;
+
+        int height = Math.min(bottom, _top + _height - 1) - Math.max(top, _top) + 1;
+
+        if (width <= 0 || height <= 0) return 0;
+
+        return width * height;
+    }
+
+    /**
+     * @return True if a rectangle covers the whole chunk, else false.
+     */
+    private boolean _covers(int left, int top, int right, int bottom)
+    {
+        return left <= _left && right >= _left + _width - 1 &&
+               top <= _top && bottom >= _top + _height - 1;
+    }
+
+    /**
+     * @param kind The kind of element to get the list for.
+     *
+     * @return The list of elements of that kind.
+     */
+    private ArrayList<Element> _listOf(Element.Kind kind)
+    {
+        return _lists[_slotOf(kind)];
+    }
+
+    /**
+     *
+     * Appends an element to the list of elements of its kind
+     * and remembers its slot there for release().
+     *
+     * @param element The element.
+     */
+    private void _append(Element element)
+    {
+        ArrayList<Element> list = _listOf(element.kind());
+
+        element.slot(list.size());
+
+        list.add(element);
+    }
+
+    /**
+     * @param kind The kind of element to get the list for.
+     *
+     * @return The index of the list of elements of that kind.
+     */
+    private static int _slotOf(Element.Kind kind)
+    {
+        assert(kind != null);
+
+        switch (kind)
+        {
+            case WALL:
+                return 0;
+
+            case ENTRANCE:
+                return 1;
+
+            case EXIT:
+                return 2;
+
+            case KEY:
+                return 3;
+
+            case STATIC_OBSTACLE:
+                return 4;
+
+            case DYNAMIC_OBSTACLE:
+                return 5;
+
+            case MYSTERY_BOX:
+                return 6;
+        }
+
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * Initializes the lists for all the kinds of elements.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void _setupLists()
+    {
+        _lists = new ArrayList[Element.Kind.kinds().size()];
+
+        _views = new List[_lists.length];
+
+        for (int i = 0; i < _lists.length; ++i)
+        {
+            _lists[i] = new ArrayList<>();
+
+            // Created once, as the obstacles are fetched on every update
+            _views[i] = Collections.unmodifiableList(_lists[i]);
+        }
+    }
+
+    /**
+     *
+     * Scrambles the bits of a value (the finalizer of SplitMix64),
+     * so that neighbouring chunks get unrelated seeds.
+     *
+     * @param value The value.
+     *
+     * @return The scrambled value.
+     */
+    private static long _mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * @param index The offset of a cell to mark as occupied.
+     */
+    private void _set(int index)
+    {
+        _occupied[index >> 6] |= 1L << index;
+    }
+
+    /**
+     * @param cells A number of cells.
+     *
+     * @return The number of words needed for a bit per cell.
+     */
+    private static int _words(int cells)
+    {
+        return (cells + 63) >> 6;
+    }
+
+    /**
+     * @param x The x-coordinate of a position inside the chunk.
+     *
+     * @param y The y-coordinate of a position inside the chunk.
+     *
+     * @return The offset of the position's cell.
+     */
+    private int _indexOf(int x, int y)
+    {
+        assert(isInside(x, y));
+
+        return (y - _top) * _width + (x - _left);
+    }
+
+    private final Region _region;
+
+    private final ChunkGrid _grid;
+
+    private final int _left;
+
+    private final int _top;
+
+    private final int _width;
+
+    private final int _height;
+
+    private final Element[] _cells;
+
+    /**
+     * A bit per cell, set if the cell is occupied.
+     */
+    private final long[] _occupied;
+
+    /**
+     * A bit per cell, set if the cell is inside the level.
+     */
+    private final long[] _inside;
+
+    private int _size;
+
+    private ArrayList<Element>[] _lists;
+
+    /**
+     * Read-only views of the lists.
+     */
+    private List<Element>[] _views;
+
+    private final Random _random;
+}
@@ -0,0 +1,684 @@
+package capstone.utility;
+
+import capstone.element.Element;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * A ChunkGrid stores the elements of a level in chunks of a fixed size,
+ * laid out in a grid from the top-left corner of the level. The size of
+ * the chunks has nothing to do with the size of the terminal, so the
+ * chunks stay as they are when the terminal is resized, and only change
+ * at the edges when the level is resized.
+ *
+ * The chunk of a position is found by dividing its coordinates by the
+ * size of a chunk, so looking up an element is still constant-time.
+ *
+ * The grid also keeps count of the elements of each kind and of the free
+ * cells in every chunk, in FenwickTrees over the chunks in row-major order.
+ * The chunks tell the grid whenever an element is added or removed (moves
+ * within a chunk do not change any count). So the first or the n-th element
+ * of a kind, or the n-th free cell, is found in O(lg N) for the chunk plus
+ * the work inside that one chunk, instead of scanning the whole level.
+ * Elements are assumed to be inside the level.
+ */
+public class ChunkGrid
+{
+    /**
+     * The number of columns of a chunk.
+     */
+    public static final int COLUMNS = 32;
+
+    /**
+     * The number of rows of a chunk.
+     */
+    public static final int ROWS = 32;
+
+    /**
+     *
+     * Constructs an empty ChunkGrid covering a level.
+     *
+     * @param levelSize The size of the level.
+     */
+    public ChunkGrid(LevelSize levelSize)
+    {
+        assert(levelSize != null);
+
+        _originX = 0;
+
+        _originY = 0;
+
+        _columns = COLUMNS;
+
+        _rows = ROWS;
+
+        _chunks = new Chunk[0][0];
+
+        _kinds = new FenwickTree[Element.Kind.kinds().size()];
+
+        resize(levelSize);
+    }
+
+    /**
+     *
+     * Constructs an empty ChunkGrid consisting of a single chunk
+     * covering exactly a region, e.g. for a page of its own.
+     *
+     * @param region The region to cover.
+     */
+    public ChunkGrid(Region region)
+    {
+        assert(region != null);
+
+        _originX = region.southWest().x();
+
+        _originY = region.northEast().y();
+
+        _columns = region.width();
+
+        _rows = region.height();
+
+        _levelColumns = _originX + _columns;
+
+        _levelRows = _originY + _rows;
+
+        _chunks = new Chunk[][] {{ new Chunk(region, this) }};
+
+        _kinds = new FenwickTree[Element.Kind.kinds().size()];
+
+        _reindex();
+    }
+
+    /**
+     *
+     * Resizes the grid for a new level size. Chunks are only added or
+     * dropped at the right and bottom edges, and the elements that are
+     * no longer inside the level are removed from the chunks that stay.
+     *
+     * @param levelSize The new size of the level.
+     */
+    public void resize(LevelSize levelSize)
+    {
+        assert(levelSize != null);
+
+        int width = _divide(levelSize.getColumns(), _columns);
+
+        int height = _divide(levelSize.getRows(), _rows);
+
+        Chunk[][] chunks = new Chunk[height][width];
+
+        // The counts are rebuilt below, once the layout is final
+        _free = null;
+
+        for (int row = 0; row < height; ++row)
+        {
+            for (int column = 0; column < width; ++column)
+            {
+                if (row < height() && column < width())
+                {
+                    chunks[row][column] = _chunks[row][column];
+                }
+
+                else chunks[row][column] = new Chunk(_regionOf(column, row), this);
+            }
+        }
+
+        _chunks = chunks;
+
+        _levelColumns = _originX + levelSize.getColumns();
+
+        _levelRows = _originY + levelSize.getRows();
+
+        // Only the chunks on the edges can stick out of the level
+        for (int row = 0; row < height; ++row)
+        {
+            _chunks[row][width - 1].clear(_levelColumns, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+
+        for (int column = 0; column < width; ++column)
+        {
+            _chunks[height - 1][column].clear(0, _levelRows, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+
+        _reindex();
+    }
+
+    /**
+     *
+     * Adds many elements at once, e.g. when a level is loaded. The elements
+     * are first sorted by chunk (and counted by kind) in one pass, so that
+     * each chunk then takes all of its elements in one go, with its lists
+     * grown to their final size once. Since no two chunks share anything,
+     * the chunks can be filled in parallel, one row of chunks per task.
+     *
+     * The elements of a chunk keep the order in which they were passed,
+     * so the grid ends up exactly as if they had been added one by one.
+     *
+     * @param elements The elements to add, which must all be inside
+     *                 the level and must not overlap each other or
+     *                 the elements already in the grid.
+     *
+     * @param pool The pool to fill the chunks on, or
+     *             null to fill them on the calling thread.
+     */
+    public void load(Collection<? extends Element> elements, ForkJoinPool pool)
+    {
+        assert(elements != null);
+
+        int chunks = width() * height();
+
+        int kinds = _kinds.length;
+
+        // The chunk of each element, and the number per chunk and kind
+        int[] indices = new int[elements.size()];
+
+        int[] counts = new int[chunks * kinds];
+
+        int i = 0;
+
+        for (Element element : elements)
+        {
+            int index = _indexAt(element.point().x(), element.point().y());
+
+            assert(index >= 0);
+
+            indices[i++] = index;
+
+            ++counts[index * kinds + element.kind().ordinal()];
+        }
+
+        // Where the elements of each chunk start in the sorted array
+        int[] offsets = new int[chunks + 1];
+
+        for (int index = 0; index < chunks; ++index)
+        {
+            offsets[index + 1] = offsets[index];
+
+            for (int kind = 0; kind < kinds; ++kind)
+            {
+                offsets[index + 1] += counts[index * kinds + kind];
+            }
+        }
+
+        Element[] sorted = new Element[elements.size()];
+
+        int[] next = Arrays.copyOf(offsets, chunks);
+
+        i = 0;
+
+        for (Element element : elements) sorted[next[indices[i++]]++] = element;
+
+        // The counts are rebuilt below, once all chunks are filled
+        _free = null;
+
+        IntStream rows = IntStream.range(0, height());
+
+        if (pool != null)
+        {
+            pool.submit(() -> rows.parallel().forEach(
+                    row -> _loadRow(row, sorted, offsets, counts)
+            )).join();
+        }
+
+        else rows.forEach(row -> _loadRow(row, sorted, offsets, counts));
+
+        _reindex();
+    }
+
+    /**
+     *
+     * Seeds the sources of randomness of all chunks from the seed of the
+     * level, including those of chunks added by later resizes.
+     *
+     * @param seed The seed of the level.
+     */
+    public void seed(long seed)
+    {
+        _seed = seed;
+
+        for (Chunk[] row : _chunks)
+        {
+            for (Chunk chunk : row) chunk.seed(seed);
+        }
+    }
+
+    /**
+     * Puts the lists of elements of all chunks into the row-major
+     * order of their cells (see Chunk.order()).
+     */
+    public void order()
+    {
+        for (Chunk[] row : _chunks)
+        {
+            for (Chunk chunk : row) chunk.order();
+        }
+    }
+
+    /**
+     * @return The seed of the level the chunks are seeded from.
+     */
+    public long seed()
+    {
+        return _seed;
+    }
+
+    /**
+     *
+     * Returns the chunk a position is inside of.
+     *
+     * @param x The x-coordinate of the position.
+     *
+     * @param y The y-coordinate of the position.
+     *
+     * @return The chunk, or null if the position is outside the grid.
+     */
+    public Chunk chunkAt(int x, int y)
+    {
+        if (x < _originX || y < _originY) return null;
+
+        int column = (x - _originX) / _columns;
+
+        int row = (y - _originY) / _rows;
+
+        if (column >= width() || row >= height()) return null;
+
+        return _chunks[row][column];
+    }
+
+    /**
+     *
+     * Returns the element at a position, if any.
+     *
+     * @param x The x-coordinate of the position.
+     *
+     * @param y The y-coordinate of the position.
+     *
+     * @return The element at the position, or null if there
+     *         is none or the position is outside the grid.
+     */
+    public Element at(int x, int y)
+    {
+        Chunk chunk = chunkAt(x, y);
+
+        if (chunk == null) return null;
+
+        return chunk.at(x, y);
+    }
+
+    /**
+     *
+     * Returns the chunk at a column and row of the grid.
+     *
+     * @param column The column of the chunk.
+     *
+     * @param row The row of the chunk.
+     *
+     * @return The chunk.
+     */
+    public Chunk get(int column, int row)
+    {
+        return _chunks[row][column];
+    }
+
+    /**
+     *
+     * Returns the chunks overlapping a rectangle, in row-major order.
+     *
+     * @param left The leftmost column of the rectangle.
+     *
+     * @param top The topmost row of the rectangle.
+     *
+     * @param right The rightmost column of the rectangle.
+     *
+     * @param bottom The bottommost row of the rectangle.
+     *
+     * @return A new list of the chunks overlapping the rectangle.
+     */
+    public List<Chunk> overlapping(int left, int top, int right, int bottom)
+    {
+        List<Chunk> chunks = new ArrayList<>();
+
+        left = Math.max(left, _originX);
+        top = Math.max(top, _originY);
+
+        right = Math.min(right, _originX + width() * _columns - 1);
+        bottom = Math.min(bottom, _originY + height() * _rows - 1);
+
+        if (left > right || top > bottom) return chunks;
+
+        for (int row = (top - _originY) / _rows; row <= (bottom - _originY) / _rows; ++row)
+        {
+            for (int column = (left - _originX) / _columns;
+                 column <= (right - _originX) / _columns;
+                 ++column)
+            {
+                chunks.add(_chunks[row][column]);
+            }
+        }
+
+        return chunks;
+    }
+
+    /**
+     *
+     * Visits the elements inside a rectangle, in no particular order,
+     * chunk by chunk, without allocating a result collection.
+     *
+     * @param left The leftmost column of the rectangle.
+     *
+     * @param top The topmost row of the rectangle.
+     *
+     * @param right The rightmost column of the rectangle.
+     *
+     * @param bottom The bottommost row of the rectangle.
+     *
+     * @param kind The kind of elements to visit, or null for all.
+     *
+     * @param visitor The visitor to call for each element.
+     */
+    public void query(int left,
+                      int top,
+                      int right,
+                      int bottom,
+                      Element.Kind kind,
+                      Consumer<Element> visitor)
+    {
+        left = Math.max(left, _originX);
+        top = Math.max(top, _originY);
+
+        right = Math.min(right, _originX + width() * _columns - 1);
+        bottom = Math.min(bottom, _originY + height() * _rows - 1);
+
+        if (left > right || top > bottom) return;
+
+        for (int row = (top - _originY) / _rows; row <= (bottom - _originY) / _rows; ++row)
+        {
+            for (int column = (left - _originX) / _columns;
+                 column <= (right - _originX) / _columns;
+                 ++column)
+            {
+                _chunks[row][column].query(left, top, right, bottom, kind, visitor);
+            }
+        }
+    }
+
+    /**
+     *
+     * Updates the counts when elements are added to or removed from
+     * a chunk. Called by the chunks of the grid.
+     *
+     * @param chunk The chunk.
+     *
+     * @param kind The kind of the elements.
+     *
+     * @param delta The number of elements added (or removed, if negative).
+     */
+    void changed(Chunk chunk, Element.Kind kind, int delta)
+    {
+        // During a resize
+        if (_free == null) return;
+
+        int index = _indexOf(chunk);
+
+        _kinds[kind.ordinal()].add(index, delta);
+
+        _free.add(index, -delta);
+    }
+
+    /**
+     * @param kind A kind of element.
+     *
+     * @return The number of elements of the kind in the grid.
+     */
+    public int count(Element.Kind kind)
+    {
+        return _kinds[kind.ordinal()].total();
+    }
+
+    /**
+     *
+     * Returns the n-th element of a kind, counting through the chunks
+     * in row-major order and through each chunk in the order in which
+     * its elements were added.
+     *
+     * @param kind The kind of element.
+     *
+     * @param n The (zero-based) element, less than count(kind).
+     *
+     * @return The element.
+     */
+    public Element select(Element.Kind kind, int n)
+    {
+        FenwickTree tree = _kinds[kind.ordinal()];
+
+        int index = tree.select(n);
+
+        return _chunkOf(index).elements(kind).get(n - tree.prefix(index));
+    }
+
+    /**
+     * @return The number of free cells inside the level.
+     */
+    public int free()
+    {
+        return _free.total();
+    }
+
+    /**
+     *
+     * Returns the n-th free cell inside the level, counting through the
+     * chunks in row-major order and through each chunk in row-major order.
+     *
+     * @param n The (zero-based) free cell, less than free().
+     *
+     * @return The point of the free cell.
+     */
+    public Point freePoint(int n)
+    {
+        int index = _free.select(n);
+
+        Point point = _chunkOf(index).freePoint(n - _free.prefix(index));
+
+        assert(point != null);
+
+        return point;
+    }
+
+    /**
+     * @return The number of elements in all chunks.
+     */
+    public int size()
+    {
+        int size = 0;
+
+        for (Chunk[] row : _chunks)
+        {
+            for (Chunk chunk : row) size += chunk.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * @return The number of chunks in a row of the grid.
+     */
+    public int width()
+    {
+        return _chunks.length == 0 ? 0 : _chunks[0].length;
+    }
+
+    /**
+     * @return The number of rows of chunks in the grid.
+     */
+    public int height()
+    {
+        return _chunks.length;
+    }
+
+    /**
+     *
+     * Fills the chunks of a row with their elements of a load().
+     *
+     * @param row The row of chunks.
+     *
+     * @param sorted The elements, sorted by chunk.
+     *
+     * @param offsets Where the elements of each chunk start.
+     *
+     * @param counts The number of elements per chunk and kind.
+     */
+    private void _loadRow(int row, Element[] sorted, int[] offsets, int[] counts)
+    {
+        int kinds = _kinds.length;
+
+        for (int column = 0; column < width(); ++column)
+        {
+            int index = row * width() + column;
+
+            _chunks[row][column].load(
+                    sorted,
+                    offsets[index],
+                    offsets[index + 1],
+                    Arrays.copyOfRange(counts, index * kinds, (index + 1) * kinds)
+            );
+        }
+    }
+
+    /**
+     * Rebuilds the counts from the chunks, e.g. after a resize.
+     */
+    private void _reindex()
+    {
+        int chunks = width() * height();
+
+        for (Element.Kind kind : Element.Kind.kinds())
+        {
+            _kinds[kind.ordinal()] = new FenwickTree(chunks);
+        }
+
+        _free = new FenwickTree(chunks);
+
+        for (int index = 0; index < chunks; ++index)
+        {
+            Chunk chunk = _chunkOf(index);
+
+            for (Element.Kind kind : Element.Kind.kinds())
+            {
+                _kinds[kind.ordinal()].set(index, chunk.elements(kind).size());
+            }
+
+            chunk.limit(_levelColumns, _levelRows);
+
+            _free.set(index, chunk.free());
+        }
+    }
+
+    /**
+     * @param chunk A chunk of the grid.
+     *
+     * @return The row-major index of the chunk.
+     */
+    private int _indexOf(Chunk chunk)
+    {
+        Region region = chunk.region();
+
+        int column = (region.southWest().x() - _originX) / _columns;
+
+        int row = (region.northEast().y() - _originY) / _rows;
+
+        return row * width() + column;
+    }
+
+    /**
+     * @param x The x-coordinate of a position.
+     *
+     * @param y The y-coordinate of a position.
+     *
+     * @return The row-major index of the chunk the position is
+     *         inside of, or -1 if it is outside the grid.
+     */
+    private int _indexAt(int x, int y)
+    {
+        if (x < _originX || y < _originY) return -1;
+
+        int column = (x - _originX) / _columns;
+
+        int row = (y - _originY) / _rows;
+
+        if (column >= width() || row >= height()) return -1;
+
+        return row * width() + column;
+    }
+
+    /**
+     * @param index The row-major index of a chunk.
+     *
+     * @return The chunk.
+     */
+    private Chunk _chunkOf(int index)
+    {
+        return _chunks[index / width()][index % width()];
+    }
+
+    /**
+     * @param column The column of a chunk.
+     *
+     * @param row The row of a chunk.
+     *
+     * @return The region of the chunk.
+     */
+    private Region _regionOf(int column, int row)
+    {
+        int left = _originX + column * _columns;
+
+        int top = _originY + row * _rows;
+
+        return new Region(left, top + _rows - 1, left + _columns - 1, top);
+    }
+
+    /**
+     * @return The quotient, rounded up, but at least 1.
+     */
+    private static int _divide(int dividend, int divisor)
+    {
+        return Math.max(1, (dividend + divisor - 1) / divisor);
+    }
+
+    private final int _originX;
+
+    private final int _originY;
+
+    private final int _columns;
+
+    private final int _rows;
+
+    /**
+     * One past the rightmost column of the level.
+     */
+    private int _levelColumns;
+
+    /**
+     * One past the bottommost row of the level.
+     */
+    private int _levelRows;
+
+    private Chunk[][] _chunks;
+
+    private long _seed;
+
+    /**
+     * The number of elements of each kind per chunk.
+     */
+    private final FenwickTree[] _kinds;
+
+    /**
+     * The number of free cells inside the level per chunk.
+     */
+    private FenwickTree _free;
+}
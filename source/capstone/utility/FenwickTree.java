@@ -0,0 +1,144 @@
+package capstone.utility;
+
+/**
+ * A FenwickTree (binary indexed tree) holds a sequence of non-negative
+ * counts and answers prefix sums and "which slot holds the n-th unit"
+ * in O(lg N), while a single count can be changed in O(lg N) as well.
+ *
+ * The ChunkGrid uses these to count the elements of each kind and the free
+ * cells per chunk, so that it can find the first or a random element of a
+ * kind, or a free cell, without scanning the level.
+ */
+public class FenwickTree
+{
+    /**
+     *
+     * Constructs a FenwickTree of zero counts.
+     *
+     * @param size The number of slots.
+     */
+    public FenwickTree(int size)
+    {
+        assert(size >= 0);
+
+        _tree = new int[size + 1];
+
+        _values = new int[size];
+    }
+
+    /**
+     *
+     * Changes the count of a slot.
+     *
+     * @param index The index of the slot.
+     *
+     * @param delta The amount to add to the count (may be negative).
+     */
+    public void add(int index, int delta)
+    {
+        assert(index >= 0 && index < size());
+
+        _values[index] += delta;
+
+        _total += delta;
+
+        for (int i = index + 1; i < _tree.length; i += i & -i) _tree[i] += delta;
+    }
+
+    /**
+     *
+     * Sets the count of a slot.
+     *
+     * @param index The index of the slot.
+     *
+     * @param value The new count.
+     */
+    public void set(int index, int value)
+    {
+        add(index, value - _values[index]);
+    }
+
+    /**
+     * @param index The index of a slot.
+     *
+     * @return The count of the slot.
+     */
+    public int get(int index)
+    {
+        return _values[index];
+    }
+
+    /**
+     * @param index The index of a slot.
+     *
+     * @return The sum of the counts of all slots before the index.
+     */
+    public int prefix(int index)
+    {
+        assert(index >= 0 && index <= size());
+
+        int sum = 0;
+
+        for (int i = index; i > 0; i -= i & -i) sum += _tree[i];
+
+        return sum;
+    }
+
+    /**
+     *
+     * Finds the slot holding the n-th unit, i.e. the smallest index
+     * whose prefix sum including itself is greater than n.
+     *
+     * @param n The (zero-based) unit, less than total().
+     *
+     * @return The index of the slot.
+     */
+    public int select(int n)
+    {
+        assert(n >= 0 && n < _total);
+
+        int index = 0;
+
+        // The highest power of two within the tree
+        int step = Integer.highestOneBit(size());
+
+        for (; step > 0; step >>= 1)
+        {
+            int next = index + step;
+
+            if (next < _tree.length && _tree[next] <= n)
+            {
+                index = next;
+
+                n -= _tree[next];
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * @return The sum of all counts.
+     */
+    public int total()
+    {
+        return _total;
+    }
+
+    /**
+     * @return The number of slots.
+     */
+    public int size()
+    {
+        return _values.length;
+    }
+
+    /**
+     * One-based, tree[i] holds the sum of the (i & -i) slots up to i.
+     */
+    private final int[] _tree;
+
+    private final int[] _values;
+
+    private int _total;
+}
@@ -0,0 +1,489 @@
+package capstone.utility;
+
+import capstone.element.Element;
+import capstone.element.Quarry;
+
+import java.util.Arrays;
+
+/**
+ * A FlowField holds, for every cell of the level, the length of the
+ * shortest way around the elements of the level to the nearest living
+ * player. Obstacles that chase players (see FlowObstacle) then only have to
+ * step to the neighbouring cell with the smallest distance, no matter how
+ * many of them there are, instead of each searching its own way.
+ *
+ * The field is a breadth-first search from all players at once, which
+ * stops at a maximum distance (the radius), so its cost is bounded by the
+ * number of cells within that distance of the players, not the size of the
+ * level. The cells a search reached are remembered, so the next search only
+ * resets those. The field is searched again when the players move (and
+ * only then); when an element disappears from the level, the distances
+ * through its cell are filled in incrementally, and when one appears,
+ * the field is only searched again if some distance actually went
+ * through its cell.
+ *
+ * Dynamic-obstacles do not block the field, since they move out of the
+ * way; all other elements of the grid do.
+ */
+public class FlowField
+{
+    /**
+     * The distance of cells not within the radius of any player.
+     */
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    /**
+     * The radius of fields constructed without one.
+     */
+    public static final int RADIUS = 48;
+
+    /**
+     *
+     * Constructs a FlowField over the level of the given grid,
+     * with the default radius.
+     *
+     * @param grid The grid holding the elements of the level.
+     */
+    public FlowField(PageGrid grid)
+    {
+        this(grid, RADIUS);
+    }
+
+    /**
+     *
+     * Constructs a FlowField over the level of the given grid.
+     *
+     * The field has no players until the first update().
+     *
+     * @param grid The grid holding the elements of the level.
+     *
+     * @param radius The maximum distance from any player
+     *               the field holds. Must be positive.
+     */
+    public FlowField(PageGrid grid, int radius)
+    {
+        assert(grid != null);
+        assert(radius > 0);
+
+        _grid = grid;
+
+        _radius = radius;
+
+        _sources = new int[0];
+
+        _size = 0;
+
+        _allocate();
+    }
+
+    /**
+     *
+     * Searches the field again if the players moved
+     * or an element blocked one of its ways.
+     *
+     * @param quarry The points of the living players.
+     */
+    public void update(Quarry quarry)
+    {
+        assert(quarry != null);
+
+        if (_width != _grid.levelWidth() || _height != _grid.levelHeight())
+        {
+            _allocate();
+        }
+
+        if (! _dirty && _sameSources(quarry)) return;
+
+        _clear();
+
+        if (_sources.length < quarry.size()) _sources = new int[quarry.size()];
+
+        _size = 0;
+
+        for (int i = 0; i < quarry.size(); ++i)
+        {
+            int x = quarry.x(i);
+
+            int y = quarry.y(i);
+
+            if (! _inside(x, y)) continue;
+
+            int cell = y * _width + x;
+
+            _sources[_size++] = cell;
+
+            // Players may overlap
+            if (_distances[cell] == UNREACHED) _reach(cell, 0);
+        }
+
+        _propagate(0);
+
+        _dirty = false;
+    }
+
+    /**
+     *
+     * Fills in the distances through a cell whose element disappeared.
+     *
+     * @param point The point of the cell.
+     */
+    public void opened(Point point)
+    {
+        assert(point != null);
+
+        if (_dirty || ! _inside(point.x(), point.y())) return;
+
+        int cell = point.y() * _width + point.x();
+
+        if (_distances[cell] != UNREACHED) return;
+
+        int best = UNREACHED;
+
+        for (int i = 0; i < NEIGHBOURS; ++i)
+        {
+            int neighbour = _neighbour(cell, i);
+
+            if (neighbour >= 0 && _distances[neighbour] < best)
+            {
+                best = _distances[neighbour];
+            }
+        }
+
+        if (best >= _radius) return;
+
+        _tail = 0;
+
+        _reach(cell, best + 1);
+
+        _propagate(0);
+    }
+
+    /**
+     *
+     * Takes a cell into which an element appeared out of the field.
+     *
+     * If any distance went through the cell, the field is searched
+     * again on the next update(), since it can then only get longer.
+     *
+     * @param point The point of the cell.
+     */
+    public void blocked(Point point)
+    {
+        assert(point != null);
+
+        if (_dirty || ! _inside(point.x(), point.y())) return;
+
+        int cell = point.y() * _width + point.x();
+
+        int distance = _distances[cell];
+
+        if (distance == UNREACHED) return;
+
+        // E.g. an element generated on a player, who will be sent back
+        if (distance == 0)
+        {
+            _dirty = true;
+
+            return;
+        }
+
+        _distances[cell] = UNREACHED;
+
+        // The distances of all other cells stay the same if every cell
+        // that was reached through this one can also be reached another way
+        for (int i = 0; i < NEIGHBOURS; ++i)
+        {
+            int neighbour = _neighbour(cell, i);
+
+            if (neighbour < 0 || _distances[neighbour] != distance + 1) continue;
+
+            if (! _supported(neighbour, distance))
+            {
+                _dirty = true;
+
+                return;
+            }
+        }
+    }
+
+    /**
+     *
+     * Returns the length of the shortest way from
+     * a point to the nearest living player.
+     *
+     * @param x The x-coordinate of the point.
+     *
+     * @param y The y-coordinate of the point.
+     *
+     * @return The distance, or UNREACHED if no player is within
+     *         the radius or the point is outside the level.
+     */
+    public int distance(int x, int y)
+    {
+        if (! _inside(x, y)) return UNREACHED;
+
+        return _distances[y * _width + x];
+    }
+
+    /**
+     *
+     * Returns the length of the shortest way from
+     * a point to the nearest living player.
+     *
+     * @param point The point.
+     *
+     * @return The distance, or UNREACHED if no player is within
+     *         the radius or the point is outside the level.
+     */
+    public int distance(Point point)
+    {
+        return distance(point.x(), point.y());
+    }
+
+    /**
+     * @return The maximum distance from any player the field holds.
+     */
+    public int radius()
+    {
+        return _radius;
+    }
+
+    /**
+     * @return True if the field must be searched again on the next update().
+     */
+    public boolean isDirty()
+    {
+        return _dirty;
+    }
+
+    /**
+     * (Re-)allocates the field for the current size of the level.
+     */
+    private void _allocate()
+    {
+        _width = _grid.levelWidth();
+
+        _height = _grid.levelHeight();
+
+        _distances = new int[_width * _height];
+
+        Arrays.fill(_distances, UNREACHED);
+
+        _queue = new int[_width * _height];
+
+        _touched = new int[_width * _height];
+
+        _reached = 0;
+
+        _dirty = true;
+    }
+
+    /**
+     * Resets the cells reached by the last search.
+     */
+    private void _clear()
+    {
+        for (int i = 0; i < _reached; ++i) _distances[_touched[i]] = UNREACHED;
+
+        _reached = 0;
+
+        _tail = 0;
+    }
+
+    /**
+     *
+     * Sets the distance of an unreached cell and queues it.
+     *
+     * @param cell The index of the cell.
+     *
+     * @param distance The distance of the cell.
+     */
+    private void _reach(int cell, int distance)
+    {
+        _distances[cell] = distance;
+
+        // Cells blocked and opened again are touched twice
+        if (_reached == _touched.length)
+        {
+            _touched = Arrays.copyOf(_touched, 2 * _touched.length);
+        }
+
+        _touched[_reached++] = cell;
+
+        _queue[_tail++] = cell;
+    }
+
+    /**
+     *
+     * Searches breadth-first from the queued cells, which must be
+     * in order of their distances, lowering the distance of every
+     * open cell that can be reached in fewer steps.
+     *
+     * @param head The index of the first queued cell.
+     */
+    private void _propagate(int head)
+    {
+        for (; head < _tail; ++head)
+        {
+            int cell = _queue[head];
+
+            int distance = _distances[cell] + 1;
+
+            if (distance > _radius) continue;
+
+            for (int i = 0; i < NEIGHBOURS; ++i)
+            {
+                int neighbour = _neighbour(cell, i);
+
+                if (neighbour < 0 || _distances[neighbour] <= distance) continue;
+
+                if (_blocks(neighbour)) continue;
+
+                // Only filling in an opened cell lowers reached cells
+                if (_distances[neighbour] != UNREACHED)
+                {
+                    _distances[neighbour] = distance;
+
+                    _queue[_tail++] = neighbour;
+                }
+
+                else _reach(neighbour, distance);
+            }
+        }
+    }
+
+    /**
+     *
+     * Checks if a cell has a neighbour other than the given
+     * distance through which it can be reached as quickly.
+     *
+     * @param cell The index of the cell.
+     *
+     * @param distance The distance of the neighbour.
+     *
+     * @return True if the cell has such a neighbour.
+     */
+    private boolean _supported(int cell, int distance)
+    {
+        for (int i = 0; i < NEIGHBOURS; ++i)
+        {
+            int neighbour = _neighbour(cell, i);
+
+            if (neighbour >= 0 && _distances[neighbour] == distance) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     *
+     * Returns the index of a neighbour of a cell.
+     *
+     * @param cell The index of the cell.
+     *
+     * @param which Which neighbour (up, down, left or right).
+     *
+     * @return The index of the neighbour, or -1
+     *         if it would be outside the level.
+     */
+    private int _neighbour(int cell, int which)
+    {
+        int x = cell % _width;
+
+        switch (which)
+        {
+            case 0: return cell >= _width ? cell - _width : -1;
+            case 1: return cell + _width < _distances.length ? cell + _width : -1;
+            case 2: return x > 0 ? cell - 1 : -1;
+            case 3: return x + 1 < _width ? cell + 1 : -1;
+        }
+
+        throw new AssertionError();
+    }
+
+    /**
+     *
+     * Checks if the element in a cell, if any, blocks the way.
+     *
+     * @param cell The index of the cell.
+     *
+     * @return True if the cell holds an element other than a dynamic-obstacle.
+     */
+    private boolean _blocks(int cell)
+    {
+        Element element = _grid.at(cell % _width, cell / _width);
+
+        return element != null && element.kind() != Element.Kind.DYNAMIC_OBSTACLE;
+    }
+
+    /**
+     *
+     * Checks if the players are where they were at the last search.
+     *
+     * @param quarry The points of the living players.
+     *
+     * @return True if the players did not move.
+     */
+    private boolean _sameSources(Quarry quarry)
+    {
+        int size = 0;
+
+        for (int i = 0; i < quarry.size(); ++i)
+        {
+            int x = quarry.x(i);
+
+            int y = quarry.y(i);
+
+            if (! _inside(x, y)) continue;
+
+            if (size == _size || _sources[size] != y * _width + x) return false;
+
+            ++size;
+        }
+
+        return size == _size;
+    }
+
+    private boolean _inside(int x, int y)
+    {
+        return x >= 0 && x < _width && y >= 0 && y < _height;
+    }
+
+    private static final int NEIGHBOURS = 4;
+
+    private final PageGrid _grid;
+
+    private final int _radius;
+
+    private int _width;
+
+    private int _height;
+
+    /**
+     * The distance of every cell, row by row.
+     */
+    private int[] _distances;
+
+    /**
+     * The cells to search from, in the order they were found.
+     */
+    private int[] _queue;
+
+    private int _tail;
+
+    /**
+     * The cells reached since the last search began.
+     */
+    private int[] _touched;
+
+    private int _reached;
+
+    /**
+     * The cells of the players at the last search.
+     */
+    private int[] _sources;
+
+    private int _size;
+
+    private boolean _dirty;
+}
@@ -3,22 +3,32 @@ package capstone.utility;
 import capstone.data.Data;
 import capstone.data.Profile;
 import capstone.data.Theme;
+import capstone.element.DynamicObstacle;
 import capstone.element.Element;
+import capstone.element.ObstacleSpec;
 import capstone.element.Player;
 import capstone.game.Level;
+import capstone.game.World;
 import com.googlecode.lanterna.gui.GUIScreen;
 import com.googlecode.lanterna.terminal.TerminalSize;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Takes care of all deserialization and serialization for levels.
@@ -27,6 +37,24 @@ import java.util.Properties;
  */
 public class LevelBuilder extends Data
 {
+    /**
+     * A snapshot of a level, which can be written to its
+     * session file on any thread (see snapshot()).
+     */
+    @FunctionalInterface
+    public interface Snapshot
+    {
+        /**
+         *
+         * Writes the snapshot to its session file.
+         *
+         * @return The session file.
+         *
+         * @throws IOException for I/O badness.
+         */
+        File write() throws IOException;
+    }
+
     /**
      *
      * Constructs a LevelBuilder from a Level. You can call store() right after.
@@ -37,25 +65,41 @@ public class LevelBuilder extends Data
      */
     public LevelBuilder(Level level)
     {
-        assert(level != null);
+        this(level.world());
+    }
 
-        this.players(level.players())
-            .name(level.name())
-            .grid(level.grid())
-            .page(level.currentPage())
-            .theme(level.theme())
-            .levelSize(level.size())
-            .hidden(level.hidden())
-            .difficulty(level.difficulty())
-            .totalKeys(level.totalKeys());
+    /**
+     *
+     * Constructs a LevelBuilder from a World, which need not be rendered
+     * anywhere. You can call store() right after.
+     *
+     * @param world The world to construct this LevelBuilder from.
+     */
+    public LevelBuilder(World world)
+    {
+        assert(world != null);
+
+        this.players(world.players())
+            .name(world.name())
+            .grid(world.grid())
+            .page(world.currentPage())
+            .theme(world.theme())
+            .levelSize(world.size())
+            .hidden(world.hidden())
+            .difficulty(world.difficulty())
+            .totalKeys(world.totalKeys())
+            .layout(world.layout(), world.checksum())
+            .seed(world.seed())
+            .frame(world.frame())
+            .changes(world.changes());
     }
 
     /**
      *
-     * Constructs the LevelBuilder from a file containing properties,
-     * a list of profiles and a GUI screen.
+     * Constructs the LevelBuilder from a session file (in the properties
+     * or binary format), a list of profiles and a GUI screen.
      *
-     * @param file The file containing the properties to deserialize.
+     * @param file The file containing the session to deserialize.
      *
      * @param profiles The profiles for the level.
      *
@@ -68,7 +112,29 @@ public class LevelBuilder extends Data
                         List<Profile> profiles,
                         GUIScreen gui) throws IOException
     {
-        this(Data._load(file), profiles, gui);
+        this(LevelFile.read(file), profiles, gui);
+    }
+
+    /**
+     *
+     * Constructs the LevelBuilder from a session file (in the properties
+     * or binary format) and a list of profiles, for a terminal of the
+     * given size that need not exist, e.g. to run the level headless.
+     *
+     * @param file The file containing the session to deserialize.
+     *
+     * @param profiles The profiles for the level.
+     *
+     * @param terminalSize The size of the terminal the level is meant for.
+     *
+     * @throws IOException for I/O badness.
+     *
+     */
+    public LevelBuilder(File file,
+                        List<Profile> profiles,
+                        TerminalSize terminalSize) throws IOException
+    {
+        this(LevelFile.read(file), profiles, terminalSize);
     }
 
     /**
@@ -86,19 +152,106 @@ public class LevelBuilder extends Data
     public LevelBuilder(Properties session,
                         List<Profile> profiles,
                         GUIScreen gui)
+    {
+        this(_session(session), profiles, gui);
+    }
+
+    /**
+     *
+     * Constructs the LevelBuilder from session properties and a list of
+     * profiles, for a terminal of the given size that need not exist,
+     * e.g. to run the level headless.
+     *
+     * @param session The properties to deserialize.
+     *
+     * @param profiles The profiles for the level.
+     *
+     * @param terminalSize The size of the terminal the level is meant for.
+     *
+     */
+    public LevelBuilder(Properties session,
+                        List<Profile> profiles,
+                        TerminalSize terminalSize)
+    {
+        this(_session(session), profiles, terminalSize);
+    }
+
+    /**
+     *
+     * Constructs the LevelBuilder from a session,
+     * a list of profiles and a GUI screen.
+     *
+     * @param session The session to deserialize.
+     *
+     * @param profiles The profiles for the level.
+     *
+     * @param gui The GUI screen on which the level will be rendered.
+     *
+     */
+    public LevelBuilder(LevelFile session,
+                        List<Profile> profiles,
+                        GUIScreen gui)
+    {
+        this(session, profiles, _sizeOf(gui));
+
+        this.gui(gui);
+    }
+
+    /**
+     *
+     * Constructs the LevelBuilder from a session and a list of profiles,
+     * for a terminal of the given size that need not exist, e.g. to run
+     * the level headless.
+     *
+     * @param session The session to deserialize.
+     *
+     * @param profiles The profiles for the level.
+     *
+     * @param terminalSize The size of the terminal the level is meant for.
+     *
+     */
+    public LevelBuilder(LevelFile session,
+                        List<Profile> profiles,
+                        TerminalSize terminalSize)
+    {
+        this(session, null, profiles, terminalSize);
+    }
+
+    /**
+     *
+     * Constructs the LevelBuilder from a session, a theme and a list of
+     * profiles, for a terminal of the given size that need not exist,
+     * e.g. to replay the session headless without its theme file.
+     *
+     * @param session The session to deserialize.
+     *
+     * @param theme The theme for the level, or null to
+     *              load the theme named by the session.
+     *
+     * @param profiles The profiles for the level.
+     *
+     * @param terminalSize The size of the terminal the level is meant for.
+     *
+     */
+    public LevelBuilder(LevelFile session,
+                        Theme theme,
+                        List<Profile> profiles,
+                        TerminalSize terminalSize)
     {
         assert(session != null);
         assert(profiles != null);
-        assert(gui != null);
+        assert(terminalSize != null);
         assert(! profiles.isEmpty());
 
-        assert(session.containsKey("Name"));
+        assert(session.name() != null);
 
         _players = new ArrayList<>();
 
         _hidden = new ArrayList<>();
 
-        this.gui(gui);
+        _terminalSize = terminalSize;
+
+        _theme = theme;
 
         Map<String, Profile> remaining = _map(profiles);
 
@@ -115,14 +268,14 @@ public class LevelBuilder extends Data
 
     /**
      *
-     * Constructs the LevelBuilder from a file containing properties,
-     * a list of profiles and a GUI screen. Also sets the difficulty
-     * parameter.
+     * Constructs the LevelBuilder from a layout file (in the properties
+     * or binary format), a list of profiles and a GUI screen. Also sets
+     * the difficulty parameter.
      *
      * @param difficulty The difficulty of the Level,
      *                   from the Level.Difficulty enum.
      *
-     * @param file The file containing the properties to deserialize.
+     * @param file The file containing the layout to deserialize.
      *
      * @param theme The theme for the level.
      *
@@ -142,7 +295,7 @@ public class LevelBuilder extends Data
         this(
                 difficulty,
                 Data._getName(file),
-                Data._load(file),
+                _base(file),
                 theme,
                 profiles,
                 gui
@@ -151,7 +304,43 @@ public class LevelBuilder extends Data
 
     /**
      *
-     * Constructs the LevelBuilder from a file containing properties,
+     * Constructs the LevelBuilder from a layout file (in the properties
+     * or binary format), for a terminal of the given size that need not
+     * exist, e.g. to run the level headless.
+     *
+     * @param difficulty The difficulty of the Level,
+     *                   from the Level.Difficulty enum.
+     *
+     * @param file The file containing the layout to deserialize.
+     *
+     * @param theme The theme for the level.
+     *
+     * @param profiles The profiles for the level.
+     *
+     * @param terminalSize The size of the terminal the level is meant for.
+     *
+     * @throws IOException for I/O badness.
+     *
+     */
+    public LevelBuilder(Level.Difficulty difficulty,
+                        File file,
+                        Theme theme,
+                        List<Profile> profiles,
+                        TerminalSize terminalSize) throws IOException
+    {
+        this(
+                difficulty,
+                Data._getName(file),
+                _base(file),
+                theme,
+                profiles,
+                terminalSize
+        );
+    }
+
+    /**
+     *
+     * Constructs the LevelBuilder from layout properties,
      * a list of profiles and a GUI screen. Also sets the difficulty
      * parameter.
      *
@@ -175,19 +364,108 @@ public class LevelBuilder extends Data
                         Theme theme,
                         List<Profile> profiles,
                         GUIScreen gui)
+    {
+        this(difficulty, name, _layout(layout), theme, profiles, gui);
+    }
+
+    /**
+     *
+     * Constructs the LevelBuilder from layout properties, for a terminal
+     * of the given size that need not exist, e.g. to run the level headless.
+     *
+     * @param difficulty The difficulty of the Level,
+     *                   from the Level.Difficulty enum.
+     *
+     * @param name The name of the level.
+     *
+     * @param layout The layout of the game, in a properties file.
+     *
+     * @param theme The Theme for the level.
+     *
+     * @param profiles The profiles for the level.
+     *
+     * @param terminalSize The size of the terminal the level is meant for.
+     *
+     */
+    public LevelBuilder(Level.Difficulty difficulty,
+                        String name,
+                        Properties layout,
+                        Theme theme,
+                        List<Profile> profiles,
+                        TerminalSize terminalSize)
+    {
+        this(difficulty, name, _layout(layout), theme, profiles, terminalSize);
+    }
+
+    /**
+     *
+     * Constructs the LevelBuilder from a layout, a list of profiles
+     * and a GUI screen. Also sets the difficulty parameter.
+     *
+     * @param difficulty The difficulty of the Level,
+     *                   from the Level.Difficulty enum.
+     *
+     * @param name The name of the level.
+     *
+     * @param layout The layout of the game.
+     *
+     * @param theme The Theme for the level.
+     *
+     * @param profiles The profiles for the level.
+     *
+     * @param gui The GUI screen on which the level will be rendered.
+     *
+     */
+    public LevelBuilder(Level.Difficulty difficulty,
+                        String name,
+                        LevelFile layout,
+                        Theme theme,
+                        List<Profile> profiles,
+                        GUIScreen gui)
+    {
+        this(difficulty, name, layout, theme, profiles, _sizeOf(gui));
+
+        this.gui(gui);
+    }
+
+    /**
+     *
+     * Constructs the LevelBuilder from a layout, for a terminal of the
+     * given size that need not exist, e.g. to run the level headless.
+     *
+     * @param difficulty The difficulty of the Level,
+     *                   from the Level.Difficulty enum.
+     *
+     * @param name The name of the level.
+     *
+     * @param layout The layout of the game.
+     *
+     * @param theme The Theme for the level.
+     *
+     * @param profiles The profiles for the level.
+     *
+     * @param terminalSize The size of the terminal the level is meant for.
+     *
+     */
+    public LevelBuilder(Level.Difficulty difficulty,
+                        String name,
+                        LevelFile layout,
+                        Theme theme,
+                        List<Profile> profiles,
+                        TerminalSize terminalSize)
     {
         assert(difficulty != null);
         assert(layout != null);
         assert(theme != null);
         assert(profiles != null);
-        assert(gui != null);
+        assert(terminalSize != null);
         assert(! profiles.isEmpty());
 
         _players = new ArrayList<>();
 
         _hidden = new ArrayList<>();
 
-        this.gui(gui);
+        _terminalSize = terminalSize;
 
         _difficulty = difficulty;
 
@@ -464,6 +742,119 @@ public class LevelBuilder extends Data
         return this;
     }
 
+    /**
+     * @return The path of the layout file the level is based on, or
+     *         null if it is not (then sessions are stored in full).
+     */
+    public String layout()
+    {
+        return _layout;
+    }
+
+    /**
+     * @return The CRC32 of the layout file the level is based on.
+     */
+    public long checksum()
+    {
+        return _checksum;
+    }
+
+    /**
+     *
+     * Sets the layout file the level is based on.
+     *
+     * @param layout The path of the layout file, or null if none.
+     *
+     * @param checksum The CRC32 of the layout file.
+     *
+     * @return The same LevelBuilder instance.
+     */
+    public LevelBuilder layout(String layout, long checksum)
+    {
+        _layout = layout;
+
+        _checksum = checksum;
+
+        return this;
+    }
+
+    /**
+     * @return The seed all randomness of the level comes from.
+     */
+    public long seed()
+    {
+        return _seed;
+    }
+
+    /**
+     *
+     * Sets the seed all randomness of the level comes from.
+     *
+     * @param seed The seed.
+     *
+     * @return The same LevelBuilder instance.
+     */
+    public LevelBuilder seed(long seed)
+    {
+        _seed = seed;
+
+        return this;
+    }
+
+    /**
+     * @return The number of ticks since the dynamic obstacles
+     *         of the level last moved (see Level.Difficulty).
+     */
+    public int frame()
+    {
+        return _frame;
+    }
+
+    /**
+     *
+     * Sets the number of ticks since the dynamic obstacles of the level
+     * last moved, so that a resumed level moves them on the same ticks.
+     *
+     * @param frame The number of ticks.
+     *
+     * @return The same LevelBuilder instance.
+     */
+    public LevelBuilder frame(int frame)
+    {
+        assert(frame >= 0);
+
+        _frame = frame;
+
+        return this;
+    }
+
+    /**
+     * @return The points of the cells that changed since
+     *         the layout of the level was loaded.
+     */
+    public Set<Point> changes()
+    {
+        return _changes;
+    }
+
+    /**
+     *
+     * Sets the points of the cells that changed
+     * since the layout of the level was loaded.
+     *
+     * @param changes The points of the changed cells.
+     *
+     * @return The same LevelBuilder instance.
+     */
+    public LevelBuilder changes(Set<Point> changes)
+    {
+        assert(changes != null);
+
+        _changes = changes;
+
+        return this;
+    }
+
 
     /**
      * Always need the profiles.
@@ -486,24 +877,40 @@ public class LevelBuilder extends Data
     public Collection<Element> deserialize(Properties serialization,
                                            Map<String, Profile> remaining)
     {
-        if (serialization.containsKey("Name"))
-        {
-            _name = Data.pop(serialization, "Name");
-        }
+        return deserialize(LevelFile.fromProperties(serialization), remaining);
+    }
 
-        _difficulty = _deserializeDifficulty(serialization);
+    /**
+     *
+     * Deserializes a Level.
+     *
+     * @param level The layout or session containing the level data.
+     *
+     * @param remaining The remaining profiles to try to find in the data.
+     *
+     * @return A Collection of Elements.
+     */
+    public Collection<Element> deserialize(LevelFile level,
+                                           Map<String, Profile> remaining)
+    {
+        if (level.name() != null) _name = level.name();
+
+        _difficulty = _deserializeDifficulty(level);
 
         // Difference for loading a session vs a layout
-        if (_theme == null) _loadTheme(serialization);
+        if (_theme == null) _loadTheme(level.theme());
 
-        else serialization.remove("Theme");
+        _levelSize = new LevelSize(level.width(), level.height());
 
-        _levelSize = new LevelSize(
-                Integer.parseInt(Data.pop(serialization, "Width")),
-                Integer.parseInt(Data.pop(serialization, "Height"))
-        );
+        layout(level.layout(), level.checksum());
+
+        seed(level.seed());
+
+        frame(level.frame());
 
-        return _deserializeElements(serialization, remaining);
+        _changes = new HashSet<>(level.changes());
+
+        return _deserializeElements(level, remaining);
     }
 
     /**
@@ -514,7 +921,146 @@ public class LevelBuilder extends Data
      */
     @Override public void store() throws IOException
     {
-        super.store(new File("resources/sessions"));
+        store(new File("resources/sessions"));
+    }
+
+    /**
+     *
+     * Stores the level as a session in the given directory. If the level
+     * is based on a layout file, only the cells that changed since the
+     * layout was loaded are stored (see SessionDelta), else everything.
+     *
+     * @param directory Where to store the session.
+     *
+     * @throws IOException for I/O badness.
+     */
+    @Override public void store(File directory) throws IOException
+    {
+        snapshot(directory).write();
+    }
+
+    /**
+     *
+     * Takes a snapshot of the level for storing it as a session in the
+     * given directory. Taking the snapshot only copies what is needed out
+     * of the grid and players, which is cheap; the snapshot can then be
+     * written on another thread while the level goes on.
+     *
+     * Sessions of levels based on a layout file are stored as a delta,
+     * all others as a full LevelFile (in the binary format).
+     *
+     * @param directory Where to store the session.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot(File directory)
+    {
+        assert(directory != null);
+
+        File file = new File(directory, fileName());
+
+        if (_layout != null)
+        {
+            SessionDelta delta = delta();
+
+            return () -> _write(file, delta::write);
+        }
+
+        LevelFile level = levelFile();
+
+        return () -> _write(file, level::write);
+    }
+
+    /**
+     *
+     * Copies the level into a LevelFile, with every element of the grid.
+     *
+     * @return The LevelFile.
+     */
+    public LevelFile levelFile()
+    {
+        assert(_name != null);
+
+        LevelFile level = new LevelFile(
+                _levelSize.getColumns(),
+                _levelSize.getRows()
+        );
+
+        level.name(_name);
+
+        level.difficulty(_difficulty);
+
+        level.theme(_theme.fileName());
+
+        level.seed(_seed);
+
+        level.frame(_frame);
+
+        for (Player player : _players) level.player(player.id(), player.point());
+
+        for (Profile profile : _hidden) level.hide(profile.id());
+
+        for (Page page : _grid.pages())
+        {
+            for (Element element : page)
+            {
+                Point point = element.point();
+
+                level.kind(point.x(), point.y(), element.kind());
+
+                ObstacleSpec spec = _spec(element);
+
+                if (spec != null) level.obstacle(point.x(), point.y(), spec);
+            }
+        }
+
+        return level;
+    }
+
+    /**
+     *
+     * Creates the delta of the level to its layout, i.e. the session
+     * header, the cells that changed since then and the specs of the
+     * dynamic obstacles.
+     *
+     * @return The SessionDelta.
+     */
+    public SessionDelta delta()
+    {
+        assert(_layout != null);
+        assert(_name != null);
+
+        SessionDelta delta = new SessionDelta(_layout, _checksum);
+
+        delta.name(_name);
+
+        delta.difficulty(_difficulty);
+
+        delta.theme(_theme.fileName());
+
+        delta.seed(_seed);
+
+        delta.frame(_frame);
+
+        for (Player player : _players) delta.player(player.id(), player.point());
+
+        for (Profile profile : _hidden) delta.hide(profile.id());
+
+        for (Point point : _changes)
+        {
+            Element element = _grid.at(point);
+
+            delta.change(point, element == null ? null : element.kind());
+        }
+
+        for (DynamicObstacle obstacle : _grid.dynamicObstacles())
+        {
+            ObstacleSpec spec = _spec(obstacle);
+
+            if (spec != null) delta.obstacle(obstacle.point(), spec);
+        }
+
+        return delta;
     }
 
     /**
@@ -538,6 +1084,10 @@ public class LevelBuilder extends Data
 
         properties.setProperty("Theme", _theme.fileName());
 
+        properties.setProperty("Seed", Long.toString(_seed));
+
+        if (_frame > 0) properties.setProperty("Frame", Integer.toString(_frame));
+
         _serializeGrid(properties);
 
         _serializePlayers(properties);
@@ -576,10 +1126,38 @@ public class LevelBuilder extends Data
                         element.point().toStringPlain(),
                         Integer.toString(element.kind().code())
                 );
+
+                ObstacleSpec spec = _spec(element);
+
+                if (spec != null)
+                {
+                    properties.setProperty(
+                            "obstacle:" + element.point().toStringPlain(),
+                            spec.toString()
+                    );
+                }
             }
         }
     }
 
+    /**
+     *
+     * Returns the spec of an element, if it is a dynamic obstacle
+     * that does not just walk the labyrinth on its own.
+     *
+     * @param element The element.
+     *
+     * @return The ObstacleSpec of the element, or null if it needs none.
+     */
+    private static ObstacleSpec _spec(Element element)
+    {
+        if (! (element instanceof DynamicObstacle)) return null;
+
+        ObstacleSpec spec = ((DynamicObstacle) element).spec();
+
+        return spec.isDefault() ? null : spec;
+    }
+
     /**
      *
      * Helper method of serialize() to serialize the players.
@@ -619,20 +1197,15 @@ public class LevelBuilder extends Data
      *
      * Attempts to deserialize the difficulty, sets it to MEDIUM if not found.
      *
-     * @param serialization The Properties object to deserialize from.
+     * @param level The LevelFile to deserialize from.
      *
      * @return The difficulty.
      */
-    private Level.Difficulty _deserializeDifficulty(Properties serialization)
+    private Level.Difficulty _deserializeDifficulty(LevelFile level)
     {
         if (_difficulty != null) return _difficulty;
 
-        if (serialization.containsKey("Difficulty"))
-        {
-            return Level.Difficulty.valueOf(
-                    Data.pop(serialization, "Difficulty")
-            );
-        }
+        if (level.difficulty() != null) return level.difficulty();
 
         else return Level.Difficulty.MEDIUM;
     }
@@ -643,7 +1216,7 @@ public class LevelBuilder extends Data
      *
      * Side effect: _players are modified.
      *
-     * @param serialization The properties to deserialize from.
+     * @param level The LevelFile to deserialize from.
      *
      * @param remaining The remaining profiles.
      *
@@ -651,39 +1224,50 @@ public class LevelBuilder extends Data
      *
      */
     private Collection<Element>
-    _deserializeElements(Properties serialization,
+    _deserializeElements(LevelFile level,
                          Map<String, Profile> remaining)
     {
         _totalKeys = 0;
 
         // First need the players, so that we know
         // how many rows to reserve for the status bar.
-        // Players are stored as id:<id>=x,y|hidden
-        // so that (1) numeric ids don't clash with codes and
-        // (2), players standing on elements don't cause bad
-        // serialization and (3) players can be hidden.
-        for (String key : serialization.stringPropertyNames())
+        // Players are stored separately from the cells
+        // so that (1) players standing on elements don't
+        // cause bad serialization and (2) players can be hidden.
+        for (Map.Entry<String, Point> entry : level.players().entrySet())
         {
-            if (key.startsWith("id:"))
-            {
-                String value = serialization.getProperty(key);
-
-                _deserializePlayer(key, value, remaining);
-
-                // so that we're only left with game-elements
-                serialization.remove(key);
-            }
+            _deserializePlayer(entry.getKey(), entry.getValue(), remaining);
         }
 
         Collection<Element> elements = new ArrayList<>();
 
-        for (String key : serialization.stringPropertyNames())
+        int width = level.width();
+
+        for (int index = 0; index < level.cells(); ++index)
         {
-            String value = serialization.getProperty(key);
+            int cell = level.cell(index);
 
-            Element element = _deserializeGameElement(key, value);
+            // Empty
+            if (cell == 0) continue;
 
-            elements.add(element);
+            Point point = Point.of(index % width, index / width);
+
+            elements.add(_deserializeGameElement(
+                    point,
+                    cell - 1,
+                    level.obstacle(point.x(), point.y())
+            ));
+        }
+
+        for (Map.Entry<Point, Element.Kind> entry : level.outside().entrySet())
+        {
+            Point point = entry.getKey();
+
+            elements.add(_deserializeGameElement(
+                    point,
+                    entry.getValue().code(),
+                    level.obstacle(point.x(), point.y())
+            ));
         }
 
         return elements;
@@ -696,55 +1280,50 @@ public class LevelBuilder extends Data
      * haven't been loaded from the session. Some will be put at entrances,
      * the rest will be hidden.
      *
-     * @param key The key of the property.
+     * @param id The id of the player.
      *
-     * @param value The value of the property.
+     * @param point The point of the player, or null if it is hidden.
      *
      * @param remaining The non-mapped set of profiles.
      */
-    private void _deserializePlayer(String key,
-                                    String value,
+    private void _deserializePlayer(String id,
+                                    Point point,
                                     Map<String, Profile> remaining)
     {
-        // without the 'id:'
-        String id = key.substring(3);
-
         Profile profile = remaining.remove(id);
 
         if (profile == null) return;
 
-        if (value.equals("hidden")) _hidden.add(profile);
+        if (point == null) _hidden.add(profile);
 
-        else
-        {
-            Point point = new Point(value);
-
-            _players.add(new Player(point, profile));
-        }
+        else _players.add(new Player(point, profile));
     }
 
     /**
      *
      * Deserializes a non-player element (a "game element").
      *
-     * @param key The key of the property.
+     * @param point The point of the element.
      *
-     * @param value The value of the property.
+     * @param code The code with which the element is stored (e.g. 0 = wall).
+     *
+     * @param spec The spec of a dynamic obstacle, or null.
      *
      * @return The Element that was deserialized.
      */
-    private Element _deserializeGameElement(String key, String value)
+    private Element _deserializeGameElement(Point point,
+                                            int code,
+                                            ObstacleSpec spec)
     {
-        Point point = new Point(key);
-
-        int code = Integer.parseInt(value);
-
-        // Get the Element kind from the code with which the elements
-        // are stored (e.g. 0 = wall)
         Element.Kind kind = Element.Kind.fromCode(code);
 
         if (kind == Element.Kind.KEY) ++_totalKeys;
 
+        if (kind == Element.Kind.DYNAMIC_OBSTACLE && spec != null)
+        {
+            return spec.create(point, _theme.representation(kind));
+        }
+
         // Call the factory method
         return Element.Create(kind, point, _theme);
     }
@@ -756,14 +1335,13 @@ public class LevelBuilder extends Data
      *
      * Sets the _theme field.
      *
-     * @param serialization The properties to deserialize from.
+     * @param name The file name of the theme.
      */
-    private void _loadTheme(Properties serialization)
+    private void _loadTheme(String name)
     {
-        File file = new File(
-                "resources/themes",
-                Data.pop(serialization, "Theme")
-        );
+        assert(name != null);
+
+        File file = new File("resources/themes", name);
 
         try
         {
@@ -832,7 +1410,7 @@ public class LevelBuilder extends Data
 
     /**
      *
-     * Constructs the PageGrid.
+     * Constructs the PageGrid, with its chunks seeded from the seed of the level.
      *
      * @param elements The elements for the PageGrid.
      *
@@ -848,7 +1426,11 @@ public class LevelBuilder extends Data
         // terminalSize with space for the players and the level status
         TerminalSize terminalSize = _pageSize(numberOfPlayers);
 
-        return new PageGrid(_levelSize, terminalSize, elements);
+        PageGrid grid = new PageGrid(_levelSize, terminalSize, elements);
+
+        grid.chunks().seed(_seed);
+
+        return grid;
     }
 
     /**
@@ -885,7 +1467,7 @@ public class LevelBuilder extends Data
      */
     private TerminalSize _pageSize(int remaining)
     {
-        TerminalSize size = _gui.getScreen().getTerminalSize();
+        TerminalSize size = _terminalSize;
 
         int columns = size.getColumns();
 
@@ -908,6 +1490,131 @@ public class LevelBuilder extends Data
         return new TerminalSize(columns, rows);
     }
 
+    /**
+     *
+     * Converts session properties to a LevelFile,
+     * asserting that they are a proper session.
+     *
+     * @param session The session properties.
+     *
+     * @return The LevelFile.
+     */
+    private static LevelFile _session(Properties session)
+    {
+        assert(session != null);
+        assert(session.containsKey("Name"));
+
+        return LevelFile.fromProperties(session);
+    }
+
+    /**
+     *
+     * Converts layout properties to a LevelFile.
+     *
+     * @param layout The layout properties.
+     *
+     * @return The LevelFile.
+     */
+    private static LevelFile _layout(Properties layout)
+    {
+        assert(layout != null);
+
+        return LevelFile.fromProperties(layout);
+    }
+
+    /**
+     *
+     * Returns the size of the terminal of a GUIScreen,
+     * asserting that there is a GUIScreen at all.
+     *
+     * @param gui The GUIScreen.
+     *
+     * @return The size of the GUIScreen's terminal.
+     */
+    private static TerminalSize _sizeOf(GUIScreen gui)
+    {
+        assert(gui != null);
+
+        return gui.getScreen().getTerminalSize();
+    }
+
+    /**
+     * Writes a level or session to an OutputStream.
+     */
+    @FunctionalInterface
+    private interface Output
+    {
+        void write(OutputStream stream) throws IOException;
+    }
+
+    /**
+     *
+     * Writes a file such that it is either written completely or not
+     * at all: the data goes to a temporary file first, which is synced
+     * to the disk and only then moved to its actual path.
+     *
+     * @param file The file to write.
+     *
+     * @param output Writes the data to the temporary file.
+     *
+     * @return The file.
+     *
+     * @throws IOException for I/O badness.
+     */
+    private static File _write(File file, Output output) throws IOException
+    {
+        File temporary = new File(file.getPath() + ".tmp");
+
+        try (FileOutputStream stream = new FileOutputStream(temporary))
+        {
+            output.write(stream);
+
+            stream.getFD().sync();
+        }
+
+        try
+        {
+            Files.move(
+                    temporary.toPath(),
+                    file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE
+            );
+        }
+
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(
+                    temporary.toPath(),
+                    file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING
+            );
+        }
+
+        return file;
+    }
+
+    /**
+     *
+     * Reads a layout file and marks the level as based on it,
+     * so that its sessions can be stored as a delta.
+     *
+     * @param file The layout file.
+     *
+     * @return The LevelFile of the layout.
+     *
+     * @throws IOException for I/O badness.
+     */
+    private static LevelFile _base(File file) throws IOException
+    {
+        LevelFile level = LevelFile.read(file);
+
+        // Don't rebase sessions that were passed as layouts
+        if (level.layout() == null) level.layout(file.getPath());
+
+        return level;
+    }
+
     /**
      *
      * Maps a list profiles to a Map from the player IDs to the profiles.
@@ -945,5 +1652,17 @@ public class LevelBuilder extends Data
 
     private GUIScreen _gui;
 
+    private TerminalSize _terminalSize;
+
     private Level.Difficulty _difficulty;
+
+    private String _layout;
+
+    private long _checksum;
+
+    private long _seed;
+
+    private int _frame;
+
+    private Set<Point> _changes = new HashSet<>();
 }
@@ -0,0 +1,1145 @@
+package capstone.utility;
+
+import capstone.element.DynamicObstacle;
+import capstone.element.Element;
+import capstone.element.ObstacleSpec;
+import capstone.element.PatternObstacle;
+import capstone.game.Level;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A LevelFile is the raw content of a layout or session: a small header
+ * (name, size, difficulty, theme, seed and players) and the kind of element in
+ * every cell of the level, stored as one byte per cell.
+ *
+ * Besides the usual properties format (one "x,y=code" line per element,
+ * plus an "obstacle:x,y=spec" line for every dynamic obstacle that does not
+ * just walk the labyrinth on its own, see ObstacleSpec, and in older files
+ * "pattern:x,y=pattern" lines for obstacles following a Pattern),
+ * a LevelFile can be stored in a compact binary format, in which the cells
+ * are run-length encoded. Binary files are read through a memory-mapped
+ * FileChannel, so even the largest levels load without a single String,
+ * Matcher or Properties object per element. Binary files are recognized by
+ * their magic number, not their extension, so read() accepts both formats.
+ * Text files are mapped as well and parsed by a LevelParser.
+ *
+ * The binary format is (all numbers big-endian):
+ *
+ * int    magic ("CLVL")
+ * byte   version
+ * string name (empty if none)
+ * int    width
+ * int    height
+ * byte   difficulty (ordinal, -1 if none)
+ * string theme (empty if none)
+ * long   seed (since version 2)
+ * varint frame (since version 5)
+ * int    number of players
+ *        for each player: string id, int x, int y (x = -1 if hidden)
+ * runs   until all width * height cells (row by row) are covered:
+ *        byte cell (0 = empty, else element code + 1), varint run-length
+ * int    number of elements outside the width and height
+ *        for each element: int x, int y, byte code
+ * int    number of pattern obstacles (only version 3)
+ *        for each obstacle: int x, int y, string pattern
+ * int    number of obstacle specs (since version 4)
+ *        for each obstacle: int x, int y, spec
+ *
+ * where strings are an unsigned short length and that many UTF-8 bytes,
+ * and specs are a byte behavior code, a string pattern (empty if that of
+ * the behavior is used), and varints radius, period, rest and state.
+ *
+ * The seed of a level is where all of its randomness comes from, so a
+ * level played with the same seed and input plays out the same way. Files
+ * without a seed are seeded with their checksum. Sessions hold the seed
+ * the world was reseeded with when it was saved (see World.reseed()) and
+ * the number of ticks since the dynamic obstacles last moved, the frame,
+ * so that a resumed game goes on exactly like the one that was saved.
+ *
+ * Some old layouts have elements beyond their width and height, which
+ * still end up on the (terminal-sized) pages, so those are kept as well.
+ *
+ * To convert existing files: LevelFile [input] [output]
+ */
+public class LevelFile
+{
+    /**
+     * The extension of binary level files.
+     */
+    public static final String EXTENSION = "level";
+
+    /**
+     *
+     * Converts a .layout or .session file to the binary format.
+     *
+     * @param args The input file and, optionally, the output file.
+     *             By default, the output file is the input file
+     *             with the extension replaced by .level.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1 || args.length > 2)
+        {
+            System.err.println("Usage: LevelFile <input> [<output>]");
+
+            System.exit(1);
+        }
+
+        File input = new File(args[0]);
+
+        File output;
+
+        if (args.length == 2) output = new File(args[1]);
+
+        else
+        {
+            String name = input.getName();
+
+            int dot = name.lastIndexOf('.');
+
+            if (dot != -1) name = name.substring(0, dot);
+
+            output = new File(input.getParentFile(), name + "." + EXTENSION);
+        }
+
+        read(input).write(output);
+    }
+
+    /**
+     *
+     * Reads a level from a file in either the binary or properties format.
+     *
+     * If the level does not have a name, the name of the
+     * file (without its extension) is used as the name.
+     *
+     * Session deltas are applied to the layout they are based on.
+     *
+     * @param file The file to read.
+     *
+     * @return The LevelFile.
+     *
+     * @throws IOException for I/O badness or a corrupt file.
+     */
+    public static LevelFile read(File file) throws IOException
+    {
+        assert(file != null);
+
+        LevelFile level;
+
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    0,
+                    channel.size()
+            );
+
+            // Sessions saved as a delta are applied to their layout,
+            // which carries the checksum of the layout file instead.
+            if (SessionDelta.isDelta(buffer))
+            {
+                return SessionDelta.decode(buffer).apply();
+            }
+
+            CRC32 checksum = new CRC32();
+
+            checksum.update(buffer.duplicate());
+
+            // Text files go through the streaming parser
+            // rather than a Properties table.
+            if (_isBinary(buffer)) level = decode(buffer);
+
+            else level = LevelParser.parse(buffer);
+
+            level._checksum = checksum.getValue();
+        }
+
+        if (! level._seeded) level.seed(level._checksum);
+
+        if (level.name() == null) level.name(_baseName(file));
+
+        return level;
+    }
+
+    /**
+     *
+     * Tests if a file is in the binary format, by its magic number.
+     *
+     * @param file The file to test.
+     *
+     * @return True if the file starts with the magic number, else false.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public static boolean isBinary(File file) throws IOException
+    {
+        try (InputStream stream = new FileInputStream(file))
+        {
+            int magic = 0;
+
+            for (int i = 0; i < 4; ++i)
+            {
+                int next = stream.read();
+
+                if (next == -1) return false;
+
+                magic = (magic << 8) | next;
+            }
+
+            return magic == MAGIC;
+        }
+    }
+
+    /**
+     *
+     * Decodes a binary level, e.g. one embedded in another file.
+     * The buffer is left right after the level.
+     *
+     * @param buffer The buffer holding the binary level.
+     *
+     * @return The LevelFile.
+     *
+     * @throws IOException for a corrupt level.
+     */
+    public static LevelFile decode(ByteBuffer buffer) throws IOException
+    {
+        try
+        {
+            if (buffer.getInt() != MAGIC)
+            {
+                throw new IOException("Not a binary level file");
+            }
+
+            byte version = buffer.get();
+
+            if (version < 1 || version > VERSION)
+            {
+                throw new IOException("Unsupported binary level version");
+            }
+
+            String name = readString(buffer);
+
+            LevelFile level = new LevelFile(buffer.getInt(), buffer.getInt());
+
+            level.name(name);
+
+            byte difficulty = buffer.get();
+
+            if (difficulty != -1)
+            {
+                level.difficulty(Level.Difficulty.values()[difficulty]);
+            }
+
+            level.theme(readString(buffer));
+
+            if (version >= 2) level.seed(buffer.getLong());
+
+            if (version >= 5) level.frame(readVarint(buffer));
+
+            for (int players = buffer.getInt(); players > 0; --players)
+            {
+                String id = readString(buffer);
+
+                int x = buffer.getInt();
+                int y = buffer.getInt();
+
+                if (x == -1) level.hide(id);
+
+                else level.player(id, Point.of(x, y));
+            }
+
+            byte[] cells = level._cells;
+
+            for (int start = 0; start < cells.length; )
+            {
+                byte cell = buffer.get();
+
+                int end = start + readVarint(buffer);
+
+                if (end > cells.length)
+                {
+                    throw new IOException("Corrupt binary level file");
+                }
+
+                // Empty cells are already zero.
+                if (cell != 0) Arrays.fill(cells, start, end, cell);
+
+                start = end;
+            }
+
+            for (int outside = buffer.getInt(); outside > 0; --outside)
+            {
+                int x = buffer.getInt();
+                int y = buffer.getInt();
+
+                level.kind(x, y, Element.Kind.fromCode(buffer.get()));
+            }
+
+            if (version == 3)
+            {
+                for (int patterns = buffer.getInt(); patterns > 0; --patterns)
+                {
+                    int x = buffer.getInt();
+                    int y = buffer.getInt();
+
+                    Pattern pattern = new Pattern(readString(buffer));
+
+                    level.obstacle(x, y, new ObstacleSpec(pattern));
+                }
+            }
+
+            if (version >= 4)
+            {
+                for (int obstacles = buffer.getInt(); obstacles > 0; --obstacles)
+                {
+                    int x = buffer.getInt();
+                    int y = buffer.getInt();
+
+                    level.obstacle(x, y, readObstacle(buffer));
+                }
+            }
+
+            return level;
+        }
+
+        // Behavior.fromCode() throws AssertionErrors for unknown codes
+        catch (RuntimeException | AssertionError e)
+        {
+            throw new IOException("Corrupt binary level file", e);
+        }
+    }
+
+    /**
+     *
+     * Converts the properties of a layout or session to a LevelFile.
+     *
+     * @param properties The properties, which must contain
+     *                   at least the Width and Height.
+     *
+     * @return The LevelFile.
+     */
+    public static LevelFile fromProperties(Properties properties)
+    {
+        assert(properties != null);
+        assert(properties.containsKey("Width"));
+        assert(properties.containsKey("Height"));
+
+        LevelFile level = new LevelFile(
+                Integer.parseInt(properties.getProperty("Width")),
+                Integer.parseInt(properties.getProperty("Height"))
+        );
+
+        for (String key : properties.stringPropertyNames())
+        {
+            String value = properties.getProperty(key);
+
+            switch (key)
+            {
+                case "Width":
+                case "Height":
+                    break;
+
+                case "Name":
+                    level.name(value);
+                    break;
+
+                case "Theme":
+                    level.theme(value);
+                    break;
+
+                case "Difficulty":
+                    level.difficulty(Level.Difficulty.valueOf(value));
+                    break;
+
+                case "Seed":
+                    level.seed(Long.parseLong(value));
+                    break;
+
+                case "Frame":
+                    level.frame(Integer.parseInt(value));
+                    break;
+
+                default:
+                {
+                    // Players are stored as id:<id>=x,y|hidden
+                    if (key.startsWith("id:"))
+                    {
+                        String id = key.substring(3);
+
+                        if (value.equals("hidden")) level.hide(id);
+
+                        else level.player(id, Point.of(value));
+                    }
+
+                    // Obstacle specs as obstacle:x,y=spec
+                    else if (key.startsWith("obstacle:"))
+                    {
+                        Point point = Point.of(key.substring(9));
+
+                        ObstacleSpec spec = ObstacleSpec.of(value);
+
+                        level.obstacle(point.x(), point.y(), spec);
+                    }
+
+                    // Older files have pattern:x,y=pattern
+                    else if (key.startsWith("pattern:"))
+                    {
+                        Point point = Point.of(key.substring(8));
+
+                        ObstacleSpec spec = new ObstacleSpec(new Pattern(value));
+
+                        level.obstacle(point.x(), point.y(), spec);
+                    }
+
+                    else
+                    {
+                        Point point = Point.of(key);
+
+                        level.kind(
+                                point.x(),
+                                point.y(),
+                                Element.Kind.fromCode(Integer.parseInt(value))
+                        );
+                    }
+                }
+            }
+        }
+
+        return level;
+    }
+
+    /**
+     *
+     * Constructs an empty LevelFile of the given size.
+     *
+     * @param width The width of the level (number of columns).
+     *
+     * @param height The height of the level (number of rows).
+     */
+    public LevelFile(int width, int height)
+    {
+        assert(width > 0);
+        assert(height > 0);
+
+        _width = width;
+
+        _height = height;
+
+        _cells = new byte[width * height];
+
+        _players = new LinkedHashMap<>();
+
+        _outside = new LinkedHashMap<>();
+
+        _obstacles = new LinkedHashMap<>();
+
+        _changes = new LinkedHashSet<>();
+    }
+
+    /**
+     *
+     * Writes the level to a file in the binary format.
+     *
+     * @param file The file to write to.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public void write(File file) throws IOException
+    {
+        assert(file != null);
+
+        try (OutputStream stream = new FileOutputStream(file))
+        {
+            write(stream);
+        }
+    }
+
+    /**
+     *
+     * Writes the level to a stream in the binary format.
+     *
+     * @param stream The stream to write to. It is not closed.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public void write(OutputStream stream) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(stream)
+        );
+
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+
+        writeString(output, _name);
+
+        output.writeInt(_width);
+        output.writeInt(_height);
+
+        output.writeByte(_difficulty == null ? -1 : _difficulty.ordinal());
+
+        writeString(output, _theme);
+
+        output.writeLong(_seed);
+
+        writeVarint(output, _frame);
+
+        output.writeInt(_players.size());
+
+        for (Map.Entry<String, Point> entry : _players.entrySet())
+        {
+            writeString(output, entry.getKey());
+
+            Point point = entry.getValue();
+
+            output.writeInt(point == null ? -1 : point.x());
+            output.writeInt(point == null ? -1 : point.y());
+        }
+
+        for (int start = 0; start < _cells.length; )
+        {
+            byte cell = _cells[start];
+
+            int end = start + 1;
+
+            while (end < _cells.length && _cells[end] == cell) ++end;
+
+            output.writeByte(cell);
+
+            writeVarint(output, end - start);
+
+            start = end;
+        }
+
+        output.writeInt(_outside.size());
+
+        for (Map.Entry<Point, Element.Kind> entry : _outside.entrySet())
+        {
+            output.writeInt(entry.getKey().x());
+            output.writeInt(entry.getKey().y());
+
+            output.writeByte(entry.getValue().code());
+        }
+
+        output.writeInt(_obstacles.size());
+
+        for (Map.Entry<Point, ObstacleSpec> entry : _obstacles.entrySet())
+        {
+            output.writeInt(entry.getKey().x());
+            output.writeInt(entry.getKey().y());
+
+            writeObstacle(output, entry.getValue());
+        }
+
+        output.flush();
+    }
+
+    /**
+     * @return The name of the level, or null if it has none.
+     */
+    public String name()
+    {
+        return _name;
+    }
+
+    /**
+     *
+     * Sets the name of the level.
+     *
+     * @param name The new name (may be null).
+     */
+    public void name(String name)
+    {
+        _name = name;
+    }
+
+    /**
+     * @return The width of the level.
+     */
+    public int width()
+    {
+        return _width;
+    }
+
+    /**
+     * @return The height of the level.
+     */
+    public int height()
+    {
+        return _height;
+    }
+
+    /**
+     * @return The difficulty of the level, or null if none is stored.
+     */
+    public Level.Difficulty difficulty()
+    {
+        return _difficulty;
+    }
+
+    /**
+     *
+     * Sets the difficulty of the level.
+     *
+     * @param difficulty The new difficulty (may be null).
+     */
+    public void difficulty(Level.Difficulty difficulty)
+    {
+        _difficulty = difficulty;
+    }
+
+    /**
+     * @return The file name of the theme of the level, or null if none.
+     */
+    public String theme()
+    {
+        return _theme;
+    }
+
+    /**
+     *
+     * Sets the file name of the theme of the level.
+     *
+     * @param theme The file name of the theme (may be null).
+     */
+    public void theme(String theme)
+    {
+        _theme = theme;
+    }
+
+    /**
+     *
+     * Returns the kind of element in a cell.
+     *
+     * @param x The x-coordinate of the cell.
+     *
+     * @param y The y-coordinate of the cell.
+     *
+     * @return The kind of element in the cell, or null if it is empty.
+     */
+    public Element.Kind kind(int x, int y)
+    {
+        if (_isOutside(x, y)) return _outside.get(Point.of(x, y));
+
+        int cell = _cells[_indexOf(x, y)];
+
+        if (cell == 0) return null;
+
+        return Element.Kind.fromCode(cell - 1);
+    }
+
+    /**
+     *
+     * Sets the kind of element in a cell.
+     *
+     * @param x The x-coordinate of the cell.
+     *
+     * @param y The y-coordinate of the cell.
+     *
+     * @param kind The kind of element, or null to empty the cell.
+     */
+    public void kind(int x, int y, Element.Kind kind)
+    {
+        if (_isOutside(x, y))
+        {
+            if (kind == null) _outside.remove(Point.of(x, y));
+
+            else _outside.put(Point.of(x, y), kind);
+
+            return;
+        }
+
+        _cells[_indexOf(x, y)] = (byte) (kind == null ? 0 : kind.code() + 1);
+    }
+
+    /**
+     *
+     * Returns the raw cell code, which is 0 for empty cells and
+     * else the element code plus one. Cells are stored row by row.
+     *
+     * @param index The index of the cell (y * width + x).
+     *
+     * @return The cell code.
+     */
+    public int cell(int index)
+    {
+        return _cells[index];
+    }
+
+    /**
+     * @return The number of cells, i.e. width * height.
+     */
+    public int cells()
+    {
+        return _cells.length;
+    }
+
+    /**
+     * @return The elements beyond the width and height
+     *         of the level, mapped from their points.
+     */
+    public Map<Point, Element.Kind> outside()
+    {
+        return Collections.unmodifiableMap(_outside);
+    }
+
+    /**
+     *
+     * Returns the spec of the dynamic obstacle in a cell.
+     *
+     * @param x The x-coordinate of the cell.
+     *
+     * @param y The y-coordinate of the cell.
+     *
+     * @return The ObstacleSpec, or null if the cell holds no dynamic
+     *         obstacle or one that just walks the labyrinth on its own.
+     */
+    public ObstacleSpec obstacle(int x, int y)
+    {
+        if (_obstacles.isEmpty()) return null;
+
+        return _obstacles.get(Point.of(x, y));
+    }
+
+    /**
+     *
+     * Sets the spec of the dynamic obstacle in a cell. The spec
+     * is ignored if the cell does not hold a dynamic obstacle.
+     *
+     * @param x The x-coordinate of the cell.
+     *
+     * @param y The y-coordinate of the cell.
+     *
+     * @param spec The ObstacleSpec, or null to let the
+     *             obstacle walk the labyrinth on its own.
+     */
+    public void obstacle(int x, int y, ObstacleSpec spec)
+    {
+        if (spec == null) _obstacles.remove(Point.of(x, y));
+
+        else _obstacles.put(Point.of(x, y), spec);
+    }
+
+    /**
+     * @return The specs of the dynamic obstacles, mapped from their points.
+     */
+    public Map<Point, ObstacleSpec> obstacles()
+    {
+        return Collections.unmodifiableMap(_obstacles);
+    }
+
+    /**
+     * Forgets the specs of all dynamic obstacles, e.g. to
+     * replace those of a layout with those of a session.
+     */
+    public void clearObstacles()
+    {
+        _obstacles.clear();
+    }
+
+    /**
+     *
+     * Places a player in the level.
+     *
+     * @param id The id of the player.
+     *
+     * @param point The point of the player.
+     */
+    public void player(String id, Point point)
+    {
+        assert(id != null);
+        assert(point != null);
+
+        _players.put(id, point);
+    }
+
+    /**
+     *
+     * Marks a player as hidden in the level.
+     *
+     * @param id The id of the player.
+     */
+    public void hide(String id)
+    {
+        assert(id != null);
+
+        _players.put(id, null);
+    }
+
+    /**
+     * @return The players in the level, mapped from ids to their
+     *         points. Hidden players are mapped to null.
+     */
+    public Map<String, Point> players()
+    {
+        return Collections.unmodifiableMap(_players);
+    }
+
+    /**
+     * @return The path of the layout file this level is based on,
+     *         or null if it is not based on a layout file (i.e.
+     *         it was read from a full session).
+     */
+    public String layout()
+    {
+        return _layout;
+    }
+
+    /**
+     *
+     * Marks the level as based on a layout file, so
+     * that its sessions can be stored as a delta.
+     *
+     * @param layout The path of the layout file.
+     */
+    public void layout(String layout)
+    {
+        _layout = layout;
+    }
+
+    /**
+     * @return The seed of the level, or 0 if it has none.
+     */
+    public long seed()
+    {
+        return _seed;
+    }
+
+    /**
+     * @param seed The new seed of the level.
+     */
+    public void seed(long seed)
+    {
+        _seed = seed;
+
+        _seeded = true;
+    }
+
+    /**
+     * @return The number of ticks since the dynamic obstacles
+     *         last moved, 0 for a layout.
+     */
+    public int frame()
+    {
+        return _frame;
+    }
+
+    /**
+     * @param frame The number of ticks since the dynamic obstacles last moved.
+     */
+    public void frame(int frame)
+    {
+        if (frame < 0) throw new IllegalArgumentException("Negative frame");
+
+        _frame = frame;
+    }
+
+    /**
+     * @return The CRC32 of the file the level (or its layout)
+     *         was read from, or 0 if it was not read from a file.
+     */
+    public long checksum()
+    {
+        return _checksum;
+    }
+
+    /**
+     *
+     * Changes the kind of element in a cell relative to the layout
+     * and remembers the point, so that the change is saved again.
+     *
+     * @param x The x-coordinate of the cell.
+     *
+     * @param y The y-coordinate of the cell.
+     *
+     * @param kind The kind of element, or null to empty the cell.
+     */
+    public void change(int x, int y, Element.Kind kind)
+    {
+        kind(x, y, kind);
+
+        _changes.add(Point.of(x, y));
+    }
+
+    /**
+     * @return The points of the cells that were changed relative to the
+     *         layout. Only non-empty if the level was read from a delta.
+     */
+    public Set<Point> changes()
+    {
+        return Collections.unmodifiableSet(_changes);
+    }
+
+    /**
+     *
+     * Tests if a buffer starts with the magic number, without
+     * moving its position.
+     *
+     * @param buffer The buffer to test.
+     *
+     * @return True if the buffer holds a binary level, else false.
+     */
+    private static boolean _isBinary(ByteBuffer buffer)
+    {
+        return buffer.remaining() >= 4 &&
+               buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     *
+     * Writes a string as its length and UTF-8 bytes.
+     *
+     * @param output The stream to write to.
+     *
+     * @param string The string to write. Null is written as empty.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public static void writeString(DataOutputStream output, String string)
+            throws IOException
+    {
+        byte[] bytes = string == null ?
+                new byte[0] :
+                string.getBytes(StandardCharsets.UTF_8);
+
+        assert(bytes.length <= 0xFFFF);
+
+        output.writeShort(bytes.length);
+
+        output.write(bytes);
+    }
+
+    /**
+     *
+     * Reads a string written by writeString.
+     *
+     * @param buffer The buffer to read from.
+     *
+     * @return The string, or null if it is empty.
+     */
+    public static String readString(ByteBuffer buffer)
+    {
+        int length = buffer.getShort() & 0xFFFF;
+
+        if (length == 0) return null;
+
+        byte[] bytes = new byte[length];
+
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     *
+     * Writes a non-negative int in as few bytes as possible,
+     * seven bits at a time, least significant bits first.
+     *
+     * @param output The stream to write to.
+     *
+     * @param value The value to write.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public static void writeVarint(DataOutputStream output, int value)
+            throws IOException
+    {
+        assert(value >= 0);
+
+        while ((value & ~0x7F) != 0)
+        {
+            output.writeByte((value & 0x7F) | 0x80);
+
+            value >>>= 7;
+        }
+
+        output.writeByte(value);
+    }
+
+    /**
+     *
+     * Reads an int written by writeVarint.
+     *
+     * @param buffer The buffer to read from.
+     *
+     * @return The value.
+     *
+     * @throws IOException for a malformed value.
+     */
+    public static int readVarint(ByteBuffer buffer) throws IOException
+    {
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7)
+        {
+            byte next = buffer.get();
+
+            value |= (next & 0x7F) << shift;
+
+            if ((next & 0x80) == 0) return value;
+        }
+
+        throw new IOException("Malformed run-length");
+    }
+
+    /**
+     *
+     * Writes the spec of a dynamic obstacle.
+     *
+     * @param output The stream to write to.
+     *
+     * @param spec The spec to write.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public static void writeObstacle(DataOutputStream output, ObstacleSpec spec)
+            throws IOException
+    {
+        output.writeByte(spec.behavior().code());
+
+        boolean pattern = spec.behavior() == DynamicObstacle.Behavior.PATTERN;
+
+        writeString(output, pattern ? spec.pattern().toString() : null);
+
+        writeVarint(output, spec.radius());
+        writeVarint(output, spec.period());
+        writeVarint(output, spec.rest());
+        writeVarint(output, spec.state());
+    }
+
+    /**
+     *
+     * Reads the spec of a dynamic obstacle written by writeObstacle.
+     *
+     * @param buffer The buffer to read from.
+     *
+     * @return The spec.
+     *
+     * @throws IOException for a malformed spec.
+     *
+     * @throws IllegalArgumentException for values out of range.
+     */
+    public static ObstacleSpec readObstacle(ByteBuffer buffer) throws IOException
+    {
+        int code = buffer.get();
+
+        String pattern = readString(buffer);
+
+        return ObstacleSpec.of(
+                code,
+                pattern == null ? PatternObstacle.DEFAULT : new Pattern(pattern),
+                readVarint(buffer),
+                readVarint(buffer),
+                readVarint(buffer),
+                readVarint(buffer)
+        );
+    }
+
+    /**
+     *
+     * Returns the name of a file without its extension.
+     *
+     * @param file The file.
+     *
+     * @return The name of the file, without extension.
+     */
+    private static String _baseName(File file)
+    {
+        String name = file.getName();
+
+        int dot = name.lastIndexOf('.');
+
+        return dot == -1 ? name : name.substring(0, dot);
+    }
+
+    /**
+     *
+     * @param x The x-coordinate of a point.
+     *
+     * @param y The y-coordinate of a point.
+     *
+     * @return True if the point is beyond the width or height.
+     */
+    private boolean _isOutside(int x, int y)
+    {
+        return x >= _width || y >= _height;
+    }
+
+    /**
+     *
+     * @param x The x-coordinate of a cell.
+     *
+     * @param y The y-coordinate of a cell.
+     *
+     * @return The index of the cell.
+     */
+    private int _indexOf(int x, int y)
+    {
+        assert(x >= 0 && x < _width);
+        assert(y >= 0 && y < _height);
+
+        return y * _width + x;
+    }
+
+    /**
+     * "CLVL"
+     */
+    private static final int MAGIC = 0x434C564C;
+
+    private static final byte VERSION = 5;
+
+    private String _name;
+
+    private final int _width;
+
+    private final int _height;
+
+    private Level.Difficulty _difficulty;
+
+    private String _theme;
+
+    private final byte[] _cells;
+
+    private final Map<String, Point> _players;
+
+    private final Map<Point, Element.Kind> _outside;
+
+    private final Map<Point, ObstacleSpec> _obstacles;
+
+    private String _layout;
+
+    private long _checksum;
+
+    private long _seed;
+
+    private boolean _seeded;
+
+    private int _frame;
+
+    private final Set<Point> _changes;
+}
@@ -0,0 +1,609 @@
+package capstone.utility;
+
+import capstone.element.Element;
+import capstone.element.ObstacleSpec;
+import capstone.game.Level;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single-pass reader for layouts and sessions in the text (properties)
+ * format, which parses the bytes of a file straight into a LevelFile.
+ *
+ * Loading through java.util.Properties means one synchronized Hashtable
+ * entry, two Strings and a regex match for every element of the level,
+ * which for the big layouts is many times the size of the level itself.
+ * The parser instead reads "x,y=code" lines as numbers and writes them
+ * into the cells of the LevelFile directly, without a single object per
+ * element. Everything else (the name, theme, players, escaped keys and
+ * unusual formatting) goes through a slower path that follows the rules
+ * of Properties.load(), so any file Properties can read, this can too.
+ *
+ * The properties format has no order, so elements may come before the
+ * Width and Height. Those are kept packed in a long array until the size
+ * of the level is known, after which elements go into the cells.
+ */
+public class LevelParser
+{
+    /**
+     *
+     * Parses a layout or session in the properties format.
+     *
+     * @param buffer The bytes of the file (ISO 8859-1, like Properties).
+     *
+     * @return The LevelFile.
+     *
+     * @throws IOException for a malformed file or missing Width/Height.
+     */
+    public static LevelFile parse(ByteBuffer buffer) throws IOException
+    {
+        assert(buffer != null);
+
+        try
+        {
+            return new LevelParser(buffer)._parse();
+        }
+
+        // Element.Kind.fromCode() throws AssertionErrors for unknown codes
+        catch (RuntimeException | AssertionError e)
+        {
+            throw new IOException("Malformed level file", e);
+        }
+    }
+
+    /**
+     *
+     * Constructs a LevelParser.
+     *
+     * @param buffer The bytes to parse.
+     */
+    private LevelParser(ByteBuffer buffer)
+    {
+        _buffer = buffer;
+
+        _key = new StringBuilder();
+
+        _value = new StringBuilder();
+
+        _players = new LinkedHashMap<>();
+
+        _obstacles = new LinkedHashMap<>();
+
+        _pending = new long[64];
+    }
+
+    /**
+     *
+     * Parses all lines of the buffer.
+     *
+     * @return The LevelFile.
+     *
+     * @throws IOException for missing Width/Height.
+     */
+    private LevelFile _parse() throws IOException
+    {
+        while (_skipWhitespace())
+        {
+            byte next = _buffer.get(_buffer.position());
+
+            if (next == '#' || next == '!') _comment();
+
+            else if (! _element()) _entry();
+        }
+
+        if (_level == null)
+        {
+            throw new IOException("Level file has no Width or Height");
+        }
+
+        _level.name(_name);
+
+        _level.theme(_theme);
+
+        _level.difficulty(_difficulty);
+
+        if (_seed != null) _level.seed(_seed);
+
+        _level.frame(_frame);
+
+        for (Map.Entry<String, String> entry : _players.entrySet())
+        {
+            if (entry.getValue().equals("hidden")) _level.hide(entry.getKey());
+
+            else _level.player(entry.getKey(), Point.of(entry.getValue()));
+        }
+
+        for (Map.Entry<Point, ObstacleSpec> entry : _obstacles.entrySet())
+        {
+            Point point = entry.getKey();
+
+            _level.obstacle(point.x(), point.y(), entry.getValue());
+        }
+
+        return _level;
+    }
+
+    /**
+     *
+     * The fast path: attempts to read a line of the exact form
+     * "x,y=code" (or with a colon, and with blanks around the
+     * separator). If the line is anything else, the position
+     * is reset and the line is left for _entry().
+     *
+     * @return True if the line was an element and was read, else false.
+     */
+    private boolean _element()
+    {
+        int start = _buffer.position();
+
+        int x = _number();
+
+        if (x != -1 && _expect(','))
+        {
+            int y = _number();
+
+            _skipBlanks();
+
+            if (y != -1 && (_expect('=') || _expect(':')))
+            {
+                _skipBlanks();
+
+                int code = _number();
+
+                _skipBlanks();
+
+                if (code != -1 && _endOfLine())
+                {
+                    _put(x, y, code);
+
+                    return true;
+                }
+            }
+        }
+
+        _buffer.position(start);
+
+        return false;
+    }
+
+    /**
+     * The slow path: reads a logical line like Properties.load(),
+     * i.e. with escapes, line continuations and any separator.
+     */
+    private void _entry()
+    {
+        _key.setLength(0);
+
+        _value.setLength(0);
+
+        // The key ends at the first unescaped separator or blank
+        while (_buffer.hasRemaining())
+        {
+            byte next = _buffer.get(_buffer.position());
+
+            if (_isSeparator(next) || _isBlank(next) || _isNewline(next)) break;
+
+            _char(_key);
+        }
+
+        _skipBlanks();
+
+        if (_expect('=') || _expect(':')) _skipBlanks();
+
+        while (_buffer.hasRemaining())
+        {
+            if (_isNewline(_buffer.get(_buffer.position()))) break;
+
+            _char(_value);
+        }
+
+        _property(_key.toString(), _value.toString());
+    }
+
+    /**
+     *
+     * Handles a key-value pair read by the slow path.
+     *
+     * @param key The (unescaped) key.
+     *
+     * @param value The (unescaped) value.
+     */
+    private void _property(String key, String value)
+    {
+        switch (key)
+        {
+            case "Width":
+                _width = Integer.parseInt(value);
+                _sizeKnown();
+                break;
+
+            case "Height":
+                _height = Integer.parseInt(value);
+                _sizeKnown();
+                break;
+
+            case "Name":
+                _name = value;
+                break;
+
+            case "Theme":
+                _theme = value;
+                break;
+
+            case "Difficulty":
+                _difficulty = Level.Difficulty.valueOf(value);
+                break;
+
+            case "Seed":
+                _seed = Long.valueOf(value);
+                break;
+
+            case "Frame":
+                _frame = Integer.parseInt(value);
+                break;
+
+            default:
+            {
+                // Players are stored as id:<id>=x,y|hidden
+                if (key.startsWith("id:")) _players.put(key.substring(3), value);
+
+                // Obstacle specs as obstacle:x,y=spec
+                else if (key.startsWith("obstacle:"))
+                {
+                    _obstacles.put(Point.of(key.substring(9)), ObstacleSpec.of(value));
+                }
+
+                // Older files have pattern:x,y=pattern
+                else if (key.startsWith("pattern:"))
+                {
+                    ObstacleSpec spec = new ObstacleSpec(new Pattern(value));
+
+                    _obstacles.put(Point.of(key.substring(8)), spec);
+                }
+
+                else
+                {
+                    Point point = Point.of(key);
+
+                    _put(point.x(), point.y(), Integer.parseInt(value));
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * Puts an element into the level or, if its size
+     * is not yet known, into the pending elements.
+     *
+     * @param x The x-coordinate of the element.
+     *
+     * @param y The y-coordinate of the element.
+     *
+     * @param code The code of the element's kind.
+     */
+    private void _put(int x, int y, int code)
+    {
+        Element.Kind kind = Element.Kind.fromCode(code);
+
+        if (_level != null)
+        {
+            _level.kind(x, y, kind);
+
+            return;
+        }
+
+        if (y > PACKED_Y_MASK)
+        {
+            throw new IllegalArgumentException("Coordinate out of range");
+        }
+
+        if (_pendingSize == _pending.length)
+        {
+            _pending = Arrays.copyOf(_pending, _pendingSize * 2);
+        }
+
+        _pending[_pendingSize++] = ((long) x << 32) | ((long) y << 8) | kind.code();
+    }
+
+    /**
+     * Creates the LevelFile once both the Width and
+     * Height are known and moves the pending elements in.
+     */
+    private void _sizeKnown()
+    {
+        if (_level != null)
+        {
+            throw new IllegalArgumentException("Level size defined twice");
+        }
+
+        if (_width == -1 || _height == -1) return;
+
+        _level = new LevelFile(_width, _height);
+
+        for (int i = 0; i < _pendingSize; ++i)
+        {
+            long packed = _pending[i];
+
+            _level.kind(
+                    (int) (packed >>> 32),
+                    (int) (packed >>> 8) & PACKED_Y_MASK,
+                    Element.Kind.fromCode((int) packed & 0xFF)
+            );
+        }
+
+        _pending = null;
+    }
+
+    /**
+     *
+     * Reads a non-negative decimal number.
+     *
+     * @return The number, or -1 if there is none or it overflows.
+     */
+    private int _number()
+    {
+        long value = -1;
+
+        while (_buffer.hasRemaining())
+        {
+            byte next = _buffer.get(_buffer.position());
+
+            if (next < '0' || next > '9') break;
+
+            value = (value == -1 ? 0 : value * 10) + (next - '0');
+
+            if (value > Integer.MAX_VALUE) return -1;
+
+            _buffer.get();
+        }
+
+        return (int) value;
+    }
+
+    /**
+     *
+     * Reads one character of a key or value, resolving escapes
+     * and line continuations like Properties.load() does.
+     *
+     * @param builder The builder to append the character to.
+     */
+    private void _char(StringBuilder builder)
+    {
+        char next = (char) (_buffer.get() & 0xFF);
+
+        if (next != '\\')
+        {
+            builder.append(next);
+
+            return;
+        }
+
+        // A trailing backslash is ignored
+        if (! _buffer.hasRemaining()) return;
+
+        next = (char) (_buffer.get() & 0xFF);
+
+        switch (next)
+        {
+            case '\r':
+            case '\n':
+            {
+                if (next == '\r' && _buffer.hasRemaining() &&
+                    _buffer.get(_buffer.position()) == '\n')
+                {
+                    _buffer.get();
+                }
+
+                // Continued lines start at their first non-blank
+                _skipBlanks();
+
+                break;
+            }
+
+            case 'u':
+            {
+                int code = 0;
+
+                for (int i = 0; i < 4; ++i)
+                {
+                    code = (code << 4) | Character.digit(_buffer.get(), 16);
+                }
+
+                if (code < 0) throw new IllegalArgumentException("Malformed \\uxxxx");
+
+                builder.append((char) code);
+
+                break;
+            }
+
+            case 't': builder.append('\t'); break;
+
+            case 'n': builder.append('\n'); break;
+
+            case 'r': builder.append('\r'); break;
+
+            case 'f': builder.append('\f'); break;
+
+            default: builder.append(next);
+        }
+    }
+
+    /**
+     *
+     * Skips whitespace, including newlines.
+     *
+     * @return True if there is anything left to read.
+     */
+    private boolean _skipWhitespace()
+    {
+        while (_buffer.hasRemaining())
+        {
+            byte next = _buffer.get(_buffer.position());
+
+            if (! _isBlank(next) && ! _isNewline(next)) return true;
+
+            _buffer.get();
+        }
+
+        return false;
+    }
+
+    /**
+     * Skips blanks (spaces, tabs and form-feeds), but not newlines.
+     */
+    private void _skipBlanks()
+    {
+        while (_buffer.hasRemaining() && _isBlank(_buffer.get(_buffer.position())))
+        {
+            _buffer.get();
+        }
+    }
+
+    /**
+     *
+     * Reads a comment. Layouts were stored with a header comment like
+     * "#Properties (Seed=...)", whose seed is used unless the file has
+     * a Seed property as well.
+     */
+    private void _comment()
+    {
+        int start = _buffer.position();
+
+        _skipLine();
+
+        if (_seed != null) return;
+
+        int end = _buffer.position();
+
+        _value.setLength(0);
+
+        for (int i = start; i < end; ++i) _value.append((char) (_buffer.get(i) & 0xFF));
+
+        String comment = _value.toString().toLowerCase();
+
+        int index = comment.indexOf(SEED);
+
+        if (index == -1) return;
+
+        int first = index + SEED.length();
+
+        int last = first;
+
+        if (last < comment.length() && comment.charAt(last) == '-') ++last;
+
+        while (last < comment.length() && Character.isDigit(comment.charAt(last))) ++last;
+
+        try
+        {
+            _seed = Long.valueOf(comment.substring(first, last));
+        }
+
+        // Just a comment after all
+        catch (NumberFormatException e) { }
+    }
+
+    /**
+     * Skips the rest of the line (for comments, which cannot be continued).
+     */
+    private void _skipLine()
+    {
+        while (_buffer.hasRemaining() && ! _isNewline(_buffer.get(_buffer.position())))
+        {
+            _buffer.get();
+        }
+    }
+
+    /**
+     *
+     * Consumes a character if it is the next one.
+     *
+     * @param character The expected character.
+     *
+     * @return True if the character was next and consumed, else false.
+     */
+    private boolean _expect(char character)
+    {
+        if (! _buffer.hasRemaining()) return false;
+
+        if (_buffer.get(_buffer.position()) != character) return false;
+
+        _buffer.get();
+
+        return true;
+    }
+
+    /**
+     * @return True if the buffer is at a newline or the end.
+     */
+    private boolean _endOfLine()
+    {
+        return ! _buffer.hasRemaining() ||
+               _isNewline(_buffer.get(_buffer.position()));
+    }
+
+    private static boolean _isBlank(byte character)
+    {
+        return character == ' ' || character == '\t' || character == '\f';
+    }
+
+    private static boolean _isNewline(byte character)
+    {
+        return character == '\n' || character == '\r';
+    }
+
+    private static boolean _isSeparator(byte character)
+    {
+        return character == '=' || character == ':';
+    }
+
+    /**
+     * Pending elements are packed as x (32 bits), y (24 bits) and code (8 bits).
+     */
+    private static final int PACKED_Y_MASK = (1 << 24) - 1;
+
+    /**
+     * What precedes the seed in the header comment (in lower case).
+     */
+    private static final String SEED = "seed=";
+
+    private final ByteBuffer _buffer;
+
+    private final StringBuilder _key;
+
+    private final StringBuilder _value;
+
+    private LevelFile _level;
+
+    private int _width = -1;
+
+    private int _height = -1;
+
+    private String _name;
+
+    private String _theme;
+
+    private Level.Difficulty _difficulty;
+
+    /**
+     * The seed of the level, if the file has one.
+     */
+    private Long _seed;
+
+    /**
+     * The number of ticks since the dynamic obstacles last moved.
+     */
+    private int _frame;
+
+    private final Map<String, String> _players;
+
+    private final Map<Point, ObstacleSpec> _obstacles;
+
+    private long[] _pending;
+
+    private int _pendingSize;
+}
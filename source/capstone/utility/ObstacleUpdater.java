@@ -0,0 +1,566 @@
+package capstone.utility;
+
+import capstone.element.DynamicObstacle;
+import capstone.element.Element;
+import capstone.element.Quarry;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Moves the dynamic obstacles of all chunks of a PageGrid, optionally in
+ * parallel on a ForkJoinPool, with the same result either way.
+ *
+ * Chunks only depend on each other at their borders, so an update runs in
+ * phases. First, every chunk proposes the next point of each of its
+ * obstacles, reading the grid but writing nothing, so all chunks can do
+ * this at the same time. Then every chunk moves the obstacles whose
+ * proposals stay in the chunk, which only writes to that chunk. Last, the
+ * obstacles crossing a border are handed to the chunk they move into, one
+ * chunk after the other in row-major order, so if two obstacles want the
+ * same cell, the one from the earlier chunk gets it and the other stays.
+ *
+ * Proposals are made against the level as it was at the start of the
+ * update, so an obstacle cannot move into a cell another obstacle leaves
+ * in the same update. Each chunk draws randomness from its own source,
+ * and chunks do not depend on the size of the terminal, which together
+ * makes updates reproducible for the same level.
+ */
+public class ObstacleUpdater
+{
+    /**
+     * The proposed moves of the obstacles of one chunk.
+     */
+    private static class ChunkMoves
+    {
+        /**
+         *
+         * Constructs the ChunkMoves for a chunk.
+         *
+         * @param grid The grid the chunk belongs to.
+         *
+         * @param chunk The chunk.
+         *
+         * @param quarry The players the obstacles are told about.
+         */
+        public ChunkMoves(PageGrid grid, Chunk chunk, Quarry quarry)
+        {
+            _grid = grid;
+
+            _chunk = chunk;
+
+            _quarry = quarry;
+
+            _obstacles = new ArrayList<>();
+
+            _targets = new Point[0];
+
+            _claims = new Claims(chunk.region());
+
+            _taken = new Taken();
+        }
+
+        /**
+         * Proposes the next point of every obstacle in
+         * the chunk. Reads the grid but writes nothing to it.
+         */
+        public void propose()
+        {
+            _obstacles.clear();
+
+            _claims.clear();
+
+            List<Element> elements = _chunk.elements(Element.Kind.DYNAMIC_OBSTACLE);
+
+            // By index, as an iterator per chunk and update adds up
+            for (int i = 0; i < elements.size(); ++i)
+            {
+                _obstacles.add((DynamicObstacle) elements.get(i));
+            }
+
+            if (_targets.length < _obstacles.size())
+            {
+                _targets = new Point[_obstacles.size()];
+            }
+
+            for (int i = 0; i < _obstacles.size(); ++i)
+            {
+                DynamicObstacle obstacle = _obstacles.get(i);
+
+                _taken.self(obstacle.point());
+
+                obstacle.sense(_quarry);
+
+                Point target = obstacle.peekPoint(
+                        _grid.region(),
+                        _taken,
+                        _chunk.random()
+                );
+
+                if (! target.equals(obstacle.point())) _claims.add(target);
+
+                _targets[i] = target;
+            }
+        }
+
+        /**
+         * Moves the obstacles whose proposed
+         * points are in the chunk. Writes only to the chunk.
+         */
+        public void apply()
+        {
+            for (int i = 0; i < _obstacles.size(); ++i)
+            {
+                DynamicObstacle obstacle = _obstacles.get(i);
+
+                Point target = _targets[i];
+
+                if (target.equals(obstacle.point())) continue;
+
+                if (! _chunk.isInside(target.x(), target.y())) continue;
+
+                _chunk.vacate(obstacle);
+
+                obstacle.point(target);
+
+                _chunk.occupy(obstacle);
+            }
+        }
+
+        /**
+         * Hands the obstacles whose proposed points are in
+         * other chunks to those chunks, if the cells are still free.
+         */
+        public void cross()
+        {
+            for (int i = 0; i < _obstacles.size(); ++i)
+            {
+                Point target = _targets[i];
+
+                if (_chunk.isInside(target.x(), target.y())) continue;
+
+                Chunk chunk = _grid.chunks().chunkAt(target.x(), target.y());
+
+                assert(chunk != null);
+
+                // Another obstacle got there first
+                if (chunk.at(target.x(), target.y()) != null) continue;
+
+                DynamicObstacle obstacle = _obstacles.get(i);
+
+                _chunk.remove(obstacle);
+
+                obstacle.point(target);
+
+                chunk.add(obstacle);
+            }
+        }
+
+        /**
+         * @return The chunk.
+         */
+        public Chunk chunk()
+        {
+            return _chunk;
+        }
+
+        /**
+         * The points claimed by the obstacles of the chunk, which are
+         * at most one cell outside of it. A cell is claimed if it holds
+         * the number of the current update, so that clearing the claims
+         * is a matter of counting up and claiming allocates nothing.
+         */
+        private class Claims
+        {
+            /**
+             *
+             * Constructs the Claims for the region of a chunk.
+             *
+             * @param region The region of the chunk.
+             */
+            public Claims(Region region)
+            {
+                _left = region.southWest().x() - 1;
+
+                _top = region.northEast().y() - 1;
+
+                _width = region.width() + 2;
+
+                _rounds = new int[_width * (region.height() + 2)];
+
+                _points = new Point[0];
+            }
+
+            /**
+             * Removes all claims.
+             */
+            public void clear()
+            {
+                // Rounds from before the overflow could be mistaken for new ones
+                if (++_round == 0)
+                {
+                    Arrays.fill(_rounds, 0);
+
+                    _round = 1;
+                }
+
+                _size = 0;
+            }
+
+            /**
+             *
+             * Claims a point, which must be in the chunk
+             * or one cell outside of it.
+             *
+             * @param point The point.
+             */
+            public void add(Point point)
+            {
+                int index = _indexOf(point.x(), point.y());
+
+                assert(index >= 0);
+
+                if (_rounds[index] == _round) return;
+
+                _rounds[index] = _round;
+
+                if (_size == _points.length)
+                {
+                    _points = Arrays.copyOf(_points, 2 * _size + 1);
+                }
+
+                _points[_size++] = point;
+            }
+
+            /**
+             * @param point The point.
+             *
+             * @return True if the point is claimed.
+             */
+            public boolean contains(Point point)
+            {
+                int index = _indexOf(point.x(), point.y());
+
+                return index >= 0 && _rounds[index] == _round;
+            }
+
+            /**
+             * @return The number of claimed points.
+             */
+            public int size()
+            {
+                return _size;
+            }
+
+            /**
+             * @return The claimed points.
+             */
+            public Stream<Point> stream()
+            {
+                return Arrays.stream(_points, 0, _size);
+            }
+
+            /**
+             * @return The index of the cell, or -1 if it is too far outside the chunk.
+             */
+            private int _indexOf(int x, int y)
+            {
+                x -= _left;
+
+                y -= _top;
+
+                if (x < 0 || x >= _width || y < 0 || y >= _rounds.length / _width)
+                {
+                    return -1;
+                }
+
+                return y * _width + x;
+            }
+
+            private final int _left;
+
+            private final int _top;
+
+            private final int _width;
+
+            /**
+             * The number of the last update that claimed a cell.
+             */
+            private final int[] _rounds;
+
+            private int _round;
+
+            /**
+             * The claimed points, for iteration.
+             */
+            private Point[] _points;
+
+            private int _size;
+        }
+
+        /**
+         * The points an obstacle may not move to: those of all
+         * elements of the grid and those claimed by earlier
+         * obstacles of the chunk, but not the obstacle's own.
+         */
+        private class Taken extends AbstractSet<Point>
+        {
+            public void self(Point self)
+            {
+                _self = self;
+            }
+
+            @Override public boolean contains(Object object)
+            {
+                if (object.equals(_self)) return false;
+
+                return _grid.positions().contains(object) ||
+                       (object instanceof Point && _claims.contains((Point) object));
+            }
+
+            @Override public int size()
+            {
+                return _grid.numberOfElements() - 1 + _claims.size();
+            }
+
+            @Override public Iterator<Point> iterator()
+            {
+                // Claimed points are free in the grid, so there are no duplicates
+                return Stream.concat(_grid.positions().stream(), _claims.stream())
+                             .filter(point -> ! point.equals(_self))
+                             .iterator();
+            }
+
+            private Point _self;
+        }
+
+        private final PageGrid _grid;
+
+        private final Chunk _chunk;
+
+        private final Quarry _quarry;
+
+        private final List<DynamicObstacle> _obstacles;
+
+        private Point[] _targets;
+
+        private final Claims _claims;
+
+        private final Taken _taken;
+    }
+
+    /**
+     * Runs a phase for a stripe of rows of chunks,
+     * splitting it until there is one row per task.
+     *
+     * Tasks are never serialized, so the stripe
+     * does not define a serialVersionUID.
+     */
+    @SuppressWarnings("serial")
+    private static class Stripe extends RecursiveAction
+    {
+        /**
+         *
+         * Constructs a Stripe.
+         *
+         * @param moves The moves of all chunks, row by row.
+         *
+         * @param width The number of chunks per row.
+         *
+         * @param first The first row of the stripe.
+         *
+         * @param last One past the last row of the stripe.
+         *
+         * @param phase The phase to run for each chunk.
+         */
+        public Stripe(ChunkMoves[] moves,
+                      int width,
+                      int first,
+                      int last,
+                      Consumer<ChunkMoves> phase)
+        {
+            _moves = moves;
+
+            _width = width;
+
+            _first = first;
+
+            _last = last;
+
+            _phase = phase;
+        }
+
+        @Override protected void compute()
+        {
+            if (_last - _first > 1)
+            {
+                int middle = (_first + _last) / 2;
+
+                invokeAll(
+                        new Stripe(_moves, _width, _first, middle, _phase),
+                        new Stripe(_moves, _width, middle, _last, _phase)
+                );
+            }
+
+            else if (_last > _first) _row(_moves, _width, _first, _phase);
+        }
+
+        private final ChunkMoves[] _moves;
+
+        private final int _width;
+
+        private final int _first;
+
+        private final int _last;
+
+        private final Consumer<ChunkMoves> _phase;
+    }
+
+    /**
+     *
+     * Constructs an ObstacleUpdater with no players to chase.
+     *
+     * @param grid The grid whose obstacles to update.
+     */
+    public ObstacleUpdater(PageGrid grid)
+    {
+        this(grid, new Quarry());
+    }
+
+    /**
+     *
+     * Constructs an ObstacleUpdater.
+     *
+     * @param grid The grid whose obstacles to update.
+     *
+     * @param quarry The players the obstacles are told about before
+     *               they move, which the owner keeps up to date.
+     */
+    public ObstacleUpdater(PageGrid grid, Quarry quarry)
+    {
+        assert(grid != null);
+        assert(quarry != null);
+
+        _grid = grid;
+
+        _quarry = quarry;
+
+        _moves = new ChunkMoves[0];
+    }
+
+    /**
+     * Moves all dynamic obstacles of the grid on the calling thread.
+     */
+    public void update()
+    {
+        update(null);
+    }
+
+    /**
+     *
+     * Moves all dynamic obstacles of the grid, with the chunks
+     * processed in parallel on the pool. The result is the
+     * same as that of update() without a pool.
+     *
+     * @param pool The pool to run on, or null to run on the calling thread.
+     */
+    public void update(ForkJoinPool pool)
+    {
+        _setup();
+
+        _run(pool, ChunkMoves::propose);
+
+        _run(pool, ChunkMoves::apply);
+
+        // Crossings are rare and must be in order, so sequential
+        for (ChunkMoves moves : _moves) moves.cross();
+    }
+
+    /**
+     * Creates the moves of each chunk, re-using those of chunks that
+     * are the same as in the last update (i.e. unless the level was
+     * resized in the meantime).
+     */
+    private void _setup()
+    {
+        ChunkGrid chunks = _grid.chunks();
+
+        int width = chunks.width();
+
+        if (_moves.length != width * chunks.height())
+        {
+            _moves = Arrays.copyOf(_moves, width * chunks.height());
+        }
+
+        for (int row = 0; row < chunks.height(); ++row)
+        {
+            for (int column = 0; column < width; ++column)
+            {
+                Chunk chunk = chunks.get(column, row);
+
+                int index = row * width + column;
+
+                if (_moves[index] == null || _moves[index].chunk() != chunk)
+                {
+                    _moves[index] = new ChunkMoves(_grid, chunk, _quarry);
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * Runs a phase for all chunks.
+     *
+     * @param pool The pool to run on, or null to run on the calling thread.
+     *
+     * @param phase The phase to run for each chunk.
+     */
+    private void _run(ForkJoinPool pool, Consumer<ChunkMoves> phase)
+    {
+        int width = _grid.chunks().width();
+
+        int height = _grid.chunks().height();
+
+        if (pool != null) pool.invoke(new Stripe(_moves, width, 0, height, phase));
+
+        else for (int row = 0; row < height; ++row) _row(_moves, width, row, phase);
+    }
+
+    /**
+     *
+     * Runs a phase for one row of chunks.
+     *
+     * @param moves The moves of all chunks, row by row.
+     *
+     * @param width The number of chunks per row.
+     *
+     * @param row The row.
+     *
+     * @param phase The phase to run for each chunk.
+     */
+    private static void _row(ChunkMoves[] moves,
+                             int width,
+                             int row,
+                             Consumer<ChunkMoves> phase)
+    {
+        for (int column = 0; column < width; ++column)
+        {
+            phase.accept(moves[row * width + column]);
+        }
+    }
+
+    private final PageGrid _grid;
+
+    private final Quarry _quarry;
+
+    private ChunkMoves[] _moves;
+}
@@ -4,13 +4,18 @@ import capstone.element.DynamicObstacle;
 import capstone.element.Element;
 import com.googlecode.lanterna.screen.Screen;
 
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * A Page contains the elements that fit onto the screen. It provides
@@ -18,6 +23,16 @@ import java.util.Map;
  * to determine if a player is colliding with an element. It also has a
  * pretty neat interface to perform a variety of operations on the elements
  * contained in the page.
+ *
+ * The elements are not kept in a hashtable, but in the flat cell arrays
+ * of the Chunks of a ChunkGrid. A page is only a window onto the chunks
+ * overlapping its region, so pages can be laid out anew for a different
+ * terminal size without moving any elements. Lookups, insertions and
+ * removals thus only do a bit of integer arithmetic instead of hashing
+ * boxed coordinates. A page constructed on its own (not by a PageGrid)
+ * has a single chunk of its own covering exactly its region. The map()
+ * and positions() views are still available, they are just computed
+ * from the cells.
  */
 public class Page implements Iterable<Element>
 {
@@ -31,13 +46,45 @@ public class Page implements Iterable<Element>
      */
     public Page(Region region)
     {
-        assert(region != null);
+        this(new ChunkGrid(region), region);
 
-        _elements = new HashMap<>();
+        _own = true;
+    }
 
-        _region = region;
+    /**
+     *
+     * Constructs a page as a window onto the chunks of a ChunkGrid. The
+     * page shows the elements of the chunks inside its region, and adding
+     * or removing elements on the page adds them to or removes them from
+     * the chunks.
+     *
+     * @param region The region of the level this page represents.
+     *
+     * @param chunks The chunks storing the elements of the level.
+     *
+     * @return The page.
+     */
+    static Page window(Region region, ChunkGrid chunks)
+    {
+        return new Page(chunks, region);
+    }
+
+    /**
+     *
+     * Constructs a page onto the chunks of a ChunkGrid (see window()).
+     *
+     * @param chunks The chunks storing the elements of the level.
+     *
+     * @param region The region of the level this page represents.
+     */
+    private Page(ChunkGrid chunks, Region region)
+    {
+        assert(region != null);
+        assert(chunks != null);
+
+        _chunks = chunks;
 
-        _setupLists();
+        _window(region);
     }
 
     /**
@@ -55,10 +102,6 @@ public class Page implements Iterable<Element>
 
         assert(elements != null);
 
-        _elements = new HashMap<>();
-
-        _setupLists();
-
         elements.forEach(this::add);
     }
 
@@ -82,14 +125,17 @@ public class Page implements Iterable<Element>
      */
     public void update(Screen screen)
     {
-        for (Element element : _dynamicObstacles)
+        // Obstacles can move from one chunk of the page to another
+        List<Element> obstacles = new ArrayList<>(dynamicObstacles());
+
+        for (Element element : obstacles)
         {
             // Unfortunately we have to cast here.
             DynamicObstacle obstacle = (DynamicObstacle) element;
 
             if (screen != null) obstacle.unrender(screen, _region);
 
-            _moveDynamicObstacle(obstacle);
+            move(obstacle);
 
             if (screen != null) obstacle.render(screen, _region);
         }
@@ -109,6 +155,80 @@ public class Page implements Iterable<Element>
         }
     }
 
+    /**
+     *
+     * Moves a single dynamic obstacle of the page to its next position,
+     * without performing any (un)rendering operations.
+     *
+     * @param obstacle The obstacle to move, which must be on the page.
+     */
+    public void move(DynamicObstacle obstacle)
+    {
+        boolean stayed = move(obstacle, _region, _map.keySet());
+
+        assert(stayed);
+    }
+
+    /**
+     *
+     * Moves a single dynamic obstacle of the page to its next position
+     * within a region that may be larger than the page, e.g. the whole
+     * level. If the obstacle leaves the page, it is removed from it and
+     * the caller is responsible for adding it to the page it moved to.
+     *
+     * @param obstacle The obstacle to move, which must be on the page.
+     *
+     * @param region The region the obstacle may move within.
+     *
+     * @param taken The positions in that region the obstacle
+     *              may not move to (other than its own).
+     *
+     * @return True if the obstacle is still on the page, else false.
+     */
+    public boolean move(DynamicObstacle obstacle,
+                        Region region,
+                        Set<Point> taken)
+    {
+        assert(obstacle != null);
+        assert(at(obstacle.point()) == obstacle);
+
+        Chunk chunk = _chunkAt(obstacle.point());
+
+        // The obstacle's own cell is free while it moves
+        chunk.vacate(obstacle);
+
+        Point point = obstacle.peekPoint(region, taken, chunk.random());
+
+        return _place(obstacle, chunk, point);
+    }
+
+    /**
+     *
+     * Moves a single dynamic obstacle of the page to a point that was
+     * already determined, e.g. with peekPoint() and the random() source
+     * of its chunk. If the point is outside the page, the obstacle is
+     * removed from it and the caller is responsible for adding it to
+     * the page it moved to.
+     *
+     * @param obstacle The obstacle to move, which must be on the page.
+     *
+     * @param point The point to move to, which must be free.
+     *
+     * @return True if the obstacle is still on the page, else false.
+     */
+    public boolean move(DynamicObstacle obstacle, Point point)
+    {
+        assert(obstacle != null);
+        assert(point != null);
+        assert(at(obstacle.point()) == obstacle);
+
+        Chunk chunk = _chunkAt(obstacle.point());
+
+        chunk.vacate(obstacle);
+
+        return _place(obstacle, chunk, point);
+    }
+
     /**
      *
      * Adds an element to the page.
@@ -123,11 +243,9 @@ public class Page implements Iterable<Element>
     {
         assert(element != null);
         assert(_region.contains(element.point()));
-        assert(! _elements.containsKey(element.point()));
+        assert(! hasAt(element.point()));
 
-        _elements.put(element.point(), element);
-
-        _listOf(element).add(element);
+        _chunkAt(element.point()).add(element);
     }
 
 
@@ -140,11 +258,9 @@ public class Page implements Iterable<Element>
     public void remove(Element element)
     {
         assert(element != null);
-        assert(_elements.containsKey(element.point()));
-
-        _listOf(element).remove(element);
+        assert(hasAt(element.point()));
 
-        _elements.remove(element.point());
+        remove(element.point());
     }
 
     /**
@@ -156,13 +272,9 @@ public class Page implements Iterable<Element>
     public void remove(Point point)
     {
         assert(point != null);
-        assert(_elements.containsKey(point));
-
-        Element element = at(point);
-
-        _listOf(element).remove(element);
+        assert(hasAt(point));
 
-        _elements.remove(point);
+        _chunkAt(point).remove(at(point));
     }
 
     /**
@@ -170,21 +282,10 @@ public class Page implements Iterable<Element>
      */
     public void clear()
     {
-        _elements.clear();
-
-        _walls.clear();
-
-        _entrances.clear();
-
-        _exits.clear();
-
-        _keys.clear();
-
-        _dynamicObstacles.clear();
-
-        _staticObstacles.clear();
-
-        _mysteryBoxes.clear();
+        for (Chunk chunk : _overlap)
+        {
+            chunk.clear(_left, _top, _right(), _bottom());
+        }
     }
 
 
@@ -201,7 +302,26 @@ public class Page implements Iterable<Element>
     {
         assert(point != null);
 
-        return _elements.get(point);
+        return at(point.x(), point.y());
+    }
+
+    /**
+     *
+     * Returns the element at that position on the page, if any.
+     *
+     * @param x The x-coordinate to attempt to find an element at.
+     *
+     * @param y The y-coordinate to attempt to find an element at.
+     *
+     * @return The element positioned at that point on the page if any,
+     *         else null if no such element exists or if the point is
+     *         not inside the region of the page.
+     */
+    public Element at(int x, int y)
+    {
+        if (! _isInside(x, y)) return null;
+
+        return _chunks.at(x, y);
     }
 
     /**
@@ -217,7 +337,23 @@ public class Page implements Iterable<Element>
     {
         assert(point != null);
 
-        return _elements.containsKey(point);
+        return at(point.x(), point.y()) != null;
+    }
+
+    /**
+     *
+     * Test whether there is an element on the page at that position.
+     *
+     * @param x The x-coordinate to attempt to find an element at.
+     *
+     * @param y The y-coordinate to attempt to find an element at.
+     *
+     * @return True if there is an element at that
+     *         point on the page, else false.
+     */
+    public boolean hasAt(int x, int y)
+    {
+        return at(x, y) != null;
     }
 
     /**
@@ -233,7 +369,7 @@ public class Page implements Iterable<Element>
     {
         assert(element != null);
 
-        Element found = _elements.get(element.point());
+        Element found = at(element.point());
 
         return found != null && found.equals(element);
     }
@@ -335,7 +471,21 @@ public class Page implements Iterable<Element>
     {
         assert(region != null);
 
-        _region = region;
+        if (! _own)
+        {
+            _window(region);
+
+            return;
+        }
+
+        // A page of its own has to move its elements to a new chunk
+        List<Element> elements = new ArrayList<>(elements());
+
+        _chunks = new ChunkGrid(region);
+
+        _window(region);
+
+        elements.forEach(this::add);
     }
 
 
@@ -344,7 +494,7 @@ public class Page implements Iterable<Element>
      */
     public Collection<Element> elements()
     {
-        return Collections.unmodifiableCollection(_elements.values());
+        return Collections.unmodifiableCollection(_elements);
     }
 
     /**
@@ -354,7 +504,47 @@ public class Page implements Iterable<Element>
      */
     public Collection<Element> elements(Element.Kind kind)
     {
-        return Collections.unmodifiableCollection(_listOf(kind));
+        assert(kind != null);
+
+        if (_exact != null) return _exact.elements(kind);
+
+        return new KindView(kind);
+    }
+
+    /**
+     *
+     * Visits the elements of the page inside a region, in no
+     * particular order, without allocating a result collection.
+     *
+     * Depending on which is smaller, either the cells of the part of
+     * the region that overlaps the page are scanned, or the elements
+     * of the page (of the kind, if given) are tested against it.
+     *
+     * @param region The region, which may extend beyond the page.
+     *
+     * @param kind The kind of elements to visit, or null for all.
+     *
+     * @param visitor The visitor to call for each element.
+     */
+    public void query(Region region, Element.Kind kind, Consumer<Element> visitor)
+    {
+        assert(region != null);
+        assert(visitor != null);
+
+        int left = Math.max(_left, region.southWest().x());
+
+        int right = Math.min(_right(), region.northEast().x());
+
+        int top = Math.max(_top, region.northEast().y());
+
+        int bottom = Math.min(_bottom(), region.southWest().y());
+
+        if (left > right || top > bottom) return;
+
+        for (Chunk chunk : _overlap)
+        {
+            chunk.query(left, top, right, bottom, kind, visitor);
+        }
     }
 
     /**
@@ -362,7 +552,7 @@ public class Page implements Iterable<Element>
      */
     public Collection<Point> positions()
     {
-        return Collections.unmodifiableCollection(_elements.keySet());
+        return _positions;
     }
 
     /**
@@ -371,7 +561,7 @@ public class Page implements Iterable<Element>
      */
     public Map<Point, Element> map()
     {
-        return Collections.unmodifiableMap(_elements);
+        return _map;
     }
 
     /**
@@ -388,7 +578,7 @@ public class Page implements Iterable<Element>
      */
     public Collection<Element> walls()
     {
-        return Collections.unmodifiableCollection(_walls);
+        return elements(Element.Kind.WALL);
     }
 
     /**
@@ -396,7 +586,7 @@ public class Page implements Iterable<Element>
      */
     public Collection<Element> entrances()
     {
-        return Collections.unmodifiableCollection(_entrances);
+        return elements(Element.Kind.ENTRANCE);
     }
 
     /**
@@ -404,7 +594,7 @@ public class Page implements Iterable<Element>
      */
     public Collection<Element> exits()
     {
-        return Collections.unmodifiableCollection(_exits);
+        return elements(Element.Kind.EXIT);
     }
 
     /**
@@ -412,7 +602,7 @@ public class Page implements Iterable<Element>
      */
     public Collection<Element> keys()
     {
-        return Collections.unmodifiableCollection(_keys);
+        return elements(Element.Kind.KEY);
     }
 
     /**
@@ -420,7 +610,7 @@ public class Page implements Iterable<Element>
      */
     public Collection<Element> dynamicObstacles()
     {
-        return Collections.unmodifiableCollection(_dynamicObstacles);
+        return elements(Element.Kind.DYNAMIC_OBSTACLE);
     }
 
     /**
@@ -428,7 +618,7 @@ public class Page implements Iterable<Element>
      */
     public Collection<Element> staticObstacles()
     {
-        return Collections.unmodifiableCollection(_staticObstacles);
+        return elements(Element.Kind.STATIC_OBSTACLE);
     }
 
     /**
@@ -436,7 +626,7 @@ public class Page implements Iterable<Element>
      */
     public Collection<Element> mysteryBoxes()
     {
-        return Collections.unmodifiableCollection(_mysteryBoxes);
+        return elements(Element.Kind.MYSTERY_BOX);
     }
 
     /**
@@ -455,8 +645,8 @@ public class Page implements Iterable<Element>
      * can be that the level is smaller than the page size, in which case
      * looking for a free point in the region of the page could result in
      * a point that is contained in the page, but not in the level which
-     * is a useless result. Therefore the minimum area between the page's
-     * region and the level's region is searched.
+     * is a useless result. Therefore only the part of the page's region
+     * that overlaps the level's region is searched.
      *
      * @param levelRegion The region of the level.
      *
@@ -466,19 +656,15 @@ public class Page implements Iterable<Element>
      */
     public Point freePoint(Region levelRegion)
     {
-        Point origin = _region.northWest();
+        Region region = _clip(levelRegion);
 
-        int width = Math.min(_region.width(), levelRegion.width());
+        if (region == null) return null;
 
-        int height = Math.min(_region.height(), levelRegion.height());
-
-        for (int x = 0; x < width; ++x)
+        for (int x = region.southWest().x(); x <= region.northEast().x(); ++x)
         {
-            for (int y = 0; y < height; ++y)
+            for (int y = region.northEast().y(); y <= region.southWest().y(); ++y)
             {
-                Point point = new Point(origin).move(x, y);
-
-                if (! hasAt(point)) return point;
+                if (at(x, y) == null) return Point.of(x, y);
             }
         }
 
@@ -500,21 +686,15 @@ public class Page implements Iterable<Element>
     {
         Collection<Point> free = new ArrayList<>();
 
-        Point point = new Point(0, 0);
+        Region region = _clip(levelRegion);
 
-        int width = Math.min(_region.width(), levelRegion.width());
+        if (region == null) return free;
 
-        int height = Math.min(_region.height(), levelRegion.height());
-
-        for (int x = 0; x < width; ++x)
+        for (int x = region.southWest().x(); x <= region.northEast().x(); ++x)
         {
-            point.x(x);
-
-            for (int y = 0; y < height; ++y)
+            for (int y = region.northEast().y(); y <= region.southWest().y(); ++y)
             {
-                point.y(y);
-
-                if (! hasAt(point)) free.add(new Point(point));
+                if (at(x, y) == null) free.add(Point.of(x, y));
             }
         }
 
@@ -526,7 +706,16 @@ public class Page implements Iterable<Element>
      */
     public int size()
     {
-        return _elements.size();
+        if (_exact != null) return _exact.size();
+
+        int size = 0;
+
+        for (Chunk chunk : _overlap)
+        {
+            size += chunk.count(_left, _top, _right(), _bottom(), null);
+        }
+
+        return size;
     }
 
     /**
@@ -543,7 +732,7 @@ public class Page implements Iterable<Element>
      */
     public boolean isEmpty()
     {
-        return _elements.isEmpty();
+        return size() == 0;
     }
 
     /**
@@ -555,103 +744,335 @@ public class Page implements Iterable<Element>
     }
 
     /**
-     * @param element The element whose kind to get the list for.
      *
-     * @return The list of elements of the same type as the element passed.
+     * Moves the page's window onto the chunks to a region.
+     *
+     * @param region The region of the level the page represents.
      */
-    private List<Element> _listOf(Element element)
+    private void _window(Region region)
     {
-        return _listOf(element.kind());
+        _region = region;
+
+        _left = region.southWest().x();
+        _top = region.northEast().y();
+
+        _width = region.width();
+        _height = region.height();
+
+        _overlap = _chunks.overlapping(_left, _top, _right(), _bottom());
+
+        // Pages that are exactly one chunk can hand out its lists
+        if (_overlap.size() == 1 && _overlap.get(0).region().equals(region))
+        {
+            _exact = _overlap.get(0);
+        }
+
+        else _exact = null;
     }
 
     /**
-     * @param kind The kind of element to get the list for.
      *
-     * @return The list of elements of that kind.
+     * Places an obstacle whose cell was vacated at its new point, in
+     * the chunk it moved into if that is still on the page.
+     *
+     * @param obstacle The obstacle to place.
+     *
+     * @param from The chunk the obstacle was vacated in.
+     *
+     * @param point The new point of the obstacle.
+     *
+     * @return True if the obstacle is still on the page, else false.
      */
-    private List<Element> _listOf(Element.Kind kind)
+    private boolean _place(DynamicObstacle obstacle, Chunk from, Point point)
     {
-        assert(kind != null);
+        obstacle.point(point);
+
+        if (! _isInside(point.x(), point.y()))
+        {
+            from.release(obstacle);
 
-        switch (kind)
+            return false;
+        }
+
+        Chunk to = _chunkAt(point);
+
+        if (to == from) from.occupy(obstacle);
+
+        else
         {
-            case WALL:
-                return _walls;
+            from.release(obstacle);
+
+            to.add(obstacle);
+        }
+
+        return true;
+    }
 
-            case ENTRANCE:
-                return _entrances;
+    /**
+     * @param point A point inside the page.
+     *
+     * @return The chunk storing the point.
+     */
+    private Chunk _chunkAt(Point point)
+    {
+        Chunk chunk = _chunks.chunkAt(point.x(), point.y());
+
+        assert(chunk != null);
+
+        return chunk;
+    }
+
+    /**
+     *
+     * Tests whether a position is inside the region,
+     * without having to construct a Point for it.
+     *
+     * @param x The x-coordinate to test.
+     *
+     * @param y The y-coordinate to test.
+     *
+     * @return True if the position is inside the region, else false.
+     */
+    private boolean _isInside(int x, int y)
+    {
+        return x >= _left && x < _left + _width &&
+               y >= _top  && y < _top  + _height;
+    }
 
-            case EXIT:
-                return _exits;
+    /**
+     * @param levelRegion The region of the level.
+     *
+     * @return The part of the page's region inside the level's
+     *         region, or null if the two do not overlap.
+     */
+    private Region _clip(Region levelRegion)
+    {
+        int left = Math.max(_left, levelRegion.southWest().x());
+
+        int top = Math.max(_top, levelRegion.northEast().y());
+
+        int right = Math.min(_right(), levelRegion.northEast().x());
+
+        int bottom = Math.min(_bottom(), levelRegion.southWest().y());
 
-            case KEY:
-                return _keys;
+        if (left > right || top > bottom) return null;
 
-            case STATIC_OBSTACLE:
-                return _staticObstacles;
+        return new Region(left, bottom, right, top);
+    }
+
+    private int _right()
+    {
+        return _left + _width - 1;
+    }
 
-            case DYNAMIC_OBSTACLE:
-                return _dynamicObstacles;
+    private int _bottom()
+    {
+        return _top + _height - 1;
+    }
 
-            case MYSTERY_BOX:
-                return _mysteryBoxes;
+    /**
+     * Iterates over the occupied cells of the page, in row-major order.
+     */
+    private class CellIterator implements Iterator<Element>
+    {
+        @Override public boolean hasNext()
+        {
+            while (_next < _width * _height && _cell(_next) == null) ++_next;
+
+            return _next < _width * _height;
+        }
+
+        @Override public Element next()
+        {
+            if (! hasNext()) throw new NoSuchElementException();
+
+            return _cell(_next++);
+        }
+
+        private Element _cell(int index)
+        {
+            return _chunks.at(_left + index % _width, _top + index / _width);
         }
 
-        throw new IllegalArgumentException();
+        private int _next;
     }
 
     /**
-     * Initializes all the lists for all the kinds of elements.
+     * A read-only collection view of the elements of a kind on a page
+     * that spans more than one chunk. Goes through the lists of the
+     * chunks and skips the elements outside of the page.
      */
-    private void _setupLists()
+    private class KindView extends AbstractCollection<Element>
     {
-        _walls = new ArrayList<>();
+        public KindView(Element.Kind kind)
+        {
+            _kind = kind;
+        }
+
+        @Override public Iterator<Element> iterator()
+        {
+            return new Iterator<Element>()
+            {
+                @Override public boolean hasNext()
+                {
+                    while (_next == null)
+                    {
+                        if (! _current.hasNext())
+                        {
+                            if (! _remaining.hasNext()) return false;
+
+                            _current = _remaining.next().elements(_kind).iterator();
 
-        _entrances = new ArrayList<>();
+                            continue;
+                        }
 
-        _exits = new ArrayList<>();
+                        Element element = _current.next();
 
-        _keys = new ArrayList<>();
+                        if (isInside(element)) _next = element;
+                    }
 
-        _dynamicObstacles = new ArrayList<>();
+                    return true;
+                }
 
-        _staticObstacles = new ArrayList<>();
+                @Override public Element next()
+                {
+                    if (! hasNext()) throw new NoSuchElementException();
 
-        _mysteryBoxes = new ArrayList<>();
+                    Element element = _next;
+
+                    _next = null;
+
+                    return element;
+                }
+
+                private final Iterator<Chunk> _remaining = _overlap.iterator();
+
+                private Iterator<Element> _current = Collections.emptyIterator();
+
+                private Element _next;
+            };
+        }
+
+        @Override public int size()
+        {
+            int size = 0;
+
+            for (Chunk chunk : _overlap)
+            {
+                size += chunk.count(_left, _top, _right(), _bottom(), _kind);
+            }
+
+            return size;
+        }
+
+        private final Element.Kind _kind;
     }
 
     /**
-     *
-     * Handles updating the position of a dynamic obstacle.
-     *
-     * @param obstacle The obstacle to move.
+     * A read-only collection view of the elements in the cells.
      */
-    private void _moveDynamicObstacle(DynamicObstacle obstacle)
+    private class Elements extends AbstractCollection<Element>
     {
-        _elements.remove(obstacle.point());
+        @Override public Iterator<Element> iterator()
+        {
+            return new CellIterator();
+        }
+
+        @Override public int size()
+        {
+            return Page.this.size();
+        }
+    }
+
+    /**
+     * A read-only map view from points to the elements in the cells.
+     * Lookups go straight to the cells, so they stay constant-time.
+     */
+    private class CellMap extends AbstractMap<Point, Element>
+    {
+        @Override public Element get(Object key)
+        {
+            if (! (key instanceof Point)) return null;
+
+            return at((Point) key);
+        }
 
-        obstacle.update(_region, _elements.keySet());
+        @Override public boolean containsKey(Object key)
+        {
+            return get(key) != null;
+        }
 
-        _elements.put(obstacle.point(), obstacle);
+        @Override public int size()
+        {
+            return Page.this.size();
+        }
+
+        @Override public Set<Entry<Point, Element>> entrySet()
+        {
+            return new AbstractSet<Entry<Point, Element>>()
+            {
+                @Override public Iterator<Entry<Point, Element>> iterator()
+                {
+                    Iterator<Element> cells = new CellIterator();
+
+                    return new Iterator<Entry<Point, Element>>()
+                    {
+                        @Override public boolean hasNext()
+                        {
+                            return cells.hasNext();
+                        }
+
+                        @Override public Entry<Point, Element> next()
+                        {
+                            Element element = cells.next();
+
+                            return new SimpleImmutableEntry<>(
+                                    element.point(),
+                                    element
+                            );
+                        }
+                    };
+                }
+
+                @Override public int size()
+                {
+                    return Page.this.size();
+                }
+            };
+        }
     }
 
 
-    private Map<Point, Element> _elements;
+    private ChunkGrid _chunks;
 
-    private Region _region;
+    /**
+     * The chunks overlapping the page.
+     */
+    private List<Chunk> _overlap;
 
+    /**
+     * The chunk if the page is exactly one chunk, else null.
+     */
+    private Chunk _exact;
 
-    private List<Element> _walls;
+    /**
+     * Whether the page has a chunk of its own.
+     */
+    private boolean _own;
 
-    private List<Element> _entrances;
+    private int _left;
 
-    private List<Element> _exits;
+    private int _top;
 
-    private List<Element> _keys;
+    private int _width;
 
-    private List<Element> _dynamicObstacles;
+    private int _height;
 
-    private List<Element> _staticObstacles;
+    private final Collection<Element> _elements = new Elements();
 
-    private List<Element> _mysteryBoxes;
+    private final Map<Point, Element> _map = new CellMap();
+
+    private final Collection<Point> _positions = _map.keySet();
+
+    private Region _region;
 }
@@ -1,14 +1,22 @@
 package capstone.utility;
 
 import capstone.data.Theme;
+import capstone.element.DynamicObstacle;
 import capstone.element.Element;
 import capstone.element.Player;
 import com.googlecode.lanterna.terminal.TerminalSize;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * This wondrous data-structure (c) Peter Goldsborough enables constant-time
@@ -38,16 +46,19 @@ import java.util.List;
  * loading a another page, i.e. figuring out what elements belong into the
  * region the player is entering? O(1). That's a 1 ;)
  *
- * Of course, there is one caveat of pre-processing: it's not very dynamic.
- * Resizing the screen means re-calculating the grid and re-distributing the
- * entire collection of elements in most cases (optimizations can be made for
- * changes to the size of the level, never for changes to the size of the
- * terminal). But it's also a manageable O(N) expense and of course it happens
- * extremely rarely, so this solution should be magnificent in most cases.
+ * Of course, there used to be one caveat of pre-processing: it's not very
+ * dynamic. Resizing the screen meant re-calculating the grid and
+ * re-distributing the entire collection of elements. So the elements are no
+ * longer stored in the pages, but in a ChunkGrid of chunks of a fixed size
+ * that does not depend on the terminal at all, and the pages are windows
+ * onto those chunks. Resizing the terminal thus only lays out new windows,
+ * which costs as much as there are pages, not elements. Resizing the level
+ * only adds or drops chunks at the edges.
  *
- * Regarding the first of the two problems state above, lookup of elements: the
- * pages themselves are of course only abstractions over hashtables, so it's
- * constant time all day long.
+ * Regarding the first of the two problems state above, lookup of elements:
+ * a point's chunk is found by dividing its coordinates by the chunk size, and
+ * a chunk keeps its cells in a flat array, so a lookup through a page (which
+ * only forwards to the chunks) is still constant time all day long.
  */
 public class PageGrid
 {
@@ -98,6 +109,52 @@ public class PageGrid
         }
     }
 
+    /**
+     * A set view of the positions of all elements in the grid, which is
+     * what dynamic obstacles need to know when moving across the level.
+     */
+    private class Positions extends AbstractSet<Point>
+    {
+        @Override public boolean contains(Object object)
+        {
+            if (! (object instanceof Point)) return false;
+
+            return at((Point) object) != null;
+        }
+
+        @Override public int size()
+        {
+            return _numberOfElements;
+        }
+
+        @Override public Iterator<Point> iterator()
+        {
+            return new Iterator<Point>()
+            {
+                @Override public boolean hasNext()
+                {
+                    while (! _points.hasNext() && _pages.hasNext())
+                    {
+                        _points = _pages.next().positions().iterator();
+                    }
+
+                    return _points.hasNext();
+                }
+
+                @Override public Point next()
+                {
+                    if (! hasNext()) throw new NoSuchElementException();
+
+                    return _points.next();
+                }
+
+                private final Iterator<Page> _pages = pages().iterator();
+
+                private Iterator<Point> _points = Collections.emptyIterator();
+            };
+        }
+    }
+
     /**
      *
      * Constructs an empty PageGrid containing no elements, with the
@@ -112,14 +169,18 @@ public class PageGrid
         assert(levelSize != null);
         assert(terminalSize != null);
 
-        _grid = new ArrayList<>();
+        _dynamicObstacles = new ArrayList<>();
+
+        _chunks = new ChunkGrid(levelSize);
 
         _levelSize = levelSize;
         _terminalSize = terminalSize;
 
+        _levelRegion = _regionOf(levelSize);
+
         _dimensions = _computeDimensions(levelSize, terminalSize);
 
-        _redistribute(_grid, _newGrid(_dimensions, terminalSize));
+        _grid = _newGrid(_dimensions, terminalSize);
 
         _currentIndex = new Index(0, 0);
     }
@@ -130,6 +191,9 @@ public class PageGrid
      * level and terminal sizes passed, and then adds all the elements
      * passed in the collection.
      *
+     * The elements are loaded into the chunks in bulk rather than added
+     * one by one, on several threads for levels with many elements.
+     *
      * @param levelSize The size of the whole level.
      *
      * @param terminalSize The size of the terminal.
@@ -142,9 +206,15 @@ public class PageGrid
     {
         this(levelSize, terminalSize);
 
-        elements.forEach(this::add);
+        assert(elements != null);
 
-        _currentIndex = new Index(0, 0);
+        if (elements.size() < PARALLEL_THRESHOLD) _chunks.load(elements, null);
+
+        else _chunks.load(elements, ForkJoinPool.commonPool());
+
+        _numberOfElements = _chunks.size();
+
+        order();
     }
 
     /**
@@ -167,6 +237,8 @@ public class PageGrid
         page.add(element);
 
         ++_numberOfElements;
+
+        _index(element);
     }
 
     /**
@@ -188,6 +260,10 @@ public class PageGrid
         assert(pageIndexOf(element).equals(index));
 
         _grid.get(index.row()).get(index.column()).add(element);
+
+        ++_numberOfElements;
+
+        _index(element);
     }
 
     /**
@@ -207,6 +283,40 @@ public class PageGrid
         page.remove(element);
 
         --_numberOfElements;
+
+        _unindex(element);
+    }
+
+    /**
+     *
+     * Moves a dynamic obstacle of any page to its next position within
+     * the whole level, so that obstacles keep moving when no player is
+     * looking and can wander from one page to another. If the obstacle
+     * moves onto another page, it is handed over to that page.
+     *
+     * @param obstacle The obstacle to move, which must be in the grid.
+     */
+    public void move(DynamicObstacle obstacle)
+    {
+        assert(obstacle != null);
+
+        Page page = getPageOf(obstacle);
+
+        assert(page != null);
+
+        // The obstacle's own cell is free while it moves
+        --_numberOfElements;
+
+        if (! page.move(obstacle, _levelRegion, _positions))
+        {
+            page = getPageOf(obstacle);
+
+            assert(page != null);
+
+            page.add(obstacle);
+        }
+
+        ++_numberOfElements;
     }
 
     /**
@@ -225,16 +335,26 @@ public class PageGrid
      */
     public Element generate(Element.Kind kind, Theme theme)
     {
-        Location location = findFreePoint();
-
-        if (location == null) return null;
-
-        Element element = Element.Create(kind, location.point(), theme);
-
-        // Add the element to that page
-        add(location.index(), element);
+        return _generate(kind, theme, findFreePoint());
+    }
 
-        return element;
+    /**
+     *
+     * Attempts to generate an element of the given kind
+     * at a random free point of the grid, in O(lg N).
+     *
+     * @param kind The kind of element to construct.
+     *
+     * @param theme The theme containing the representation for the kind.
+     *
+     * @param random The source of randomness to pick the point with.
+     *
+     * @return The element generated if there was free space
+     *         somewhere, else null if there was no more free space.
+     */
+    public Element generate(Element.Kind kind, Theme theme, Random random)
+    {
+        return _generate(kind, theme, randomFreePoint(random));
     }
 
     /**
@@ -249,23 +369,23 @@ public class PageGrid
      */
     public Element remove(Element.Kind kind)
     {
-        Location location = locationOf(kind);
-
-        if (location == null) return null;
-
-        Page page = get(location.index());
-
-        assert(page != null);
-
-        Element element = page.at(location.point());
-
-        assert(element != null);
-
-        page.remove(element);
-
-        --_numberOfElements;
+        return _remove(find(kind));
+    }
 
-        return element;
+    /**
+     *
+     * Attempts to remove a random element of that kind, in O(lg N).
+     *
+     * @param kind The kind to attempt to find and remove.
+     *
+     * @param random The source of randomness to pick the element with.
+     *
+     * @return The element that was removed, or null if
+     *         there was no element of the given kind.
+     */
+    public Element remove(Element.Kind kind, Random random)
+    {
+        return _remove(random(kind, random));
     }
 
     /**
@@ -283,15 +403,38 @@ public class PageGrid
      */
     public Element find(Element.Kind kind)
     {
-        Location location = locationOf(kind);
+        if (count(kind) == 0) return null;
 
-        if (location == null) return null;
+        return _chunks.select(kind, 0);
+    }
+
+    /**
+     *
+     * Picks a random element of the given kind, in O(lg N).
+     *
+     * @param kind The kind to look for.
+     *
+     * @param random The source of randomness to pick the element with.
+     *
+     * @return A random element of the kind, or null if there is none.
+     */
+    public Element random(Element.Kind kind, Random random)
+    {
+        int count = count(kind);
 
-        Page page = get(location.index());
+        if (count == 0) return null;
 
-        assert(page != null);
+        return _chunks.select(kind, random.nextInt(count));
+    }
 
-        return page.at(location.point());
+    /**
+     * @param kind A kind of element.
+     *
+     * @return The number of elements of the kind in the grid.
+     */
+    public int count(Element.Kind kind)
+    {
+        return _chunks.count(kind);
     }
 
     /**
@@ -309,25 +452,11 @@ public class PageGrid
      */
     public Location locationOf(Element.Kind kind)
     {
-        for (int row = 0; row < height(); ++row)
-        {
-            for (int column = 0; column < width(); ++column)
-            {
-                Page page = get(column, row);
+        Element element = find(kind);
 
-                Collection<Element> collection = page.elements(kind);
+        if (element == null) return null;
 
-                if (! collection.isEmpty())
-                {
-                    return new Location(
-                            new Index(column, row),
-                            collection.iterator().next().point()
-                    );
-                }
-            }
-        }
-
-        return null;
+        return new Location(pageIndexOf(element), element.point());
     }
 
     /**
@@ -339,36 +468,42 @@ public class PageGrid
      */
     public Location findFreePoint()
     {
-        Region level = new Region(
-                _levelSize.getColumns() - 1, // size is not not inclusive
-                _levelSize.getRows()    - 1  // but a region is
-        );
+        if (_chunks.free() == 0) return null;
 
-        for (int row = 0; row < height(); ++row)
-        {
-            for (int column = 0; column < width(); ++column)
-            {
-                Point point = get(column, row).freePoint(level);
+        Point point = _chunks.freePoint(0);
 
-                if (point != null)
-                {
-                    return new Location(new Index(column, row), point);
-                }
-            }
-        }
+        return new Location(pageIndexAt(point), point);
+    }
 
-        return null;
+    /**
+     *
+     * Attempts to find the Location of a random free point
+     * in the grid, with every free point equally likely.
+     *
+     * @param random The source of randomness to pick the point with.
+     *
+     * @return The Location of a random free point, or
+     *         null if there is no free point left.
+     */
+    public Location randomFreePoint(Random random)
+    {
+        int free = _chunks.free();
+
+        if (free == 0) return null;
+
+        Point point = _chunks.freePoint(random.nextInt(free));
+
+        return new Location(pageIndexAt(point), point);
     }
 
     /**
      *
      * Resizes the grid for a new LevelSize.
      *
-     * This operation can be much much more efficient than the resizing
-     * operations involving a change in the terminal size, as a change
-     * in the levelSize may only mean removing or adding a few pages on
-     * the outer edges of the grid, without expensive re-distribution of
-     * elements.
+     * Only the chunks at the right and bottom edges of the level are added
+     * or dropped (along with the elements no longer inside the level), and
+     * the pages are laid out anew for the level, without any expensive
+     * re-distribution of elements.
      *
      * @param levelSize The new levelSize.
      */
@@ -376,25 +511,11 @@ public class PageGrid
     {
         assert(levelSize != null);
 
-        // Recompute the dimensions of the grid
-        Dimensions dimensions =
-                _computeDimensions(levelSize, _terminalSize);
-
-        // Check if we need to add/remove pages at the bottom
-        _resizeVertically(levelSize, dimensions);
-
-        // Check if we need to add/remove pages on the right
-        _resizeHorizontally(levelSize, dimensions);
-
-        // Just assertions
-        assert(_grid.size() == dimensions.height());
+        _resizeLevel(levelSize);
 
-        for (List<Page> row : _grid)
-        {
-            assert(row.size() == dimensions.width());
-        }
+        _dimensions = _computeDimensions(levelSize, _terminalSize);
 
-        _levelSize = levelSize;
+        _grid = _newGrid(_dimensions, _terminalSize);
 
         _currentIndex = new Index(0, 0);
         _currentPage = null;
@@ -417,11 +538,11 @@ public class PageGrid
      *
      * Resizes the terminal according to a new terminal size and level size.
      *
-     * This operation is the most expensive in the grid, as it requires
-     * creating an entirely new grid of pages and redistributing all the
-     * elements in the old grid into that new grid. It's a linear-time
-     * operation, but requires some temporary extra space because two
-     * grids exist until the old one has been emptied into the new one.
+     * The elements stay in their chunks, which do not depend on the size
+     * of the terminal, so only the pages are laid out anew as windows onto
+     * those chunks. That costs as much as there are pages, not elements.
+     * If the level size changed, too, the chunks are resized like for
+     * resize(LevelSize).
      *
      * @param levelSize The new levelSize.
      *
@@ -429,19 +550,18 @@ public class PageGrid
      */
     public void resize(LevelSize levelSize, TerminalSize terminalSize)
     {
+        assert(levelSize != null);
         assert(terminalSize != null);
 
-        _levelSize = levelSize;
+        if (! levelSize.equals(_levelSize)) _resizeLevel(levelSize);
+
         _terminalSize = terminalSize;
 
-        // Sweet optimization for when there is only one page.
-        if (_greater(_levelSize, _terminalSize))
-        {
-            // get new width and height of the grid
-            _dimensions = _computeDimensions(levelSize, terminalSize);
+        _dimensions = _computeDimensions(levelSize, terminalSize);
 
-            _redistribute(_grid, _newGrid(_dimensions, terminalSize));
-        }
+        _grid = _newGrid(_dimensions, terminalSize);
+
+        _currentPage = null;
     }
 
     /**
@@ -871,11 +991,151 @@ public class PageGrid
      */
     public Page getPageAt(Point point)
     {
-        Index index = pageIndexAt(point);
+        return getPageAt(point.x(), point.y());
+    }
 
-        if (index == null) return null;
+    /**
+     *
+     * Gets the page the point with the given coordinates is contained in,
+     * without allocating an Index or a Point on the way.
+     *
+     * @param x The x-coordinate of the point to get the page for.
+     *
+     * @param y The y-coordinate of the point to get the page for.
+     *
+     * @return The page the point is contained in, if
+     *         such a page exists in the grid, else null.
+     *
+     * @see PageGrid#getPageAt(Point)
+     */
+    public Page getPageAt(int x, int y)
+    {
+        int column = x / _terminalSize.getColumns();
 
-        return get(index);
+        if (column >= width()) return null;
+
+        int row = y / _terminalSize.getRows();
+
+        if (row >= height()) return null;
+
+        return get(column, row);
+    }
+
+    /**
+     *
+     * Returns the element at the given point in the grid, if any.
+     *
+     * @param point The point to look up.
+     *
+     * @return The element at the point, or null if there is
+     *         none or the point is not contained in the grid.
+     */
+    public Element at(Point point)
+    {
+        assert(point != null);
+
+        return at(point.x(), point.y());
+    }
+
+    /**
+     *
+     * Returns the element at the given coordinates in the grid, if any.
+     *
+     * @param x The x-coordinate to look up.
+     *
+     * @param y The y-coordinate to look up.
+     *
+     * @return The element at the coordinates, or null if there is
+     *         none or the point is not contained in the grid.
+     */
+    public Element at(int x, int y)
+    {
+        return _chunks.at(x, y);
+    }
+
+    /**
+     *
+     * Returns the elements inside a region of the level.
+     *
+     * @param region The region to query, which may
+     *               extend beyond the level.
+     *
+     * @return A new list of the elements inside the region.
+     *
+     * @see PageGrid#query(Region, Element.Kind, Consumer)
+     */
+    public List<Element> query(Region region)
+    {
+        return query(region, (Element.Kind) null);
+    }
+
+    /**
+     *
+     * Returns the elements of a kind inside a region of the level.
+     *
+     * @param region The region to query, which may
+     *               extend beyond the level.
+     *
+     * @param kind The kind of elements to return, or null for all.
+     *
+     * @return A new list of the elements inside the region.
+     *
+     * @see PageGrid#query(Region, Element.Kind, Consumer)
+     */
+    public List<Element> query(Region region, Element.Kind kind)
+    {
+        List<Element> result = new ArrayList<>();
+
+        query(region, kind, result::add);
+
+        return result;
+    }
+
+    /**
+     *
+     * Visits the elements inside a region of the level.
+     *
+     * @param region The region to query, which may
+     *               extend beyond the level.
+     *
+     * @param visitor The visitor to call for each element.
+     *
+     * @see PageGrid#query(Region, Element.Kind, Consumer)
+     */
+    public void query(Region region, Consumer<Element> visitor)
+    {
+        query(region, null, visitor);
+    }
+
+    /**
+     *
+     * Visits the elements of a kind inside a region of the level, in no
+     * particular order. Only the chunks overlapping the region are looked
+     * at, and each chunk only looks at the part of it inside the region
+     * (or at its elements of the kind, if there are fewer of those). No
+     * collection is allocated on the way, so this can be used on hot
+     * paths, e.g. to render a viewport or to look around an obstacle.
+     *
+     * @param region The region to query, which may
+     *               extend beyond the level.
+     *
+     * @param kind The kind of elements to visit, or null for all.
+     *
+     * @param visitor The visitor to call for each element.
+     */
+    public void query(Region region, Element.Kind kind, Consumer<Element> visitor)
+    {
+        assert(region != null);
+        assert(visitor != null);
+
+        _chunks.query(
+                region.southWest().x(),
+                region.northEast().y(),
+                region.northEast().x(),
+                region.southWest().y(),
+                kind,
+                visitor
+        );
     }
 
     /**
@@ -1042,6 +1302,20 @@ public class PageGrid
         return true;
     }
 
+    /**
+     *
+     * Puts the elements of every chunk and the index of dynamic obstacles
+     * into the order of a grid loaded from the same elements, i.e. the
+     * row-major order of their points (see Chunk.order()), which is what
+     * a session needs to resume the grid exactly.
+     */
+    public void order()
+    {
+        _chunks.order();
+
+        _reindex();
+    }
+
     /**
      * @return The opposite of isPerfectFit().
      */
@@ -1051,239 +1325,76 @@ public class PageGrid
     }
 
     /**
-     * @return A collection of all the pages contained in the grid.
+     * @return The dynamic obstacles of all pages in the grid, in no
+     *         particular order. This is an index maintained as elements
+     *         are added and removed, so it does not scan the pages.
      */
-    public Collection<Page> pages()
+    public Collection<DynamicObstacle> dynamicObstacles()
     {
-        Collection<Page> pages = new ArrayList<>();
-
-        for (List<Page> row : _grid) row.forEach(pages::add);
-
-        return pages;
+        return Collections.unmodifiableList(_dynamicObstacles);
     }
 
     /**
-     *
-     * Computes the dimensions resulting from the given
-     * levelSize and terminalSize.
-     *
-     * @param levelSize The size of the level.
-     *
-     * @param terminalSize The size of the terminal.
-     *
-     * @return The resulting Dimensions object.
+     * @return The positions of all elements in the grid. This is a view,
+     *         so it costs nothing to get and looks up points in the pages.
      */
-    private static Dimensions
-    _computeDimensions(LevelSize levelSize, TerminalSize terminalSize)
+    public Set<Point> positions()
     {
-        double dimension = ((double)levelSize.getColumns()) /
-                           terminalSize.getColumns();
-
-        int width = (int) Math.ceil(dimension);
-
-        dimension = ((double)levelSize.getRows()) / terminalSize.getRows();
-
-        int height = (int) Math.ceil(dimension);
-
-        return new Dimensions(width, height);
+        return _positions;
     }
 
     /**
-     *
-     * Performs the horizontal shrinking of the grid
-     * on a level-size-only resize-event.
-     *
-     * This is one of the optimizations that can be performed for only resizing
-     * the level. i.e. if the levelSize shrinks we only need to remove the
-     * pages the level is no longer contained in, we don't need to redistribute
-     * any elements.
-     *
-     * @param columns The new number of columns in the level.
-     *
-     * @param dimensions The dimensions computed for new levelSize
-     *                   and existing terminalSize.
+     * @return The region of the whole level assumed by the grid.
      */
-    private void _shrinkLevelSizeForWidth(int columns, Dimensions dimensions)
+    public Region region()
     {
-        boolean ragged = columns % _terminalSize.getColumns() != 0;
-
-        // Iterate over the rows in the grid
-        for (int i = 0; i < height(); ++i)
-        {
-            List<Page> row = _grid.get(i);
-
-            // Start at the boundary of the dimensions and remove
-            // all invalidated pages going to the right
-            for (int j = dimensions.width(), w = width(); j < w; ++j)
-            {
-                row.remove(j);
-            }
-
-            // If the level is now ragged, i.e. the terminalSize is not
-            // an divisor of the levelSize, then we also have to remove
-            // the elements that are contained in the outer pages which
-            // the level is only partially contained in, but that are
-            // not contained in the level any longer.
-            if (ragged)
-            {
-                Iterator<Element> iterator =
-                        row.get(dimensions.height() - 1).iterator();
-
-                while(iterator.hasNext())
-                {
-                    if (iterator.next().point().x() >= columns)
-                    {
-                        iterator.remove();
-                    }
-                }
-            }
-        }
-
-        _dimensions.width(dimensions.width());
+        return _levelRegion;
     }
 
     /**
-     *
-     * Performs the horizontal growing of the grid
-     * on a level-size-only resize-event.
-     *
-     * This is one of the optimizations that can be performed for
-     * only resizing the level. i.e. if the levelSize grows we only
-     * need to add some new pages.
-     *
-     * @param dimensions The dimensions computed for new levelSize
-     *                   and existing terminalSize.
+     * @return The chunks storing the elements of the grid.
      */
-    private void _growLevelSizeForWidth(Dimensions dimensions)
+    public ChunkGrid chunks()
     {
-        int numberOfNewColumns = dimensions.width() - width();
-
-        // Else we wouldn't have come here
-        assert(numberOfNewColumns > 0);
-
-        final int columns = _terminalSize.getColumns();
-
-        // Iterate over the rows of the grid
-        for (int i = 0; i < height(); ++i)
-        {
-            List<Page> row = _grid.get(i);
-
-            // Add pages to the right
-            for (int j = 0; j < numberOfNewColumns; ++j)
-            {
-                // Just computing the regions for the new pages
-                Region left = row.get(row.size() - 1).region();
-
-                Point southWest = new Point(left.southEast().right());
-                Point northEast = new Point(
-                        left.southEast().x() + columns,
-                        left.northEast().y()
-                );
-
-                row.add(new Page(new Region(southWest, northEast)));
-            }
-        }
-
-        _dimensions.width(dimensions.width());
+        return _chunks;
     }
 
     /**
-     *
-     * Performs the vertical shrinking of the grid
-     * on a level-size-only resize-event.
-     *
-     * This is one of the optimizations that can be performed for only resizing
-     * the level. i.e. if the levelSize shrinks we only need to remove the
-     * pages the level is no longer contained in, we don't need to redistribute
-     * any elements.
-     *
-     * @param rows The new number of rows in the level.
-     *
-     * @param dimensions The dimensions computed for new levelSize
-     *                   and existing terminalSize.
+     * @return A collection of all the pages contained in the grid.
      */
-    private void _shrinkLevelSizeForHeight(int rows, Dimensions dimensions)
+    public Collection<Page> pages()
     {
-        // Move backwards for more efficient removal in an ArrayList
-        for (int i = height() - 1; i >= dimensions.height(); --i)
-        {
-            _grid.remove(i);
-        }
-
-        // Same raggedness check as in _shrinkLevelSizeForWidth
-        if (rows % _terminalSize.getRows() != 0)
-        {
-            for (Page page : _grid.get(_grid.size() - 1))
-            {
-                Iterator<Element> iterator = page.iterator();
+        Collection<Page> pages = new ArrayList<>();
 
-                while(iterator.hasNext())
-                {
-                    if (iterator.next().point().y() >= rows)
-                    {
-                        iterator.remove();
-                    }
-                }
-            }
-        }
+        for (List<Page> row : _grid) row.forEach(pages::add);
 
-        _dimensions.height(dimensions.height());
+        return pages;
     }
 
     /**
      *
-     * Performs the vertical growing of the grid
-     * on a level-size-only resize-event.
+     * Computes the dimensions resulting from the given
+     * levelSize and terminalSize.
+     *
+     * @param levelSize The size of the level.
      *
-     * This is one of the optimizations that can be performed for
-     * only resizing the level. i.e. if the levelSize grows we only
-     * need to add some new pages.
+     * @param terminalSize The size of the terminal.
      *
-     * @param dimensions The dimensions computed for new levelSize
-     *                   and existing terminalSize.
+     * @return The resulting Dimensions object.
      */
-    private void _growLevelSizeForHeight(Dimensions dimensions)
+    private static Dimensions
+    _computeDimensions(LevelSize levelSize, TerminalSize terminalSize)
     {
-        int numberOfNewRows = dimensions.height() - height();
-
-        assert(numberOfNewRows > 0);
-
-        final int columns = _terminalSize.getColumns();
-        final int rows    = _terminalSize.getRows();
-
-        int offset = height() * rows;
-
-        // Add this many rows
-        for (int i = 0; i < numberOfNewRows; ++i, offset += rows)
-        {
-            // Takes some work to create an entire row
-            List<Page> row = new ArrayList<>();
-
-            // Left-most page in the row
-            Point initialSouthWest = new Point(0, offset + rows - 1);
-            Point initialNorthEast = new Point(columns - 1, offset);
-
-            row.add(new Page(new Region(initialSouthWest, initialNorthEast)));
-
-            // Pages after that can use the previous page
-            // (to their left) to calculate their own region.
-            for (int j = 1; j < width(); ++j)
-            {
-                Region left = row.get(row.size() - 1).region();
+        double dimension = ((double)levelSize.getColumns()) /
+                           terminalSize.getColumns();
 
-                Point southWest = new Point(left.southEast().right());
-                Point northEast = new Point(
-                        left.southEast().x() + columns,
-                        left.northEast().y()
-                );
+        int width = (int) Math.ceil(dimension);
 
-                row.add(new Page(new Region(southWest, northEast)));
-            }
+        dimension = ((double)levelSize.getRows()) / terminalSize.getRows();
 
-            _grid.add(row);
-        }
+        int height = (int) Math.ceil(dimension);
 
-        _dimensions.height(dimensions.height());
+        return new Dimensions(width, height);
     }
 
     /**
@@ -1291,6 +1402,8 @@ public class PageGrid
      * Creates a new grid given the dimensions and the terminalSize.
      *
      * The terminalSize is necessary to calculate the regions of the pages.
+     * The pages are windows onto the chunks, so they come with the elements
+     * inside their regions already.
      *
      * @param dimension The width and height (in number of
      *                  pages) the new grid should have.
@@ -1323,11 +1436,11 @@ public class PageGrid
             {
                 // Create the region with the x and y offsets so far
                 Region region = new Region(
-                    new Point(xOffset, yOffset + rows - 1),
-                    new Point(xOffset + columns - 1, yOffset)
+                    Point.of(xOffset, yOffset + rows - 1),
+                    Point.of(xOffset + columns - 1, yOffset)
                 );
 
-                row.add(new Page(region));
+                row.add(Page.window(region, _chunks));
 
                 xOffset += columns;
             }
@@ -1343,109 +1456,164 @@ public class PageGrid
 
     /**
      *
-     * Redistributes elements from an old grid to a new grid.
+     * Generates an element at a location, if there is one.
      *
-     * @param oldGrid The source grid.
+     * @param kind The kind of element to construct.
+     *
+     * @param theme The theme containing the representation for the kind.
      *
-     * @param newGrid The destination grid.
+     * @param location The free location, or null.
+     *
+     * @return The element generated, or null if the location was null.
      */
-    private void _redistribute(List<List<Page>> oldGrid,
-                               List<List<Page>> newGrid)
+    private Element _generate(Element.Kind kind, Theme theme, Location location)
     {
-        _grid = newGrid;
+        if (location == null) return null;
 
-        _numberOfElements = 0;
+        Element element = Element.Create(kind, location.point(), theme);
 
-        for (List<Page> row : oldGrid)
-        {
-            for (Page page : row)
-            {
-                page.forEach(this::add);
-            }
-        }
+        // Add the element to that page
+        add(location.index(), element);
+
+        return element;
     }
 
     /**
      *
-     * Handles vertical resizing (growing/shrinking)
-     * for a level-size-only resize-event.
+     * Removes an element found by kind, if there is one.
      *
-     * @param levelSize The new levelSize.
+     * @param element The element, or null.
      *
-     * @param dimensions The computed new dimensions.
+     * @return The element, or null if it was null.
      */
-    private void _resizeVertically(LevelSize levelSize, Dimensions dimensions)
+    private Element _remove(Element element)
     {
-        int comparison = dimensions.height().compareTo(height());
+        if (element == null) return null;
 
-        if (comparison == -1)
-        {
-            _shrinkLevelSizeForHeight(levelSize.getRows(), dimensions);
-        }
+        remove(element);
 
-        else if (comparison == +1)
+        return element;
+    }
+
+    /**
+     *
+     * Adds an element to the index of dynamic obstacles, if it is one.
+     *
+     * @param element The element that was added to the grid.
+     */
+    private void _index(Element element)
+    {
+        if (element.kind() == Element.Kind.DYNAMIC_OBSTACLE)
         {
-            _growLevelSizeForHeight(dimensions);
+            DynamicObstacle obstacle = (DynamicObstacle) element;
+
+            obstacle.index(_dynamicObstacles.size());
+
+            _dynamicObstacles.add(obstacle);
         }
     }
 
     /**
      *
-     * Handles horizontal resizing (growing/shrinking)
-     * for a level-size-only resize-event.
-     *
-     * @param levelSize The new levelSize.
+     * Removes an element from the index of dynamic obstacles, if it is
+     * one. The last obstacle of the index takes over its position, so
+     * this takes constant time but does not keep the order of the index.
      *
-     * @param dimensions The computed new dimensions.
+     * @param element The element that was removed from the grid.
      */
-    private void _resizeHorizontally(LevelSize levelSize, Dimensions dimensions)
+    private void _unindex(Element element)
     {
-        int comparison = dimensions.width().compareTo(width());
+        if (element.kind() != Element.Kind.DYNAMIC_OBSTACLE) return;
 
-        if (comparison == -1)
-        {
-            _shrinkLevelSizeForWidth(levelSize.getColumns(), dimensions);
-        }
+        int index = ((DynamicObstacle) element).index();
+
+        assert(_dynamicObstacles.get(index) == element);
 
-        else if (comparison == +1)
+        DynamicObstacle last = _dynamicObstacles.remove(_dynamicObstacles.size() - 1);
+
+        if (last != element)
         {
-            _growLevelSizeForWidth(dimensions);
+            _dynamicObstacles.set(index, last);
+
+            last.index(index);
         }
     }
 
     /**
      *
-     * Utility method to determine if a levelSize
-     * is greater than a terminalSize.
-     *
-     * @param levelSize The levelSize that should be compared.
+     * Resizes the chunks for a new level size, which may drop
+     * elements that are no longer inside the level.
      *
-     * @param terminalSize The terminalSize that should be compared.
-     *
-     * @return True if the levelSize has more columns or
-     *         rows than the terminalSize, else false.
+     * @param levelSize The new levelSize.
      */
-    private static boolean _greater(LevelSize levelSize,
-                                    TerminalSize terminalSize)
+    private void _resizeLevel(LevelSize levelSize)
     {
-        if (levelSize.getColumns() > terminalSize.getColumns()) return true;
+        _chunks.resize(levelSize);
+
+        _levelSize = levelSize;
+
+        _levelRegion = _regionOf(levelSize);
 
-        if (levelSize.getRows() > terminalSize.getRows()) return true;
+        _numberOfElements = _chunks.size();
 
-        return false;
+        _reindex();
     }
 
+    /**
+     * Rebuilds the index of dynamic obstacles from the chunks.
+     */
+    private void _reindex()
+    {
+        _dynamicObstacles.clear();
+
+        for (int row = 0; row < _chunks.height(); ++row)
+        {
+            for (int column = 0; column < _chunks.width(); ++column)
+            {
+                Chunk chunk = _chunks.get(column, row);
+
+                for (Element element : chunk.elements(Element.Kind.DYNAMIC_OBSTACLE))
+                {
+                    _index(element);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param levelSize A level size.
+     *
+     * @return The region covering a level of that size.
+     */
+    private static Region _regionOf(LevelSize levelSize)
+    {
+        return new Region(levelSize.getColumns() - 1, levelSize.getRows() - 1);
+    }
+
+    /**
+     * The number of elements from which on they
+     * are worth loading on several threads.
+     */
+    private static final int PARALLEL_THRESHOLD = 65536;
+
     private LevelSize _levelSize;
 
     private TerminalSize _terminalSize;
 
+    private final ChunkGrid _chunks;
+
     private List<List<Page>> _grid;
 
     private Dimensions _dimensions;
 
-    
+    private Region _levelRegion;
+
     private int _numberOfElements;
 
+    private final List<DynamicObstacle> _dynamicObstacles;
+
+    private final Set<Point> _positions = new Positions();
+
     private Index _currentIndex;
 
     private Page _currentPage;
@@ -4,13 +4,243 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.regex.Matcher;
 
 /**
- * A Pattern is a finite set of deltas that a PatternObstacle moves by.
+ * A Pattern is a finite sequence of deltas that a PatternObstacle moves by.
+ *
+ * A Pattern is immutable, so one Pattern can be shared by any number of
+ * obstacles. The position in the pattern belongs to whoever follows it,
+ * as a Cursor, so obstacles following the same pattern do not advance
+ * each other and can move in any order, or on several threads.
  */
 public class Pattern implements Iterable<Delta>
 {
+    /**
+     * A position in a Pattern, which moves along the pattern and wraps
+     * around at either end. Each follower of a pattern has its own.
+     */
+    public static class Cursor
+    {
+        /**
+         *
+         * Constructs a Cursor at the start of a pattern.
+         *
+         * @param pattern The pattern to follow.
+         */
+        public Cursor(Pattern pattern)
+        {
+            assert(pattern != null);
+
+            _pattern = pattern;
+
+            _index = 0;
+        }
+
+        /**
+         *
+         * Applies the current delta in the pattern to the given point,
+         * without moving to the next Delta in the pattern.
+         *
+         * @param point The point to apply the Delta to.
+         *
+         * @return The resulting point (the one passed is left untouched).
+         *
+         * @see Cursor#safeApply
+         *
+         */
+        public Point apply(Point point)
+        {
+            return point.plus(_pattern._dx[_index], _pattern._dy[_index]);
+        }
+
+        /**
+         *
+         * Applies the current delta in the pattern to the given point
+         * and moves to the next Delta in the pattern after.
+         *
+         * @param point The point to apply the Delta to.
+         *
+         * @return The resulting point (the one passed is left untouched).
+         *
+         * @see Cursor#safeNext
+         *
+         */
+        public Point next(Point point)
+        {
+            point = apply(point);
+
+            skip();
+
+            return point;
+        }
+
+        /**
+         *
+         * Applies the current delta in the pattern to the given point
+         * and moves to the previous Delta in the pattern after.
+         *
+         * @param point The point to apply the Delta to.
+         *
+         * @return The resulting point (the one passed is left untouched).
+         *
+         * @see Cursor#safePrevious
+         *
+         */
+        public Point previous(Point point)
+        {
+            point = apply(point);
+
+            skip(-1);
+
+            return point;
+        }
+
+        /**
+         *
+         * Performs apply() only if the resulting point
+         * does not go outside the region.
+         *
+         * @param point The point to apply the Delta to, if it's safe.
+         *
+         * @param region The region the point should not trespass.
+         *
+         * @return The resulting point (the one passed is left untouched).
+         *
+         */
+        public Point safeApply(Point point, Region region)
+        {
+            int x = point.x() + _pattern._dx[_index];
+
+            int y = point.y() + _pattern._dy[_index];
+
+            if (x < 0 || y < 0 || ! region.contains(x, y)) return point;
+
+            return Point.of(x, y);
+        }
+
+        /**
+         *
+         * Performs next() only if the resulting point
+         * does not go outside the region.
+         *
+         * @param point The point to apply the Delta to, if it's safe.
+         *
+         * @param region The region the point should not trespass.
+         *
+         * @return The resulting point (the one passed is left untouched).
+         *
+         */
+        public Point safeNext(Point point, Region region)
+        {
+            point = safeApply(point, region);
+
+            skip();
+
+            return point;
+        }
+
+        /**
+         * Performs previous() only if the resulting point
+         * does not go outside the region.
+         *
+         * @param point The point to apply the Delta to, if it's safe.
+         *
+         * @param region The region the point should not trespass.
+         *
+         * @return The resulting point (the one passed is left untouched).
+         */
+        public Point safePrevious(Point point, Region region)
+        {
+            point = safeApply(point, region);
+
+            skip(-1);
+
+            return point;
+        }
+
+        /**
+         *
+         * @param index The index to check
+         *
+         * @return True if the cursor is at that index, else false.
+         *
+         */
+        public boolean isAt(int index)
+        {
+            return _index == index;
+        }
+
+        /**
+         *
+         * Jumps to the index in the pattern.
+         *
+         * @param index The index to jump to.
+         */
+        public void jumpTo(int index)
+        {
+            assert(index >= 0);
+            assert(index < _pattern.length());
+
+            _index = index;
+        }
+
+        /**
+         *
+         * Skips the given number of steps in the pattern. The number of steps
+         * can be negative and its absolute value greater than the pattern.
+         * An absolute value greater than the pattern is like looping multiple
+         * times backward or forward until the steps are zero.
+         *
+         * @param steps The number of steps to skip.
+         */
+        public void skip(int steps)
+        {
+            _index = Math.floorMod(_index + steps, _pattern.length());
+        }
+
+        /**
+         * Skips one step forward in the pattern.
+         */
+        public void skip()
+        {
+            if (++_index == _pattern.length()) _index = 0;
+        }
+
+        /**
+         * @return The current index in the pattern.
+         */
+        public int index()
+        {
+            return _index;
+        }
+
+        /**
+         *
+         * Returns the current delta in the pattern. It is
+         * shared by all cursors and must not be modified.
+         *
+         * @return The current delta in the pattern.
+         */
+        public Delta peek()
+        {
+            return _pattern._deltas[_index];
+        }
+
+        /**
+         * @return The pattern the cursor follows.
+         */
+        public Pattern pattern()
+        {
+            return _pattern;
+        }
+
+        private final Pattern _pattern;
+
+        private int _index;
+    }
+
     /**
      *
      * Constructs a pattern from one of the allowed pattern Strings.
@@ -28,29 +258,45 @@ public class Pattern implements Iterable<Delta>
      * d = DOWN
      *
      * (x, y)
-     * x y
-     * x, y
-     * [x, y]
+     * (+x, -y)
      * (x y)
-     * sdfasdflasfadsfdfa x asfjksdfjls y as;fkasirjlnafnrlf
+     * (x; y)
+     *
+     * Each of them may be preceded by a count, e.g. "2l" for
+     * two steps left. Anything between them is ignored.
      *
      * @param pattern The pattern string.
+     *
+     * @throws IllegalArgumentException if the string holds no delta.
      */
     public Pattern(String pattern)
     {
-        ArrayList<Delta> temporary = new ArrayList<>();
+        assert(pattern != null);
 
-        Matcher matcher = _regex.matcher(pattern);
+        List<Delta> deltas = new ArrayList<>();
 
-        // Finds first match and asserts there is at least one
-        assert(matcher.find());
+        Matcher matcher = _regex.matcher(pattern);
 
         // Find all the deltas
-        do _addDeltas(matcher, temporary, _parseDelta(matcher));
+        while (matcher.find()) _addDeltas(matcher, deltas, _parseDelta(matcher));
+
+        if (deltas.isEmpty())
+        {
+            throw new IllegalArgumentException("Not a pattern: " + pattern);
+        }
+
+        _dx = new int[deltas.size()];
 
-        while(matcher.find());
+        _dy = new int[deltas.size()];
 
-        _pattern = temporary.toArray(new Delta[temporary.size()]);
+        for (int i = 0; i < _dx.length; ++i)
+        {
+            _dx[i] = deltas.get(i).x();
+
+            _dy[i] = deltas.get(i).y();
+        }
+
+        _deltas = _makeDeltas();
     }
 
     /**
@@ -61,10 +307,7 @@ public class Pattern implements Iterable<Delta>
      */
     public Pattern(Delta... pattern)
     {
-        assert(pattern.length > 0);
-
-        _pattern = pattern;
-        _index = 0;
+        this(Arrays.asList(pattern));
     }
 
     /**
@@ -77,250 +320,151 @@ public class Pattern implements Iterable<Delta>
     {
         assert(! pattern.isEmpty());
 
-        _pattern = (Delta[]) pattern.toArray();
-        _index = 0;
-    }
+        _dx = new int[pattern.size()];
 
+        _dy = new int[pattern.size()];
 
-    /**
-     *
-     * Applies the current delta in the pattern to the given point,
-     * without moving to the next Delta in the pattern.
-     *
-     * @param point The point to apply the Delta to.
-     *
-     * @return The resulting point (same one that is passed and modified).
-     *
-     * @see Pattern#safeApply
-     *
-     */
-    public Point apply(Point point)
-    {
-        assert(_index >= 0);
-        assert(_index < _pattern.length);
+        int index = 0;
 
-        point.move(_pattern[_index]);
-
-        return point;
-    }
-
-    /**
-     *
-     * Applies the current delta in the pattern to the given point
-     * and moves to the next Delta in the pattern after.
-     *
-     * @param point The point to apply the Delta to.
-     *
-     * @return The resulting point (same one that is passed and modified).
-     *
-     * @see Pattern#safeNext
-     *
-     */
-    public Point next(Point point)
-    {
-        assert(_index >= 0);
-        assert(_index < _pattern.length);
+        // The deltas are copied, as they are mutable
+        for (Delta delta : pattern)
+        {
+            _dx[index] = delta.x();
 
-        apply(point);
+            _dy[index] = delta.y();
 
-        // Don't need to code defensively. Long live assertions.
-        if (++_index == _pattern.length) _index = 0;
+            ++index;
+        }
 
-        return point;
+        _deltas = _makeDeltas();
     }
 
     /**
-     *
-     * Applies the current delta in the pattern to the given point
-     * and moves to the previous Delta in the pattern after.
-     *
-     * @param point The point to apply the Delta to.
-     *
-     * @return The resulting point (same one that is passed and modified).
-     *
-     * @see Pattern#safePrevious
-     *
+     * @return A new Cursor at the start of the pattern.
      */
-    public Point previous(Point point)
+    public Cursor cursor()
     {
-        assert(_index >= 0);
-        assert(_index < _pattern.length);
-
-        apply(point);
-
-        // Don't need to code defensively. Long live assertions.
-        if (--_index == -1) _index = _pattern.length - 1;
-
-        return point;
+        return new Cursor(this);
     }
 
     /**
+     * @param index The index to check
      *
-     * Performs apply() only if the resulting point
-     * does not go outside the region.
-     *
-     * @param point The point to apply the Delta to, if it's safe.
-     *
-     * @param region The region the point should not trespass.
-     *
-     * @return The resulting point (same one that is passed and modified).
-     *
+     * @return A new Delta equal to the one at that index in the pattern.
      */
-    public Point safeApply(Point point, Region region)
+    public Delta at(int index)
     {
-        assert(_index >= 0);
-        assert(_index < _pattern.length);
-
-        Delta delta = _pattern[_index];
-
-        if (point.wouldGoOutside(delta, region)) return point;
+        assert(index >= 0);
+        assert(index < _dx.length);
 
-        return point.move(_pattern[_index]);
+        return new Delta(_dx[index], _dy[index]);
     }
 
     /**
+     * @param index The index of a step in the pattern.
      *
-     * Performs next() only if the resulting point
-     * does not go outside the region.
-     *
-     * @param point The point to apply the Delta to, if it's safe.
-     *
-     * @param region The region the point should not trespass.
-     *
-     * @return The resulting point (same one that is passed and modified).
-     *
+     * @return The x-component of the delta of the step.
      */
-    public Point safeNext(Point point, Region region)
+    public int dx(int index)
     {
-        assert(_index >= 0);
-        assert(_index < _pattern.length);
-
-        safeApply(point, region);
-
-        // No defensive coding!
-        if (++_index == length()) _index = _pattern.length - 1;
-
-        return point;
+        return _dx[index];
     }
 
     /**
-     * Performs previous() only if the resulting point
-     * does not go outside the region.
-     *
-     * @param point The point to apply the Delta to, if it's safe.
+     * @param index The index of a step in the pattern.
      *
-     * @param region The region the point should not trespass.
-     *
-     * @return The resulting point (same one that is passed and modified).
+     * @return The y-component of the delta of the step.
      */
-    public Point safePrevious(Point point, Region region)
+    public int dy(int index)
     {
-        assert(_index >= 0);
-        assert(_index < _pattern.length);
-
-        safeApply(point, region);
-
-        // No defensive coding!
-        if (--_index == -1) _index = _pattern.length - 1;
-
-        return point;
+        return _dy[index];
     }
 
     /**
-     *
-     * @param index The index to check
-     *
-     * @return True if the pattern is at that index, else false.
-     *
+     * @return The length of the pattern (number of steps).
      */
-    public boolean isAt(int index)
+    public int length()
     {
-        return _index == index;
+        return _dx.length;
     }
 
     /**
-     * @param index The index to check
-     *
-     * @return The delta at that index in the pattern.
+     * @return An iterator over (copies of) the Deltas in the pattern.
      */
-
-    public Delta at(int index)
+    public Iterator<Delta> iterator()
     {
-        assert(index >= 0);
-        assert(index < _pattern.length);
+        List<Delta> deltas = new ArrayList<>();
 
-        return _pattern[index];
+        for (int i = 0; i < _dx.length; ++i) deltas.add(at(i));
+
+        return deltas.iterator();
     }
 
     /**
      *
-     * Jumps to the index in the pattern.
+     * Returns the pattern as a string from which an equal pattern can be
+     * constructed, with one letter per step where possible, e.g. "ll(1,-1)".
      *
-     * @param index The index to jump to.
+     * @return The pattern string.
      */
-    public void jumpTo(int index)
+    @Override public String toString()
     {
-        assert(index >= 0);
-        assert(index < _pattern.length);
+        StringBuilder builder = new StringBuilder();
 
-        _index = index;
-    }
+        for (int i = 0; i < _dx.length; ++i)
+        {
+            int dx = _dx[i];
 
-    /**
-     *
-     * Skips the given number of steps in the pattern. The number of steps
-     * can be negative and its absolute value greater than the pattern.
-     * An absolute value greater than the pattern is like looping multiple
-     * times backward or forward until the steps are zero.
-     *
-     * @param steps The number of steps to skip.
-     */
-    public void skip(int steps)
-    {
-        _index = (_index + steps) % _pattern.length;
-    }
+            int dy = _dy[i];
 
-    /**
-     * Skips one step forward in the pattern.
-     */
-    public void skip()
-    {
-        skip(1);
-    }
+            if      (dx == -1 && dy ==  0) builder.append('l');
+            else if (dx == +1 && dy ==  0) builder.append('r');
+            else if (dx ==  0 && dy == -1) builder.append('u');
+            else if (dx ==  0 && dy == +1) builder.append('d');
 
-    /**
-     * @return The current index of the pattern.
-     */
-    public int index()
-    {
-        return _index;
+            else builder.append('(').append(dx).append(',').append(dy).append(')');
+        }
+
+        return builder.toString();
     }
 
     /**
      *
-     * Equivalent to at(index())
+     * Patterns are equal if they have the same steps.
+     *
+     * @param object The object to compare with.
      *
-     * @return Returns the current delta in the pattern.
+     * @return True if the object is an equal Pattern, else false.
      */
-    public Delta peek()
+    @Override public boolean equals(Object object)
     {
-        return _pattern[_index];
+        if (object == this) return true;
+
+        if (! (object instanceof Pattern)) return false;
+
+        Pattern other = (Pattern) object;
+
+        return Arrays.equals(_dx, other._dx) && Arrays.equals(_dy, other._dy);
     }
 
     /**
-     * @return The length of the pattern (number of steps).
+     * @return A hash of the steps of the pattern.
      */
-    public int length()
+    @Override public int hashCode()
     {
-        return _pattern.length;
+        return 31 * Arrays.hashCode(_dx) + Arrays.hashCode(_dy);
     }
 
     /**
-     * @return An iterator over the Deltas in the pattern.
+     * @return The Deltas of the steps, to hand out without allocating.
      */
-    public Iterator<Delta> iterator()
+    private Delta[] _makeDeltas()
     {
-        return Arrays.asList(_pattern).iterator();
+        Delta[] deltas = new Delta[_dx.length];
+
+        for (int i = 0; i < deltas.length; ++i) deltas[i] = at(i);
+
+        return deltas;
     }
 
     /**
@@ -411,10 +555,18 @@ public class Pattern implements Iterable<Delta>
 
     // Regex is love, Regex is life
     private static final java.util.regex.Pattern _regex = java.util.regex.Pattern.compile(
-       "(?<count>\\d+)?\\s*(?:\\(\\s*(-?\\d+)\\s*[,;\\s]\\s*(-?\\d+)\\)|([lrud]))"
+       "(?<count>\\d+)?\\s*(?:\\(\\s*([-+]?\\d+)\\s*[,;\\s]\\s*([-+]?\\d+)\\s*\\)|([lrud]))"
     );
 
-    private final Delta[] _pattern;
+    /**
+     * The x-components of the steps.
+     */
+    private final int[] _dx;
+
+    /**
+     * The y-components of the steps.
+     */
+    private final int[] _dy;
 
-    private int _index;
+    private final Delta[] _deltas;
 }
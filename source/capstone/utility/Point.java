@@ -11,11 +11,78 @@ import java.util.regex.Pattern;
  *
  * Also note that a point may never be
  * negative, either for x or for y components.
+ *
+ * Points are immutable values of two primitive ints, so they can be
+ * shared freely and nobody has to defensively copy them before moving
+ * an element. All the operations that "move" a point instead return
+ * another point, taken from a flyweight cache whenever the coordinates
+ * are small enough (which they are for any sane level). So moving an
+ * obstacle or player around the level allocates nothing once the cache
+ * is warm, and hashing or comparing points never touches a boxed Integer.
  */
-public class Point
-        extends AbstractPair<Integer, Integer>
-        implements Comparable<Point>
+public final class Point implements Comparable<Point>
 {
+    /**
+     *
+     * Returns the (cached) Point for the given components.
+     *
+     * Prefer this over the constructor, as it will return the
+     * same instance for the same coordinates most of the time.
+     *
+     * @param x The x-component of the point.
+     *
+     * @param y The y-component of the point.
+     *
+     * @return A Point with the given components.
+     */
+    public static Point of(int x, int y)
+    {
+        assert(x >= 0);
+        assert(y >= 0);
+
+        if (x >= CACHE_LIMIT || y >= CACHE_LIMIT) return new Point(x, y);
+
+        int block = (y >> BLOCK_BITS) * BLOCKS + (x >> BLOCK_BITS);
+
+        Point[] points = _cache[block];
+
+        // Races here can only ever produce duplicate but equal
+        // points, which is harmless as equality is by value.
+        if (points == null)
+        {
+            _cache[block] = points = new Point[BLOCK_SIZE * BLOCK_SIZE];
+        }
+
+        int offset = ((y & BLOCK_MASK) << BLOCK_BITS) | (x & BLOCK_MASK);
+
+        Point point = points[offset];
+
+        if (point == null) points[offset] = point = new Point(x, y);
+
+        return point;
+    }
+
+    /**
+     *
+     * Returns the (cached) Point for a string representation
+     * of the format accepted by the String constructor.
+     *
+     * @param string The string representing the point.
+     *
+     * @return The point represented by the string.
+     *
+     * @see Point#Point(String)
+     */
+    public static Point of(String string)
+    {
+        Matcher matcher = _match(string);
+
+        return of(
+                Integer.parseInt(matcher.group(1)),
+                Integer.parseInt(matcher.group(2))
+        );
+    }
+
     /**
      *
      * Constructs a Point from its two components.
@@ -25,10 +92,11 @@ public class Point
      */
     public Point(int x, int y)
     {
-        super(x, y);
-
         assert(x  >= 0);
         assert(y >= 0);
+
+        _x = x;
+        _y = y;
     }
 
     /**
@@ -39,7 +107,10 @@ public class Point
      */
     public Point(Point other)
     {
-        super(other);
+        assert(other != null);
+
+        _x = other._x;
+        _y = other._y;
     }
 
     /**
@@ -58,15 +129,10 @@ public class Point
      */
     public Point(String string)
     {
-        Matcher matcher = _pattern.matcher(string);
-
-        assert(matcher.matches());
-
-        // No idea why I have to call it twice. None.
-        matcher.matches();
+        Matcher matcher = _match(string);
 
-        this.x(Integer.parseInt(matcher.group(1)));
-        this.y(Integer.parseInt(matcher.group(2)));
+        _x = Integer.parseInt(matcher.group(1));
+        _y = Integer.parseInt(matcher.group(2));
     }
 
     /**
@@ -79,9 +145,9 @@ public class Point
      */
     public Point above()
     {
-        assert(y() > 0);
+        assert(_y > 0);
 
-        return new Point(x(), y() - 1);
+        return of(_x, _y - 1);
     }
 
     /**
@@ -92,7 +158,7 @@ public class Point
      */
     public Point below()
     {
-        return new Point(x(), y() + 1);
+        return of(_x, _y + 1);
     }
 
     /**
@@ -105,9 +171,9 @@ public class Point
      */
     public Point left()
     {
-        assert(x() > 0);
+        assert(_x > 0);
 
-        return new Point(x() - 1, y());
+        return of(_x - 1, _y);
     }
 
     /**
@@ -118,7 +184,7 @@ public class Point
      */
     public Point right()
     {
-        return new Point(x() + 1, y());
+        return of(_x + 1, _y);
     }
 
     /**
@@ -126,80 +192,81 @@ public class Point
      */
     public int x()
     {
-        return super.first();
+        return _x;
     }
 
     /**
-     *
-     * Sets the point's x-component.
-     *
-     * Must be non-negative.
-     *
-     * @param x The new value for the points' x-component.
+     * @return The Point's y-component.
      */
-    public void x(int x)
+    public int y()
     {
-        assert(x >= 0);
-
-        super.first(x);
+        return _y;
     }
 
     /**
-     * @return The Point's y-component.
+     *
+     * Returns the point at the specified delta-x and delta-y from this one.
+     *
+     * @param dx How much to move the x-component of the point by.
+     *
+     * @param dy How much to move the y-component of the point by.
+     *
+     * @return The resulting point.
      */
-    public int y()
+    public Point plus(int dx, int dy)
     {
-        return super.second();
+        assert(! wouldGoNegative(dx, dy));
+
+        if (dx == 0 && dy == 0) return this;
+
+        return of(_x + dx, _y + dy);
     }
 
     /**
      *
-     * Sets the point's y-component.
+     * Returns the point at the specified Delta from this one.
      *
-     * Must be non-negative.
+     * @param delta The Delta to move the point by.
      *
-     * @param y The new value for the points' y-component.
+     * @return The resulting point.
      */
-    public void y(int y)
+    public Point plus(Delta delta)
     {
-        assert(y >= 0);
+        assert(delta != null);
 
-        super.second(y);
+        return plus(delta.x(), delta.y());
     }
 
     /**
      *
-     * Moves the point by the specified delta-x and delta-y.
+     * Returns the point moved by the specified delta-x and delta-y.
+     *
+     * Points are immutable, so this is the same as plus().
      *
      * @param dx How much to move the x-component of the point by.
      *
      * @param dy How much to move the y-component of the point by.
      *
-     * @return The resulting point (this).
+     * @return The resulting point.
      */
     public Point move(int dx, int dy)
     {
-        assert(! wouldGoNegative(dx, dy));
-
-        first(_first + dx);
-        second(_second + dy);
-
-        return this;
+        return plus(dx, dy);
     }
 
     /**
      *
-     * Moves the point by the specified Delta.
+     * Returns the point moved by the specified Delta.
+     *
+     * Points are immutable, so this is the same as plus().
      *
      * @param delta The Delta to move the point by.
      *
-     * @return The resulting point (this).
+     * @return The resulting point.
      */
     public Point move(Delta delta)
     {
-        assert(delta != null);
-
-        return move(delta.x(), delta.y());
+        return plus(delta);
     }
 
     /**
@@ -240,9 +307,9 @@ public class Point
      */
     public boolean wouldGoNegative(int dx, int dy)
     {
-        if (_first  + dx < 0) return true;
+        if (_x + dx < 0) return true;
 
-        if (_second + dy < 0) return true;
+        if (_y + dy < 0) return true;
 
         return false;
     }
@@ -264,11 +331,7 @@ public class Point
     {
         if (wouldGoNegative(delta)) return true;
 
-        Point test = new Point(this);
-
-        test.move(delta);
-
-        return ! region.contains(test);
+        return ! region.contains(_x + delta.x(), _y + delta.y());
     }
 
     /**
@@ -284,7 +347,7 @@ public class Point
     {
         assert(other != null);
 
-        return new Delta(other.x() - this.x(), other.y() - this.y());
+        return new Delta(other._x - this._x, other._y - this._y);
     }
 
     /**
@@ -301,7 +364,83 @@ public class Point
      */
     @Override public int compareTo(Point other)
     {
-        return super.compareTo(other);
+        assert(other != null);
+
+        int result = Integer.compare(this._x, other._x);
+
+        if (result != 0) return result;
+
+        return Integer.compare(this._y, other._y);
+    }
+
+    /**
+     *
+     * Checks equality to another object.
+     *
+     * @param object The object to check equality for.
+     *
+     * @return True if the object is a Point with the same coordinates.
+     */
+    @Override public boolean equals(Object object)
+    {
+        if (object == this) return true;
+
+        if (! (object instanceof Point)) return false;
+
+        Point other = (Point) object;
+
+        return this._x == other._x && this._y == other._y;
+    }
+
+    /**
+     * @return A hashcode for the point.
+     *         Both components participate in the value.
+     */
+    @Override public int hashCode()
+    {
+        return _x ^ (_y << 1);
+    }
+
+    /**
+     *
+     * Returns a string representation of the point.
+     *
+     * @return "(x, y)"
+     */
+    @Override public String toString()
+    {
+        return "(" + _x + ", " + _y + ")";
+    }
+
+    /**
+     *
+     * A plain string representation of the point, e.g. for serialization.
+     *
+     * @return "x,y"
+     */
+    public String toStringPlain()
+    {
+        return _x + "," + _y;
+    }
+
+    /**
+     *
+     * Matches a string representation of a point.
+     *
+     * @param string The string representing the point.
+     *
+     * @return The Matcher, with the x and y components as groups 1 and 2.
+     */
+    private static Matcher _match(String string)
+    {
+        Matcher matcher = _pattern.matcher(string);
+
+        assert(matcher.matches());
+
+        // No idea why I have to call it twice. None.
+        matcher.matches();
+
+        return matcher;
     }
 
     /**
@@ -310,4 +449,30 @@ public class Point
     private static final Pattern _pattern = Pattern.compile(
             "[^\\d]*(\\d+)[^\\d]+(\\d+)[^\\d]*"
     );
+
+    /**
+     * The cache is split into square blocks of this many bits
+     * per dimension, which are only allocated once used.
+     */
+    private static final int BLOCK_BITS = 6;
+
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    /**
+     * The number of blocks per dimension.
+     */
+    private static final int BLOCKS = 64;
+
+    /**
+     * Points with a component at or beyond this limit are not cached.
+     */
+    private static final int CACHE_LIMIT = BLOCKS * BLOCK_SIZE;
+
+    private static final Point[][] _cache = new Point[BLOCKS * BLOCKS][];
+
+    private final int _x;
+
+    private final int _y;
 }
@@ -61,8 +61,8 @@ public class Region extends AbstractPair<Point, Point> implements Comparable<Reg
                   int northEastY)
     {
         this(
-                new Point(southWestX, southWestY),
-                new Point(northEastX, northEastY)
+                Point.of(southWestX, southWestY),
+                Point.of(northEastX, northEastY)
         );
     }
 
@@ -112,7 +112,7 @@ public class Region extends AbstractPair<Point, Point> implements Comparable<Reg
     {
         if (_southEast == null)
         {
-            _southEast = new Point(northEast().x(), southWest().y());
+            _southEast = Point.of(northEast().x(), southWest().y());
         }
 
         return _southEast;
@@ -128,8 +128,8 @@ public class Region extends AbstractPair<Point, Point> implements Comparable<Reg
      */
     public void southEast(Point southEast)
     {
-        southWest(new Point(_first.x(), southEast.y()));
-        northEast(new Point(southEast.x(), _second.y()));
+        southWest(Point.of(_first.x(), southEast.y()));
+        northEast(Point.of(southEast.x(), _second.y()));
 
         _southEast = southEast;
     }
@@ -144,7 +144,7 @@ public class Region extends AbstractPair<Point, Point> implements Comparable<Reg
     {
         if (_northWest == null)
         {
-            _northWest = new Point(southWest().x(), northEast().y());
+            _northWest = Point.of(southWest().x(), northEast().y());
         }
 
         return _northWest;
@@ -160,8 +160,8 @@ public class Region extends AbstractPair<Point, Point> implements Comparable<Reg
      */
     public void northWest(Point northWest)
     {
-        southWest(new Point(northWest.x(), _first.y()));
-        northEast(new Point(_second.x(), northWest.y()));
+        southWest(Point.of(northWest.x(), _first.y()));
+        northEast(Point.of(_second.x(), northWest.y()));
 
         _northWest = northWest;
     }
@@ -263,13 +263,29 @@ public class Region extends AbstractPair<Point, Point> implements Comparable<Reg
     {
         assert(point != null);
 
-        if (point.x() < southWest().x()) return false;
+        return contains(point.x(), point.y());
+    }
+
+    /**
+     *
+     * Whether the region contains the point with the given coordinates.
+     *
+     * @param x The x-coordinate of the point to test.
+     *
+     * @param y The y-coordinate of the point to test.
+     *
+     * @return True if the point is any of the
+     *         points within the region, else false.
+     */
+    public boolean contains(int x, int y)
+    {
+        if (x < _first.x()) return false;
 
-        if (point.x() > northEast().x()) return false;
+        if (x > _second.x()) return false;
 
-        if (point.y() > southWest().y()) return false;
+        if (y > _first.y()) return false;
 
-        if (point.y() < northEast().y()) return false;
+        if (y < _second.y()) return false;
 
         return true;
     }
@@ -0,0 +1,561 @@
+package capstone.utility;
+
+import capstone.element.Element;
+import capstone.element.ObstacleSpec;
+import capstone.game.Level;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A SessionDelta stores a session as the difference to the layout it was
+ * started from: the path and checksum of the layout file, the header of
+ * the session (name, difficulty, theme and players) and the kind of
+ * element in every cell that changed since the layout was loaded, e.g.
+ * collected keys, revealed mystery boxes, generated elements and the
+ * positions of dynamic obstacles. Since dynamic obstacles move, the delta
+ * also carries the specs of all of them (see ObstacleSpec), which replace
+ * those of the layout, so that they resume exactly where they left off.
+ *
+ * A full session of the biggest layouts is a few megabytes, even though
+ * only a handful of cells differ from the layout. A delta is a few
+ * kilobytes and takes milliseconds to write.
+ *
+ * A delta holds the seed the world was reseeded with when it was saved
+ * (see World.reseed()) and the number of ticks since the dynamic obstacles
+ * last moved, so that the level resumes exactly. Older deltas have neither
+ * and keep the seed of their layout.
+ *
+ * Deltas are binary and recognized by their magic number, so that
+ * LevelFile.read() applies them to their layout transparently. If the
+ * layout file changed since the delta was saved, reading it fails.
+ *
+ * The format is (all numbers big-endian, strings as for LevelFile):
+ *
+ * int    magic ("CDLT")
+ * byte   version
+ * string path of the layout file
+ * long   CRC32 of the layout file
+ * string name (empty if none)
+ * byte   difficulty (ordinal, -1 if none)
+ * string theme (empty if none)
+ * int    number of players
+ *        for each player: string id, int x, int y (x = -1 if hidden)
+ * int    number of changed cells
+ *        for each cell: int x, int y, byte cell (0 = empty, else code + 1)
+ * int    number of obstacle specs (since version 2)
+ *        for each obstacle: int x, int y, spec (as for LevelFile)
+ * byte   1 if there is a seed, else 0 (since version 3)
+ * long   seed (if there is one, since version 3)
+ * varint frame (since version 3)
+ */
+public class SessionDelta
+{
+    /**
+     *
+     * Tests if a buffer holds a delta, without moving its position.
+     *
+     * @param buffer The buffer to test.
+     *
+     * @return True if the buffer starts with the magic number of deltas.
+     */
+    public static boolean isDelta(ByteBuffer buffer)
+    {
+        return buffer.remaining() >= 4 &&
+               buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     *
+     * Decodes a delta. It is not yet applied to its layout.
+     *
+     * @param buffer The buffer holding the delta.
+     *
+     * @return The SessionDelta.
+     *
+     * @throws IOException for a corrupt delta.
+     */
+    public static SessionDelta decode(ByteBuffer buffer) throws IOException
+    {
+        try
+        {
+            if (buffer.getInt() != MAGIC)
+            {
+                throw new IOException("Not a session delta");
+            }
+
+            byte version = buffer.get();
+
+            if (version < 1 || version > VERSION)
+            {
+                throw new IOException("Unsupported session delta version");
+            }
+
+            SessionDelta delta = new SessionDelta(
+                    LevelFile.readString(buffer),
+                    buffer.getLong()
+            );
+
+            delta.name(LevelFile.readString(buffer));
+
+            byte difficulty = buffer.get();
+
+            if (difficulty != -1)
+            {
+                delta.difficulty(Level.Difficulty.values()[difficulty]);
+            }
+
+            delta.theme(LevelFile.readString(buffer));
+
+            for (int players = buffer.getInt(); players > 0; --players)
+            {
+                String id = LevelFile.readString(buffer);
+
+                int x = buffer.getInt();
+                int y = buffer.getInt();
+
+                if (x == -1) delta.hide(id);
+
+                else delta.player(id, Point.of(x, y));
+            }
+
+            for (int changes = buffer.getInt(); changes > 0; --changes)
+            {
+                int x = buffer.getInt();
+                int y = buffer.getInt();
+
+                int cell = buffer.get();
+
+                delta.change(
+                        Point.of(x, y),
+                        cell == 0 ? null : Element.Kind.fromCode(cell - 1)
+                );
+            }
+
+            if (version >= 2)
+            {
+                for (int obstacles = buffer.getInt(); obstacles > 0; --obstacles)
+                {
+                    int x = buffer.getInt();
+                    int y = buffer.getInt();
+
+                    delta.obstacle(Point.of(x, y), LevelFile.readObstacle(buffer));
+                }
+            }
+
+            if (version >= 3)
+            {
+                if (buffer.get() != 0) delta.seed(buffer.getLong());
+
+                delta.frame(LevelFile.readVarint(buffer));
+            }
+
+            return delta;
+        }
+
+        // The fromCode() methods throw AssertionErrors for unknown codes
+        catch (RuntimeException | AssertionError e)
+        {
+            throw new IOException("Corrupt session delta", e);
+        }
+    }
+
+    /**
+     *
+     * Constructs an empty SessionDelta.
+     *
+     * @param layout The path of the layout file the session is based on.
+     *
+     * @param checksum The CRC32 of the layout file.
+     */
+    public SessionDelta(String layout, long checksum)
+    {
+        assert(layout != null);
+
+        _layout = layout;
+
+        _checksum = checksum;
+
+        _players = new LinkedHashMap<>();
+
+        _changes = new LinkedHashMap<>();
+
+        _obstacles = new LinkedHashMap<>();
+    }
+
+    /**
+     *
+     * Reads the layout of the delta and applies the delta to it.
+     *
+     * @return The LevelFile of the session, still based on the layout.
+     *
+     * @throws IOException for I/O badness, or if the
+     *                     layout changed since the delta.
+     */
+    public LevelFile apply() throws IOException
+    {
+        LevelFile level = LevelFile.read(new File(_layout));
+
+        if (level.checksum() != _checksum)
+        {
+            throw new IOException(
+                    "The layout of this session has changed: " + _layout
+            );
+        }
+
+        level.layout(_layout);
+
+        if (_name != null) level.name(_name);
+
+        if (_difficulty != null) level.difficulty(_difficulty);
+
+        if (_theme != null) level.theme(_theme);
+
+        if (_seed != null) level.seed(_seed);
+
+        level.frame(_frame);
+
+        for (Map.Entry<String, Point> entry : _players.entrySet())
+        {
+            if (entry.getValue() == null) level.hide(entry.getKey());
+
+            else level.player(entry.getKey(), entry.getValue());
+        }
+
+        for (Map.Entry<Point, Element.Kind> entry : _changes.entrySet())
+        {
+            Point point = entry.getKey();
+
+            level.change(point.x(), point.y(), entry.getValue());
+        }
+
+        level.clearObstacles();
+
+        for (Map.Entry<Point, ObstacleSpec> entry : _obstacles.entrySet())
+        {
+            Point point = entry.getKey();
+
+            level.obstacle(point.x(), point.y(), entry.getValue());
+        }
+
+        return level;
+    }
+
+    /**
+     *
+     * Writes the delta to a file.
+     *
+     * @param file The file to write to.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public void write(File file) throws IOException
+    {
+        assert(file != null);
+
+        try (OutputStream stream = new FileOutputStream(file))
+        {
+            write(stream);
+        }
+    }
+
+    /**
+     *
+     * Writes the delta to a stream.
+     *
+     * @param stream The stream to write to. It is not closed.
+     *
+     * @throws IOException for I/O badness.
+     */
+    public void write(OutputStream stream) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(stream)
+        );
+
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+
+        LevelFile.writeString(output, _layout);
+
+        output.writeLong(_checksum);
+
+        LevelFile.writeString(output, _name);
+
+        output.writeByte(_difficulty == null ? -1 : _difficulty.ordinal());
+
+        LevelFile.writeString(output, _theme);
+
+        output.writeInt(_players.size());
+
+        for (Map.Entry<String, Point> entry : _players.entrySet())
+        {
+            LevelFile.writeString(output, entry.getKey());
+
+            Point point = entry.getValue();
+
+            output.writeInt(point == null ? -1 : point.x());
+            output.writeInt(point == null ? -1 : point.y());
+        }
+
+        output.writeInt(_changes.size());
+
+        for (Map.Entry<Point, Element.Kind> entry : _changes.entrySet())
+        {
+            output.writeInt(entry.getKey().x());
+            output.writeInt(entry.getKey().y());
+
+            Element.Kind kind = entry.getValue();
+
+            output.writeByte(kind == null ? 0 : kind.code() + 1);
+        }
+
+        output.writeInt(_obstacles.size());
+
+        for (Map.Entry<Point, ObstacleSpec> entry : _obstacles.entrySet())
+        {
+            output.writeInt(entry.getKey().x());
+            output.writeInt(entry.getKey().y());
+
+            LevelFile.writeObstacle(output, entry.getValue());
+        }
+
+        output.writeByte(_seed == null ? 0 : 1);
+
+        if (_seed != null) output.writeLong(_seed);
+
+        LevelFile.writeVarint(output, _frame);
+
+        output.flush();
+    }
+
+    /**
+     * @return The path of the layout file the session is based on.
+     */
+    public String layout()
+    {
+        return _layout;
+    }
+
+    /**
+     * @return The CRC32 of the layout file.
+     */
+    public long checksum()
+    {
+        return _checksum;
+    }
+
+    /**
+     * @return The name of the session, or null if it has none.
+     */
+    public String name()
+    {
+        return _name;
+    }
+
+    /**
+     *
+     * Sets the name of the session.
+     *
+     * @param name The new name (may be null).
+     */
+    public void name(String name)
+    {
+        _name = name;
+    }
+
+    /**
+     * @return The difficulty of the session, or null if none is stored.
+     */
+    public Level.Difficulty difficulty()
+    {
+        return _difficulty;
+    }
+
+    /**
+     *
+     * Sets the difficulty of the session.
+     *
+     * @param difficulty The new difficulty (may be null).
+     */
+    public void difficulty(Level.Difficulty difficulty)
+    {
+        _difficulty = difficulty;
+    }
+
+    /**
+     * @return The file name of the theme of the session, or null if none.
+     */
+    public String theme()
+    {
+        return _theme;
+    }
+
+    /**
+     *
+     * Sets the file name of the theme of the session.
+     *
+     * @param theme The file name of the theme (may be null).
+     */
+    public void theme(String theme)
+    {
+        _theme = theme;
+    }
+
+    /**
+     *
+     * Places a player in the session.
+     *
+     * @param id The id of the player.
+     *
+     * @param point The point of the player.
+     */
+    public void player(String id, Point point)
+    {
+        assert(id != null);
+        assert(point != null);
+
+        _players.put(id, point);
+    }
+
+    /**
+     *
+     * Marks a player as hidden in the session.
+     *
+     * @param id The id of the player.
+     */
+    public void hide(String id)
+    {
+        assert(id != null);
+
+        _players.put(id, null);
+    }
+
+    /**
+     * @return The players in the session, mapped from ids to their
+     *         points. Hidden players are mapped to null.
+     */
+    public Map<String, Point> players()
+    {
+        return Collections.unmodifiableMap(_players);
+    }
+
+    /**
+     *
+     * Records the kind of element in a cell that differs from the layout.
+     *
+     * @param point The point of the cell.
+     *
+     * @param kind The kind of element now in the cell, or null if empty.
+     */
+    public void change(Point point, Element.Kind kind)
+    {
+        assert(point != null);
+
+        _changes.put(point, kind);
+    }
+
+    /**
+     * @return The changed cells, mapped from their points to the
+     *         kind of element in them (null for empty cells).
+     */
+    public Map<Point, Element.Kind> changes()
+    {
+        return Collections.unmodifiableMap(_changes);
+    }
+
+    /**
+     *
+     * Records the spec of a dynamic obstacle of the session. Dynamic
+     * obstacles without a spec walk the labyrinth on their own.
+     *
+     * @param point The point of the dynamic obstacle.
+     *
+     * @param spec The ObstacleSpec of the dynamic obstacle.
+     */
+    public void obstacle(Point point, ObstacleSpec spec)
+    {
+        assert(point != null);
+        assert(spec != null);
+
+        _obstacles.put(point, spec);
+    }
+
+    /**
+     * @return The specs of the dynamic obstacles, mapped from their points.
+     */
+    public Map<Point, ObstacleSpec> obstacles()
+    {
+        return Collections.unmodifiableMap(_obstacles);
+    }
+
+    /**
+     * @return The seed the world was reseeded with when the session was
+     *         saved, or null if the level keeps the seed of its layout.
+     */
+    public Long seed()
+    {
+        return _seed;
+    }
+
+    /**
+     * @param seed The seed the world was reseeded with when the session was saved.
+     */
+    public void seed(long seed)
+    {
+        _seed = seed;
+    }
+
+    /**
+     * @return The number of ticks since the dynamic obstacles last moved.
+     */
+    public int frame()
+    {
+        return _frame;
+    }
+
+    /**
+     * @param frame The number of ticks since the dynamic obstacles last moved.
+     */
+    public void frame(int frame)
+    {
+        if (frame < 0) throw new IllegalArgumentException("Negative frame");
+
+        _frame = frame;
+    }
+
+    /**
+     * "CDLT"
+     */
+    private static final int MAGIC = 0x43444C54;
+
+    private static final byte VERSION = 3;
+
+    private final String _layout;
+
+    private final long _checksum;
+
+    private String _name;
+
+    private Level.Difficulty _difficulty;
+
+    private String _theme;
+
+    private final Map<String, Point> _players;
+
+    private final Map<Point, Element.Kind> _changes;
+
+    private final Map<Point, ObstacleSpec> _obstacles;
+
+    private Long _seed;
+
+    private int _frame;
+}
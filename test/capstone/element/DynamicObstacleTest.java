@@ -9,6 +9,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import static org.hamcrest.Matchers.*;
@@ -26,7 +27,14 @@ class MockDynamicObstacle extends DynamicObstacle
         super(point, representation);
     }
 
-    @Override protected Delta _next(Region region, Set<Point> taken)
+    @Override public Behavior behavior()
+    {
+        return Behavior.WANDER;
+    }
+
+    @Override protected Delta _next(Region region,
+                                    Set<Point> taken,
+                                    Random random)
     {
         Delta delta = Delta.Right();
 
@@ -78,4 +86,20 @@ public class DynamicObstacleTest
 
         assertThat(obstacle.point(), is (new Point(1, 0)));
     }
+
+    @Test public void testPeriodSlowsDownTheObstacle()
+    {
+        obstacle.period(3);
+
+        assertThat(obstacle.update(region, taken), is(new Point(1, 0)));
+
+        assertThat(obstacle.rest(), is(2));
+
+        assertThat(obstacle.update(region, taken), is(new Point(1, 0)));
+        assertThat(obstacle.update(region, taken), is(new Point(1, 0)));
+
+        assertThat(obstacle.rest(), is(0));
+
+        assertThat(obstacle.update(region, taken), is(new Point(0, 0)));
+    }
 }
\ No newline at end of file
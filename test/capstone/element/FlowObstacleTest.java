@@ -0,0 +1,144 @@
+package capstone.element;
+
+import capstone.data.Profile;
+import capstone.data.Representation;
+import capstone.data.Theme;
+import capstone.utility.FlowField;
+import capstone.utility.KeyMap;
+import capstone.utility.LevelSize;
+import capstone.utility.PageGrid;
+import capstone.utility.Point;
+import capstone.utility.Region;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class FlowObstacleTest
+{
+    private Representation representation;
+
+    private Region region;
+
+    private Set<Point> taken;
+
+    private Quarry quarry;
+
+    private Random random;
+
+    @Before public void setUp()
+    {
+        representation = new Representation(
+                '!',
+                Terminal.Color.RED,
+                Terminal.Color.BLACK
+        );
+
+        // . . . . . . .
+        // . F . W . P .
+        // . . . W . . .
+        // . . . W . . .
+        region = new Region(0, 3, 6, 0);
+
+        PageGrid grid = new PageGrid(new LevelSize(7, 4), new TerminalSize(7, 4));
+
+        taken = new HashSet<>();
+
+        for (int y = 1; y <= 3; ++y)
+        {
+            Point point = Point.of(3, y);
+
+            grid.add(new Wall(point, representation));
+
+            taken.add(point);
+        }
+
+        Profile profile = new Profile(
+                "player",
+                "Real Name",
+                KeyMap.Arrows(),
+                representation
+        );
+
+        quarry = new Quarry();
+
+        quarry.update(Collections.singletonList(new Player(Point.of(5, 1), profile)));
+
+        FlowField field = new FlowField(grid);
+
+        field.update(quarry);
+
+        quarry.field(field);
+
+        random = new Random(42);
+    }
+
+    @Test public void testFollowsTheField()
+    {
+        FlowObstacle obstacle = new FlowObstacle(Point.of(1, 1), representation);
+
+        obstacle.sense(quarry);
+
+        int steps = 0;
+
+        while (! obstacle.point().equals(Point.of(5, 1)))
+        {
+            Point next = obstacle.update(region, taken, random);
+
+            assertFalse(taken.contains(next));
+
+            ++steps;
+
+            assertThat(steps, is(lessThanOrEqualTo(6)));
+        }
+
+        assertThat(steps, is(6));
+    }
+
+    @Test public void testWaitsWhenTheWayIsTaken()
+    {
+        FlowObstacle obstacle = new FlowObstacle(Point.of(2, 0), representation);
+
+        obstacle.sense(quarry);
+
+        // E.g. another obstacle
+        taken.add(Point.of(3, 0));
+
+        assertThat(obstacle.update(region, taken, random), is(Point.of(2, 0)));
+    }
+
+    @Test public void testWandersWithoutField()
+    {
+        FlowObstacle obstacle = new FlowObstacle(Point.of(1, 1), representation);
+
+        obstacle.sense(new Quarry());
+
+        Point next = obstacle.update(region, taken, random);
+
+        assertThat(Math.abs(next.x() - 1) + Math.abs(next.y() - 1), is(1));
+    }
+
+    @Test public void testCreate()
+    {
+        Theme theme = new Theme("TestTheme");
+
+        theme.representation(Element.Kind.DYNAMIC_OBSTACLE, representation);
+
+        Element obstacle = Element.Create(
+                Element.Kind.DYNAMIC_OBSTACLE,
+                Point.of(0, 0),
+                theme,
+                DynamicObstacle.Behavior.FLOW
+        );
+
+        assertThat(obstacle, is(instanceOf(FlowObstacle.class)));
+    }
+}
@@ -0,0 +1,189 @@
+package capstone.element;
+
+import capstone.data.Profile;
+import capstone.data.Representation;
+import capstone.data.Theme;
+import capstone.utility.KeyMap;
+import capstone.utility.Point;
+import capstone.utility.Region;
+import com.googlecode.lanterna.terminal.Terminal;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class HunterObstacleTest
+{
+    private Representation representation;
+
+    private Region region;
+
+    private Set<Point> taken;
+
+    private Random random;
+
+    @Before public void setUp()
+    {
+        representation = new Representation(
+                '!',
+                Terminal.Color.RED,
+                Terminal.Color.BLACK
+        );
+
+        // . . . . . . .
+        // . H . W . P .
+        // . . . W . . .
+        // . . . W . . .
+        region = new Region(0, 3, 6, 0);
+
+        taken = new HashSet<>();
+
+        for (int y = 1; y <= 3; ++y) taken.add(Point.of(3, y));
+
+        random = new Random(42);
+    }
+
+    private Player player(Point point)
+    {
+        Profile profile = new Profile(
+                "player",
+                "Real Name",
+                KeyMap.Arrows(),
+                representation
+        );
+
+        return new Player(point, profile);
+    }
+
+    private Quarry quarry(Point... points)
+    {
+        Quarry quarry = new Quarry();
+
+        List<Player> players = new ArrayList<>();
+
+        for (Point point : points) players.add(player(point));
+
+        quarry.update(players);
+
+        return quarry;
+    }
+
+    @Test public void testHuntsAroundWalls()
+    {
+        HunterObstacle hunter = new HunterObstacle(Point.of(1, 1), representation);
+
+        Point player = Point.of(5, 1);
+
+        hunter.sense(quarry(player));
+
+        int steps = 0;
+
+        while (! hunter.point().equals(player))
+        {
+            Point next = hunter.update(region, taken, random);
+
+            assertFalse(taken.contains(next));
+
+            assertTrue(region.contains(next));
+
+            ++steps;
+
+            assertThat(steps, is(lessThanOrEqualTo(6)));
+        }
+
+        // Up, four to the right and down again
+        assertThat(steps, is(6));
+    }
+
+    @Test public void testHuntsTheNearestPlayer()
+    {
+        HunterObstacle hunter = new HunterObstacle(Point.of(1, 1), representation);
+
+        hunter.sense(quarry(Point.of(5, 1), Point.of(1, 3)));
+
+        assertThat(hunter.update(region, taken, random), is(Point.of(1, 2)));
+    }
+
+    @Test public void testWaitsNextToPlayerItCannotStepOnto()
+    {
+        HunterObstacle hunter = new HunterObstacle(Point.of(4, 1), representation);
+
+        // E.g. a player on an entrance
+        taken.add(Point.of(5, 1));
+
+        hunter.sense(quarry(Point.of(5, 1)));
+
+        assertThat(hunter.update(region, taken, random), is(Point.of(4, 1)));
+    }
+
+    @Test public void testWandersWithoutPlayersInRadius()
+    {
+        HunterObstacle hunter = new HunterObstacle(Point.of(1, 1), representation, 2);
+
+        hunter.sense(quarry(Point.of(6, 3)));
+
+        Point next = hunter.update(region, taken, random);
+
+        assertThat(next, is(not(Point.of(1, 1))));
+
+        assertThat(Math.abs(next.x() - 1) + Math.abs(next.y() - 1), is(1));
+    }
+
+    @Test public void testWandersWithoutPlayers()
+    {
+        HunterObstacle hunter = new HunterObstacle(Point.of(1, 1), representation);
+
+        hunter.sense(quarry());
+
+        assertThat(hunter.update(region, taken, random), is(not(Point.of(1, 1))));
+    }
+
+    @Test public void testQuarrySkipsDeadPlayers()
+    {
+        Quarry quarry = new Quarry();
+
+        Player player = player(Point.of(1, 1));
+
+        quarry.update(Collections.singletonList(player));
+
+        assertThat(quarry.size(), is(1));
+
+        while (! player.isDead()) player.injure();
+
+        quarry.update(Collections.singletonList(player));
+
+        assertThat(quarry.size(), is(0));
+    }
+
+    @Test public void testCreate()
+    {
+        Theme theme = new Theme("TestTheme");
+
+        theme.representation(Element.Kind.DYNAMIC_OBSTACLE, representation);
+
+        Element hunter = Element.Create(
+                Element.Kind.DYNAMIC_OBSTACLE,
+                Point.of(0, 0),
+                theme,
+                DynamicObstacle.Behavior.HUNT
+        );
+
+        assertThat(hunter, is(instanceOf(HunterObstacle.class)));
+
+        Element wanderer = Element.Create(
+                Element.Kind.DYNAMIC_OBSTACLE,
+                Point.of(0, 0),
+                theme
+        );
+
+        assertThat(wanderer, is(instanceOf(IntelligentObstacle.class)));
+    }
+}
@@ -0,0 +1,197 @@
+package capstone.element;
+
+import capstone.data.Representation;
+import capstone.utility.Pattern;
+import capstone.utility.Point;
+import capstone.utility.Region;
+import com.googlecode.lanterna.terminal.Terminal;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ObstacleSpecTest
+{
+    private Representation representation;
+
+    private Region region;
+
+    private Set<Point> taken;
+
+    @Before public void setUp()
+    {
+        representation = new Representation(
+                '!',
+                Terminal.Color.RED,
+                Terminal.Color.BLACK
+        );
+
+        // . . . . . .
+        // . . W . . .
+        // . . W . . .
+        // . . . . . .
+        region = new Region(0, 3, 5, 0);
+
+        taken = new HashSet<>();
+
+        taken.add(Point.of(2, 1));
+        taken.add(Point.of(2, 2));
+    }
+
+    private void assertResumesExactly(ObstacleSpec spec)
+    {
+        DynamicObstacle obstacle = spec.create(Point.of(1, 1), representation);
+
+        Random random = new Random(42);
+
+        for (int i = 0; i < 7; ++i) obstacle.update(region, taken, random);
+
+        DynamicObstacle resumed = obstacle.spec().create(
+                obstacle.point(),
+                representation
+        );
+
+        assertThat(resumed.spec(), is(obstacle.spec()));
+
+        Random first = new Random(7);
+
+        Random second = new Random(7);
+
+        for (int i = 0; i < 50; ++i)
+        {
+            assertThat(
+                    resumed.update(region, taken, second),
+                    is(obstacle.update(region, taken, first))
+            );
+        }
+    }
+
+    @Test public void testTextRoundTrip()
+    {
+        ObstacleSpec spec = new ObstacleSpec(DynamicObstacle.Behavior.HUNT);
+
+        spec.radius(20);
+        spec.period(2);
+        spec.rest(1);
+
+        assertThat(spec.toString(), is("1|radius=20|period=2|rest=1"));
+
+        assertThat(ObstacleSpec.of(spec.toString()), is(spec));
+
+        spec = new ObstacleSpec(new Pattern("(1,-1)(-1,1)"));
+
+        spec.state(1);
+
+        assertThat(ObstacleSpec.of(spec.toString()), is(spec));
+    }
+
+    @Test public void testDefaultsAreLeftOut()
+    {
+        ObstacleSpec spec = new ObstacleSpec(DynamicObstacle.Behavior.WANDER);
+
+        assertTrue(spec.isDefault());
+
+        assertThat(spec.toString(), is("0"));
+
+        // Parameters that do not apply are ignored
+        spec.radius(3);
+
+        assertThat(spec, is(new ObstacleSpec(DynamicObstacle.Behavior.WANDER)));
+
+        spec = new ObstacleSpec(DynamicObstacle.Behavior.PATTERN);
+
+        assertThat(spec.pattern(), is(PatternObstacle.DEFAULT));
+
+        assertThat(spec.toString(), is("3"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowsForUnknownBehavior()
+    {
+        ObstacleSpec.of("9");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowsForUnknownParameter()
+    {
+        ObstacleSpec.of("0|speed=3");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowsForPeriodZero()
+    {
+        ObstacleSpec.of("0|period=0");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowsForRestNotLessThanPeriod()
+    {
+        ObstacleSpec.of("0|rest=2|period=2");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowsForNegativeRadius()
+    {
+        ObstacleSpec.of("1|radius=-1");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowsForStateOutsideThePattern()
+    {
+        ObstacleSpec.of("3|pattern=ud|state=2");
+    }
+
+    @Test public void testParametersMayComeInAnyOrder()
+    {
+        ObstacleSpec spec = ObstacleSpec.of("3|state=2|rest=1|pattern=udl|period=3");
+
+        assertThat(spec.state(), is(2));
+
+        assertThat(spec.rest(), is(1));
+    }
+
+    @Test public void testCreate()
+    {
+        ObstacleSpec spec = ObstacleSpec.of("1|radius=5|period=3|rest=2");
+
+        DynamicObstacle obstacle = spec.create(Point.of(0, 0), representation);
+
+        assertThat(obstacle, is(instanceOf(HunterObstacle.class)));
+
+        assertThat(((HunterObstacle) obstacle).radius(), is(5));
+
+        assertThat(obstacle.period(), is(3));
+
+        assertThat(obstacle.rest(), is(2));
+
+        assertThat(obstacle.spec(), is(spec));
+    }
+
+    @Test public void testWanderingObstaclesResumeExactly()
+    {
+        assertResumesExactly(new ObstacleSpec(DynamicObstacle.Behavior.WANDER));
+    }
+
+    @Test public void testPatternObstaclesResumeExactly()
+    {
+        ObstacleSpec spec = new ObstacleSpec(new Pattern("rrdlu"));
+
+        spec.period(3);
+
+        assertResumesExactly(spec);
+    }
+
+    @Test public void testHuntersResumeExactly()
+    {
+        ObstacleSpec spec = new ObstacleSpec(DynamicObstacle.Behavior.HUNT);
+
+        spec.period(2);
+
+        assertResumesExactly(spec);
+    }
+}
@@ -51,6 +51,55 @@ public class PatternObstacleTest
         assertTrue(region.contains(obstacle.point()));
     }
 
+    @Test public void testObstaclesSharingAPatternMoveIndependently()
+    {
+        Representation representation = obstacle.representation();
+
+        Pattern pattern = new Pattern("rrl");
+
+        PatternObstacle first = new PatternObstacle(Point.of(1, 1), representation, pattern);
+
+        PatternObstacle second = new PatternObstacle(Point.of(1, 3), representation, pattern);
+
+        Region region = new Region(0, 4, 4, 0);
+
+        first.update(region, new HashSet<>());
+        first.update(region, new HashSet<>());
+
+        // Unaffected by the first
+        assertThat(second.update(region, new HashSet<>()), is(Point.of(2, 3)));
+
+        assertThat(first.point(), is(Point.of(3, 1)));
+
+        assertThat(first.cursor().index(), is(2));
+        assertThat(second.cursor().index(), is(1));
+
+        assertThat(first.pattern(), is(sameInstance(second.pattern())));
+    }
+
+    @Test public void testSkipsBlockedSteps()
+    {
+        Representation representation = obstacle.representation();
+
+        PatternObstacle pattern = new PatternObstacle(
+                Point.of(1, 1),
+                representation,
+                new Pattern("ud")
+        );
+
+        HashSet<Point> taken = new HashSet<>();
+
+        taken.add(Point.of(1, 0));
+
+        assertThat(pattern.update(new Region(0, 4, 4, 0), taken), is(Point.of(1, 2)));
+
+        taken.add(Point.of(1, 1));
+        taken.add(Point.of(1, 3));
+
+        // Nowhere to go
+        assertThat(pattern.update(new Region(0, 4, 4, 0), taken), is(Point.of(1, 2)));
+    }
+
     @Test public void testChangePattern()
     {
         Pattern oldPattern = obstacle.pattern();
@@ -59,4 +108,17 @@ public class PatternObstacleTest
 
         assertThat(obstacle.pattern(), is(not(oldPattern)));
     }
+
+    @Test public void testCreate()
+    {
+        DynamicObstacle created = DynamicObstacle.Create(
+                DynamicObstacle.Behavior.PATTERN,
+                point,
+                obstacle.representation()
+        );
+
+        assertThat(created, is(instanceOf(PatternObstacle.class)));
+
+        assertThat(((PatternObstacle) created).pattern(), is(PatternObstacle.DEFAULT));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+package capstone.game;
+
+import capstone.data.Profile;
+import capstone.data.Representation;
+import capstone.data.Theme;
+import capstone.element.Direction;
+import capstone.element.DynamicObstacle;
+import capstone.element.Element;
+import capstone.element.Player;
+import capstone.utility.KeyMap;
+import capstone.utility.LevelBuilder;
+import capstone.utility.Point;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class ReplayTest
+{
+    private static final TerminalSize TERMINAL = new TerminalSize(80, 24);
+
+    private World world;
+
+    private File file;
+
+    @Before public void setUp() throws IOException
+    {
+        Theme theme = new Theme("TestTheme");
+
+        for (Element.Kind kind : Element.Kind.kinds())
+        {
+            Representation representation = new Representation(
+                    kind.toString().charAt(0),
+                    Terminal.Color.RED,
+                    Terminal.Color.BLUE
+            );
+
+            theme.representation(kind, representation);
+        }
+
+        // E . . . . . . . . .
+        // . . K . . D . . . .
+        // . . . . M . . . . .
+        // . D . . . . . M . .
+        // . . . . . . D . . X
+        Properties layout = new Properties();
+
+        layout.setProperty("Width", "10");
+        layout.setProperty("Height", "5");
+        layout.setProperty("Seed", "1234");
+
+        layout.setProperty("0,0", "1");
+        layout.setProperty("2,1", "3");
+        layout.setProperty("5,1", "5");
+        layout.setProperty("4,2", "6");
+        layout.setProperty("1,3", "5");
+        layout.setProperty("7,3", "6");
+        layout.setProperty("6,4", "5");
+        layout.setProperty("9,4", "2");
+
+        List<Profile> profiles = new ArrayList<>();
+
+        profiles.add(new Profile(
+                "test",
+                "Real Name",
+                KeyMap.Arrows(),
+                new Representation('$', Terminal.Color.BLACK, Terminal.Color.RED)
+        ));
+
+        world = new World(new LevelBuilder(
+                Level.Difficulty.HARD,
+                "Replay",
+                layout,
+                theme,
+                profiles,
+                TERMINAL
+        ));
+
+        file = File.createTempFile("test", "." + Replay.EXTENSION);
+
+        file.deleteOnExit();
+    }
+
+    @After public void tearDown()
+    {
+        assert(file.delete());
+    }
+
+    /**
+     * Plays the world with random input while recording it.
+     */
+    private void record(int ticks) throws IOException
+    {
+        Random random = new Random(42);
+
+        Player player = world.players().get(0);
+
+        Map<String, Direction> directions = new HashMap<>();
+
+        // The recorder listens to the world, so it is not used directly
+        Replay.Recorder recorder = new Replay.Recorder(file, world, TERMINAL);
+
+        try
+        {
+            for (int i = 0; i < ticks && ! world.isDone(); ++i)
+            {
+                if (i == 5) world.difficulty(Level.Difficulty.EASY);
+
+                if (i == 10) world.resize(new TerminalSize(5, 3));
+
+                // As when the game is saved
+                if (i == 15) world.reseed();
+
+                // Mostly idle, as in a real game
+                if (random.nextInt(4) == 0)
+                {
+                    Direction[] all = Direction.values();
+
+                    directions.put(player.id(), all[random.nextInt(all.length)]);
+                }
+
+                world.tick(directions);
+
+                directions.clear();
+            }
+        }
+
+        finally { recorder.close(); }
+    }
+
+    private Set<Point> obstacles(World world)
+    {
+        Set<Point> points = new HashSet<>();
+
+        for (DynamicObstacle obstacle : world.grid().dynamicObstacles())
+        {
+            points.add(obstacle.point());
+        }
+
+        return points;
+    }
+
+    @Test public void testReplayPlaysTheSame() throws IOException
+    {
+        record(500);
+
+        Replay replay = Replay.read(file);
+
+        assertTrue(replay.isComplete());
+
+        assertThat(world.difficulty(), is(Level.Difficulty.EASY));
+
+        World replayed = replay.world();
+
+        assertThat(replay.play(replayed), is(world.ticks()));
+
+        assertTrue(replay.matches(replayed));
+
+        assertThat(replayed.players().get(0).point(), is(world.players().get(0).point()));
+
+        assertThat(obstacles(replayed), is(obstacles(world)));
+
+        assertThat(replayed.keysCollected(), is(world.keysCollected()));
+
+        assertThat(replayed.difficulty(), is(world.difficulty()));
+    }
+
+    @Test public void testDivergenceIsDetected() throws IOException
+    {
+        record(200);
+
+        Replay replay = Replay.read(file);
+
+        World replayed = replay.world();
+
+        // One tick short of the recording
+        replayed.tick(Collections.emptyMap());
+
+        replay.play(replayed);
+
+        assertFalse(replay.matches(replayed));
+    }
+
+    @Test public void testCutOffRecordingReplaysWhatThereIs() throws IOException
+    {
+        record(200);
+
+        long ticks = world.ticks();
+
+        // Cut into the end record
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw"))
+        {
+            access.setLength(access.length() - 4);
+        }
+
+        Replay replay = Replay.read(file);
+
+        assertFalse(replay.isComplete());
+
+        assertThat((long) replay.ticks().size(), is(ticks));
+
+        World replayed = replay.world();
+
+        replay.play(replayed);
+
+        assertFalse(replay.matches(replayed));
+
+        assertThat(replayed.players().get(0).point(), is(world.players().get(0).point()));
+    }
+}
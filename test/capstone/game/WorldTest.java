@@ -0,0 +1,331 @@
+package capstone.game;
+
+import capstone.data.Profile;
+import capstone.data.Representation;
+import capstone.data.Theme;
+import capstone.element.Direction;
+import capstone.element.Element;
+import capstone.element.Player;
+import capstone.utility.KeyMap;
+import capstone.utility.LevelBuilder;
+import capstone.utility.LevelFile;
+import capstone.utility.Point;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class WorldTest
+{
+    private static Theme theme;
+
+    private Properties layout;
+
+    private List<Profile> profiles;
+
+    private World world;
+
+    private Player player;
+
+    private List<Point> moves;
+
+    private List<Element> removed;
+
+    @BeforeClass public static void setUpTheme()
+    {
+        theme = new Theme("TestTheme");
+
+        for (Element.Kind kind : Element.Kind.kinds())
+        {
+            Representation representation = new Representation(
+                    kind.toString().charAt(0),
+                    Terminal.Color.RED,
+                    Terminal.Color.BLUE
+            );
+
+            theme.representation(kind, representation);
+        }
+    }
+
+    @Before public void setUp()
+    {
+        // E . K W . X
+        // . . . . . .
+        // . . . . . D
+        layout = new Properties();
+
+        layout.setProperty("Width", "6");
+        layout.setProperty("Height", "3");
+
+        layout.setProperty("0,0", "1");
+        layout.setProperty("2,0", "3");
+        layout.setProperty("3,0", "0");
+        layout.setProperty("5,0", "2");
+        layout.setProperty("5,2", "5");
+
+        Profile profile = new Profile(
+                "test",
+                "Real Name",
+                KeyMap.Arrows(),
+                new Representation('$', Terminal.Color.BLACK, Terminal.Color.RED)
+        );
+
+        profiles = new ArrayList<>();
+
+        profiles.add(profile);
+
+        world = create(new TerminalSize(80, 24));
+
+        player = world.players().get(0);
+
+        moves = new ArrayList<>();
+
+        removed = new ArrayList<>();
+
+        world.listen(new World.Listener()
+        {
+            @Override public void moved(Element element, Point from)
+            {
+                if (element == player) moves.add(from);
+            }
+
+            @Override public void removed(Element element)
+            {
+                removed.add(element);
+            }
+        });
+    }
+
+    private World create(TerminalSize terminalSize)
+    {
+        return new World(new LevelBuilder(
+                Level.Difficulty.HARD,
+                "World",
+                layout,
+                theme,
+                new ArrayList<>(profiles),
+                terminalSize
+        ));
+    }
+
+    private void tick(Direction direction)
+    {
+        Map<String, Direction> directions = new HashMap<>();
+
+        directions.put(player.id(), direction);
+
+        world.tick(directions);
+    }
+
+    @Test public void testPlayerStartsAtEntrance()
+    {
+        assertThat(player.point(), is(new Point(0, 0)));
+    }
+
+    @Test public void testMovingNotifiesListeners()
+    {
+        tick(Direction.RIGHT);
+
+        assertThat(player.point(), is(new Point(1, 0)));
+
+        assertThat(moves.size(), is(1));
+        assertThat(moves.get(0), is(new Point(0, 0)));
+    }
+
+    @Test public void testCollectingKeyRemovesIt()
+    {
+        tick(Direction.RIGHT);
+        tick(Direction.RIGHT);
+
+        assertThat(world.keysCollected(), is(1));
+
+        assertThat(removed.size(), is(1));
+        assertThat(removed.get(0).kind(), is(Element.Kind.KEY));
+
+        assertNull(world.grid().at(2, 0));
+    }
+
+    @Test public void testWallsPushPlayersBack()
+    {
+        tick(Direction.RIGHT);
+        tick(Direction.RIGHT);
+        tick(Direction.RIGHT);
+
+        assertThat(player.point(), is(new Point(2, 0)));
+
+        // There and back again
+        assertThat(moves.size(), is(4));
+    }
+
+    @Test public void testTicksWithoutScreen()
+    {
+        Map<String, Direction> none = Collections.emptyMap();
+
+        for (int i = 0; i < 10000; ++i) world.tick(none);
+
+        assertThat(world.ticks(), is(10000L));
+
+        assertThat(world.grid().dynamicObstacles().size(), is(1));
+
+        Element obstacle = world.grid().dynamicObstacles().iterator().next();
+
+        assertTrue(world.region().contains(obstacle.point()));
+    }
+
+    @Test public void testObstaclesMoveOnAllPages()
+    {
+        // Two pages: the player is on the left, the obstacle on the right
+        world = create(new TerminalSize(3, 3));
+
+        Element obstacle = world.grid().dynamicObstacles().iterator().next();
+
+        assertFalse(world.currentPage().isInside(obstacle));
+
+        List<Point> obstacleMoves = new ArrayList<>();
+
+        world.listen(new World.Listener()
+        {
+            @Override public void moved(Element element, Point from)
+            {
+                if (element == obstacle) obstacleMoves.add(from);
+            }
+        });
+
+        Map<String, Direction> none = Collections.emptyMap();
+
+        boolean crossed = false;
+
+        for (int i = 0; i < 1000; ++i)
+        {
+            world.tick(none);
+
+            assertTrue(world.region().contains(obstacle.point()));
+
+            assertTrue(world.grid().getPageOf(obstacle).dynamicObstacles().contains(obstacle));
+
+            if (world.currentPage().isInside(obstacle)) crossed = true;
+        }
+
+        assertFalse(obstacleMoves.isEmpty());
+
+        assertTrue(crossed);
+
+        assertThat(world.grid().dynamicObstacles().size(), is(1));
+
+        assertThat(world.grid().numberOfElements(), is(5));
+    }
+
+    @Test public void testFlowObstaclesChaseThePlayer()
+    {
+        layout.setProperty("obstacle:5,2", "2");
+
+        world = create(new TerminalSize(80, 24));
+
+        Element obstacle = world.grid().dynamicObstacles().iterator().next();
+
+        Map<String, Direction> none = Collections.emptyMap();
+
+        for (int i = 0; i < 3; ++i) world.tick(none);
+
+        // The obstacle took the shortest way from 5,2 towards the player at 0,0
+        assertThat(obstacle.point().x() + obstacle.point().y(), is(4));
+    }
+
+    @Test public void testResumesExactlyWhereItWasSaved() throws IOException
+    {
+        layout.remove("3,0");
+
+        layout.setProperty("Width", "20");
+        layout.setProperty("Height", "10");
+
+        // Obstacles drawing random numbers from their chunks
+        for (int x = 4; x < 20; x += 3) layout.setProperty(x + ",5", "5");
+
+        layout.setProperty("obstacle:7,5", "1|period=2");
+
+        world = create(new TerminalSize(80, 24));
+
+        world.difficulty(Level.Difficulty.MEDIUM);
+
+        Map<String, Direction> none = Collections.emptyMap();
+
+        for (int i = 0; i < 51; ++i) world.tick(none);
+
+        world.reseed();
+
+        File file = File.createTempFile("test", "." + LevelFile.EXTENSION);
+
+        file.deleteOnExit();
+
+        new LevelBuilder(world).levelFile().write(file);
+
+        World resumed = new World(new LevelBuilder(
+                LevelFile.read(file),
+                theme,
+                new ArrayList<>(profiles),
+                new TerminalSize(80, 24)
+        ));
+
+        assertThat(resumed.seed(), is(world.seed()));
+
+        assertThat(Replay.fingerprint(resumed), is(Replay.fingerprint(world)));
+
+        for (int i = 0; i < 50; ++i)
+        {
+            world.tick(none);
+
+            resumed.tick(none);
+
+            assertThat(Replay.fingerprint(resumed), is(Replay.fingerprint(world)));
+        }
+
+        assert(file.delete());
+    }
+
+    private List<Point> play(long seed)
+    {
+        layout.setProperty("Seed", Long.toString(seed));
+
+        // Room for the obstacle to wander
+        layout.remove("3,0");
+
+        World world = create(new TerminalSize(80, 24));
+
+        assertThat(world.seed(), is(seed));
+
+        Element obstacle = world.grid().dynamicObstacles().iterator().next();
+
+        List<Point> points = new ArrayList<>();
+
+        Map<String, Direction> none = Collections.emptyMap();
+
+        for (int i = 0; i < 200; ++i)
+        {
+            world.tick(none);
+
+            points.add(obstacle.point());
+        }
+
+        return points;
+    }
+
+    @Test public void testSameSeedPlaysTheSame()
+    {
+        assertThat(play(1234), is(play(1234)));
+
+        assertThat(play(1234), is(not(play(4321))));
+    }
+}
@@ -0,0 +1,204 @@
+package capstone.ui;
+
+import capstone.data.Representation;
+import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.screen.ScreenCharacterStyle;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+import com.googlecode.lanterna.terminal.text.UnixTerminal;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class FrameBufferTest
+{
+    private FrameBuffer buffer;
+
+    private Representation representation;
+
+    @Before public void setUp()
+    {
+        Screen screen = new Screen(
+                new UnixTerminal(
+                        new ByteArrayInputStream(new byte[0]),
+                        new ByteArrayOutputStream(),
+                        StandardCharsets.UTF_8
+                ),
+                20,
+                10
+        );
+
+        buffer = new FrameBuffer(screen);
+
+        representation = new Representation(
+                'X',
+                Terminal.Color.RED,
+                Terminal.Color.BLUE
+        );
+    }
+
+    @Test public void testFirstFlushWritesEverything()
+    {
+        assertThat(buffer.flush(), is(200));
+
+        assertThat(buffer.flush(), is(0));
+    }
+
+    @Test public void testWritesOnlyChangedCells()
+    {
+        buffer.flush();
+
+        buffer.put(3, 4, representation);
+
+        buffer.put(5, 6, representation);
+
+        assertThat(buffer.flush(), is(2));
+
+        // Unchanged
+        buffer.put(3, 4, representation);
+
+        assertThat(buffer.numberOfDirty(), is(0));
+
+        assertThat(buffer.flush(), is(0));
+    }
+
+    @Test public void testChangesUndoneBeforeFlushAreNotWritten()
+    {
+        buffer.flush();
+
+        buffer.put(3, 4, representation);
+
+        buffer.blank(3, 4);
+
+        assertThat(buffer.flush(), is(0));
+    }
+
+    @Test public void testStylesMakeADifference()
+    {
+        buffer.put(3, 4, representation);
+
+        buffer.flush();
+
+        buffer.put(3, 4, representation, ScreenCharacterStyle.Blinking);
+
+        assertThat(buffer.flush(), is(1));
+    }
+
+    @Test public void testClearOnlyDirtiesDrawnCells()
+    {
+        buffer.put(3, 4, representation);
+
+        buffer.text(0, 9, "Keys", Terminal.Color.DEFAULT, Terminal.Color.RED);
+
+        buffer.flush();
+
+        buffer.clear();
+
+        buffer.text(0, 9, "Keys", Terminal.Color.DEFAULT, Terminal.Color.RED);
+
+        assertThat(buffer.flush(), is(1));
+    }
+
+    @Test public void testInvalidateWritesEverything()
+    {
+        buffer.flush();
+
+        buffer.invalidate();
+
+        assertThat(buffer.flush(), is(200));
+    }
+
+    @Test public void testIgnoresCellsOutside()
+    {
+        buffer.flush();
+
+        buffer.put(-1, 0, representation);
+
+        buffer.put(20, 0, representation);
+
+        buffer.text(18, 0, "abcd", Terminal.Color.DEFAULT, Terminal.Color.DEFAULT);
+
+        assertThat(buffer.flush(), is(2));
+    }
+
+    @Test public void testResize()
+    {
+        buffer.flush();
+
+        buffer.resize(new TerminalSize(5, 4));
+
+        assertThat(buffer.columns(), is(5));
+        assertThat(buffer.rows(), is(4));
+
+        assertThat(buffer.flush(), is(20));
+    }
+
+    @Test public void testScrollColumns()
+    {
+        buffer.put(0, 0, representation);
+
+        buffer.put(5, 0, representation);
+
+        buffer.put(19, 3, representation);
+
+        buffer.flush();
+
+        buffer.scroll(1, 0, 8);
+
+        // Both X's in the first row moved left, the first one out of view,
+        // and the one in the last column moved left too and left a blank
+        assertThat(buffer.flush(), is(5));
+
+        buffer.put(4, 0, representation);
+
+        buffer.put(18, 3, representation);
+
+        assertThat(buffer.flush(), is(0));
+
+        buffer.scroll(-1, 0, 8);
+
+        buffer.put(5, 0, representation);
+
+        buffer.put(19, 3, representation);
+
+        assertThat(buffer.flush(), is(4));
+    }
+
+    @Test public void testScrollRows()
+    {
+        buffer.put(3, 0, representation);
+
+        buffer.put(3, 4, representation);
+
+        buffer.flush();
+
+        buffer.scroll(0, 1, 8);
+
+        buffer.put(3, 3, representation);
+
+        assertThat(buffer.flush(), is(3));
+
+        buffer.scroll(0, -2, 8);
+
+        buffer.put(3, 5, representation);
+
+        assertThat(buffer.flush(), is(2));
+    }
+
+    @Test public void testScrollLeavesRowsBelowHeight()
+    {
+        buffer.text(0, 9, "Keys", Terminal.Color.DEFAULT, Terminal.Color.RED);
+
+        buffer.flush();
+
+        buffer.scroll(1, 1, 8);
+
+        assertThat(buffer.flush(), is(0));
+    }
+}
@@ -4,9 +4,7 @@ import capstone.element.IntelligentObstacle;
 import capstone.game.Level;
 import capstone.utility.LevelBuilder;
 import capstone.utility.Page;
-import com.googlecode.lanterna.TerminalFacade;
 import com.googlecode.lanterna.gui.GUIScreen;
-import com.googlecode.lanterna.screen.Screen;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -18,14 +16,19 @@ import capstone.element.DynamicObstacle;
 import capstone.element.Element;
 import capstone.element.Entrance;
 import capstone.element.Exit;
+import capstone.element.HunterObstacle;
 import capstone.element.Key;
 import capstone.element.MysteryBox;
+import capstone.element.ObstacleSpec;
+import capstone.element.PatternObstacle;
 import capstone.element.Player;
 import capstone.element.StaticObstacle;
 import capstone.element.Wall;
 import capstone.utility.KeyMap;
+import capstone.utility.Pattern;
 import capstone.utility.Point;
 import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -38,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
 
 public class NewLevelBuilderTest
@@ -64,7 +68,7 @@ public class NewLevelBuilderTest
 
     private Map<Point, MysteryBox> mysteryBoxes;
 
-    private GUIScreen screen;
+    private TerminalSize size;
 
 
     public <T, U> void assertEquals(Collection<T> first, Collection<U> second)
@@ -348,16 +352,16 @@ public class NewLevelBuilderTest
         put(mysteryBoxes, new Point(1, 3), Element.Kind.MYSTERY_BOX);
     }
 
-    @Before public void setUpScreen()
+    @Before public void setUpSize()
     {
-        screen = new GUIScreen(new Screen(TerminalFacade.createTerminal()));
+        size = new TerminalSize(80, 24);
     }
 
     @Test public void testSessionConstructorConstructsWellFromFile() throws IOException
     {
         File file = getSessionFile();
 
-        LevelBuilder level = new LevelBuilder(file, profiles, screen);
+        LevelBuilder level = new LevelBuilder(file, profiles, size);
 
         assertEquals(level.players(), players.values());
 
@@ -376,7 +380,7 @@ public class NewLevelBuilderTest
 
     @Test public void testSessionConstructorConstructsWellFromProperties()
     {
-        LevelBuilder level = new LevelBuilder(getSession(), profiles, screen);
+        LevelBuilder level = new LevelBuilder(getSession(), profiles, size);
 
         Page page = level.page();
 
@@ -399,7 +403,7 @@ public class NewLevelBuilderTest
                 getLayout(),
                 theme,
                 profiles,
-                screen
+                size
         );
 
         Page page = level.page();
@@ -415,87 +419,158 @@ public class NewLevelBuilderTest
         assertEquals(page.mysteryBoxes(), mysteryBoxes.values());
     }
 
+    @Test public void testLayoutCanAskForObstacleBehaviors()
+    {
+        Properties layout = getLayout();
+
+        layout.setProperty("obstacle:3,2", "3|pattern=ud|period=2");
+
+        layout.setProperty("obstacle:1,2", "1|radius=4");
+
+        LevelBuilder level = new LevelBuilder(
+                Level.Difficulty.HARD,
+                "LevelBuilder",
+                layout,
+                theme,
+                profiles,
+                size
+        );
+
+        Element obstacle = level.page().at(new Point(3, 2));
+
+        assertTrue(obstacle instanceof PatternObstacle);
+
+        assertThat(((PatternObstacle) obstacle).pattern(), is(new Pattern("ud")));
+
+        assertThat(((PatternObstacle) obstacle).period(), is(2));
+
+        Element hunter = level.page().at(new Point(1, 2));
+
+        assertTrue(hunter instanceof HunterObstacle);
+
+        assertThat(((HunterObstacle) hunter).radius(), is(4));
+
+        ObstacleSpec spec = level.levelFile().obstacle(3, 2);
+
+        assertThat(spec.pattern(), is(new Pattern("ud")));
+
+        assertThat(spec.period(), is(2));
+    }
+
+    @Test public void testLevelFileKeepsTheStateOfObstacles()
+    {
+        Properties layout = getLayout();
+
+        layout.setProperty("obstacle:3,2", "3|pattern=udl|state=2");
+
+        LevelBuilder level = new LevelBuilder(
+                Level.Difficulty.HARD,
+                "LevelBuilder",
+                layout,
+                theme,
+                profiles,
+                size
+        );
+
+        assertThat(level.levelFile().obstacle(3, 2).state(), is(2));
+
+        // New obstacles walking on their own need no spec
+        assertNull(level.levelFile().obstacle(1, 2));
+    }
+
     @Test(expected=AssertionError.class)
     public void testSessionConstructorConstructingFromFileThrowsForEmptyProfiles() throws IOException
     {
-        new LevelBuilder(getSessionFile(), new ArrayList<>(), screen);
+        new LevelBuilder(getSessionFile(), new ArrayList<>(), size);
     }
 
     @Test(expected=AssertionError.class)
     public void testSessionConstructorConstructingFromFileThrowsForNullProfiles() throws IOException
     {
-        new LevelBuilder(getSessionFile(), null, screen);
+        new LevelBuilder(getSessionFile(), null, size);
     }
 
     @Test(expected=AssertionError.class)
     public void testSessionConstructorConstructingFromFileThrowsForNullScreen() throws IOException
     {
-        new LevelBuilder(getSessionFile(), profiles, null);
+        new LevelBuilder(getSessionFile(), profiles, (GUIScreen) null);
     }
 
     @Test(expected=AssertionError.class)
     public void testSessionConstructorConstructingFromPropertiesThrowsForEmptyProfiles()
     {
-        new LevelBuilder(getSession(), new ArrayList<>(), screen);
+        new LevelBuilder(getSession(), new ArrayList<>(), size);
     }
 
     @Test(expected=AssertionError.class)
     public void testSessionConstructorConstructingFromPropertiesThrowsForNullProfiles()
     {
-        new LevelBuilder(getSession(), null, screen);
+        new LevelBuilder(getSession(), null, size);
     }
 
     @Test(expected=AssertionError.class)
     public void testSessionConstructorConstructingFromPropertiesThrowsForNullScreen()
     {
-        new LevelBuilder(getSession(), profiles, null);
+        new LevelBuilder(getSession(), profiles, (GUIScreen) null);
     }
 
     @Test(expected=AssertionError.class)
     public void testLayoutThemeConstructorConstructingFromPropertiesThrowsForEmptyProfiles()
     {
-        new LevelBuilder(Level.Difficulty.HARD, "LevelBuilder", getLayout(), theme, new ArrayList<>(), screen);
+        new LevelBuilder(Level.Difficulty.HARD, "LevelBuilder", getLayout(), theme, new ArrayList<>(), size);
     }
 
     @Test(expected=AssertionError.class)
     public void testLayoutThemeConstructorConstructingFromPropertiesThrowsForNullTheme()
     {
-        new LevelBuilder(Level.Difficulty.HARD, "LevelBuilder", getLayout(), null, profiles, screen);
+        new LevelBuilder(Level.Difficulty.HARD, "LevelBuilder", getLayout(), null, profiles, size);
     }
 
     @Test(expected=AssertionError.class)
     public void testLayoutThemeConstructorFromPropertiesThrowsForNullProfiles()
     {
-        new LevelBuilder(Level.Difficulty.HARD, "LevelBuilder", getLayout(), theme, null, screen);
+        new LevelBuilder(Level.Difficulty.HARD, "LevelBuilder", getLayout(), theme, null, size);
     }
 
     @Test(expected=AssertionError.class)
     public void testLayoutThemeConstructorFromPropertiesThrowsForNullScreen()
     {
-        new LevelBuilder(Level.Difficulty.HARD, "LevelBuilder", getLayout(), theme, profiles, null);
+        new LevelBuilder(Level.Difficulty.HARD, "LevelBuilder", getLayout(), theme, profiles, (GUIScreen) null);
     }
 
     @Test(expected=AssertionError.class)
     public void testLayoutThemeConstructorConstructingFromFileThrowsForEmptyProfiles() throws IOException
     {
-        new LevelBuilder(Level.Difficulty.HARD, getLayoutFile(), theme, new ArrayList<>(), screen);
+        new LevelBuilder(Level.Difficulty.HARD, getLayoutFile(), theme, new ArrayList<>(), size);
     }
 
     @Test(expected=AssertionError.class)
     public void testLayoutThemeConstructorConstructingFromFileThrowsForNullTheme() throws IOException
     {
-        new LevelBuilder(Level.Difficulty.HARD, getLayoutFile(), null, profiles, screen);
+        new LevelBuilder(Level.Difficulty.HARD, getLayoutFile(), null, profiles, size);
     }
 
     @Test(expected=AssertionError.class)
     public void testLayoutThemeConstructorFromFileThrowsForNullProfiles() throws IOException
     {
-        new LevelBuilder(Level.Difficulty.HARD, getLayoutFile(), theme, null, screen);
+        new LevelBuilder(Level.Difficulty.HARD, getLayoutFile(), theme, null, size);
     }
 
     @Test(expected=AssertionError.class)
     public void testLayoutThemeConstructorFromFileThrowsForNullScreen() throws IOException
     {
-        new LevelBuilder(Level.Difficulty.HARD, getLayoutFile(), theme, profiles, null);
+        new LevelBuilder(Level.Difficulty.HARD, getLayoutFile(), theme, profiles, (GUIScreen) null);
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testSessionConstructorThrowsForNullSize()
+    {
+        new LevelBuilder(getSession(), profiles, (TerminalSize) null);
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testLayoutThemeConstructorThrowsForNullSize()
+    {
+        new LevelBuilder(Level.Difficulty.HARD, "LevelBuilder", getLayout(), theme, profiles, (TerminalSize) null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package capstone.utility;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class CameraTest
+{
+    private Camera camera;
+
+    @Before public void setUp()
+    {
+        camera = new Camera(new LevelSize(100, 50), 20, 10);
+
+        camera.center(Point.of(50, 25));
+    }
+
+    @Test public void testCenter()
+    {
+        assertThat(camera.left(), is(40));
+        assertThat(camera.top(), is(20));
+
+        assertThat(camera.region(), is(new Region(40, 29, 59, 20)));
+    }
+
+    @Test public void testDoesNotMoveInsideDeadZone()
+    {
+        Delta delta = camera.follow(Point.of(45, 22));
+
+        assertThat(delta.x(), is(0));
+        assertThat(delta.y(), is(0));
+
+        delta = camera.follow(Point.of(54, 27));
+
+        assertThat(delta.x(), is(0));
+        assertThat(delta.y(), is(0));
+    }
+
+    @Test public void testMovesOneStepAtATime()
+    {
+        camera.follow(Point.of(54, 25));
+
+        Delta delta = camera.follow(Point.of(55, 25));
+
+        assertThat(delta.x(), is(1));
+        assertThat(delta.y(), is(0));
+
+        assertThat(camera.left(), is(41));
+
+        delta = camera.follow(Point.of(55, 21));
+
+        assertThat(delta.x(), is(0));
+        assertThat(delta.y(), is(-1));
+
+        assertThat(camera.top(), is(19));
+    }
+
+    @Test public void testStopsAtTheEdges()
+    {
+        camera.center(Point.of(0, 0));
+
+        assertThat(camera.left(), is(0));
+        assertThat(camera.top(), is(0));
+
+        camera.center(Point.of(99, 49));
+
+        assertThat(camera.left(), is(80));
+        assertThat(camera.top(), is(40));
+
+        assertTrue(camera.isInside(99, 49));
+        assertFalse(camera.isInside(Point.of(79, 49)));
+    }
+
+    @Test public void testLevelSmallerThanCamera()
+    {
+        camera.resize(new LevelSize(10, 5), 20, 10);
+
+        assertThat(camera.left(), is(0));
+        assertThat(camera.top(), is(0));
+
+        Delta delta = camera.follow(Point.of(9, 4));
+
+        assertThat(delta.x(), is(0));
+        assertThat(delta.y(), is(0));
+    }
+}
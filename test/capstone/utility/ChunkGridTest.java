@@ -0,0 +1,269 @@
+package capstone.utility;
+
+import capstone.data.Representation;
+import capstone.element.Element;
+import capstone.element.Key;
+import capstone.element.Wall;
+import com.googlecode.lanterna.terminal.Terminal;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class ChunkGridTest
+{
+    private ChunkGrid chunks;
+
+    private Representation representation;
+
+    @Before public void setUp()
+    {
+        chunks = new ChunkGrid(new LevelSize(100, 40));
+
+        representation = new Representation(
+                'X',
+                Terminal.Color.BLACK,
+                Terminal.Color.RED
+        );
+    }
+
+    private Element add(Element element)
+    {
+        chunks.chunkAt(element.point().x(), element.point().y()).add(element);
+
+        return element;
+    }
+
+    @Test public void testDimensions()
+    {
+        assertThat(chunks.width(), is(4));
+        assertThat(chunks.height(), is(2));
+
+        assertThat(chunks.chunkAt(31, 31), is(sameInstance(chunks.get(0, 0))));
+        assertThat(chunks.chunkAt(32, 31), is(sameInstance(chunks.get(1, 0))));
+
+        assertNull(chunks.chunkAt(128, 0));
+        assertNull(chunks.chunkAt(-1, 0));
+    }
+
+    @Test public void testAt()
+    {
+        Element wall = add(new Wall(new Point(40, 33), representation));
+
+        assertThat(chunks.at(40, 33), is(sameInstance(wall)));
+
+        assertNull(chunks.at(41, 33));
+
+        assertThat(chunks.size(), is(1));
+    }
+
+    @Test public void testQuery()
+    {
+        add(new Wall(new Point(30, 5), representation));
+        add(new Wall(new Point(33, 5), representation));
+        add(new Key(new Point(31, 6), representation));
+        add(new Wall(new Point(90, 35), representation));
+
+        List<Element> result = new ArrayList<>();
+
+        chunks.query(30, 5, 33, 6, null, result::add);
+
+        assertThat(result.size(), is(3));
+
+        result.clear();
+
+        chunks.query(0, 0, 99, 39, Element.Kind.WALL, result::add);
+
+        assertThat(result.size(), is(3));
+    }
+
+    @Test public void testResizeKeepsChunks()
+    {
+        Chunk chunk = chunks.get(1, 1);
+
+        Element wall = add(new Wall(new Point(40, 33), representation));
+
+        chunks.resize(new LevelSize(200, 100));
+
+        assertThat(chunks.width(), is(7));
+        assertThat(chunks.height(), is(4));
+
+        assertThat(chunks.get(1, 1), is(sameInstance(chunk)));
+        assertThat(chunks.at(40, 33), is(sameInstance(wall)));
+    }
+
+    @Test public void testResizeDropsElementsOutside()
+    {
+        add(new Wall(new Point(10, 10), representation));
+        add(new Wall(new Point(50, 10), representation));
+        add(new Wall(new Point(10, 35), representation));
+
+        chunks.resize(new LevelSize(40, 30));
+
+        assertThat(chunks.width(), is(2));
+        assertThat(chunks.height(), is(1));
+
+        assertThat(chunks.size(), is(1));
+
+        assertNotNull(chunks.at(10, 10));
+    }
+
+    @Test public void testRegionConstructor()
+    {
+        chunks = new ChunkGrid(new Region(5, 9, 14, 0));
+
+        assertThat(chunks.width(), is(1));
+        assertThat(chunks.height(), is(1));
+
+        assertThat(chunks.get(0, 0).region(), is(new Region(5, 9, 14, 0)));
+
+        assertNull(chunks.chunkAt(4, 0));
+        assertNull(chunks.chunkAt(15, 0));
+        assertNotNull(chunks.chunkAt(14, 9));
+
+        assertThat(chunks.free(), is(100));
+    }
+
+    @Test public void testCountsKinds()
+    {
+        Element wall = add(new Wall(new Point(10, 10), representation));
+        add(new Wall(new Point(50, 35), representation));
+        add(new Key(new Point(90, 5), representation));
+
+        assertThat(chunks.count(Element.Kind.WALL), is(2));
+        assertThat(chunks.count(Element.Kind.KEY), is(1));
+        assertThat(chunks.count(Element.Kind.EXIT), is(0));
+
+        chunks.chunkAt(10, 10).remove(wall);
+
+        assertThat(chunks.count(Element.Kind.WALL), is(1));
+
+        chunks.resize(new LevelSize(40, 30));
+
+        assertThat(chunks.count(Element.Kind.WALL), is(0));
+        assertThat(chunks.count(Element.Kind.KEY), is(0));
+    }
+
+    @Test public void testSelect()
+    {
+        Element first = add(new Wall(new Point(90, 5), representation));
+        Element second = add(new Wall(new Point(10, 35), representation));
+        Element third = add(new Wall(new Point(40, 35), representation));
+
+        // Row-major by chunk
+        assertThat(chunks.select(Element.Kind.WALL, 0), is(sameInstance(first)));
+        assertThat(chunks.select(Element.Kind.WALL, 1), is(sameInstance(second)));
+        assertThat(chunks.select(Element.Kind.WALL, 2), is(sameInstance(third)));
+    }
+
+    @Test public void testFree()
+    {
+        assertThat(chunks.free(), is(100 * 40));
+
+        add(new Wall(new Point(0, 0), representation));
+        add(new Wall(new Point(2, 0), representation));
+
+        assertThat(chunks.free(), is(100 * 40 - 2));
+
+        assertThat(chunks.freePoint(0), is(Point.of(1, 0)));
+        assertThat(chunks.freePoint(1), is(Point.of(3, 0)));
+
+        // The chunks on the edges stick out of the level
+        assertThat(chunks.freePoint(32 * 32 - 2), is(Point.of(32, 0)));
+        assertThat(chunks.freePoint(chunks.free() - 1), is(Point.of(99, 39)));
+    }
+
+    @Test public void testFreeCellsFollowMoves()
+    {
+        Chunk chunk = chunks.get(0, 0);
+
+        Element wall = add(new Wall(new Point(0, 0), representation));
+
+        chunk.vacate(wall);
+
+        wall.point(new Point(5, 0));
+
+        chunk.occupy(wall);
+
+        assertThat(chunk.free(), is(32 * 32 - 1));
+
+        assertThat(chunk.freePoint(0), is(Point.of(0, 0)));
+        assertThat(chunk.freePoint(5), is(Point.of(6, 0)));
+        assertThat(chunk.freePoint(31), is(Point.of(0, 1)));
+
+        assertNull(chunk.freePoint(32 * 32 - 1));
+    }
+
+    @Test public void testFreeCellsOutsideTheLevel()
+    {
+        // Only the first 4 columns and 8 rows of the chunk are in the level
+        Chunk chunk = chunks.get(3, 1);
+
+        assertThat(chunk.free(), is(4 * 8));
+
+        assertThat(chunk.freePoint(4), is(Point.of(96, 33)));
+
+        assertNull(chunk.freePoint(4 * 8));
+    }
+
+    private List<Element> elements()
+    {
+        List<Element> elements = new ArrayList<>();
+
+        for (int x = 0; x < 100; x += 3)
+        {
+            for (int y = 0; y < 40; y += 2)
+            {
+                if (x % 2 == 0) elements.add(new Wall(new Point(x, y), representation));
+
+                else elements.add(new Key(new Point(x, y), representation));
+            }
+        }
+
+        return elements;
+    }
+
+    private void assertLoadedAsAdded(ForkJoinPool pool)
+    {
+        List<Element> elements = elements();
+
+        elements.forEach(this::add);
+
+        ChunkGrid loaded = new ChunkGrid(new LevelSize(100, 40));
+
+        loaded.load(elements, pool);
+
+        assertThat(loaded.size(), is(elements.size()));
+        assertThat(loaded.free(), is(chunks.free()));
+
+        for (Element.Kind kind : Element.Kind.kinds())
+        {
+            assertThat(loaded.count(kind), is(chunks.count(kind)));
+
+            for (int n = 0; n < loaded.count(kind); ++n)
+            {
+                assertThat(loaded.select(kind, n), is(sameInstance(chunks.select(kind, n))));
+            }
+        }
+
+        for (Element element : elements)
+        {
+            assertThat(loaded.at(element.point().x(), element.point().y()), is(sameInstance(element)));
+        }
+    }
+
+    @Test public void testLoad()
+    {
+        assertLoadedAsAdded(null);
+    }
+
+    @Test public void testLoadInParallel()
+    {
+        assertLoadedAsAdded(new ForkJoinPool(4));
+    }
+}
@@ -16,12 +16,17 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 
 /**
  * Created by petergoldsborough on 01/03/16.
@@ -133,6 +138,61 @@ public class ExistingPageGridTest
         assertTrue(page.contains(elements.get(1)));
     }
 
+    @Test public void testIndexesDynamicObstacles()
+    {
+        assertThat(grid.dynamicObstacles().size(), is(1));
+        assertTrue(grid.dynamicObstacles().contains(elements.get(2)));
+
+        Element generated = grid.generate(Element.Kind.DYNAMIC_OBSTACLE, theme);
+
+        assertThat(grid.dynamicObstacles().size(), is(2));
+        assertThat(grid.numberOfElements(), is(9));
+
+        grid.remove(generated);
+
+        assertThat(grid.dynamicObstacles().size(), is(1));
+
+        grid.remove(Element.Kind.DYNAMIC_OBSTACLE);
+
+        assertTrue(grid.dynamicObstacles().isEmpty());
+    }
+
+    @Test public void testMovesObstaclesAcrossPages()
+    {
+        // Leave (0, 1) as the only free cell next to the obstacle
+        remaining.remove(0);
+
+        fill();
+
+        IntelligentObstacle obstacle = (IntelligentObstacle) elements.get(2);
+
+        grid.move(obstacle);
+
+        assertThat(obstacle.point(), is(new Point(0, 1)));
+
+        assertTrue(grid.fetch(0, 0).contains(obstacle));
+        assertTrue(grid.fetch(0, 0).dynamicObstacles().contains(obstacle));
+
+        assertFalse(grid.fetch(0, 1).hasAt(new Point(0, 2)));
+        assertTrue(grid.fetch(0, 1).dynamicObstacles().isEmpty());
+
+        assertThat(grid.numberOfElements(), is(grid.capacity() - 1));
+        assertThat(grid.dynamicObstacles().size(), is(1));
+    }
+
+    @Test public void testPositions()
+    {
+        assertThat(grid.positions().size(), is(8));
+
+        assertTrue(grid.positions().contains(new Point(0, 2)));
+        assertFalse(grid.positions().contains(new Point(1, 2)));
+
+        for (Element element : elements)
+        {
+            assertTrue(grid.positions().contains(element.point()));
+        }
+    }
+
     @Test public void testFetchPageOf()
     {
         for (Element element : elements)
@@ -551,4 +611,134 @@ public class ExistingPageGridTest
     {
         grid.fetch(500, 500);
     }
-}
\ No newline at end of file
+
+    @Test public void testQuery()
+    {
+        // Spans all four pages
+        List<Element> result = grid.query(new Region(1, 2, 2, 0));
+
+        assertThat(result.size(), is(3));
+
+        assertTrue(result.contains(elements.get(1)));
+        assertTrue(result.contains(elements.get(4)));
+        assertTrue(result.contains(elements.get(6)));
+
+        assertThat(grid.query(new Region(0, 3, 3, 0)).size(), is(8));
+
+        // Beyond the level
+        assertThat(grid.query(new Region(3, 10, 10, 3)).size(), is(1));
+
+        fill();
+
+        // Whole pages go through the elements, parts through the cells
+        assertThat(grid.query(new Region(1, 2, 2, 1)).size(), is(4));
+        assertThat(grid.query(new Region(0, 3, 3, 0)).size(), is(16));
+    }
+
+    @Test public void testQueryByKind()
+    {
+        fill();
+
+        List<Element> walls = grid.query(new Region(0, 3, 3, 0), Element.Kind.WALL);
+
+        assertThat(walls.size(), is(10));
+
+        walls.forEach(wall -> assertThat(wall.kind(), is(Element.Kind.WALL)));
+
+        List<Element> keys = grid.query(new Region(0, 1, 1, 0), Element.Kind.KEY);
+
+        assertThat(keys.size(), is(1));
+        assertThat(keys.get(0), is(elements.get(1)));
+
+        assertTrue(grid.query(new Region(2, 3, 3, 2), Element.Kind.KEY).isEmpty());
+    }
+
+    @Test public void testQueryVisitor()
+    {
+        int[] count = {0};
+
+        grid.query(new Region(0, 3, 1, 0), element -> ++count[0]);
+
+        assertThat(count[0], is(4));
+    }
+
+    @Test public void testResizeForTerminalSizeKeepsElements()
+    {
+        Element obstacle = elements.get(2);
+
+        grid.resize(new TerminalSize(3, 3));
+
+        assertThat(grid.at(obstacle.point()), is(sameInstance(obstacle)));
+
+        assertThat(grid.dynamicObstacles().size(), is(1));
+
+        // Pages are windows, so they see what is added through the grid
+        Page page = grid.get(0, 0);
+
+        grid.add(new Wall(new Point(2, 1), representation));
+
+        assertThat(page.size(), is(6));
+    }
+
+    @Test public void testShrinkingLevelDropsElements()
+    {
+        grid.resize(new LevelSize(2, 2));
+
+        assertThat(grid.numberOfElements(), is(2));
+        assertThat(grid.numberOfPages(), is(1));
+
+        assertTrue(grid.dynamicObstacles().isEmpty());
+    }
+
+    @Test public void testCount()
+    {
+        assertThat(grid.count(Element.Kind.WALL), is(2));
+        assertThat(grid.count(Element.Kind.KEY), is(1));
+
+        grid.remove(Element.Kind.KEY);
+
+        assertThat(grid.count(Element.Kind.KEY), is(0));
+
+        fill();
+
+        assertThat(grid.count(Element.Kind.WALL), is(10));
+    }
+
+    @Test public void testRandomFindsEveryElementOfThatKind()
+    {
+        fill();
+
+        Random random = new Random(1);
+
+        Set<Element> found = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (int i = 0; i < 200; ++i)
+        {
+            found.add(grid.random(Element.Kind.WALL, random));
+        }
+
+        assertThat(found.size(), is(10));
+
+        grid.remove(Element.Kind.KEY);
+
+        assertNull(grid.random(Element.Kind.KEY, random));
+    }
+
+    @Test public void testRandomFreePoint()
+    {
+        Random random = new Random(1);
+
+        for (int i = 0; i < 8; ++i)
+        {
+            PageGrid.Location location = grid.randomFreePoint(random);
+
+            assertNull(grid.at(location.point()));
+
+            grid.add(location.index(), new Wall(location.point(), representation));
+        }
+
+        assertTrue(grid.isFull());
+
+        assertNull(grid.randomFreePoint(random));
+    }
+}
@@ -389,5 +389,25 @@ public class ExistingPageTest
 
         assertThat(page.amountOfFreeSpace(), is(expected));
     }
-}
 
+    @Test public void testFreeSpaceOfPageAwayFromTheOrigin()
+    {
+        page = new Page(new Region(20, 12, 22, 10));
+
+        page.add(new Wall(new Point(20, 10), representation));
+
+        Collection<Point> free = page.freeSpace(new Region(0, 100, 100, 0));
+
+        assertThat(free.size(), is(8));
+
+        assertFalse(free.contains(new Point(20, 10)));
+        assertTrue(free.contains(new Point(22, 12)));
+
+        assertThat(page.freePoint(new Region(0, 100, 100, 0)), is(new Point(20, 11)));
+
+        // The level ends in the middle of the page
+        free = page.freeSpace(new Region(0, 11, 21, 0));
+
+        assertThat(free.size(), is(3));
+    }
+}
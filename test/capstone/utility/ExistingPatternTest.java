@@ -11,7 +11,7 @@ import static org.hamcrest.CoreMatchers.is;
  */
 public class ExistingPatternTest
 {
-    private Pattern pattern;
+    private Pattern.Cursor pattern;
     private Point point;
     private Delta[] deltas;
 
@@ -25,7 +25,7 @@ public class ExistingPatternTest
             Delta.Down()
         };
 
-        pattern = new Pattern(deltas);
+        pattern = new Pattern(deltas).cursor();
 
         point = new Point(2, 2);
     }
@@ -35,11 +35,11 @@ public class ExistingPatternTest
         assertTrue(pattern.isAt(0));
         assertThat(pattern.index(), is(0));
 
-        assertThat(pattern.at(0), is(Delta.Left()));
-        assertThat(pattern.at(1), is(Delta.Left()));
-        assertThat(pattern.at(2), is(Delta.Up()));
-        assertThat(pattern.at(3), is(Delta.Right()));
-        assertThat(pattern.at(4), is(Delta.Down()));
+        assertThat(pattern.pattern().at(0), is(Delta.Left()));
+        assertThat(pattern.pattern().at(1), is(Delta.Left()));
+        assertThat(pattern.pattern().at(2), is(Delta.Up()));
+        assertThat(pattern.pattern().at(3), is(Delta.Right()));
+        assertThat(pattern.pattern().at(4), is(Delta.Down()));
     }
 
     @Test public void testJumpTo()
@@ -64,11 +64,11 @@ public class ExistingPatternTest
         pattern.jumpTo(-1);
     }
 
-    @Test public void testApplyModifiesPointWell()
+    @Test public void testApplyMovesPointWell()
     {
         assert(pattern.isAt(0));
 
-        pattern.apply(point);
+        point = pattern.apply(point);
 
         assertThat(point.x(), is(1));
         assertThat(point.y(), is(2));
@@ -78,7 +78,7 @@ public class ExistingPatternTest
     {
         assert(pattern.isAt(0));
 
-        pattern.apply(point);
+        point = pattern.apply(point);
 
         assertTrue(pattern.isAt(0));
     }
@@ -87,16 +87,16 @@ public class ExistingPatternTest
     {
         assert(pattern.isAt(0));
 
-        pattern.next(point);
+        point = pattern.next(point);
 
         assertTrue(pattern.isAt(1));
     }
 
-    @Test public void testNextModifiesPointWell()
+    @Test public void testNextMovesPointWell()
     {
         assert(pattern.isAt(0));
 
-        pattern.next(point);
+        point = pattern.next(point);
 
         assertThat(point.x(), is(1));
         assertThat(point.y(), is(2));
@@ -107,111 +107,111 @@ public class ExistingPatternTest
         pattern.jumpTo(1);
         assert(pattern.isAt(1));
 
-        pattern.previous(point);
+        point = pattern.previous(point);
 
         assertTrue(pattern.isAt(0));
     }
 
-    @Test public void testPreviousModifiesPointWell()
+    @Test public void testPreviousMovesPointWell()
     {
         pattern.jumpTo(1);
         assert(pattern.isAt(1));
 
-        pattern.previous(point);
+        point = pattern.previous(point);
 
         assertThat(point.x(), is(1));
         assertThat(point.y(), is(2));
     }
 
-    @Test public void testSafeApplyDoesModifyIfNotGoingOutOfBounds()
+    @Test public void testSafeApplyDoesMoveIfNotGoingOutOfBounds()
     {
         assert(pattern.isAt(0));
 
-        pattern.safeApply(point, new Region(0, 4, 4, 0));
+        point = pattern.safeApply(point, new Region(0, 4, 4, 0));
 
         assertThat(point.x(), is(1));
         assertThat(point.y(), is(2));
     }
 
-    @Test public void testSafeApplyDoesNotModifyWhenWouldGoOutOfBounds()
+    @Test public void testSafeApplyDoesNotMoveWhenWouldGoOutOfBounds()
     {
         assert(pattern.isAt(0));
 
         pattern.jumpTo(1);
 
-        point.x(0);
+        point = new Point(0, point.y());
 
         // left would go negative
-        pattern.safeApply(point, new Region(0, 4, 4, 0));
+        point = pattern.safeApply(point, new Region(0, 4, 4, 0));
 
         assertThat(point.x(), is(0));
         assertThat(point.y(), is(2));
 
-        point.y(3);
+        point = new Point(point.x(), 3);
 
-        pattern.safeApply(point, new Region(0, 4, 4, 0));
+        point = pattern.safeApply(point, new Region(0, 4, 4, 0));
 
         assertThat(point.x(), is(0));
         assertThat(point.y(), is(3));
     }
 
-    @Test public void testSafeNextDoesModifyIfNotGoingOutOfBounds()
+    @Test public void testSafeNextDoesMoveIfNotGoingOutOfBounds()
     {
         assert(pattern.isAt(0));
 
-        pattern.safeNext(point, new Region(0, 4, 4, 0));
+        point = pattern.safeNext(point, new Region(0, 4, 4, 0));
 
         assertThat(point.x(), is(1));
         assertThat(point.y(), is(2));
     }
 
-    @Test public void testSafeNextDoesNotModifyWhenWouldGoOutOfBounds()
+    @Test public void testSafeNextDoesNotMoveWhenWouldGoOutOfBounds()
     {
         assert(pattern.isAt(0));
 
-        point.x(0);
+        point = new Point(0, point.y());
 
         // left would go negative
-        pattern.safeNext(point, new Region(0, 4, 4, 0));
+        point = pattern.safeNext(point, new Region(0, 4, 4, 0));
 
         assertThat(point.x(), is(0));
         assertThat(point.y(), is(2));
 
-        point.y(3);
+        point = new Point(point.x(), 3);
 
-        pattern.safeNext(point, new Region(0, 4, 4, 0));
+        point = pattern.safeNext(point, new Region(0, 4, 4, 0));
 
         assertThat(point.x(), is(0));
         assertThat(point.y(), is(3));
     }
 
-    @Test public void testSafePreviousDoesModifyIfNotGoingOutOfBounds()
+    @Test public void testSafePreviousDoesMoveIfNotGoingOutOfBounds()
     {
         assert(pattern.isAt(0));
 
-        pattern.safePrevious(point, new Region(0, 4, 4, 0));
+        point = pattern.safePrevious(point, new Region(0, 4, 4, 0));
 
         assertThat(point.x(), is(1));
         assertThat(point.y(), is(2));
     }
 
-    @Test public void testSafePreviousDoesNotModifyWhenWouldGoOutOfBounds()
+    @Test public void testSafePreviousDoesNotMoveWhenWouldGoOutOfBounds()
     {
         assert(pattern.isAt(0));
 
         pattern.jumpTo(1);
 
-        point.x(0);
+        point = new Point(0, point.y());
 
         // left would go negative
-        pattern.safePrevious(point, new Region(0, 4, 4, 0));
+        point = pattern.safePrevious(point, new Region(0, 4, 4, 0));
 
         assertThat(point.x(), is(0));
         assertThat(point.y(), is(2));
 
-        point.y(3);
+        point = new Point(point.x(), 3);
 
-        pattern.safePrevious(point, new Region(0, 4, 4, 0));
+        point = pattern.safePrevious(point, new Region(0, 4, 4, 0));
 
         assertThat(point.x(), is(0));
         assertThat(point.y(), is(3));
@@ -219,14 +219,14 @@ public class ExistingPatternTest
 
     @Test public void testLengthIsCorrect()
     {
-        assertThat(pattern.length(), is(5));
+        assertThat(pattern.pattern().length(), is(5));
     }
 
     @Test public void testIteration()
     {
         int index = 0;
 
-        for (Delta delta : pattern)
+        for (Delta delta : pattern.pattern())
         {
             assertThat(delta, is(deltas[index++]));
         }
@@ -273,8 +273,37 @@ public class ExistingPatternTest
     {
         assert(pattern.isAt(0));
 
-        pattern.skip(pattern.length() + 1);
+        pattern.skip(pattern.pattern().length() + 1);
 
         assertTrue(pattern.isAt(1));
     }
+
+    @Test public void testSkipBackwardsWrapsAround()
+    {
+        assert(pattern.isAt(0));
+
+        pattern.skip(-1);
+
+        assertTrue(pattern.isAt(4));
+    }
+
+    @Test public void testSafeNextWrapsAround()
+    {
+        pattern.jumpTo(4);
+
+        pattern.safeNext(point, new Region(0, 4, 4, 0));
+
+        assertTrue(pattern.isAt(0));
+    }
+
+    @Test public void testCursorsAreIndependent()
+    {
+        Pattern.Cursor other = pattern.pattern().cursor();
+
+        pattern.skip(2);
+
+        assertTrue(other.isAt(0));
+
+        assertThat(other.peek(), is(Delta.Left()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package capstone.utility;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class FenwickTreeTest
+{
+    private FenwickTree tree;
+
+    @Before public void setUp()
+    {
+        tree = new FenwickTree(5);
+
+        tree.set(0, 2);
+        tree.set(2, 3);
+        tree.set(4, 1);
+    }
+
+    @Test public void testTotal()
+    {
+        assertThat(tree.total(), is(6));
+        assertThat(tree.size(), is(5));
+    }
+
+    @Test public void testPrefix()
+    {
+        assertThat(tree.prefix(0), is(0));
+        assertThat(tree.prefix(1), is(2));
+        assertThat(tree.prefix(3), is(5));
+        assertThat(tree.prefix(5), is(6));
+    }
+
+    @Test public void testSelect()
+    {
+        assertThat(tree.select(0), is(0));
+        assertThat(tree.select(1), is(0));
+        assertThat(tree.select(2), is(2));
+        assertThat(tree.select(4), is(2));
+        assertThat(tree.select(5), is(4));
+    }
+
+    @Test public void testAddNegativeDelta()
+    {
+        tree.add(2, -3);
+
+        assertThat(tree.get(2), is(0));
+        assertThat(tree.total(), is(3));
+
+        assertThat(tree.select(2), is(4));
+    }
+}
@@ -0,0 +1,267 @@
+package capstone.utility;
+
+import capstone.data.Profile;
+import capstone.data.Representation;
+import capstone.element.Element;
+import capstone.element.IntelligentObstacle;
+import capstone.element.Player;
+import capstone.element.Quarry;
+import capstone.element.Wall;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class FlowFieldTest
+{
+    private Representation representation;
+
+    private PageGrid grid;
+
+    @Before public void setUp()
+    {
+        representation = new Representation(
+                'W',
+                Terminal.Color.BLACK,
+                Terminal.Color.RED
+        );
+
+        // . . . . . . .
+        // . . . W . P .
+        // . D . W . . .
+        // . . . W . . .
+        grid = new PageGrid(new LevelSize(7, 4), new TerminalSize(4, 2));
+
+        for (int y = 1; y <= 3; ++y) grid.add(new Wall(Point.of(3, y), representation));
+
+        grid.add(new IntelligentObstacle(Point.of(1, 2), representation));
+    }
+
+    private Quarry quarry(Point... points)
+    {
+        Quarry quarry = new Quarry();
+
+        List<Player> players = new ArrayList<>();
+
+        for (Point point : points)
+        {
+            Profile profile = new Profile(
+                    "player",
+                    "Real Name",
+                    KeyMap.Arrows(),
+                    representation
+            );
+
+            players.add(new Player(point, profile));
+        }
+
+        quarry.update(players);
+
+        return quarry;
+    }
+
+    private void assertSameDistances(FlowField field, FlowField expected, LevelSize size)
+    {
+        for (int x = 0; x < size.getColumns(); ++x)
+        {
+            for (int y = 0; y < size.getRows(); ++y)
+            {
+                assertThat(field.distance(x, y), is(expected.distance(x, y)));
+            }
+        }
+    }
+
+    @Test public void testDistancesAroundWalls()
+    {
+        FlowField field = new FlowField(grid);
+
+        field.update(quarry(Point.of(5, 1)));
+
+        assertThat(field.distance(5, 1), is(0));
+
+        assertThat(field.distance(4, 3), is(3));
+
+        // Up, four to the right and down again
+        assertThat(field.distance(1, 1), is(6));
+
+        // Dynamic obstacles do not block
+        assertThat(field.distance(1, 3), is(8));
+
+        assertThat(field.distance(3, 2), is(FlowField.UNREACHED));
+
+        assertThat(field.distance(-1, 0), is(FlowField.UNREACHED));
+
+        assertThat(field.distance(7, 0), is(FlowField.UNREACHED));
+    }
+
+    @Test public void testNearestPlayerWins()
+    {
+        FlowField field = new FlowField(grid);
+
+        field.update(quarry(Point.of(5, 1), Point.of(0, 3)));
+
+        assertThat(field.distance(1, 1), is(3));
+
+        assertThat(field.distance(5, 3), is(2));
+    }
+
+    @Test public void testRadiusBoundsTheField()
+    {
+        FlowField field = new FlowField(grid, 2);
+
+        field.update(quarry(Point.of(5, 1)));
+
+        assertThat(field.distance(4, 2), is(2));
+
+        assertThat(field.distance(4, 3), is(FlowField.UNREACHED));
+
+        assertThat(field.distance(1, 1), is(FlowField.UNREACHED));
+    }
+
+    @Test public void testFieldFollowsThePlayers()
+    {
+        FlowField field = new FlowField(grid);
+
+        field.update(quarry(Point.of(5, 1)));
+
+        field.update(quarry(Point.of(0, 0)));
+
+        assertThat(field.distance(0, 0), is(0));
+
+        assertThat(field.distance(5, 1), is(6));
+
+        field.update(quarry());
+
+        assertThat(field.distance(0, 0), is(FlowField.UNREACHED));
+
+        assertFalse(field.isDirty());
+    }
+
+    @Test public void testOpenedFillsInDistances()
+    {
+        FlowField field = new FlowField(grid);
+
+        field.update(quarry(Point.of(5, 1)));
+
+        Element wall = grid.at(3, 1);
+
+        grid.remove(wall);
+
+        field.opened(wall.point());
+
+        assertFalse(field.isDirty());
+
+        assertThat(field.distance(3, 1), is(2));
+
+        assertThat(field.distance(1, 1), is(4));
+
+        assertThat(field.distance(1, 3), is(6));
+    }
+
+    @Test public void testBlockedOnlyDirtiesWaysThroughIt()
+    {
+        FlowField field = new FlowField(grid);
+
+        field.update(quarry(Point.of(5, 1)));
+
+        // Every cell behind (5, 3) can also be reached via (4, 2)
+        Point point = Point.of(5, 3);
+
+        grid.add(new Wall(point, representation));
+
+        field.blocked(point);
+
+        assertFalse(field.isDirty());
+
+        assertThat(field.distance(point), is(FlowField.UNREACHED));
+
+        // But the way around the wall runs through (3, 0)
+        point = Point.of(3, 0);
+
+        grid.add(new Wall(point, representation));
+
+        field.blocked(point);
+
+        assertTrue(field.isDirty());
+
+        field.update(quarry(Point.of(5, 1)));
+
+        assertThat(field.distance(1, 1), is(FlowField.UNREACHED));
+    }
+
+    @Test public void testIncrementalUpdatesEqualSearchingAgain()
+    {
+        LevelSize size = new LevelSize(60, 30);
+
+        PageGrid grid = new PageGrid(size, new TerminalSize(20, 10));
+
+        Random random = new Random(42);
+
+        List<Element> walls = new ArrayList<>();
+
+        for (int i = 0; i < 600; ++i)
+        {
+            Point point = Point.of(random.nextInt(60), random.nextInt(30));
+
+            if (grid.at(point) != null) continue;
+
+            Wall wall = new Wall(point, representation);
+
+            grid.add(wall);
+
+            walls.add(wall);
+        }
+
+        Quarry quarry = quarry(Point.of(10, 10), Point.of(45, 20));
+
+        FlowField field = new FlowField(grid, 20);
+
+        field.update(quarry);
+
+        for (int i = 0; i < 300; ++i)
+        {
+            if (random.nextBoolean() && ! walls.isEmpty())
+            {
+                Element wall = walls.remove(random.nextInt(walls.size()));
+
+                grid.remove(wall);
+
+                field.opened(wall.point());
+            }
+
+            else
+            {
+                Point point = Point.of(random.nextInt(60), random.nextInt(30));
+
+                if (grid.at(point) != null) continue;
+
+                if (point.equals(Point.of(10, 10))) continue;
+
+                if (point.equals(Point.of(45, 20))) continue;
+
+                Wall wall = new Wall(point, representation);
+
+                grid.add(wall);
+
+                walls.add(wall);
+
+                field.blocked(point);
+            }
+
+            field.update(quarry);
+
+            FlowField expected = new FlowField(grid, 20);
+
+            expected.update(quarry);
+
+            assertSameDistances(field, expected, size);
+        }
+    }
+}
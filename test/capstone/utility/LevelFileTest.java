@@ -0,0 +1,252 @@
+package capstone.utility;
+
+import capstone.element.DynamicObstacle;
+import capstone.element.Element;
+import capstone.element.ObstacleSpec;
+import capstone.game.Level;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class LevelFileTest
+{
+    private Properties properties;
+
+    @Before public void setUp()
+    {
+        properties = new Properties();
+
+        properties.setProperty("Name", "Test");
+        properties.setProperty("Width", "4");
+        properties.setProperty("Height", "3");
+        properties.setProperty("Difficulty", "HARD");
+        properties.setProperty("Theme", "default.theme");
+
+        properties.setProperty("0,0", "0");
+        properties.setProperty("1,0", "0");
+        properties.setProperty("2,0", "0");
+        properties.setProperty("3,2", "3");
+        properties.setProperty("0,1", "1");
+
+        // Old layouts have these
+        properties.setProperty("6,7", "5");
+
+        // Files from before obstacle specs have these
+        properties.setProperty("pattern:6,7", "2r2l");
+
+        properties.setProperty("2,1", "5");
+
+        properties.setProperty("obstacle:2,1", "1|radius=20|period=2|rest=1");
+
+        properties.setProperty("id:peter", "1,1");
+        properties.setProperty("id:paul", "hidden");
+    }
+
+    private void assertLevel(LevelFile level)
+    {
+        assertThat(level.name(), is("Test"));
+        assertThat(level.width(), is(4));
+        assertThat(level.height(), is(3));
+        assertThat(level.difficulty(), is(Level.Difficulty.HARD));
+        assertThat(level.theme(), is("default.theme"));
+
+        assertThat(level.kind(0, 0), is(Element.Kind.WALL));
+        assertThat(level.kind(1, 0), is(Element.Kind.WALL));
+        assertThat(level.kind(2, 0), is(Element.Kind.WALL));
+        assertThat(level.kind(3, 2), is(Element.Kind.KEY));
+        assertThat(level.kind(0, 1), is(Element.Kind.ENTRANCE));
+
+        assertNull(level.kind(3, 0));
+        assertNull(level.kind(1, 1));
+
+        assertThat(level.kind(6, 7), is(Element.Kind.DYNAMIC_OBSTACLE));
+        assertThat(level.outside().size(), is(1));
+
+        assertThat(level.obstacle(6, 7), is(new ObstacleSpec(new Pattern("2r2l"))));
+        assertNull(level.obstacle(3, 2));
+
+        ObstacleSpec spec = level.obstacle(2, 1);
+
+        assertThat(spec.behavior(), is(DynamicObstacle.Behavior.HUNT));
+        assertThat(spec.radius(), is(20));
+        assertThat(spec.period(), is(2));
+        assertThat(spec.rest(), is(1));
+        assertThat(spec.state(), is(0));
+
+        assertThat(level.players().get("peter"), is(new Point(1, 1)));
+        assertTrue(level.players().containsKey("paul"));
+        assertNull(level.players().get("paul"));
+    }
+
+    @Test public void testFromProperties()
+    {
+        assertLevel(LevelFile.fromProperties(properties));
+    }
+
+    @Test public void testBinaryRoundTrip() throws IOException
+    {
+        File file = File.createTempFile("test", "." + LevelFile.EXTENSION);
+
+        file.deleteOnExit();
+
+        LevelFile.fromProperties(properties).write(file);
+
+        assertTrue(LevelFile.isBinary(file));
+
+        assertLevel(LevelFile.read(file));
+
+        assert(file.delete());
+    }
+
+    @Test public void testReadsPropertiesFiles() throws IOException
+    {
+        File file = File.createTempFile("test", ".session");
+
+        file.deleteOnExit();
+
+        try (OutputStream stream = new BufferedOutputStream(
+                new FileOutputStream(file)))
+        {
+            properties.store(stream, "Test Session");
+        }
+
+        assertFalse(LevelFile.isBinary(file));
+
+        assertLevel(LevelFile.read(file));
+
+        assert(file.delete());
+    }
+
+    @Test(expected=IOException.class)
+    public void testThrowsForInvalidObstacleSpec() throws IOException
+    {
+        File file = File.createTempFile("test", ".layout");
+
+        file.deleteOnExit();
+
+        properties.setProperty("obstacle:2,1", "1|period=2|rest=5");
+
+        try (OutputStream stream = new BufferedOutputStream(
+                new FileOutputStream(file)))
+        {
+            properties.store(stream, "Test Layout");
+        }
+
+        LevelFile.read(file);
+    }
+
+    @Test public void testNameDefaultsToFileName() throws IOException
+    {
+        File file = File.createTempFile("test", "." + LevelFile.EXTENSION);
+
+        file.deleteOnExit();
+
+        properties.remove("Name");
+
+        LevelFile.fromProperties(properties).write(file);
+
+        String name = file.getName();
+
+        assertThat(
+                LevelFile.read(file).name(),
+                is(name.substring(0, name.lastIndexOf('.')))
+        );
+
+        assert(file.delete());
+    }
+
+    @Test public void testRunLengthEncodingIsCompact() throws IOException
+    {
+        LevelFile level = new LevelFile(500, 500);
+
+        for (int x = 0; x < 500; ++x)
+        {
+            level.kind(x, 0, Element.Kind.WALL);
+            level.kind(x, 499, Element.Kind.WALL);
+        }
+
+        File file = File.createTempFile("test", "." + LevelFile.EXTENSION);
+
+        file.deleteOnExit();
+
+        level.write(file);
+
+        assertTrue(file.length() < 100);
+
+        LevelFile read = LevelFile.read(file);
+
+        for (int x = 0; x < 500; ++x)
+        {
+            assertThat(read.kind(x, 0), is(Element.Kind.WALL));
+            assertNull(read.kind(x, 1));
+            assertThat(read.kind(x, 499), is(Element.Kind.WALL));
+        }
+
+        assert(file.delete());
+    }
+
+    @Test(expected=IOException.class)
+    public void testThrowsForTruncatedFile() throws IOException
+    {
+        File file = File.createTempFile("test", "." + LevelFile.EXTENSION);
+
+        file.deleteOnExit();
+
+        LevelFile.fromProperties(properties).write(file);
+
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw"))
+        {
+            raw.setLength(20);
+        }
+
+        LevelFile.read(file);
+    }
+
+    @Test public void testSeedRoundTrip() throws IOException
+    {
+        File file = File.createTempFile("test", "." + LevelFile.EXTENSION);
+
+        file.deleteOnExit();
+
+        properties.setProperty("Seed", "123456789");
+
+        LevelFile level = LevelFile.fromProperties(properties);
+
+        assertThat(level.seed(), is(123456789L));
+
+        level.write(file);
+
+        assertThat(LevelFile.read(file).seed(), is(123456789L));
+
+        assert(file.delete());
+    }
+
+    @Test public void testSeedDefaultsToChecksum() throws IOException
+    {
+        File file = File.createTempFile("test", ".session");
+
+        file.deleteOnExit();
+
+        try (OutputStream stream = new BufferedOutputStream(
+                new FileOutputStream(file)))
+        {
+            properties.store(stream, null);
+        }
+
+        LevelFile level = LevelFile.read(file);
+
+        assertThat(level.seed(), is(level.checksum()));
+
+        assert(file.delete());
+    }
+}
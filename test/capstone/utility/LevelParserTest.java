@@ -0,0 +1,160 @@
+package capstone.utility;
+
+import capstone.element.Element;
+import capstone.game.Level;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class LevelParserTest
+{
+    private static LevelFile parse(String text) throws IOException
+    {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+
+        return LevelParser.parse(ByteBuffer.wrap(bytes));
+    }
+
+    @Test public void testParsesElements() throws IOException
+    {
+        LevelFile level = parse("Width=3\nHeight=2\n0,0=0\n2,1=3\n");
+
+        assertThat(level.width(), is(3));
+        assertThat(level.height(), is(2));
+
+        assertThat(level.kind(0, 0), is(Element.Kind.WALL));
+        assertThat(level.kind(2, 1), is(Element.Kind.KEY));
+
+        assertNull(level.kind(1, 0));
+    }
+
+    @Test public void testElementsBeforeSize() throws IOException
+    {
+        LevelFile level = parse("0,0=0\r\n2,1=3\r\nHeight=2\r\n1,1=6\r\nWidth=3");
+
+        assertThat(level.kind(0, 0), is(Element.Kind.WALL));
+        assertThat(level.kind(2, 1), is(Element.Kind.KEY));
+        assertThat(level.kind(1, 1), is(Element.Kind.MYSTERY_BOX));
+    }
+
+    @Test public void testHeader() throws IOException
+    {
+        LevelFile level = parse(
+                "#Comment=1\n" +
+                "! Another comment\n" +
+                "Name=My \\u00DCber Level\n" +
+                "Theme : default.theme\n" +
+                "Difficulty HARD\n" +
+                "Width=2\n" +
+                "Height=2\n" +
+                "id\\:peter=1,1\n" +
+                "id\\:paul=hidden\n"
+        );
+
+        assertThat(level.name(), is("My Über Level"));
+        assertThat(level.theme(), is("default.theme"));
+        assertThat(level.difficulty(), is(Level.Difficulty.HARD));
+
+        assertThat(level.players().get("peter"), is(new Point(1, 1)));
+        assertTrue(level.players().containsKey("paul"));
+        assertNull(level.players().get("paul"));
+    }
+
+    @Test public void testUnusualFormatting() throws IOException
+    {
+        LevelFile level = parse(
+                "   Width = 3\n" +
+                "\tHeight:2\n" +
+                "0,0 : 0\n" +
+                "1,0\\\n" +
+                "     =4\n" +
+                "2,1 3\n" +
+                "\n\n"
+        );
+
+        assertThat(level.kind(0, 0), is(Element.Kind.WALL));
+        assertThat(level.kind(1, 0), is(Element.Kind.STATIC_OBSTACLE));
+        assertThat(level.kind(2, 1), is(Element.Kind.KEY));
+    }
+
+    @Test public void testAgreesWithProperties() throws IOException
+    {
+        Random random = new Random(42);
+
+        Properties properties = new Properties();
+
+        properties.setProperty("Name", "Random: Level");
+        properties.setProperty("Width", "40");
+        properties.setProperty("Height", "30");
+
+        for (int i = 0; i < 500; ++i)
+        {
+            properties.setProperty(
+                    random.nextInt(40) + "," + random.nextInt(30),
+                    Integer.toString(random.nextInt(7))
+            );
+        }
+
+        properties.setProperty("id:peter", "3,4");
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        properties.store(stream, "Test");
+
+        LevelFile expected = LevelFile.fromProperties(properties);
+
+        LevelFile parsed = LevelParser.parse(ByteBuffer.wrap(stream.toByteArray()));
+
+        assertThat(parsed.name(), is(expected.name()));
+        assertThat(parsed.players(), is(expected.players()));
+
+        for (int i = 0; i < expected.cells(); ++i)
+        {
+            assertThat(parsed.cell(i), is(expected.cell(i)));
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testThrowsForMissingSize() throws IOException
+    {
+        parse("Width=3\n0,0=0\n");
+    }
+
+    @Test(expected=IOException.class)
+    public void testThrowsForUnknownCode() throws IOException
+    {
+        parse("Width=3\nHeight=3\n0,0=42\n");
+    }
+
+    @Test(expected=IOException.class)
+    public void testThrowsForMalformedValue() throws IOException
+    {
+        parse("Width=3\nHeight=3\n0,0=wall\n");
+    }
+
+    @Test public void testSeedFromHeaderComment() throws IOException
+    {
+        LevelFile level = parse("#Properties (Seed=-42)\n#Date\nWidth=2\nHeight=2\n");
+
+        assertThat(level.seed(), is(-42L));
+
+        level = parse("#Properties (seed=7)\nWidth=2\nHeight=2\n");
+
+        assertThat(level.seed(), is(7L));
+    }
+
+    @Test public void testSeedPropertyOverridesComment() throws IOException
+    {
+        LevelFile level = parse("#Properties (Seed=1)\nSeed=2\nWidth=2\nHeight=2\n");
+
+        assertThat(level.seed(), is(2L));
+    }
+}
@@ -103,4 +103,40 @@ public class NewPatternTest
         assertThat(pattern.at(6), is(Delta.Down()));
         assertThat(pattern.at(7), is(Delta.Left()));
     }
+
+    @Test public void testSignedCoordinates()
+    {
+        Pattern pattern = new Pattern("(+1,-1)(-1, +1)");
+
+        assertThat(pattern.length(), is(2));
+
+        assertThat(pattern.at(0), is(new Delta(1, -1)));
+        assertThat(pattern.at(1), is(new Delta(-1, 1)));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testStringConstructorThrowsForNoDeltas()
+    {
+        new Pattern("x");
+    }
+
+    @Test public void testToStringRoundTrips()
+    {
+        Pattern pattern = new Pattern("2l u (2, -1) d r");
+
+        assertThat(pattern.toString(), is("llu(2,-1)dr"));
+
+        assertThat(new Pattern(pattern.toString()), is(pattern));
+    }
+
+    @Test public void testPatternDoesNotShareDeltas()
+    {
+        Delta delta = Delta.Left();
+
+        Pattern pattern = new Pattern(delta);
+
+        delta.x(5);
+
+        assertThat(pattern.at(0), is(Delta.Left()));
+    }
 }
\ No newline at end of file
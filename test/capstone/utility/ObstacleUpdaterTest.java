@@ -0,0 +1,161 @@
+package capstone.utility;
+
+import capstone.data.Representation;
+import capstone.element.DynamicObstacle;
+import capstone.element.Element;
+import capstone.element.IntelligentObstacle;
+import capstone.element.Wall;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class ObstacleUpdaterTest
+{
+    private Representation representation;
+
+    @Before public void setUp()
+    {
+        representation = new Representation(
+                'D',
+                Terminal.Color.BLACK,
+                Terminal.Color.RED
+        );
+    }
+
+    private PageGrid grid()
+    {
+        PageGrid grid = new PageGrid(
+                new LevelSize(120, 60),
+                new TerminalSize(20, 10)
+        );
+
+        Random random = new Random(42);
+
+        Set<Point> used = new HashSet<>();
+
+        for (int i = 0; i < 1500; ++i)
+        {
+            Point point = Point.of(random.nextInt(120), random.nextInt(60));
+
+            if (! used.add(point)) continue;
+
+            if (i % 3 == 0) grid.add(new Wall(point, representation));
+
+            else grid.add(new IntelligentObstacle(point, representation));
+        }
+
+        return grid;
+    }
+
+    private void assertConsistent(PageGrid grid, int elements)
+    {
+        assertThat(grid.numberOfElements(), is(elements));
+
+        int total = 0;
+
+        for (Page page : grid.pages())
+        {
+            total += page.size();
+
+            for (Element element : page.dynamicObstacles())
+            {
+                assertTrue(page.isInside(element));
+
+                assertThat(page.at(element.point()), is(sameInstance(element)));
+            }
+        }
+
+        assertThat(total, is(elements));
+    }
+
+    @Test public void testObstaclesMoveAndStayConsistent()
+    {
+        PageGrid grid = grid();
+
+        int elements = grid.numberOfElements();
+
+        List<Point> before = new ArrayList<>();
+
+        grid.dynamicObstacles().forEach(obstacle -> before.add(obstacle.point()));
+
+        new ObstacleUpdater(grid).update();
+
+        assertConsistent(grid, elements);
+
+        int moved = 0;
+
+        Iterator<Point> points = before.iterator();
+
+        for (DynamicObstacle obstacle : grid.dynamicObstacles())
+        {
+            if (! obstacle.point().equals(points.next())) ++moved;
+        }
+
+        assertTrue(moved > before.size() / 2);
+    }
+
+    @Test public void testParallelUpdateEqualsSequentialUpdate()
+    {
+        PageGrid sequential = grid();
+
+        PageGrid parallel = grid();
+
+        ObstacleUpdater first = new ObstacleUpdater(sequential);
+
+        ObstacleUpdater second = new ObstacleUpdater(parallel);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        for (int tick = 0; tick < 50; ++tick)
+        {
+            first.update();
+
+            second.update(pool);
+        }
+
+        pool.shutdown();
+
+        assertConsistent(parallel, sequential.numberOfElements());
+
+        Iterator<DynamicObstacle> expected = sequential.dynamicObstacles().iterator();
+
+        for (DynamicObstacle obstacle : parallel.dynamicObstacles())
+        {
+            assertThat(obstacle.point(), is(expected.next().point()));
+        }
+    }
+
+    @Test public void testObstaclesCrossPages()
+    {
+        PageGrid grid = grid();
+
+        Set<Page> pages = new HashSet<>();
+
+        DynamicObstacle obstacle = grid.dynamicObstacles().iterator().next();
+
+        ObstacleUpdater updater = new ObstacleUpdater(grid);
+
+        for (int tick = 0; tick < 200; ++tick)
+        {
+            updater.update();
+
+            pages.add(grid.getPageOf(obstacle));
+        }
+
+        assertTrue(pages.size() > 1);
+
+        assertConsistent(grid, grid.numberOfElements());
+    }
+}
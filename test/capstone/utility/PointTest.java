@@ -114,27 +114,43 @@ public class PointTest
         point = new Point(0, -1);
     }
 
-    @Test public void testAccessInterface()
+    @Test public void testOfReturnsCachedInstances()
     {
-        point.x(123);
+        assertSame(Point.of(4, 2), Point.of(4, 2));
 
-        assertThat(point.x(), is(123));
-
-        point.y(99);
+        assertThat(Point.of(4, 2), is(point));
+    }
 
-        assertThat(point.y(), is(99));
+    @Test public void testOfWorksBeyondCache()
+    {
+        assertThat(Point.of(100000, 3), is(new Point(100000, 3)));
     }
 
     @Test(expected=AssertionError.class)
-    public void testXThrowsForNegativeArgument()
+    public void testOfThrowsForNegativeXCoordinate()
     {
-        point.x(-5);
+        Point.of(-5, 0);
     }
 
     @Test(expected=AssertionError.class)
-    public void testYThrowsForNegativeArgument()
+    public void testOfThrowsForNegativeYCoordinate()
+    {
+        Point.of(0, -1);
+    }
+
+    @Test public void testMovingDoesNotModifyPoint()
+    {
+        point.move(1, 1);
+        point.plus(Delta.Up());
+        point.above();
+
+        assertThat(point, is(new Point(4, 2)));
+    }
+
+    @Test public void testNeighboursAreCached()
     {
-        point.y(-1);
+        assertSame(point.above(), point.plus(Delta.Up()));
+        assertSame(point.right(), point.move(1, 0));
     }
 
     @Test public void testEquals()
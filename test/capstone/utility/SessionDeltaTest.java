@@ -0,0 +1,339 @@
+package capstone.utility;
+
+import capstone.data.Profile;
+import capstone.data.Representation;
+import capstone.data.Theme;
+import capstone.element.Direction;
+import capstone.element.DynamicObstacle;
+import capstone.element.Element;
+import capstone.element.ObstacleSpec;
+import capstone.element.Player;
+import capstone.game.Level;
+import capstone.game.World;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.TerminalSize;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class SessionDeltaTest
+{
+    private File layout;
+
+    private File session;
+
+    private Properties properties;
+
+    private Theme theme;
+
+    private List<Profile> profiles;
+
+    private World world;
+
+    private Player player;
+
+    private void writeLayout() throws IOException
+    {
+        try (OutputStream stream = new BufferedOutputStream(
+                new FileOutputStream(layout)))
+        {
+            properties.store(stream, "Test Layout");
+        }
+    }
+
+    @Before public void setUp() throws IOException
+    {
+        layout = File.createTempFile("delta", ".layout");
+
+        session = File.createTempFile("delta", ".session");
+
+        // E . K W . X
+        // . . . . . .
+        // . . . . . D
+        properties = new Properties();
+
+        properties.setProperty("Width", "6");
+        properties.setProperty("Height", "3");
+
+        properties.setProperty("0,0", "1");
+        properties.setProperty("2,0", "3");
+        properties.setProperty("3,0", "0");
+        properties.setProperty("5,0", "2");
+        properties.setProperty("5,2", "5");
+
+        writeLayout();
+
+        theme = new Theme("TestTheme");
+
+        for (Element.Kind kind : Element.Kind.kinds())
+        {
+            theme.representation(kind, new Representation(
+                    kind.toString().charAt(0),
+                    Terminal.Color.RED,
+                    Terminal.Color.BLUE
+            ));
+        }
+
+        profiles = new ArrayList<>();
+
+        profiles.add(new Profile(
+                "test",
+                "Real Name",
+                KeyMap.Arrows(),
+                new Representation('$', Terminal.Color.BLACK, Terminal.Color.RED)
+        ));
+
+        world = new World(new LevelBuilder(
+                Level.Difficulty.HARD,
+                layout,
+                theme,
+                new ArrayList<>(profiles),
+                new TerminalSize(80, 24)
+        ));
+
+        player = world.players().get(0);
+    }
+
+    @After public void tearDown()
+    {
+        assert(layout.delete());
+        assert(session.delete());
+    }
+
+    private void tick(Direction direction)
+    {
+        Map<String, Direction> directions = new HashMap<>();
+
+        directions.put(player.id(), direction);
+
+        world.tick(directions);
+    }
+
+    private Set<Point> obstacles(World world)
+    {
+        Set<Point> points = new HashSet<>();
+
+        for (DynamicObstacle obstacle : world.grid().dynamicObstacles())
+        {
+            points.add(obstacle.point());
+        }
+
+        return points;
+    }
+
+    @Test public void testWorldRemembersItsLayout()
+    {
+        assertThat(world.layout(), is(layout.getPath()));
+
+        assertTrue(world.changes().isEmpty());
+    }
+
+    @Test public void testAppliesChangesToLayout() throws IOException
+    {
+        // Collect the key
+        tick(Direction.RIGHT);
+        tick(Direction.RIGHT);
+
+        // Let the obstacle wander
+        Map<String, Direction> none = Collections.emptyMap();
+
+        for (int i = 0; i < 10; ++i) world.tick(none);
+
+        Point obstacle = world.currentPage()
+                              .dynamicObstacles()
+                              .iterator()
+                              .next()
+                              .point();
+
+        new LevelBuilder(world).delta().write(session);
+
+        assertTrue(session.length() < 512);
+
+        LevelFile level = LevelFile.read(session);
+
+        assertThat(level.layout(), is(layout.getPath()));
+
+        assertNull(level.kind(2, 0));
+
+        assertThat(level.kind(3, 0), is(Element.Kind.WALL));
+
+        assertThat(level.kind(obstacle.x(), obstacle.y()),
+                   is(Element.Kind.DYNAMIC_OBSTACLE));
+
+        if (! obstacle.equals(new Point(5, 2))) assertNull(level.kind(5, 2));
+
+        assertThat(level.players().get(player.id()), is(player.point()));
+
+        assertThat(level.difficulty(), is(Level.Difficulty.HARD));
+
+        assertThat(level.changes(), is(world.changes()));
+    }
+
+    @Test public void testKeepsTheStateOfObstacles() throws IOException
+    {
+        properties.setProperty("obstacle:5,2", "3|pattern=ludr|period=2");
+
+        writeLayout();
+
+        world = new World(new LevelBuilder(
+                Level.Difficulty.HARD,
+                layout,
+                theme,
+                profiles,
+                new TerminalSize(80, 24)
+        ));
+
+        Map<String, Direction> none = Collections.emptyMap();
+
+        for (int i = 0; i < 5; ++i) world.tick(none);
+
+        DynamicObstacle obstacle = (DynamicObstacle) world.currentPage()
+                                                          .dynamicObstacles()
+                                                          .iterator()
+                                                          .next();
+
+        new LevelBuilder(world).delta().write(session);
+
+        LevelFile level = LevelFile.read(session);
+
+        Point point = obstacle.point();
+
+        ObstacleSpec spec = level.obstacle(point.x(), point.y());
+
+        assertThat(spec, is(obstacle.spec()));
+
+        // Stepped left, up and down on every other tick
+        assertThat(spec.period(), is(2));
+
+        assertThat(spec.rest(), is(1));
+
+        assertThat(spec.state(), is(3));
+
+        // The obstacle left the cell of the layout
+        assertThat(level.obstacles().size(), is(1));
+    }
+
+    @Test public void testResumesExactlyWhereItWasSaved() throws IOException
+    {
+        properties.remove("3,0");
+
+        properties.setProperty("1,2", "5");
+
+        properties.setProperty("obstacle:1,2", "1|period=3");
+
+        writeLayout();
+
+        world = new World(new LevelBuilder(
+                Level.Difficulty.EASY,
+                layout,
+                theme,
+                new ArrayList<>(profiles),
+                new TerminalSize(80, 24)
+        ));
+
+        Map<String, Direction> none = Collections.emptyMap();
+
+        for (int i = 0; i < 20; ++i) world.tick(none);
+
+        world.reseed();
+
+        new LevelBuilder(world).delta().write(session);
+
+        LevelFile level = LevelFile.read(session);
+
+        assertThat(level.seed(), is(world.seed()));
+
+        assertThat(level.frame(), is(world.frame()));
+
+        World resumed = new World(new LevelBuilder(
+                level,
+                theme,
+                new ArrayList<>(profiles),
+                new TerminalSize(80, 24)
+        ));
+
+        for (int i = 0; i < 50; ++i)
+        {
+            world.tick(none);
+
+            resumed.tick(none);
+
+            assertThat(obstacles(resumed), is(obstacles(world)));
+        }
+    }
+
+    @Test public void testStoresInFullWithoutLayout() throws IOException
+    {
+        world = new World(new LevelBuilder(world).layout(null, 0));
+
+        File directory = session.getParentFile();
+
+        LevelBuilder builder = new LevelBuilder(world);
+
+        File file = new File(directory, builder.fileName());
+
+        builder.store(directory);
+
+        assertTrue(LevelFile.isBinary(file));
+
+        assertThat(LevelFile.read(file).kind(3, 0), is(Element.Kind.WALL));
+
+        assert(file.delete());
+    }
+
+    @Test public void testSnapshotIsIndependentOfWorld() throws Exception
+    {
+        File directory = session.getParentFile();
+
+        LevelBuilder.Snapshot snapshot = new LevelBuilder(world).snapshot(directory);
+
+        // Collect the key after the snapshot was taken
+        tick(Direction.RIGHT);
+        tick(Direction.RIGHT);
+
+        assertThat(world.keysCollected(), is(1));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        File file = executor.submit(snapshot::write).get();
+
+        executor.shutdown();
+
+        assertThat(LevelFile.read(file).kind(2, 0), is(Element.Kind.KEY));
+
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        assert(file.delete());
+    }
+
+    @Test(expected=IOException.class)
+    public void testThrowsIfLayoutChanged() throws IOException
+    {
+        new LevelBuilder(world).delta().write(session);
+
+        properties.setProperty("1,1", "0");
+
+        writeLayout();
+
+        LevelFile.read(session);
+    }
+}